@@ -1,10 +1,12 @@
 package org.kakara.engine;
 
+import org.kakara.engine.gameitems.TextureLoader;
 import org.kakara.engine.render.PipelineManager;
 import org.kakara.engine.render.Renderer;
 import org.kakara.engine.render.ShaderManager;
 import org.kakara.engine.scene.AbstractGameScene;
 import org.kakara.engine.scene.AbstractMenuScene;
+import org.kakara.engine.utils.FrameTimeHistogram;
 import org.kakara.engine.utils.Time;
 import org.kakara.engine.voxels.ChunkHandler;
 import org.kakara.engine.window.Window;
@@ -44,6 +46,8 @@ public class GameEngine implements Runnable {
     private final Queue<Runnable> mainThreadQueue = new LinkedBlockingQueue<>();
     private final PipelineManager pipelineManager;
     private final ShaderManager shaderManager;
+    private final TextureLoader textureLoader = new TextureLoader();
+    private final FrameTimeHistogram frameTimeHistogram = new FrameTimeHistogram();
     protected boolean running = true;
     private Renderer renderer;
 
@@ -57,7 +61,27 @@ public class GameEngine implements Runnable {
      * @param game        The main game class.
      */
     public GameEngine(String windowTitle, int width, int height, boolean vSync, Game game) {
-        this.window = new Window(windowTitle, width, height, true, vSync);
+        this(windowTitle, width, height, vSync, game, Boolean.getBoolean("kakara.headless"));
+    }
+
+    /**
+     * Create a new game.
+     *
+     * <p>A headless game never shows its window and renders into an offscreen frame buffer. The game loop is not
+     * limited to the target fps, which makes it suited for automated render benchmarks. Frames can be read back with
+     * {@link org.kakara.engine.render.FrameCapture}. (The <code>kakara.headless</code> system property makes the other
+     * constructor create a headless game).</p>
+     *
+     * @param windowTitle The title of the window.
+     * @param width       The width of the window
+     * @param height      The height of the window
+     * @param vSync       If the game is to use vsync. (Ignored when headless).
+     * @param game        The main game class.
+     * @param headless    If the game renders without a visible window.
+     * @since 1.0-Pre5
+     */
+    public GameEngine(String windowTitle, int width, int height, boolean vSync, Game game, boolean headless) {
+        this.window = new Window(windowTitle, width, height, !headless, vSync, headless);
         time = new Time();
         this.game = game;
         this.renderer = new Renderer(this);
@@ -118,6 +142,7 @@ public class GameEngine implements Runnable {
         while (running && !window.windowShouldClose()) {
             elapsedTime = time.getElapsedTime();
             accumulator += elapsedTime;
+            frameTimeHistogram.record(elapsedTime);
 
             input();
 
@@ -126,9 +151,12 @@ public class GameEngine implements Runnable {
                 accumulator -= interval;
             }
 
+            if (gameHandler.getSceneManager().getCurrentScene() instanceof AbstractGameScene)
+                ((AbstractGameScene) gameHandler.getSceneManager().getCurrentScene()).getPhysicsStepper().advance(elapsedTime);
+
             render();
 
-            if (!window.isvSync()) {
+            if (!window.isvSync() && !window.isHeadless()) {
                 sync();
             }
         }
@@ -179,6 +207,8 @@ public class GameEngine implements Runnable {
      * Updates for rendering.
      */
     protected void render() {
+        renderer.getRenderStats().beginFrame();
+        textureLoader.update();
         gameHandler.getSceneManager().renderCurrentScene();
         window.update();
         /*
@@ -223,6 +253,7 @@ public class GameEngine implements Runnable {
     protected void cleanup() {
         if (gameHandler.getSceneManager().getCurrentScene() instanceof AbstractMenuScene) return;
         renderer.cleanup();
+        textureLoader.cleanup();
         gameHandler.getSceneManager().getCurrentScene().getItemHandler().cleanup();
         ChunkHandler.EXECUTORS.shutdown();
     }
@@ -296,6 +327,27 @@ public class GameEngine implements Runnable {
         return shaderManager;
     }
 
+    /**
+     * Get the loader for textures that are loaded in the background.
+     *
+     * @return The texture loader.
+     * @since 1.0-Pre5
+     */
+    public TextureLoader getTextureLoader() {
+        return textureLoader;
+    }
+
+    /**
+     * Get the histogram of the time of every frame.
+     * <p>This can be used to measure hitches, such as while a scene is loading.</p>
+     *
+     * @return The frame time histogram.
+     * @since 1.0-Pre5
+     */
+    public FrameTimeHistogram getFrameTimeHistogram() {
+        return frameTimeHistogram;
+    }
+
     protected void exit() {
         running = false;
     }
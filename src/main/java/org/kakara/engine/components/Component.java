@@ -51,13 +51,34 @@ public abstract class Component {
     }
 
     /**
-     * This is called when a collision is detected.
+     * This is called when a collision starts.
+     * <p>It is only called again for the same collider once the collision has ended.</p>
      *
      * @param other The other component.
      */
     public void onCollision(ColliderComponent other) {
     }
 
+    /**
+     * This is called while a collision continues, after it started.
+     * <p>How often this is called is set by
+     * {@link org.kakara.engine.physics.collision.ContactPairCache#setStayInterval(float)}.</p>
+     *
+     * @param other The other component.
+     * @since 1.0-Pre5
+     */
+    public void onCollisionStay(ColliderComponent other) {
+    }
+
+    /**
+     * This is called when a collision ends.
+     *
+     * @param other The other component.
+     * @since 1.0-Pre5
+     */
+    public void onCollisionExit(ColliderComponent other) {
+    }
+
     /**
      * This initializes the Component.
      * <p>This is to be called by the engine when the component is added to a GameItem.</p>
@@ -1,6 +1,7 @@
 package org.kakara.engine.components;
 
 import org.kakara.engine.gameitems.mesh.IMesh;
+import org.kakara.engine.gameitems.mesh.Mesh;
 
 import java.util.Arrays;
 import java.util.Objects;
@@ -13,6 +14,7 @@ import java.util.Objects;
 public class MeshRenderer extends Component {
     private IMesh[] mesh;
     private boolean visible = true;
+    private int levelOfDetail;
 
     @Override
     public void start() {
@@ -84,6 +86,55 @@ public class MeshRenderer extends Component {
         return mesh;
     }
 
+    /**
+     * Get the level of detail the meshes are rendered with.
+     *
+     * @return The level of detail. (0 is the full detail mesh).
+     * @since 1.0-Pre5
+     */
+    public int getLevelOfDetail() {
+        return levelOfDetail;
+    }
+
+    /**
+     * Select the level of detail from the size of the GameItem on the screen.
+     * <p>The level is selected with the first mesh. Meshes without levels of detail are always rendered in full
+     * detail.</p>
+     *
+     * @param screenSize The bounding radius of the GameItem divided by half of the height of the view.
+     * @return The selected level of detail.
+     * @since 1.0-Pre5
+     */
+    public int updateLevelOfDetail(float screenSize) {
+        if (mesh != null && mesh[0] instanceof Mesh)
+            levelOfDetail = ((Mesh) mesh[0]).selectLevelOfDetail(screenSize, levelOfDetail);
+        return levelOfDetail;
+    }
+
+    /**
+     * Get the mesh that should be rendered for the current level of detail.
+     *
+     * @param index The index of the mesh.
+     * @return The mesh to render.
+     * @since 1.0-Pre5
+     */
+    public IMesh getRenderMesh(int index) {
+        IMesh m = mesh[index];
+        if (levelOfDetail > 0 && m instanceof Mesh)
+            return ((Mesh) m).getLevelOfDetail(levelOfDetail);
+        return m;
+    }
+
+    /**
+     * Get the first mesh that should be rendered for the current level of detail.
+     *
+     * @return The mesh to render.
+     * @since 1.0-Pre5
+     */
+    public IMesh getRenderMesh() {
+        return getRenderMesh(0);
+    }
+
     /**
      * If the mesh is visible.
      *
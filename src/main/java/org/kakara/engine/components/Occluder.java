@@ -0,0 +1,37 @@
+package org.kakara.engine.components;
+
+import org.kakara.engine.physics.collision.ColliderComponent;
+
+/**
+ * The Occluder component marks a GameItem as something that hides the objects behind it.
+ *
+ * <p>Occluders are drawn into the depth buffer of the {@link org.kakara.engine.render.culling.OcclusionCuller}
+ * each frame. The bounds of the item's {@link ColliderComponent} are used, so the item must have a collider and its
+ * collider must be completely filled by the mesh. (Walls, floors, and large rocks make good occluders).</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class Occluder extends Component {
+    private final float[] bounds = new float[6];
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void update() {
+    }
+
+    /**
+     * Get the bounds of the occluder.
+     * <p>The array is filled with: minX, minY, minZ, maxX, maxY, maxZ.</p>
+     *
+     * @return The bounds of the occluder, or null if the item does not have a collider.
+     */
+    public float[] getBounds() {
+        ColliderComponent collider = getComponent(ColliderComponent.class);
+        if (collider == null) return null;
+        collider.getAbsoluteBounds(bounds);
+        return bounds;
+    }
+}
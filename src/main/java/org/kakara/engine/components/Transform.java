@@ -23,6 +23,15 @@ public class Transform extends Component {
     private final Quaternionf rotation = new Quaternionf();
     private final Vector3 scale = new Vector3(1, 1, 1);
 
+    // The state before the last physics step, and the state between it and the current state that is rendered.
+    private final Vector3 previousPosition = new Vector3();
+    private final Quaternionf previousRotation = new Quaternionf();
+    private final Vector3 renderPosition = new Vector3();
+    private final Quaternionf renderRotation = new Quaternionf();
+    private boolean interpolated;
+    // Notified when the transform changes, such as the visibility tree of the item.
+    private volatile Runnable changeListener;
+
     @Override
     public void start() {
     }
@@ -40,11 +49,13 @@ public class Transform extends Component {
      */
     public void setPosition(float x, float y, float z) {
         this.position.set(x, y, z);
+        markChanged();
     }
 
     /**
      * Get the position vector.
-     * <p>This is not a copy and is mutable.</p>
+     * <p>This is not a copy and is mutable. Call {@link #markChanged()} after changing it directly, or use the setters
+     * instead.</p>
      *
      * @return The position vector.
      */
@@ -59,6 +70,7 @@ public class Transform extends Component {
      */
     public void setPosition(Vector3 position) {
         this.position.set(position);
+        markChanged();
     }
 
     /**
@@ -86,6 +98,7 @@ public class Transform extends Component {
      */
     public void setRotation(Quaternionf rotation) {
         this.rotation.set(rotation);
+        markChanged();
     }
 
     /**
@@ -96,6 +109,7 @@ public class Transform extends Component {
      */
     public void rotateAboutAxis(float angle, Vector3 axis) {
         this.rotation.rotateAxis(angle, axis.toJoml());
+        markChanged();
     }
 
     /**
@@ -106,6 +120,7 @@ public class Transform extends Component {
      */
     public void setRotationAboutAxis(float angle, Vector3 axis) {
         this.rotation.rotationAxis(angle, axis.toJoml());
+        markChanged();
     }
 
     /**
@@ -119,10 +134,13 @@ public class Transform extends Component {
         scale.x = x;
         scale.y = y;
         scale.z = z;
+        markChanged();
     }
 
     /**
      * Get the scale.
+     * <p>This is not a copy and is mutable. Call {@link #markChanged()} after changing it directly, or use the setters
+     * instead.</p>
      *
      * @return The scale.
      */
@@ -139,6 +157,7 @@ public class Transform extends Component {
         scale.x = xyz;
         scale.y = xyz;
         scale.z = xyz;
+        markChanged();
     }
 
     /**
@@ -148,6 +167,7 @@ public class Transform extends Component {
      */
     public void setScale(Vector3 scale) {
         this.scale.set(scale);
+        markChanged();
     }
 
     /**
@@ -168,6 +188,7 @@ public class Transform extends Component {
      */
     public void translateBy(float x, float y, float z) {
         this.position.addMut(x, y, z);
+        markChanged();
     }
 
     /**
@@ -177,6 +198,17 @@ public class Transform extends Component {
      */
     public void translateBy(Vector3 vector) {
         this.position.addMut(vector);
+        markChanged();
+    }
+
+    /**
+     * Translate the position by a vector.
+     *
+     * @param vector The vector to translate by.
+     * @since 1.0-Pre5
+     */
+    public void translateBy(Vector3fc vector) {
+        translateBy(vector.x(), vector.y(), vector.z());
     }
 
     /**
@@ -198,6 +230,7 @@ public class Transform extends Component {
             position.z += (float) Math.cos(Math.toRadians(camera.getRotation().y - 90)) * offsetX;
         }
         position.y += offsetY;
+        markChanged();
     }
 
     /**
@@ -217,6 +250,90 @@ public class Transform extends Component {
             position.z += (float) Math.cos(Math.toRadians(camera.getRotation().y - 90)) * offset.x;
         }
         position.y += offset.y;
+        markChanged();
+    }
+
+    /**
+     * Let the engine know that the transform has changed.
+     * <p>The setters call this. It only needs to be called after changing the vectors returned by
+     * {@link #getPosition()} or {@link #getScale()} directly, so the item is culled at its new position.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public void markChanged() {
+        Runnable listener = changeListener;
+        if (listener != null)
+            listener.run();
+    }
+
+    /**
+     * Set what is notified when the transform changes.
+     * <p>Internal use only. This is set by the {@link org.kakara.engine.gameitems.ItemHandler} the item is in.</p>
+     *
+     * @param changeListener The listener. (Null to remove it).
+     * @since 1.0-Pre5
+     */
+    public void setChangeListener(Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Get the position the item is rendered at.
+     * <p>For items moved by the physics this is between the position before the last physics step and the current
+     * position, so the item moves smoothly at any frame rate. For every other item this is the position.</p>
+     *
+     * @return The render position. (This should not be modified).
+     * @since 1.0-Pre5
+     */
+    public Vector3 getRenderPosition() {
+        return interpolated ? renderPosition : position;
+    }
+
+    /**
+     * Get the rotation the item is rendered at.
+     *
+     * @return The render rotation. (This should not be modified).
+     * @see #getRenderPosition()
+     * @since 1.0-Pre5
+     */
+    public Quaternionf getRenderRotation() {
+        return interpolated ? renderRotation : rotation;
+    }
+
+    /**
+     * Store the current position and rotation as the state before a physics step.
+     * <p>Internal use only. This is called by the {@link org.kakara.engine.physics.PhysicsStepper}.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public void storePreviousState() {
+        previousPosition.set(position);
+        previousRotation.set(rotation);
+    }
+
+    /**
+     * Set the render state between the state before the last physics step and the current state.
+     * <p>Internal use only. This is called by the {@link org.kakara.engine.physics.PhysicsStepper}.</p>
+     *
+     * @param alpha How far between the previous and the current state to render. (0-1).
+     * @since 1.0-Pre5
+     */
+    public void interpolate(float alpha) {
+        renderPosition.set(previousPosition.x + (position.x - previousPosition.x) * alpha,
+                previousPosition.y + (position.y - previousPosition.y) * alpha,
+                previousPosition.z + (position.z - previousPosition.z) * alpha);
+        previousRotation.nlerp(rotation, alpha, renderRotation);
+        interpolated = true;
+    }
+
+    /**
+     * Render the current state instead of an interpolated one until the next call to {@link #interpolate(float)}.
+     * <p>Internal use only.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public void clearInterpolation() {
+        interpolated = false;
     }
 
     @Override
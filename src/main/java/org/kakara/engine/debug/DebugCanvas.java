@@ -5,6 +5,8 @@ import imgui.flag.ImGuiCond;
 import imgui.gl3.ImGuiImplGl3;
 import imgui.glfw.ImGuiImplGlfw;
 import org.kakara.engine.GameHandler;
+import org.kakara.engine.render.stats.PassStats;
+import org.kakara.engine.render.stats.RenderStats;
 import org.kakara.engine.scene.AbstractGameScene;
 import org.kakara.engine.scene.AbstractScene;
 import org.kakara.engine.scene.Scene;
@@ -51,6 +53,7 @@ public class DebugCanvas implements UICanvas {
 
         renderSceneInfo(userInterface.getScene());
         renderFPSInfo(userInterface.getScene());
+        renderRenderStats(handler.getGameEngine().getRenderer().getRenderStats());
 
         ImGui.render();
         imGuiGl3.render(ImGui.getDrawData());
@@ -87,6 +90,23 @@ public class DebugCanvas implements UICanvas {
         ImGui.end();
     }
 
+    private void renderRenderStats(RenderStats stats) {
+        ImGui.setNextWindowSize(300, 400, ImGuiCond.Once);
+        ImGui.setNextWindowPos(320, 10, ImGuiCond.Once);
+        ImGui.begin("Render Statistics");
+        ImGui.text(String.format("GPU: %.2fms  Draws: %d  Triangles: %d", stats.getTotalGpuTime(),
+                stats.getTotalDrawCalls(), stats.getTotalTriangles()));
+        for (PassStats pass : stats.getPasses()) {
+            ImGui.separator();
+            ImGui.text(pass.getName());
+            ImGui.text(String.format("GPU: %.3fms  CPU: %.3fms", pass.getGpuTime(), pass.getCpuTime()));
+            ImGui.text(String.format("Draws: %d  Triangles: %d  Binds: %d", pass.getDrawCalls(), pass.getTriangles(),
+                    pass.getTextureBinds()));
+            ImGui.text(String.format("Uploads: %d (%d KiB)", pass.getBufferUploads(), pass.getUploadedBytes() / 1024));
+        }
+        ImGui.end();
+    }
+
     private float[] getFPSArray() {
         float[] data = new float[fps.size()];
         for (int i = 0; i < fps.size(); i++) {
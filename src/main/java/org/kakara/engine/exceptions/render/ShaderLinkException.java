@@ -9,4 +9,8 @@ public class ShaderLinkException extends Exception {
     public ShaderLinkException(String message) {
         super(message);
     }
+
+    public ShaderLinkException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
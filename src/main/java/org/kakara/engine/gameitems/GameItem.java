@@ -11,7 +11,6 @@ import org.kakara.engine.properties.Tagable;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * GameItems are the basic building block of the engine. They are used to create objects
@@ -153,11 +152,12 @@ public class GameItem implements Tagable, Identifiable {
      * @return The instance of the component. (Returns null if not found.)
      */
     public <T extends Component> T getComponent(Class<T> component) {
-        List<Component> compLst = components.stream().filter(comp -> component.isAssignableFrom(comp.getClass()))
-                .collect(Collectors.toList());
-        if (compLst.size() > 0)
-            return (T) compLst.get(0);
-
+        // This is called for every item every frame, so avoid allocating.
+        for (int i = 0; i < components.size(); i++) {
+            Component comp = components.get(i);
+            if (component.isInstance(comp))
+                return (T) comp;
+        }
         return null;
     }
 
@@ -2,13 +2,20 @@ package org.kakara.engine.gameitems;
 
 import org.kakara.engine.GameEngine;
 import org.kakara.engine.components.Component;
+import org.kakara.engine.components.MeshRenderer;
 import org.kakara.engine.gameitems.features.Feature;
 import org.kakara.engine.gameitems.mesh.IMesh;
 import org.kakara.engine.gameitems.mesh.InstancedMesh;
+import org.kakara.engine.gameitems.mesh.Mesh;
 import org.kakara.engine.gameitems.mesh.NullMesh;
+import org.kakara.engine.math.Vector3;
+import org.kakara.engine.physics.collision.ColliderComponent;
+import org.kakara.engine.physics.collision.PhysicsComponent;
+import org.kakara.engine.render.culling.VisibilityTree;
 
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Handles all of the items.
@@ -18,7 +25,14 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * keep this in mind when designing your code.</p>
  */
 public class ItemHandler {
+    // How far an item can move before it has to be reinserted into the visibility tree.
+    private static final float VISIBILITY_MARGIN = 0.5f;
+    private static final float SQRT_3 = (float) Math.sqrt(3);
+
     private final List<GameItem> items;
+    private final VisibilityTree<GameItem> visibilityTree;
+    // Incremented whenever an item is added or removed.
+    private final AtomicLong modificationCount = new AtomicLong();
 
     private final NullMesh nullMesh = new NullMesh();
 
@@ -29,6 +43,44 @@ public class ItemHandler {
         items = new CopyOnWriteArrayList<>();
         nonInstancedMeshMap = new HashMap<>();
         instancedMeshMap = new HashMap<>();
+        visibilityTree = new VisibilityTree<>(ItemHandler::getItemBounds, VISIBILITY_MARGIN, true);
+    }
+
+    /**
+     * Get the world space bounds of an item for the visibility tree.
+     * <p>The collider of the item is used if it has one. Otherwise the bounds are estimated from the bounding radius of
+     * its meshes.</p>
+     *
+     * @param item The item.
+     * @param dest The array to write the bounds into.
+     * @return If the item has bounds.
+     */
+    private static boolean getItemBounds(GameItem item, float[] dest) {
+        ColliderComponent collider = item.getComponent(ColliderComponent.class);
+        if (collider != null) {
+            collider.getAbsoluteBounds(dest);
+            return true;
+        }
+        MeshRenderer meshRenderer = item.getComponent(MeshRenderer.class);
+        if (meshRenderer == null || meshRenderer.getMeshes() == null) return false;
+        float radius = 0;
+        for (IMesh mesh : meshRenderer.getMeshes()) {
+            if (!(mesh instanceof Mesh)) return false;
+            radius = Math.max(radius, ((Mesh) mesh).getBoundingRadius());
+        }
+        if (radius <= 0) return false;
+
+        // The bounding radius is the largest coordinate, so this covers the mesh at any rotation.
+        Vector3 scale = item.transform.getScale();
+        float extent = radius * SQRT_3 * Math.max(Math.abs(scale.x), Math.max(Math.abs(scale.y), Math.abs(scale.z)));
+        Vector3 position = item.transform.getPosition();
+        dest[0] = position.x - extent;
+        dest[1] = position.y - extent;
+        dest[2] = position.z - extent;
+        dest[3] = position.x + extent;
+        dest[4] = position.y + extent;
+        dest[5] = position.z + extent;
+        return true;
     }
 
     /**
@@ -51,6 +103,9 @@ public class ItemHandler {
         }
         list.add(obj);
         items.add(obj);
+        obj.transform.setChangeListener(() -> onTransformChanged(obj));
+        visibilityTree.add(obj);
+        modificationCount.incrementAndGet();
     }
 
     /**
@@ -73,6 +128,9 @@ public class ItemHandler {
             nonInstancedMeshMap.get(mesh).remove(obj);
         }
         items.remove(obj);
+        obj.transform.setChangeListener(null);
+        visibilityTree.remove(obj);
+        modificationCount.incrementAndGet();
     }
 
     /**
@@ -95,6 +153,9 @@ public class ItemHandler {
                     nonInstancedMeshMap.get(mesh).remove(item);
                 }
                 items.remove(item);
+                item.transform.setChangeListener(null);
+                visibilityTree.remove(item);
+                modificationCount.incrementAndGet();
             }
         }
     }
@@ -121,6 +182,17 @@ public class ItemHandler {
         return instancedMeshMap;
     }
 
+    /**
+     * Get the bounding volume hierarchy of the items, used to find the items within the view frustum.
+     * <p>The tree is updated by the render pipeline once per frame.</p>
+     *
+     * @return The visibility tree.
+     * @since 1.0-Pre5
+     */
+    public VisibilityTree<GameItem> getVisibilityTree() {
+        return visibilityTree;
+    }
+
     /**
      * Get game items with a certain id.
      *
@@ -134,6 +206,41 @@ public class ItemHandler {
         return Optional.empty();
     }
 
+    /**
+     * Called whenever the transform of an item is changed.
+     *
+     * @param item The item.
+     */
+    private void onTransformChanged(GameItem item) {
+        visibilityTree.markMoved(item);
+        // A sleeping object that is moved from outside of the physics is woken.
+        PhysicsComponent body = item.getComponent(PhysicsComponent.class);
+        if (body != null && body.isSleeping())
+            body.wakeUp();
+    }
+
+    /**
+     * Get the number of times the items have changed.
+     * <p>This changes whenever an item is added or removed, or when a {@link PhysicsComponent} is added to or removed
+     * from an item. It is used by the physics to know when to look for the objects again.</p>
+     *
+     * @return The modification count.
+     * @since 1.0-Pre5
+     */
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    /**
+     * Count a change to the items that the physics needs to know about.
+     * <p>Internal use only.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public void markModified() {
+        modificationCount.incrementAndGet();
+    }
+
     /**
      * Grab a list of all of the items
      *
@@ -29,11 +29,15 @@ import static org.lwjgl.system.MemoryStack.stackPush;
  */
 public class Texture {
 
-    private final int id;
+    private int id;
 
-    private final int width;
+    private int width;
 
-    private final int height;
+    private int height;
+
+    // False while the texture is being loaded by the TextureLoader.
+    private boolean loaded = true;
+    private boolean deleted;
 
     private int numRows = 1;
 
@@ -60,6 +64,23 @@ public class Texture {
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
     }
 
+    /**
+     * Create a 1x1 white placeholder texture that is replaced once the {@link TextureLoader} finishes loading it.
+     *
+     * @param currentScene The current scene.
+     */
+    Texture(Scene currentScene) {
+        this.scene = currentScene;
+        this.width = 1;
+        this.height = 1;
+        this.loaded = false;
+        this.id = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, this.id);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, 1, 1, 0, GL_RGBA, GL_UNSIGNED_BYTE, new int[]{0xFFFFFFFF});
+    }
+
     /**
      * Create a texture using a file name.
      * <p>This is primarily used for the particle system.</p>
@@ -207,6 +228,41 @@ public class Texture {
         return path;
     }
 
+    /**
+     * Replace the placeholder with the loaded texture.
+     *
+     * @param id     The id of the loaded texture.
+     * @param width  The width of the loaded texture.
+     * @param height The height of the loaded texture.
+     */
+    void finishLoading(int id, int width, int height) {
+        glDeleteTextures(this.id);
+        this.id = id;
+        this.width = width;
+        this.height = height;
+        this.loaded = true;
+    }
+
+    /**
+     * Check if the texture has finished loading.
+     * <p>Textures loaded with the {@link TextureLoader} are a white placeholder until then.</p>
+     *
+     * @return If the texture is loaded.
+     * @since 1.0-Pre5
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Check if the texture has been cleaned up.
+     *
+     * @return If the texture was cleaned up.
+     */
+    boolean isDeleted() {
+        return deleted;
+    }
+
     /**
      * Get the number of columns
      * <p>For use with particles</p>
@@ -229,6 +285,7 @@ public class Texture {
 
     /**
      * Get the width of the texture.
+     * <p>This is 1 until the texture is loaded, see {@link #isLoaded()}.</p>
      *
      * @return The width of the texture.
      */
@@ -238,6 +295,7 @@ public class Texture {
 
     /**
      * Get the height of the texture.
+     * <p>This is 1 until the texture is loaded, see {@link #isLoaded()}.</p>
      *
      * @return The height of the texture.
      */
@@ -269,6 +327,7 @@ public class Texture {
      */
     public void cleanup() {
         glDeleteTextures(id);
+        deleted = true;
     }
 
     /**
@@ -0,0 +1,281 @@
+package org.kakara.engine.gameitems;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.kakara.engine.GameEngine;
+import org.kakara.engine.render.stats.RenderStats;
+import org.kakara.engine.resources.FileResource;
+import org.kakara.engine.resources.Resource;
+import org.kakara.engine.scene.Scene;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.stb.STBImage.*;
+
+/**
+ * Loads textures without stalling the main thread.
+ *
+ * <p>{@link #load(Resource, Scene)} returns a white placeholder {@link Texture} right away and decodes the image on a
+ * worker thread. Every frame {@link #update()} streams the decoded images to the GPU through a pixel buffer object,
+ * a few rows at a time, until the upload budget of the frame is used. Mipmaps are generated the frame after a texture
+ * is uploaded, and then the placeholder is replaced.</p>
+ *
+ * <p>Get the instance of this class through {@link GameEngine#getTextureLoader()}.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class TextureLoader {
+    /**
+     * The default number of bytes uploaded every frame.
+     */
+    public static final int DEFAULT_UPLOAD_BUDGET = 4 << 20;
+
+    private final Queue<Upload> decoded = new ConcurrentLinkedQueue<>();
+    private final Queue<Upload> uploads = new ArrayDeque<>();
+    private final Queue<Upload> mipmaps = new ArrayDeque<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private ExecutorService executor;
+    private int uploadBudget = DEFAULT_UPLOAD_BUDGET;
+    private int pbo;
+    private long pboSize;
+
+    /**
+     * Internal use only.
+     */
+    public TextureLoader() {
+    }
+
+    /**
+     * Load a texture in the background.
+     * <p>This must be called on the main thread.</p>
+     *
+     * @param resource     The resource of the image.
+     * @param currentScene The current scene.
+     * @return The texture, which is a placeholder until it is loaded. (See {@link Texture#isLoaded()}).
+     */
+    public Texture load(Resource resource, Scene currentScene) {
+        Texture texture = new Texture(currentScene);
+        if (executor == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "Texture Decoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pending.incrementAndGet();
+        executor.execute(() -> decode(texture, resource));
+        return texture;
+    }
+
+    /**
+     * Decode an image.
+     * <p>This runs on a worker thread.</p>
+     *
+     * @param texture  The texture to decode the image for.
+     * @param resource The resource of the image.
+     */
+    private void decode(Texture texture, Resource resource) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer avChannels = stack.mallocInt(1);
+
+            ByteBuffer pixels;
+            if (resource instanceof FileResource) {
+                String path = resource.getPath();
+                // The path needs to be corrected on windows.
+                if (SystemUtils.IS_OS_WINDOWS && path.startsWith("/"))
+                    path = path.substring(1);
+                pixels = stbi_load(path, w, h, avChannels, 4);
+            } else {
+                ByteBuffer data = resource.getByteBuffer();
+                if (data != null && !data.isDirect()) {
+                    ByteBuffer direct = MemoryUtil.memAlloc(data.remaining());
+                    direct.put(data).flip();
+                    pixels = stbi_load_from_memory(direct, w, h, avChannels, 4);
+                    MemoryUtil.memFree(direct);
+                } else {
+                    pixels = data == null ? null : stbi_load_from_memory(data, w, h, avChannels, 4);
+                }
+            }
+            if (pixels == null) {
+                GameEngine.LOGGER.error("Cannot load the image " + resource.getPath() + ". " + stbi_failure_reason());
+                pending.decrementAndGet();
+                return;
+            }
+            decoded.add(new Upload(texture, pixels, w.get(0), h.get(0)));
+        } catch (RuntimeException e) {
+            GameEngine.LOGGER.error("Cannot load the image " + resource.getPath(), e);
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Upload the decoded images.
+     * <p>Internal use only. This is called once per frame on the main thread.</p>
+     */
+    public void update() {
+        // Finish the textures that were uploaded last frame.
+        Upload upload;
+        while ((upload = mipmaps.poll()) != null) {
+            if (upload.texture.isDeleted()) {
+                glDeleteTextures(upload.id);
+            } else {
+                glBindTexture(GL_TEXTURE_2D, upload.id);
+                glGenerateMipmap(GL_TEXTURE_2D);
+                upload.texture.finishLoading(upload.id, upload.width, upload.height);
+            }
+            pending.decrementAndGet();
+        }
+
+        while ((upload = decoded.poll()) != null) {
+            uploads.add(upload);
+        }
+        if (uploads.isEmpty()) return;
+
+        if (pbo == 0)
+            pbo = glGenBuffers();
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, pbo);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+
+        long budget = uploadBudget;
+        while (budget > 0 && (upload = uploads.peek()) != null) {
+            if (upload.texture.isDeleted()) {
+                finish(uploads.remove(), false);
+                continue;
+            }
+            if (upload.id == 0) {
+                upload.id = glGenTextures();
+                glBindTexture(GL_TEXTURE_2D, upload.id);
+                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+                glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, upload.width, upload.height, 0, GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+            } else {
+                glBindTexture(GL_TEXTURE_2D, upload.id);
+            }
+
+            long rowBytes = upload.width * 4L;
+            int rows = (int) Math.min(upload.height - upload.uploadedRows, Math.max(1, budget / rowBytes));
+            long bytes = rows * rowBytes;
+            if (bytes > pboSize) {
+                pboSize = bytes;
+                glBufferData(GL_PIXEL_UNPACK_BUFFER, pboSize, GL_STREAM_DRAW);
+            }
+            // Invalidate the buffer so the copy does not wait for the last upload to finish.
+            ByteBuffer mapped = glMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 0, bytes, GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT);
+            if (mapped == null) {
+                GameEngine.LOGGER.error("Unable to map the texture upload buffer.");
+                break;
+            }
+            MemoryUtil.memCopy(MemoryUtil.memAddress(upload.pixels) + upload.uploadedRows * rowBytes, MemoryUtil.memAddress(mapped), bytes);
+            glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+            glTexSubImage2D(GL_TEXTURE_2D, 0, 0, upload.uploadedRows, upload.width, rows, GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+            RenderStats.countUpload(bytes);
+
+            upload.uploadedRows += rows;
+            budget -= bytes;
+            if (upload.uploadedRows == upload.height)
+                finish(uploads.remove(), true);
+        }
+
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        glBindTexture(GL_TEXTURE_2D, 0);
+    }
+
+    /**
+     * Free the decoded image of an upload.
+     *
+     * @param upload   The upload.
+     * @param uploaded If the image was uploaded. (Otherwise the texture was cleaned up while it was loading).
+     */
+    private void finish(Upload upload, boolean uploaded) {
+        stbi_image_free(upload.pixels);
+        upload.pixels = null;
+        if (uploaded) {
+            mipmaps.add(upload);
+        } else {
+            if (upload.id != 0)
+                glDeleteTextures(upload.id);
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Get the number of textures that have not finished loading.
+     *
+     * @return The number of textures being loaded.
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Get the number of bytes uploaded every frame.
+     *
+     * @return The upload budget.
+     */
+    public int getUploadBudget() {
+        return uploadBudget;
+    }
+
+    /**
+     * Set the number of bytes uploaded every frame.
+     * <p>At least one row of a texture is uploaded every frame, no matter the budget.</p>
+     *
+     * @param uploadBudget The upload budget.
+     */
+    public void setUploadBudget(int uploadBudget) {
+        this.uploadBudget = Math.max(1, uploadBudget);
+    }
+
+    /**
+     * Cleanup the loader.
+     * <p>Internal use only.</p>
+     */
+    public void cleanup() {
+        if (executor != null)
+            executor.shutdownNow();
+        Upload upload;
+        while ((upload = decoded.poll()) != null)
+            uploads.add(upload);
+        while ((upload = uploads.poll()) != null)
+            finish(upload, false);
+        while ((upload = mipmaps.poll()) != null)
+            glDeleteTextures(upload.id);
+        if (pbo != 0)
+            glDeleteBuffers(pbo);
+        pbo = 0;
+    }
+
+    /**
+     * A decoded image waiting to be uploaded.
+     */
+    private static final class Upload {
+        private final Texture texture;
+        private final int width;
+        private final int height;
+        private ByteBuffer pixels;
+        private int id;
+        private int uploadedRows;
+
+        private Upload(Texture texture, ByteBuffer pixels, int width, int height) {
+            this.texture = texture;
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.kakara.engine.gameitems.GameItem;
 import org.kakara.engine.gameitems.Material;
 import org.kakara.engine.physics.collision.ColliderComponent;
 import org.kakara.engine.render.culling.FrustumCullingFilter;
+import org.kakara.engine.render.stats.RenderStats;
 import org.kakara.engine.voxels.TextureAtlas;
 import org.kakara.engine.voxels.VoxelTexture;
 import org.kakara.engine.voxels.layouts.Layout;
@@ -162,6 +163,7 @@ public class AtlasMesh implements IMesh {
         glActiveTexture(GL_TEXTURE0);
         // Bind the texture
         glBindTexture(GL_TEXTURE_2D, atlas.getTexture().getId());
+        RenderStats.countTextureBind();
 
         // Draw the mesh
         glBindVertexArray(getVaoId());
@@ -191,6 +193,7 @@ public class AtlasMesh implements IMesh {
     public void render() {
         initRender();
         glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+        RenderStats.countDraw(getVertexCount() / 3);
         endRender();
     }
 
@@ -210,6 +213,7 @@ public class AtlasMesh implements IMesh {
                 initRender();
 
                 glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+                RenderStats.countDraw(getVertexCount() / 3);
                 endRender();
             }
         }
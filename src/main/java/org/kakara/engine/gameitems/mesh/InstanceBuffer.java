@@ -0,0 +1,201 @@
+package org.kakara.engine.gameitems.mesh;
+
+import org.kakara.engine.render.stats.RenderStats;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.GL_MAP_WRITE_BIT;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.opengl.GL44.*;
+
+/**
+ * A ring buffer of per instance data used by {@link InstancedMesh}.
+ *
+ * <p>The buffer is split into {@link #REGION_COUNT} regions. Each upload writes into the next region so the
+ * CPU never writes into memory the GPU may still be reading from.</p>
+ * <p>If the driver supports buffer storage (OpenGL 4.4 or ARB_buffer_storage) the buffer is persistently mapped and
+ * each region is guarded by a fence. Otherwise the storage is allocated once and updated with
+ * <code>glBufferSubData</code>, which avoids orphaning and reallocating the buffer every frame.</p>
+ * <p>This class is <b>not</b> thread safe.</p>
+ *
+ * @since 1.0-Pre5
+ */
+final class InstanceBuffer {
+
+    /**
+     * The number of regions within the ring (triple buffering).
+     */
+    static final int REGION_COUNT = 3;
+
+    private static final int FLOAT_SIZE_BYTES = 4;
+
+    private final int instanceSizeFloats;
+    private final boolean persistent;
+    private final long[] fences = new long[REGION_COUNT];
+
+    private int vboId;
+    private int capacity;
+    private int region = -1;
+
+    // The persistently mapped memory (only used when persistent).
+    private FloatBuffer mapped;
+    // The CPU side copy of a region (only used when not persistent).
+    private FloatBuffer staging;
+
+    /**
+     * Create a new instance buffer.
+     *
+     * @param instanceSizeFloats The number of floats used by a single instance.
+     * @param capacity           The initial number of instances a region can hold.
+     */
+    InstanceBuffer(int instanceSizeFloats, int capacity) {
+        GLCapabilities capabilities = GL.getCapabilities();
+        this.instanceSizeFloats = instanceSizeFloats;
+        this.persistent = capabilities.OpenGL44 || capabilities.GL_ARB_buffer_storage;
+        allocate(Math.max(1, capacity));
+    }
+
+    /**
+     * Start writing a new batch of instances.
+     * <p>This moves the ring to the next region, waiting for the GPU to be done with it if needed.</p>
+     *
+     * @param instances The number of instances that will be written.
+     * @return The buffer to write the instance data into. Use {@link #getWriteOffset()} for the starting index.
+     */
+    FloatBuffer begin(int instances) {
+        if (region >= 0 && persistent) {
+            // Guard the region that was just used by every draw call issued so far.
+            fences[region] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        }
+        if (instances > capacity) {
+            release();
+            allocate(Math.max(instances, capacity * 2));
+        }
+        region = (region + 1) % REGION_COUNT;
+        if (persistent) {
+            waitForRegion(region);
+            return mapped;
+        }
+        staging.clear();
+        return staging;
+    }
+
+    /**
+     * Finish writing a batch of instances.
+     *
+     * @param instances The number of instances that were written.
+     */
+    void end(int instances) {
+        if (instances == 0) return;
+        RenderStats.countUpload((long) instances * instanceSizeFloats * FLOAT_SIZE_BYTES);
+        if (persistent) return;
+        staging.limit(instances * instanceSizeFloats);
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferSubData(GL_ARRAY_BUFFER, getRegionOffsetBytes(), staging);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Get the float index into the buffer returned by {@link #begin(int)} where writing should start.
+     *
+     * @return The float index of the write position.
+     */
+    int getWriteOffset() {
+        return persistent ? region * capacity * instanceSizeFloats : 0;
+    }
+
+    /**
+     * Get the byte offset of the current region within the GPU buffer.
+     *
+     * @return The byte offset of the current region.
+     */
+    long getRegionOffsetBytes() {
+        return (long) region * capacity * instanceSizeFloats * FLOAT_SIZE_BYTES;
+    }
+
+    /**
+     * Get the id of the vertex buffer object.
+     *
+     * @return The id of the vbo.
+     */
+    int getVboId() {
+        return vboId;
+    }
+
+    /**
+     * If the buffer is persistently mapped.
+     *
+     * @return If the buffer is persistently mapped.
+     */
+    boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * Cleanup the buffer.
+     */
+    void cleanup() {
+        release();
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        long size = (long) capacity * instanceSizeFloats * FLOAT_SIZE_BYTES * REGION_COUNT;
+        vboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        if (persistent) {
+            int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+            glBufferStorage(GL_ARRAY_BUFFER, size, flags);
+            ByteBuffer buffer = glMapBufferRange(GL_ARRAY_BUFFER, 0, size, flags);
+            if (buffer == null)
+                throw new IllegalStateException("Unable to map the instance buffer.");
+            mapped = buffer.order(ByteOrder.nativeOrder()).asFloatBuffer();
+        } else {
+            glBufferData(GL_ARRAY_BUFFER, size, GL_STREAM_DRAW);
+            staging = MemoryUtil.memAllocFloat(capacity * instanceSizeFloats);
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        region = -1;
+    }
+
+    private void release() {
+        for (int i = 0; i < REGION_COUNT; i++) {
+            if (fences[i] != 0) {
+                glDeleteSync(fences[i]);
+                fences[i] = 0;
+            }
+        }
+        if (vboId != 0) {
+            if (persistent) {
+                glBindBuffer(GL_ARRAY_BUFFER, vboId);
+                glUnmapBuffer(GL_ARRAY_BUFFER);
+                glBindBuffer(GL_ARRAY_BUFFER, 0);
+                mapped = null;
+            }
+            glDeleteBuffers(vboId);
+            vboId = 0;
+        }
+        if (staging != null) {
+            MemoryUtil.memFree(staging);
+            staging = null;
+        }
+    }
+
+    private void waitForRegion(int index) {
+        long fence = fences[index];
+        if (fence == 0) return;
+        int result = glClientWaitSync(fence, 0, 0);
+        while (result == GL_TIMEOUT_EXPIRED) {
+            result = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000);
+        }
+        glDeleteSync(fence);
+        fences[index] = 0;
+    }
+}
@@ -5,9 +5,10 @@ import org.kakara.engine.GameHandler;
 import org.kakara.engine.gameitems.GameItem;
 import org.kakara.engine.math.KMath;
 import org.kakara.engine.physics.collision.ColliderComponent;
+import org.kakara.engine.render.Renderer;
 import org.kakara.engine.render.Transformation;
 import org.kakara.engine.render.culling.FrustumCullingFilter;
-import org.lwjgl.system.MemoryUtil;
+import org.kakara.engine.render.stats.RenderStats;
 
 import java.nio.FloatBuffer;
 import java.util.List;
@@ -23,6 +24,9 @@ import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
 /**
  * A version of the Mesh that takes advantage of OpenGL's instanced rendering.
  * <p>This is to be used when you have a lot of the same object that you want to render. (Must be the same mesh and texture.)</p>
+ * <p>Only the model matrix of each instance is uploaded. The view and light view transforms are applied in the shader
+ * using the <code>viewMatrix</code> and <code>lightViewMatrix</code> uniforms. The model matrices are uploaded once per frame
+ * and shared between the depth pass and the regular pass.</p>
  * <p>This class is <b>not</b> thread safe.</p>
  */
 public class InstancedMesh extends Mesh {
@@ -36,19 +40,15 @@ public class InstancedMesh extends Mesh {
 
     private static final int MATRIX_SIZE_FLOATS = 4 * 4;
 
-    private static final int FLOAT_SIZE_BYTES = 4;
+    // The first attribute location of the model matrix.
+    private static final int MODEL_MATRIX_LOCATION = 5;
 
-    private static final int INSTANCE_SIZE_BYTES = InstancedMesh.MATRIX_SIZE_BYTES * 2 + InstancedMesh.FLOAT_SIZE_BYTES * 2 + InstancedMesh.FLOAT_SIZE_BYTES;
+    private final InstanceBuffer instanceBuffer;
 
-    private final int numInstances;
-
-    private final int modelViewVBO;
-
-    private final int modelLightViewVBO;
-
-    private FloatBuffer modelViewBuffer;
-
-    private FloatBuffer modelLightViewBuffer;
+    // Keeps track of the last upload so the depth and regular pass share the same data.
+    private long uploadedFrame = -1;
+    private List<GameItem> uploadedItems;
+    private int uploadedCount;
 
     /**
      * Create an instanced mesh.
@@ -57,65 +57,32 @@ public class InstancedMesh extends Mesh {
      * @param textCoords   The texture coordinates.
      * @param normals      The normal values.
      * @param indices      The indices.
-     * @param numInstances The number of instances this mesh has.
+     * @param numInstances The number of instances this mesh has. (The instance storage will grow if more are rendered.)
      */
     public InstancedMesh(float[] positions, float[] textCoords, float[] normals, int[] indices, int numInstances) {
-        super(positions, textCoords, normals, indices, Mesh.createEmptyIntArray(Mesh.MAX_WEIGHTS * positions.length / 3, 0), Mesh.createEmptyFloatArray(Mesh.MAX_WEIGHTS * positions.length / 3, 0));
+        super(positions, textCoords, normals, indices);
 
-        this.numInstances = numInstances;
+        this.instanceBuffer = new InstanceBuffer(MATRIX_SIZE_FLOATS, numInstances);
 
         glBindVertexArray(vaoId);
-
-        modelViewVBO = glGenBuffers();
-        vboIdList.add(modelViewVBO);
-        this.modelViewBuffer = MemoryUtil.memAllocFloat(numInstances * MATRIX_SIZE_FLOATS);
-        glBindBuffer(GL_ARRAY_BUFFER, modelViewVBO);
-        int start = 5;
-        int strideStart = 0;
         for (int i = 0; i < 4; i++) {
-            glVertexAttribPointer(start, 4, GL_FLOAT, false, MATRIX_SIZE_BYTES, strideStart);
-            glVertexAttribDivisor(start, 1);
-            start++;
-            strideStart += InstancedMesh.VECTOR4F_SIZE_BYTES;
+            glVertexAttribDivisor(MODEL_MATRIX_LOCATION + i, 1);
         }
-
-        // Light view matrix
-        modelLightViewVBO = glGenBuffers();
-        vboIdList.add(modelLightViewVBO);
-        this.modelLightViewBuffer = MemoryUtil.memAllocFloat(numInstances * InstancedMesh.MATRIX_SIZE_FLOATS);
-        glBindBuffer(GL_ARRAY_BUFFER, modelLightViewVBO);
-        for (int i = 0; i < 4; i++) {
-            glVertexAttribPointer(start, 4, GL_FLOAT, false, InstancedMesh.MATRIX_SIZE_BYTES, strideStart);
-            glVertexAttribDivisor(start, 1);
-            glEnableVertexAttribArray(start);
-            start++;
-            strideStart += InstancedMesh.VECTOR4F_SIZE_BYTES;
-        }
-
-        glVertexAttribPointer(start, 1, GL_FLOAT, false, InstancedMesh.INSTANCE_SIZE_BYTES, strideStart);
-        glVertexAttribDivisor(start, 1);
-        glEnableVertexAttribArray(start);
-
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
         glBindVertexArray(0);
     }
 
     @Override
     protected void initRender() {
         super.initRender();
-        int start = 5;
-        int numElements = 4 * 2;
-        for (int i = 0; i < numElements; i++) {
-            glEnableVertexAttribArray(start + i);
+        for (int i = 0; i < 4; i++) {
+            glEnableVertexAttribArray(MODEL_MATRIX_LOCATION + i);
         }
     }
 
     @Override
     protected void endRender() {
-        int start = 5;
-        int numElements = 4 * 2;
-        for (int i = 0; i < numElements; i++) {
-            glDisableVertexAttribArray(start + i);
+        for (int i = 0; i < 4; i++) {
+            glDisableVertexAttribArray(MODEL_MATRIX_LOCATION + i);
         }
         super.endRender();
     }
@@ -130,38 +97,62 @@ public class InstancedMesh extends Mesh {
      * @param transformation  The transformation of the Renderer.
      * @param viewMatrix      The view matrix.
      * @param lightViewMatrix The light view matrix.
+     * @deprecated The view matrices are now applied by the shader. Use {@link #renderListInstanced(List, Transformation)}.
      */
+    @Deprecated
     public void renderListInstanced(List<GameItem> gameItems, boolean depthMap, Transformation transformation, Matrix4f viewMatrix, Matrix4f lightViewMatrix) {
+        renderListInstanced(gameItems, transformation);
+    }
+
+    /**
+     * Render a list of game items that are instanced.
+     *
+     * <p>The shader is expected to have the <code>viewMatrix</code> and <code>lightViewMatrix</code> uniforms set.</p>
+     * <p>This is for internal use only.</p>
+     *
+     * @param gameItems      The list of game items. (Assumed to have the same mesh.)
+     * @param transformation The transformation of the Renderer.
+     * @since 1.0-Pre5
+     */
+    public void renderListInstanced(List<GameItem> gameItems, Transformation transformation) {
+        Renderer renderer = GameHandler.getInstance().getGameEngine().getRenderer();
+        long frame = renderer.getFrameCount();
+        if (frame != uploadedFrame || gameItems != uploadedItems) {
+            uploadInstances(gameItems, transformation, renderer.getFrustumFilter());
+            uploadedFrame = frame;
+            uploadedItems = gameItems;
+        }
+        if (uploadedCount == 0) return;
+
         initRender();
 
-        int chunkSize = numInstances;
-        int length = gameItems.size();
-        for (int i = 0; i < length; i += chunkSize) {
-            int end = Math.min(length, i + chunkSize);
-            List<GameItem> subList = gameItems.subList(i, end);
-            renderChunkInstanced(subList, depthMap, transformation, viewMatrix, lightViewMatrix);
+        glBindBuffer(GL_ARRAY_BUFFER, instanceBuffer.getVboId());
+        long offset = instanceBuffer.getRegionOffsetBytes();
+        for (int i = 0; i < 4; i++) {
+            glVertexAttribPointer(MODEL_MATRIX_LOCATION + i, 4, GL_FLOAT, false, MATRIX_SIZE_BYTES, offset + (long) i * VECTOR4F_SIZE_BYTES);
         }
+        glDrawElementsInstanced(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0, uploadedCount);
+        RenderStats.countDraw((long) getVertexCount() / 3 * uploadedCount);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
 
         endRender();
     }
 
     /**
-     * Render a chunk of the game item list.
+     * Write the model matrices of the visible game items into the next region of the instance buffer.
      *
-     * <p>Chunks are divided up by the number of instances you define in the constructor.</p>
-     *
-     * @param gameItems       The list of game items. (Must be already divided up into chunks).
-     * @param depthMap        If the depth map is being rendered.
-     * @param transformation  The transformation of the Renderer.
-     * @param viewMatrix      The view matrix.
-     * @param lightViewMatrix The light view matrix.
+     * @param gameItems      The list of game items.
+     * @param transformation The transformation of the Renderer.
+     * @param filter         The frustum filter to test against.
      */
-    private void renderChunkInstanced(List<GameItem> gameItems, boolean depthMap, Transformation transformation, Matrix4f viewMatrix, Matrix4f lightViewMatrix) {
-        this.modelViewBuffer.clear();
-        this.modelLightViewBuffer.clear();
+    private void uploadInstances(List<GameItem> gameItems, Transformation transformation, FrustumCullingFilter filter) {
+        int limit = gameItems.size();
+        FloatBuffer buffer = instanceBuffer.begin(limit);
+        int offset = instanceBuffer.getWriteOffset();
         int i = 0;
-        FrustumCullingFilter filter = GameHandler.getInstance().getGameEngine().getRenderer().getFrustumFilter();
         for (GameItem gameItem : gameItems) {
+            // The list could have grown since the region was reserved.
+            if (i == limit) break;
             if (!filter.testCollider(gameItem.getComponent(ColliderComponent.class)))
                 continue;
 
@@ -169,32 +160,17 @@ public class InstancedMesh extends Mesh {
                 continue;
 
             Matrix4f modelMatrix = transformation.buildModelMatrix(gameItem);
-            if (!depthMap) {
-                Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(modelMatrix, viewMatrix);
-                modelViewMatrix.get(MATRIX_SIZE_FLOATS * i, modelViewBuffer);
-            }
-            Matrix4f modelLightViewMatrix = transformation.buildModelLightViewMatrix(modelMatrix, lightViewMatrix);
-            modelLightViewMatrix.get(MATRIX_SIZE_FLOATS * i, this.modelLightViewBuffer);
+            modelMatrix.get(offset + MATRIX_SIZE_FLOATS * i, buffer);
             i++;
         }
-        glBindBuffer(GL_ARRAY_BUFFER, modelViewVBO);
-        glBufferData(GL_ARRAY_BUFFER, modelViewBuffer, GL_DYNAMIC_DRAW);
-        glBindBuffer(GL_ARRAY_BUFFER, modelLightViewVBO);
-        glBufferData(GL_ARRAY_BUFFER, modelLightViewBuffer, GL_DYNAMIC_DRAW);
-        glDrawElementsInstanced(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0, i);
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        instanceBuffer.end(i);
+        uploadedCount = i;
     }
 
     @Override
     public void cleanUp() {
         super.cleanUp();
-        if (this.modelViewBuffer != null) {
-            MemoryUtil.memFree(this.modelViewBuffer);
-            this.modelViewBuffer = null;
-        }
-        if (this.modelLightViewBuffer != null) {
-            MemoryUtil.memFree(this.modelLightViewBuffer);
-            this.modelLightViewBuffer = null;
-        }
+        instanceBuffer.cleanup();
+        uploadedItems = null;
     }
 }
@@ -1,6 +1,7 @@
 package org.kakara.engine.gameitems.mesh;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.kakara.engine.GameEngine;
 import org.kakara.engine.exceptions.InvalidThreadException;
 import org.kakara.engine.gameitems.GameItem;
@@ -8,8 +9,12 @@ import org.kakara.engine.gameitems.Material;
 import org.kakara.engine.gameitems.Texture;
 import org.kakara.engine.physics.collision.ColliderComponent;
 import org.kakara.engine.render.culling.FrustumCullingFilter;
+import org.kakara.engine.render.stats.RenderStats;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
 import org.lwjgl.system.MemoryUtil;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
@@ -19,6 +24,7 @@ import java.util.Optional;
 import java.util.function.Consumer;
 
 import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL33.GL_INT_2_10_10_10_REV;
 
 /**
  * The normal mesh for game items.
@@ -27,6 +33,14 @@ import static org.lwjgl.opengl.GL30.*;
  */
 public class Mesh implements IMesh {
     public static final int MAX_WEIGHTS = 4;
+    /**
+     * How far past a level of detail's screen size an item must be before it switches level.
+     * <p>This stops items at the edge of a level from switching back and forth every frame.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public static final float LOD_HYSTERESIS = 0.1f;
+    private static final Mesh[] NO_LEVELS = new Mesh[0];
 
     protected final int vaoId;
 
@@ -40,7 +54,20 @@ public class Mesh implements IMesh {
 
     private boolean wireframe = false;
 
+    // If the mesh has the joint and weight buffers.
+    private final boolean skinned;
+
+    // The simplified versions of the mesh, from the most detailed to the least.
+    private Mesh[] levelsOfDetail = NO_LEVELS;
+    // The screen size below which each simplified version is used.
+    private float[] lodScreenSizes = new float[0];
+
     /**
+     * Create a static mesh.
+     * <p>Static meshes use a compact vertex layout: the positions, normals, and texture coordinates are interleaved
+     * into a single buffer, the normals are packed into 32 bits, and the texture coordinates are stored as half
+     * floats when they are within {@link VertexPacking#HALF_FLOAT_UV_RANGE}.</p>
+     *
      * @param positions  The vertex positions. See the code at {@link org.kakara.engine.engine.CubeData#vertex} for an example.
      * @param textCoords The texture positions. See the code at {@link org.kakara.engine.engine.CubeData#texture} for an example.
      * @param normals    The normal positions.
@@ -50,7 +77,7 @@ public class Mesh implements IMesh {
      *                   See the code at {@link org.kakara.engine.engine.CubeData#texture} for an example.
      */
     public Mesh(@NotNull float[] positions, @NotNull float[] textCoords, @NotNull float[] normals, int[] indices) {
-        this(positions, textCoords, normals, indices, createEmptyIntArray(MAX_WEIGHTS * positions.length / 3, 0), createEmptyFloatArray(MAX_WEIGHTS * positions.length / 3, 0));
+        this(positions, textCoords, normals, indices, null, null);
     }
 
     /**
@@ -58,32 +85,105 @@ public class Mesh implements IMesh {
      * @param textCoords   See above.
      * @param normals      See above.
      * @param indices      See above.
-     * @param jointIndices Not implemented
-     * @param weights      Not implemented
+     * @param jointIndices Not implemented (Null for a static mesh).
+     * @param weights      Not implemented (Null for a static mesh).
      */
-    public Mesh(@NotNull float[] positions, @NotNull float[] textCoords, @NotNull float[] normals, int[] indices, @NotNull int[] jointIndices, @NotNull float[] weights) {
+    public Mesh(@NotNull float[] positions, @NotNull float[] textCoords, @NotNull float[] normals, int[] indices, @Nullable int[] jointIndices, @Nullable float[] weights) {
         if (Thread.currentThread() != GameEngine.currentThread)
             throw new InvalidThreadException("This class can only be constructed on the main thread.");
 
+        calculateBoundingRadius(positions);
+
+        if (indices != null)
+            vertexCount = indices.length;
+        else {
+            vertexCount = positions.length / 3;
+        }
+        vboIdList = new ArrayList<>();
+        skinned = jointIndices != null && weights != null;
+
+        vaoId = glGenVertexArrays();
+        glBindVertexArray(vaoId);
+
+        if (skinned)
+            createSkinnedBuffers(positions, textCoords, normals, jointIndices, weights);
+        else
+            createStaticBuffer(positions, textCoords, normals);
+
+        // Index VBO
+        if (indices != null) {
+            IntBuffer indicesBuffer = MemoryUtil.memAllocInt(indices.length);
+            try {
+                int vboId = glGenBuffers();
+                vboIdList.add(vboId);
+                indicesBuffer.put(indices).flip();
+                glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
+                glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
+            } finally {
+                MemoryUtil.memFree(indicesBuffer);
+            }
+        }
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Create the single interleaved buffer of a static mesh.
+     * <p>Each vertex is the position (3 floats), the packed normal (4 bytes), and the texture coordinates (2 half
+     * floats or 2 floats).</p>
+     */
+    private void createStaticBuffer(float[] positions, float[] textCoords, float[] normals) {
+        int vertices = positions.length / 3;
+        boolean hasTextCoords = textCoords.length >= vertices * 2;
+        boolean hasNormals = normals.length >= vertices * 3;
+        boolean halfTextCoords = !hasTextCoords || VertexPacking.fitsHalfFloat(textCoords);
+        GLCapabilities capabilities = GL.getCapabilities();
+        boolean packedNormals = capabilities.OpenGL33 || capabilities.GL_ARB_vertex_type_2_10_10_10_rev;
+        int stride = 16 + (halfTextCoords ? 4 : 8);
+
+        ByteBuffer buffer = MemoryUtil.memAlloc(vertices * stride);
+        try {
+            for (int i = 0; i < vertices; i++) {
+                buffer.putFloat(positions[i * 3]).putFloat(positions[i * 3 + 1]).putFloat(positions[i * 3 + 2]);
+                float nx = hasNormals ? normals[i * 3] : 0;
+                float ny = hasNormals ? normals[i * 3 + 1] : 0;
+                float nz = hasNormals ? normals[i * 3 + 2] : 0;
+                buffer.putInt(packedNormals ? VertexPacking.packNormal1010102(nx, ny, nz) : VertexPacking.packNormalBytes(nx, ny, nz));
+                float u = hasTextCoords ? textCoords[i * 2] : 0;
+                float v = hasTextCoords ? textCoords[i * 2 + 1] : 0;
+                if (halfTextCoords)
+                    buffer.putShort(VertexPacking.toHalfFloat(u)).putShort(VertexPacking.toHalfFloat(v));
+                else
+                    buffer.putFloat(u).putFloat(v);
+            }
+            buffer.flip();
+
+            int vboId = glGenBuffers();
+            vboIdList.add(vboId);
+            glBindBuffer(GL_ARRAY_BUFFER, vboId);
+            glBufferData(GL_ARRAY_BUFFER, buffer, GL_STATIC_DRAW);
+            glVertexAttribPointer(0, 3, GL_FLOAT, false, stride, 0);
+            glVertexAttribPointer(1, 2, halfTextCoords ? GL_HALF_FLOAT : GL_FLOAT, false, stride, 16);
+            if (packedNormals)
+                glVertexAttribPointer(2, 4, GL_INT_2_10_10_10_REV, true, stride, 12);
+            else
+                glVertexAttribPointer(2, 3, GL_BYTE, true, stride, 12);
+        } finally {
+            MemoryUtil.memFree(buffer);
+        }
+    }
+
+    /**
+     * Create the separate buffers of a skinned mesh.
+     */
+    private void createSkinnedBuffers(float[] positions, float[] textCoords, float[] normals, int[] jointIndices, float[] weights) {
         FloatBuffer posBuffer = null;
         FloatBuffer textCoordsBuffer = null;
         FloatBuffer vecNormalsBuffer = null;
         FloatBuffer weightsBuffer = null;
         IntBuffer jointIndicesBuffer = null;
-        IntBuffer indicesBuffer = null;
         try {
-            calculateBoundingRadius(positions);
-
-            if (indices != null)
-                vertexCount = indices.length;
-            else {
-                vertexCount = positions.length / 3;
-            }
-            vboIdList = new ArrayList<>();
-
-            vaoId = glGenVertexArrays();
-            glBindVertexArray(vaoId);
-
             // Position VBO
             int vboId = glGenBuffers();
             vboIdList.add(vboId);
@@ -128,19 +228,6 @@ public class Mesh implements IMesh {
             glBindBuffer(GL_ARRAY_BUFFER, vboId);
             glBufferData(GL_ARRAY_BUFFER, jointIndicesBuffer, GL_STATIC_DRAW);
             glVertexAttribPointer(4, 4, GL_FLOAT, false, 0, 0);
-
-            // Index VBO
-            if (indices != null) {
-                vboId = glGenBuffers();
-                vboIdList.add(vboId);
-                indicesBuffer = MemoryUtil.memAllocInt(indices.length);
-                indicesBuffer.put(indices).flip();
-                glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
-                glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
-            }
-
-            glBindBuffer(GL_ARRAY_BUFFER, 0);
-            glBindVertexArray(0);
         } finally {
             if (posBuffer != null) {
                 MemoryUtil.memFree(posBuffer);
@@ -157,9 +244,6 @@ public class Mesh implements IMesh {
             if (jointIndicesBuffer != null) {
                 MemoryUtil.memFree(jointIndicesBuffer);
             }
-            if (indicesBuffer != null) {
-                MemoryUtil.memFree(indicesBuffer);
-            }
         }
     }
 
@@ -239,6 +323,66 @@ public class Mesh implements IMesh {
         this.boundingRadius = boundingRadius;
     }
 
+    /**
+     * Set the simplified versions of the mesh.
+     * <p>The simplified meshes are cleaned up with this mesh, except for their material which should be shared with
+     * this mesh.</p>
+     *
+     * @param levels      The simplified meshes, from the most detailed to the least.
+     * @param screenSizes The screen size below which each mesh is used. This is the bounding radius of the item
+     *                    divided by half of the height of the view. (Must be decreasing).
+     * @since 1.0-Pre5
+     */
+    public void setLevelsOfDetail(Mesh[] levels, float[] screenSizes) {
+        if (levels.length != screenSizes.length)
+            throw new IllegalArgumentException("Every level of detail must have a screen size.");
+        for (Mesh level : levelsOfDetail)
+            level.deleteBuffers();
+        this.levelsOfDetail = levels;
+        this.lodScreenSizes = screenSizes;
+    }
+
+    /**
+     * Get the number of levels of detail, including this mesh.
+     *
+     * @return The number of levels of detail.
+     * @since 1.0-Pre5
+     */
+    public int getLevelOfDetailCount() {
+        return levelsOfDetail.length + 1;
+    }
+
+    /**
+     * Get a level of detail of the mesh.
+     *
+     * @param level The level. (0 is this mesh, levels past the last level return the last level).
+     * @return The mesh for the level.
+     * @since 1.0-Pre5
+     */
+    public Mesh getLevelOfDetail(int level) {
+        if (level <= 0 || levelsOfDetail.length == 0)
+            return this;
+        return levelsOfDetail[Math.min(level, levelsOfDetail.length) - 1];
+    }
+
+    /**
+     * Select the level of detail for an item.
+     * <p>The level only changes once the screen size is {@link #LOD_HYSTERESIS} past the screen size of a level.</p>
+     *
+     * @param screenSize   The bounding radius of the item divided by half of the height of the view.
+     * @param currentLevel The level the item currently uses.
+     * @return The level the item should use.
+     * @since 1.0-Pre5
+     */
+    public int selectLevelOfDetail(float screenSize, int currentLevel) {
+        int level = Math.max(0, Math.min(currentLevel, levelsOfDetail.length));
+        while (level < levelsOfDetail.length && screenSize < lodScreenSizes[level] * (1 - LOD_HYSTERESIS))
+            level++;
+        while (level > 0 && screenSize > lodScreenSizes[level - 1] * (1 + LOD_HYSTERESIS))
+            level--;
+        return level;
+    }
+
     protected void initRender() {
         Texture texture = material != null ? material.getTexture() : null;
         if (texture != null) {
@@ -246,6 +390,7 @@ public class Mesh implements IMesh {
             glActiveTexture(GL_TEXTURE0);
             // Bind the texture
             glBindTexture(GL_TEXTURE_2D, texture.getId());
+            RenderStats.countTextureBind();
         }
         Texture normalMap = material != null ? material.getNormalMap() : null;
         if (normalMap != null) {
@@ -253,6 +398,7 @@ public class Mesh implements IMesh {
             glActiveTexture(GL_TEXTURE1);
             // Bind the texture
             glBindTexture(GL_TEXTURE_2D, normalMap.getId());
+            RenderStats.countTextureBind();
         }
 
         if (material != null) {
@@ -264,6 +410,7 @@ public class Mesh implements IMesh {
                     glActiveTexture(textures[i]);
                     // Bind the texture
                     glBindTexture(GL_TEXTURE_2D, ovText.getId());
+                    RenderStats.countTextureBind();
                 }
             }
         }
@@ -274,8 +421,10 @@ public class Mesh implements IMesh {
         glEnableVertexAttribArray(0);
         glEnableVertexAttribArray(1);
         glEnableVertexAttribArray(2);
-        glEnableVertexAttribArray(3);
-        glEnableVertexAttribArray(4);
+        if (skinned) {
+            glEnableVertexAttribArray(3);
+            glEnableVertexAttribArray(4);
+        }
 
         if (isWireframe())
             glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
@@ -288,8 +437,10 @@ public class Mesh implements IMesh {
         glDisableVertexAttribArray(0);
         glDisableVertexAttribArray(1);
         glDisableVertexAttribArray(2);
-        glDisableVertexAttribArray(3);
-        glDisableVertexAttribArray(4);
+        if (skinned) {
+            glDisableVertexAttribArray(3);
+            glDisableVertexAttribArray(4);
+        }
         glBindVertexArray(0);
 
         glBindTexture(GL_TEXTURE_2D, 0);
@@ -303,6 +454,7 @@ public class Mesh implements IMesh {
         initRender();
 
         glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+        RenderStats.countDraw(getVertexCount() / 3);
 
         endRender();
     }
@@ -324,6 +476,7 @@ public class Mesh implements IMesh {
                 // TODO Improve this, This is no longer as performance efficient.
                 initRender();
                 glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+                RenderStats.countDraw(getVertexCount() / 3);
                 endRender();
             }
         }
@@ -333,13 +486,9 @@ public class Mesh implements IMesh {
      * Cleanup the mesh
      */
     public void cleanUp() {
-        glDisableVertexAttribArray(0);
-
-        // Delete the VBOs
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        for (int vboId : vboIdList) {
-            glDeleteBuffers(vboId);
-        }
+        deleteBuffers();
+        for (Mesh level : levelsOfDetail)
+            level.deleteBuffers();
 
         if (material != null) {
             // Delete the texture
@@ -352,6 +501,19 @@ public class Mesh implements IMesh {
                 material.getOverlayTextures().get(i).cleanup();
             }
         }
+    }
+
+    /**
+     * Delete the buffers of the mesh, without deleting the textures of its material.
+     */
+    private void deleteBuffers() {
+        glDisableVertexAttribArray(0);
+
+        // Delete the VBOs
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        for (int vboId : vboIdList) {
+            glDeleteBuffers(vboId);
+        }
 
         // Delete the VAO
         glBindVertexArray(0);
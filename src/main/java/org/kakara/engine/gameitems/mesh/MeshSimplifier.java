@@ -0,0 +1,368 @@
+package org.kakara.engine.gameitems.mesh;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Simplifies triangle meshes using quadric error metrics.
+ *
+ * <p>Edges are collapsed one at a time, cheapest first. The cost of collapsing an edge is how far the remaining vertex
+ * is from the planes of the triangles that were merged into it. Vertices are only ever moved onto existing vertices,
+ * so the texture coordinates and normals of the source mesh stay valid. The open edges of the mesh (including texture
+ * seams, which are split into separate vertices) are heavily weighted so the outline of the mesh is kept.</p>
+ *
+ * <p>This class does not use OpenGL, so it can be used on any thread.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public final class MeshSimplifier {
+    // How much more moving an open edge costs compared to moving a surface.
+    private static final double BOUNDARY_WEIGHT = 100;
+    // The minimum cosine between the normal of a triangle before and after a collapse.
+    private static final double MIN_NORMAL_DOT = 0.2;
+
+    private MeshSimplifier() {
+    }
+
+    /**
+     * A simplified mesh.
+     */
+    public static final class Result {
+        private final float[] positions;
+        private final float[] textCoords;
+        private final float[] normals;
+        private final int[] indices;
+
+        private Result(float[] positions, float[] textCoords, float[] normals, int[] indices) {
+            this.positions = positions;
+            this.textCoords = textCoords;
+            this.normals = normals;
+            this.indices = indices;
+        }
+
+        public float[] getPositions() {
+            return positions;
+        }
+
+        public float[] getTextCoords() {
+            return textCoords;
+        }
+
+        public float[] getNormals() {
+            return normals;
+        }
+
+        public int[] getIndices() {
+            return indices;
+        }
+
+        /**
+         * Get the number of triangles of the simplified mesh.
+         *
+         * @return The number of triangles.
+         */
+        public int getTriangleCount() {
+            return indices.length / 3;
+        }
+    }
+
+    /**
+     * A possible edge collapse.
+     */
+    private static final class Collapse implements Comparable<Collapse> {
+        private final double cost;
+        private final int from;
+        private final int to;
+        private final int fromStamp;
+        private final int toStamp;
+        // If this is the more expensive direction of the edge.
+        private final boolean alternate;
+
+        private Collapse(double cost, int from, int to, int fromStamp, int toStamp, boolean alternate) {
+            this.cost = cost;
+            this.from = from;
+            this.to = to;
+            this.fromStamp = fromStamp;
+            this.toStamp = toStamp;
+            this.alternate = alternate;
+        }
+
+        @Override
+        public int compareTo(Collapse o) {
+            return Double.compare(cost, o.cost);
+        }
+    }
+
+    /**
+     * Simplify a mesh.
+     * <p>The simplification stops early if no more edges can be collapsed without folding the mesh over itself.</p>
+     *
+     * @param positions       The vertex positions. (3 per vertex).
+     * @param textCoords      The texture coordinates. (2 per vertex, can be empty).
+     * @param normals         The normals. (3 per vertex, can be empty).
+     * @param indices         The triangle indices.
+     * @param targetTriangles The number of triangles to simplify to.
+     * @return The simplified mesh. Only the vertices that are still used are kept.
+     */
+    public static Result simplify(float[] positions, float[] textCoords, float[] normals, int[] indices, int targetTriangles) {
+        int vertexCount = positions.length / 3;
+        int triangleCount = indices.length / 3;
+        int[] triangles = Arrays.copyOf(indices, triangleCount * 3);
+        boolean[] triangleRemoved = new boolean[triangleCount];
+        boolean[] vertexRemoved = new boolean[vertexCount];
+        int[] stamps = new int[vertexCount];
+        double[] quadrics = new double[vertexCount * 10];
+
+        // The triangles around each vertex.
+        int[] faceCounts = new int[vertexCount];
+        for (int index : triangles)
+            faceCounts[index]++;
+        int[][] vertexFaces = new int[vertexCount][];
+        for (int v = 0; v < vertexCount; v++) {
+            vertexFaces[v] = new int[Math.max(faceCounts[v], 1)];
+            faceCounts[v] = 0;
+        }
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                int v = triangles[t * 3 + k];
+                vertexFaces[v][faceCounts[v]++] = t;
+            }
+        }
+
+        // The quadric of each vertex is the sum of the planes of its triangles, weighted by area.
+        double[] normal = new double[3];
+        long[] edges = new long[triangleCount * 3];
+        int edgeCount = 0;
+        for (int t = 0; t < triangleCount; t++) {
+            int a = triangles[t * 3], b = triangles[t * 3 + 1], c = triangles[t * 3 + 2];
+            double area = triangleNormal(positions, a, b, c, normal);
+            if (area <= 0) continue;
+            double d = -(normal[0] * positions[a * 3] + normal[1] * positions[a * 3 + 1] + normal[2] * positions[a * 3 + 2]);
+            for (int k = 0; k < 3; k++)
+                addPlane(quadrics, triangles[t * 3 + k], normal[0], normal[1], normal[2], d, area);
+            for (int k = 0; k < 3; k++)
+                edges[edgeCount++] = edgeKey(triangles[t * 3 + k], triangles[t * 3 + (k + 1) % 3], vertexCount);
+        }
+
+        // Sort the edges and merge the runs of the same edge, counting the triangles that use each one.
+        Arrays.sort(edges, 0, edgeCount);
+        int[] edgeUses = new int[edgeCount];
+        int uniqueEdges = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (uniqueEdges > 0 && edges[uniqueEdges - 1] == edges[i]) {
+                edgeUses[uniqueEdges - 1]++;
+            } else {
+                edges[uniqueEdges] = edges[i];
+                edgeUses[uniqueEdges++] = 1;
+            }
+        }
+
+        // Keep the open edges in place with a plane through the edge, perpendicular to the triangle.
+        for (int t = 0; t < triangleCount; t++) {
+            int a = triangles[t * 3], b = triangles[t * 3 + 1], c = triangles[t * 3 + 2];
+            if (triangleNormal(positions, a, b, c, normal) <= 0) continue;
+            for (int k = 0; k < 3; k++) {
+                int v0 = triangles[t * 3 + k], v1 = triangles[t * 3 + (k + 1) % 3];
+                if (edgeUses[Arrays.binarySearch(edges, 0, uniqueEdges, edgeKey(v0, v1, vertexCount))] != 1) continue;
+                double ex = positions[v1 * 3] - positions[v0 * 3];
+                double ey = positions[v1 * 3 + 1] - positions[v0 * 3 + 1];
+                double ez = positions[v1 * 3 + 2] - positions[v0 * 3 + 2];
+                double px = ey * normal[2] - ez * normal[1];
+                double py = ez * normal[0] - ex * normal[2];
+                double pz = ex * normal[1] - ey * normal[0];
+                double length = Math.sqrt(px * px + py * py + pz * pz);
+                if (length == 0) continue;
+                px /= length;
+                py /= length;
+                pz /= length;
+                double d = -(px * positions[v0 * 3] + py * positions[v0 * 3 + 1] + pz * positions[v0 * 3 + 2]);
+                double weight = BOUNDARY_WEIGHT * (ex * ex + ey * ey + ez * ez);
+                addPlane(quadrics, v0, px, py, pz, d, weight);
+                addPlane(quadrics, v1, px, py, pz, d, weight);
+            }
+        }
+
+        PriorityQueue<Collapse> queue = new PriorityQueue<>();
+        for (int i = 0; i < uniqueEdges; i++) {
+            long key = edges[i];
+            int a = (int) (key / vertexCount), b = (int) (key % vertexCount);
+            queue.add(createCollapse(quadrics, positions, stamps, a, b));
+        }
+
+        int liveTriangles = triangleCount;
+        while (liveTriangles > targetTriangles && !queue.isEmpty()) {
+            Collapse collapse = queue.poll();
+            int from = collapse.from, to = collapse.to;
+            if (vertexRemoved[from] || vertexRemoved[to]
+                    || stamps[from] != collapse.fromStamp || stamps[to] != collapse.toStamp)
+                continue;
+            if (flips(positions, triangles, triangleRemoved, vertexFaces[from], faceCounts[from], from, to, normal)) {
+                // Try collapsing the edge the other way instead.
+                if (!collapse.alternate)
+                    queue.add(new Collapse(evaluate(quadrics, from, to, positions, from), to, from, stamps[to], stamps[from], true));
+                continue;
+            }
+
+            // Move every triangle of the removed vertex onto the remaining vertex.
+            for (int i = 0; i < faceCounts[from]; i++) {
+                int t = vertexFaces[from][i];
+                if (triangleRemoved[t]) continue;
+                int base = t * 3;
+                if (triangles[base] == to || triangles[base + 1] == to || triangles[base + 2] == to) {
+                    triangleRemoved[t] = true;
+                    liveTriangles--;
+                    continue;
+                }
+                for (int k = 0; k < 3; k++) {
+                    if (triangles[base + k] == from)
+                        triangles[base + k] = to;
+                }
+                if (faceCounts[to] == vertexFaces[to].length)
+                    vertexFaces[to] = Arrays.copyOf(vertexFaces[to], vertexFaces[to].length * 2);
+                vertexFaces[to][faceCounts[to]++] = t;
+            }
+            vertexRemoved[from] = true;
+            for (int i = 0; i < 10; i++)
+                quadrics[to * 10 + i] += quadrics[from * 10 + i];
+            stamps[to]++;
+
+            // The edges around the remaining vertex have a new cost.
+            for (int i = 0; i < faceCounts[to]; i++) {
+                int t = vertexFaces[to][i];
+                if (triangleRemoved[t]) continue;
+                for (int k = 0; k < 3; k++) {
+                    int other = triangles[t * 3 + k];
+                    if (other != to)
+                        queue.add(createCollapse(quadrics, positions, stamps, to, other));
+                }
+            }
+        }
+
+        return compact(positions, textCoords, normals, triangles, triangleRemoved, vertexCount, liveTriangles);
+    }
+
+    /**
+     * Check if collapsing an edge would fold any of the triangles around it over.
+     */
+    private static boolean flips(float[] positions, int[] triangles, boolean[] triangleRemoved, int[] faces, int faceCount,
+                                 int from, int to, double[] scratch) {
+        for (int i = 0; i < faceCount; i++) {
+            int t = faces[i];
+            if (triangleRemoved[t]) continue;
+            int a = triangles[t * 3], b = triangles[t * 3 + 1], c = triangles[t * 3 + 2];
+            if (a == to || b == to || c == to) continue;
+            if (triangleNormal(positions, a, b, c, scratch) <= 0) continue;
+            double nx = scratch[0], ny = scratch[1], nz = scratch[2];
+            double area = triangleNormal(positions, a == from ? to : a, b == from ? to : b, c == from ? to : c, scratch);
+            if (area <= 0 || nx * scratch[0] + ny * scratch[1] + nz * scratch[2] < MIN_NORMAL_DOT)
+                return true;
+        }
+        return false;
+    }
+
+    private static Collapse createCollapse(double[] quadrics, float[] positions, int[] stamps, int a, int b) {
+        double toB = evaluate(quadrics, a, b, positions, b);
+        double toA = evaluate(quadrics, a, b, positions, a);
+        if (toB <= toA)
+            return new Collapse(toB, a, b, stamps[a], stamps[b], false);
+        return new Collapse(toA, b, a, stamps[b], stamps[a], false);
+    }
+
+    /**
+     * Evaluate the sum of the quadrics of two vertices at the position of a vertex.
+     */
+    private static double evaluate(double[] quadrics, int a, int b, float[] positions, int vertex) {
+        double x = positions[vertex * 3], y = positions[vertex * 3 + 1], z = positions[vertex * 3 + 2];
+        int qa = a * 10, qb = b * 10;
+        double q0 = quadrics[qa] + quadrics[qb], q1 = quadrics[qa + 1] + quadrics[qb + 1];
+        double q2 = quadrics[qa + 2] + quadrics[qb + 2], q3 = quadrics[qa + 3] + quadrics[qb + 3];
+        double q4 = quadrics[qa + 4] + quadrics[qb + 4], q5 = quadrics[qa + 5] + quadrics[qb + 5];
+        double q6 = quadrics[qa + 6] + quadrics[qb + 6], q7 = quadrics[qa + 7] + quadrics[qb + 7];
+        double q8 = quadrics[qa + 8] + quadrics[qb + 8], q9 = quadrics[qa + 9] + quadrics[qb + 9];
+        return q0 * x * x + 2 * q1 * x * y + 2 * q2 * x * z + 2 * q3 * x
+                + q4 * y * y + 2 * q5 * y * z + 2 * q6 * y
+                + q7 * z * z + 2 * q8 * z
+                + q9;
+    }
+
+    /**
+     * Add the quadric of a plane to a vertex.
+     */
+    private static void addPlane(double[] quadrics, int vertex, double a, double b, double c, double d, double weight) {
+        int q = vertex * 10;
+        quadrics[q] += weight * a * a;
+        quadrics[q + 1] += weight * a * b;
+        quadrics[q + 2] += weight * a * c;
+        quadrics[q + 3] += weight * a * d;
+        quadrics[q + 4] += weight * b * b;
+        quadrics[q + 5] += weight * b * c;
+        quadrics[q + 6] += weight * b * d;
+        quadrics[q + 7] += weight * c * c;
+        quadrics[q + 8] += weight * c * d;
+        quadrics[q + 9] += weight * d * d;
+    }
+
+    /**
+     * Calculate the unit normal of a triangle.
+     *
+     * @return The area of the triangle.
+     */
+    private static double triangleNormal(float[] positions, int a, int b, int c, double[] dest) {
+        double e1x = positions[b * 3] - positions[a * 3];
+        double e1y = positions[b * 3 + 1] - positions[a * 3 + 1];
+        double e1z = positions[b * 3 + 2] - positions[a * 3 + 2];
+        double e2x = positions[c * 3] - positions[a * 3];
+        double e2y = positions[c * 3 + 1] - positions[a * 3 + 1];
+        double e2z = positions[c * 3 + 2] - positions[a * 3 + 2];
+        double nx = e1y * e2z - e1z * e2y;
+        double ny = e1z * e2x - e1x * e2z;
+        double nz = e1x * e2y - e1y * e2x;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length == 0) return 0;
+        dest[0] = nx / length;
+        dest[1] = ny / length;
+        dest[2] = nz / length;
+        return length / 2;
+    }
+
+    private static long edgeKey(int a, int b, int vertexCount) {
+        return (long) Math.min(a, b) * vertexCount + Math.max(a, b);
+    }
+
+    /**
+     * Build the output mesh from the remaining triangles.
+     */
+    private static Result compact(float[] positions, float[] textCoords, float[] normals, int[] triangles,
+                                  boolean[] triangleRemoved, int vertexCount, int liveTriangles) {
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int[] indices = new int[liveTriangles * 3];
+        int used = 0;
+        int count = 0;
+        for (int t = 0; t < triangleRemoved.length; t++) {
+            if (triangleRemoved[t]) continue;
+            for (int k = 0; k < 3; k++) {
+                int v = triangles[t * 3 + k];
+                if (remap[v] == -1)
+                    remap[v] = used++;
+                indices[count++] = remap[v];
+            }
+        }
+
+        boolean hasTextCoords = textCoords.length >= vertexCount * 2;
+        boolean hasNormals = normals.length >= vertexCount * 3;
+        float[] outPositions = new float[used * 3];
+        float[] outTextCoords = new float[hasTextCoords ? used * 2 : 0];
+        float[] outNormals = new float[hasNormals ? used * 3 : 0];
+        for (int v = 0; v < vertexCount; v++) {
+            int n = remap[v];
+            if (n == -1) continue;
+            System.arraycopy(positions, v * 3, outPositions, n * 3, 3);
+            if (hasTextCoords)
+                System.arraycopy(textCoords, v * 2, outTextCoords, n * 2, 2);
+            if (hasNormals)
+                System.arraycopy(normals, v * 3, outNormals, n * 3, 3);
+        }
+        return new Result(outPositions, outTextCoords, outNormals, indices);
+    }
+}
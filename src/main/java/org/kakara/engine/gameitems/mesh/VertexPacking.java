@@ -0,0 +1,88 @@
+package org.kakara.engine.gameitems.mesh;
+
+/**
+ * Packs vertex attributes into compact formats for the GPU.
+ *
+ * @since 1.0-Pre5
+ */
+public final class VertexPacking {
+    /**
+     * Texture coordinates outside of this range lose too much precision as half floats.
+     */
+    public static final float HALF_FLOAT_UV_RANGE = 4;
+
+    private VertexPacking() {
+    }
+
+    /**
+     * Convert a float into a half float.
+     * <p>The value is rounded to the nearest half float. Values too large become infinity.</p>
+     *
+     * @param value The float.
+     * @return The bits of the half float.
+     */
+    public static short toHalfFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int abs = bits & 0x7fffffff;
+        int rounded = abs + 0x1000;
+        if (rounded >= 0x47800000) {
+            if (abs < 0x47800000)
+                return (short) (sign | 0x7bff);
+            if (abs <= 0x7f800000)
+                return (short) (sign | 0x7c00);
+            // NaN
+            return (short) (sign | 0x7c00 | (abs & 0x007fffff) >>> 13);
+        }
+        if (rounded >= 0x38800000)
+            return (short) (sign | (rounded - 0x38000000) >>> 13);
+        if (rounded < 0x33000000)
+            return (short) sign;
+        // Denormalized half float.
+        int exponent = abs >>> 23;
+        return (short) (sign | ((abs & 0x7fffff | 0x800000) + (0x800000 >>> (exponent - 102)) >>> (126 - exponent)));
+    }
+
+    /**
+     * Pack a normal into the signed 2:10:10:10 format. (<code>GL_INT_2_10_10_10_REV</code>).
+     *
+     * @param x The x component of the normal.
+     * @param y The y component of the normal.
+     * @param z The z component of the normal.
+     * @return The packed normal.
+     */
+    public static int packNormal1010102(float x, float y, float z) {
+        return (packSnorm(x, 511) & 0x3ff) | (packSnorm(y, 511) & 0x3ff) << 10 | (packSnorm(z, 511) & 0x3ff) << 20;
+    }
+
+    /**
+     * Pack a normal into four signed bytes. (The last byte is 0).
+     * <p>This is for drivers without the 2:10:10:10 format.</p>
+     *
+     * @param x The x component of the normal.
+     * @param y The y component of the normal.
+     * @param z The z component of the normal.
+     * @return The packed normal, with x in the lowest byte.
+     */
+    public static int packNormalBytes(float x, float y, float z) {
+        return (packSnorm(x, 127) & 0xff) | (packSnorm(y, 127) & 0xff) << 8 | (packSnorm(z, 127) & 0xff) << 16;
+    }
+
+    /**
+     * Check if texture coordinates can be stored as half floats without a noticeable loss of precision.
+     *
+     * @param textCoords The texture coordinates.
+     * @return If every coordinate is within {@link #HALF_FLOAT_UV_RANGE}.
+     */
+    public static boolean fitsHalfFloat(float[] textCoords) {
+        for (float coord : textCoords) {
+            if (!(Math.abs(coord) <= HALF_FLOAT_UV_RANGE))
+                return false;
+        }
+        return true;
+    }
+
+    private static int packSnorm(float value, int max) {
+        return Math.round(Math.max(-1, Math.min(1, value)) * max);
+    }
+}
@@ -1,5 +1,6 @@
 package org.kakara.engine.lighting;
 
+import org.kakara.engine.GameEngine;
 import org.kakara.engine.math.Vector3;
 
 /**
@@ -27,7 +28,12 @@ public class DirectionalLight {
         this.intensity = intensity;
         this.orthoCords = new OrthoCoords();
         this.shadowPosMult = 1;
-        setOrthoCords(-10.0f, 10.0f, -10.0f, 10.0f, -1.0f, 20.0f);
+        orthoCords.left = -10.0f;
+        orthoCords.right = 10.0f;
+        orthoCords.bottom = -10.0f;
+        orthoCords.top = 10.0f;
+        orthoCords.near = -1.0f;
+        orthoCords.far = 20.0f;
     }
 
     /**
@@ -123,11 +129,34 @@ public class DirectionalLight {
         this.shadowPosMult = shadowPosMult;
     }
 
+    /**
+     * Get the bounds of the shadow map.
+     *
+     * @return The orthographic coordinates.
+     * @deprecated The shadow cascades are fit to the camera, see {@link ShadowMap#update(org.joml.Matrix4f, float, float, float, org.joml.Matrix4f)}.
+     */
+    @Deprecated
     public OrthoCoords getOrthoCoords() {
         return orthoCords;
     }
 
+    /**
+     * Set the bounds of the shadow map.
+     *
+     * <p>The bounds are stored but no longer used by the renderer, so this logs a warning. The size of the shadowed
+     * area is controlled by {@link ShadowMap#setShadowDistance(float)}.</p>
+     *
+     * @param left   The left plane.
+     * @param right  The right plane.
+     * @param bottom The bottom plane.
+     * @param top    The top plane.
+     * @param near   The near plane.
+     * @param far    The far plane.
+     * @deprecated The shadow cascades are fit to the camera, use {@link ShadowMap#setShadowDistance(float)} instead.
+     */
+    @Deprecated
     public void setOrthoCords(float left, float right, float bottom, float top, float near, float far) {
+        GameEngine.LOGGER.warn("The orthographic bounds of the directional light are ignored! Did you mean to use ShadowMap#setShadowDistance?");
         orthoCords.left = left;
         orthoCords.right = right;
         orthoCords.bottom = bottom;
@@ -0,0 +1,172 @@
+package org.kakara.engine.lighting;
+
+import org.kakara.engine.exceptions.render.ShaderUniformException;
+import org.kakara.engine.render.Shader;
+import org.kakara.engine.render.stats.RenderStats;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.GL_R32UI;
+import static org.lwjgl.opengl.GL30.GL_RG32UI;
+import static org.lwjgl.opengl.GL30.GL_RGBA32F;
+import static org.lwjgl.opengl.GL31.GL_TEXTURE_BUFFER;
+import static org.lwjgl.opengl.GL31.glTexBuffer;
+
+/**
+ * Uploads a {@link LightClusterGrid} to the GPU as texture buffers.
+ *
+ * <p>Shaders read the lights with <code>texelFetch</code> from three buffers: the light data, the offset and count of
+ * every cluster, and the light indices. See {@link #createUniforms(Shader)} for the uniforms.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class LightClusterBuffer {
+    /**
+     * The first of the three texture units used by the light buffers.
+     */
+    public static final int TEXTURE_UNIT = 11;
+
+    private final int[] buffers = new int[3];
+    private final int[] textures = new int[3];
+    private final int[] capacities = new int[3];
+    private FloatBuffer lightData;
+    private IntBuffer clusterData;
+    private IntBuffer lightIndices;
+
+    private int tilesX;
+    private int tilesY;
+    private int slices;
+    private float sliceScale;
+    private float sliceBias;
+    private float viewportWidth = 1;
+    private float viewportHeight = 1;
+
+    /**
+     * Create the light buffers.
+     * <p>This must be called on the main thread.</p>
+     */
+    public LightClusterBuffer() {
+        glGenBuffers(buffers);
+        glGenTextures(textures);
+        lightData = MemoryUtil.memAllocFloat(64 * LightClusterGrid.LIGHT_SIZE_FLOATS);
+        clusterData = MemoryUtil.memAllocInt(2);
+        lightIndices = MemoryUtil.memAllocInt(1024);
+    }
+
+    /**
+     * Upload the lights of a grid.
+     *
+     * @param grid           The grid to upload.
+     * @param viewportWidth  The width of the view the grid was built for.
+     * @param viewportHeight The height of the view the grid was built for.
+     */
+    public void upload(LightClusterGrid grid, int viewportWidth, int viewportHeight) {
+        this.tilesX = grid.getTilesX();
+        this.tilesY = grid.getTilesY();
+        this.slices = grid.getSlices();
+        this.sliceScale = grid.getSliceScale();
+        this.sliceBias = grid.getSliceBias();
+        this.viewportWidth = viewportWidth;
+        this.viewportHeight = viewportHeight;
+
+        // Texture buffers cannot be empty, so at least one element is always uploaded.
+        int lightFloats = Math.max(grid.getLightCount(), 1) * LightClusterGrid.LIGHT_SIZE_FLOATS;
+        if (lightData.capacity() < lightFloats)
+            lightData = MemoryUtil.memRealloc(lightData, Math.max(lightFloats, lightData.capacity() * 2));
+        lightData.clear();
+        lightData.put(grid.getLightData(), 0, lightFloats).flip();
+
+        int[] clusters = grid.getClusterData();
+        if (clusterData.capacity() < clusters.length)
+            clusterData = MemoryUtil.memRealloc(clusterData, clusters.length);
+        clusterData.clear();
+        clusterData.put(clusters).flip();
+
+        int indexCount = Math.max(grid.getIndexCount(), 1);
+        if (lightIndices.capacity() < indexCount)
+            lightIndices = MemoryUtil.memRealloc(lightIndices, Math.max(indexCount, lightIndices.capacity() * 2));
+        lightIndices.clear();
+        lightIndices.put(grid.getLightIndices(), 0, Math.min(indexCount, grid.getLightIndices().length)).flip();
+
+        uploadBuffer(0, GL_RGBA32F, lightData.remaining() * 4L, lightData, null);
+        uploadBuffer(1, GL_RG32UI, clusterData.remaining() * 4L, null, clusterData);
+        uploadBuffer(2, GL_R32UI, lightIndices.remaining() * 4L, null, lightIndices);
+        glBindBuffer(GL_TEXTURE_BUFFER, 0);
+    }
+
+    private void uploadBuffer(int index, int format, long size, FloatBuffer floats, IntBuffer ints) {
+        glBindBuffer(GL_TEXTURE_BUFFER, buffers[index]);
+        if (size > capacities[index]) {
+            // Grow the buffer and attach the new storage to the texture.
+            capacities[index] = (int) Math.max(size, capacities[index] * 2L);
+            glBufferData(GL_TEXTURE_BUFFER, capacities[index], GL_STREAM_DRAW);
+            glBindTexture(GL_TEXTURE_BUFFER, textures[index]);
+            glTexBuffer(GL_TEXTURE_BUFFER, format, buffers[index]);
+            glBindTexture(GL_TEXTURE_BUFFER, 0);
+        } else {
+            // Orphan the old storage so the upload does not wait for the last frame.
+            glBufferData(GL_TEXTURE_BUFFER, capacities[index], GL_STREAM_DRAW);
+        }
+        if (floats != null)
+            glBufferSubData(GL_TEXTURE_BUFFER, 0, floats);
+        else
+            glBufferSubData(GL_TEXTURE_BUFFER, 0, ints);
+        RenderStats.countUpload(size);
+    }
+
+    /**
+     * Create the uniforms used to read the light clusters.
+     * <p>This creates <code>clusterLights</code>, <code>clusterGrid</code>, <code>clusterIndices</code>,
+     * <code>clusterDims</code>, <code>clusterScale</code>, <code>clusterBias</code>, and <code>viewportSize</code>.</p>
+     *
+     * @param shader The shader.
+     * @throws ShaderUniformException If the uniforms could not be created.
+     */
+    public static void createUniforms(Shader shader) throws ShaderUniformException {
+        shader.createUniform("clusterLights");
+        shader.createUniform("clusterGrid");
+        shader.createUniform("clusterIndices");
+        shader.createUniform("clusterDims");
+        shader.createUniform("clusterScale");
+        shader.createUniform("clusterBias");
+        shader.createUniform("viewportSize");
+    }
+
+    /**
+     * Bind the light buffers and set their uniforms.
+     *
+     * @param shader The shader. (Must have the uniforms from {@link #createUniforms(Shader)}).
+     */
+    public void bind(Shader shader) {
+        shader.setUniform("clusterLights", TEXTURE_UNIT);
+        shader.setUniform("clusterGrid", TEXTURE_UNIT + 1);
+        shader.setUniform("clusterIndices", TEXTURE_UNIT + 2);
+        shader.setUniform("clusterDims", tilesX, tilesY, slices);
+        shader.setUniform("clusterScale", sliceScale);
+        shader.setUniform("clusterBias", sliceBias);
+        shader.setUniform("viewportSize", viewportWidth, viewportHeight);
+        for (int i = 0; i < textures.length; i++) {
+            glActiveTexture(GL_TEXTURE0 + TEXTURE_UNIT + i);
+            glBindTexture(GL_TEXTURE_BUFFER, textures[i]);
+            RenderStats.countTextureBind();
+        }
+        glActiveTexture(GL_TEXTURE0);
+    }
+
+    /**
+     * Cleanup the light buffers.
+     */
+    public void cleanup() {
+        glDeleteTextures(textures);
+        glDeleteBuffers(buffers);
+        MemoryUtil.memFree(lightData);
+        MemoryUtil.memFree(clusterData);
+        MemoryUtil.memFree(lightIndices);
+    }
+}
@@ -0,0 +1,395 @@
+package org.kakara.engine.lighting;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.List;
+
+/**
+ * Bins the point and spot lights of a scene into a grid of clusters covering the view frustum.
+ *
+ * <p>The view is split into tiles on the screen, and every tile is split into slices by depth. The slices grow
+ * exponentially so the clusters stay roughly cube shaped. Each light is added to every cluster that its sphere of
+ * influence touches, so a fragment only has to loop over the lights of its own cluster.</p>
+ *
+ * <p>This class does not use OpenGL, the results are uploaded to the GPU by {@link LightClusterBuffer}. The arrays
+ * are reused between updates and only grow, so updating does not allocate once they are large enough.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class LightClusterGrid {
+    /**
+     * The number of floats used to store a light. (Four vec4s).
+     * <ol>
+     *     <li>The view space position and the intensity.</li>
+     *     <li>The color and the cutoff of the cone. (Point lights use {@link #POINT_LIGHT_CUTOFF}).</li>
+     *     <li>The constant, linear, and exponent attenuation, and the radius of the light.</li>
+     *     <li>The view space direction of the cone.</li>
+     * </ol>
+     */
+    public static final int LIGHT_SIZE_FLOATS = 16;
+    /**
+     * The cutoff stored for point lights.
+     */
+    public static final float POINT_LIGHT_CUTOFF = -2;
+    /**
+     * The fraction of a light's intensity where it is considered to no longer have an effect.
+     */
+    public static final float LIGHT_THRESHOLD = 1f / 256;
+
+    private final int tilesX;
+    private final int tilesY;
+    private final int slices;
+    private float near;
+    private float far;
+
+    private float[] lightData = new float[64 * LIGHT_SIZE_FLOATS];
+    private int lightCount;
+    // The offset and the number of lights of each cluster.
+    private final int[] clusterData;
+    private int[] lightIndices = new int[1024];
+    private int indexCount;
+
+    // The slices of the view in the current update.
+    private float tanX;
+    private float tanY;
+    private float zNear;
+    private float logNear;
+    private float sliceScale;
+
+    private final Vector3f scratch = new Vector3f();
+
+    /**
+     * Create a light cluster grid with 16 x 9 tiles and 24 slices, covering 0.5 to 500 units from the camera.
+     */
+    public LightClusterGrid() {
+        this(16, 9, 24, 0.5f, 500);
+    }
+
+    /**
+     * Create a light cluster grid.
+     * <p>Everything closer than the near distance is in the first slice, and everything further than the far distance
+     * is in the last slice.</p>
+     *
+     * @param tilesX The number of tiles across the screen.
+     * @param tilesY The number of tiles down the screen.
+     * @param slices The number of depth slices.
+     * @param near   The distance where the second slice starts.
+     * @param far    The distance where the last slice starts.
+     */
+    public LightClusterGrid(int tilesX, int tilesY, int slices, float near, float far) {
+        if (tilesX < 1 || tilesY < 1 || slices < 1)
+            throw new IllegalArgumentException("The light cluster grid must have at least one cluster.");
+        this.tilesX = tilesX;
+        this.tilesY = tilesY;
+        this.slices = slices;
+        this.clusterData = new int[tilesX * tilesY * slices * 2];
+        setDepthRange(near, far);
+    }
+
+    /**
+     * Set the range of distances the depth slices are spread over.
+     *
+     * @param near The distance where the second slice starts.
+     * @param far  The distance where the last slice starts.
+     */
+    public void setDepthRange(float near, float far) {
+        if (near <= 0 || far <= near)
+            throw new IllegalArgumentException("The depth range must be positive.");
+        this.near = near;
+        this.far = far;
+        this.logNear = (float) Math.log(near);
+        this.sliceScale = (slices - 1) / (float) Math.log(far / near);
+    }
+
+    /**
+     * Bin the lights for the current view.
+     * <p>Lights with an intensity of 0 are ignored. No light reaches further than the far distance of the grid.</p>
+     *
+     * @param viewMatrix  The view matrix of the camera.
+     * @param fov         The vertical field of view. (In radians).
+     * @param aspectRatio The aspect ratio of the view.
+     * @param zNear       The near plane of the camera.
+     * @param pointLights The point lights. (Spot lights in this list are treated as point lights).
+     * @param spotLights  The spot lights.
+     */
+    public void update(Matrix4f viewMatrix, float fov, float aspectRatio, float zNear,
+                       List<PointLight> pointLights, List<SpotLight> spotLights) {
+        this.tanY = (float) Math.tan(fov / 2);
+        this.tanX = tanY * aspectRatio;
+        this.zNear = zNear;
+
+        lightCount = 0;
+        int size = (pointLights != null ? pointLights.size() : 0) + (spotLights != null ? spotLights.size() : 0);
+        ensureLightCapacity(size);
+        if (pointLights != null) {
+            for (int i = 0; i < pointLights.size(); i++)
+                addLight(pointLights.get(i), POINT_LIGHT_CUTOFF, null, viewMatrix);
+        }
+        if (spotLights != null) {
+            for (int i = 0; i < spotLights.size(); i++) {
+                SpotLight light = spotLights.get(i);
+                addLight(light, light.getCutOff(), light.getConeDirection(), viewMatrix);
+            }
+        }
+
+        // Count the lights of each cluster, then place the indices with a prefix sum.
+        for (int i = 0; i < clusterData.length; i++)
+            clusterData[i] = 0;
+        for (int light = 0; light < lightCount; light++)
+            binLight(light, false);
+        int offset = 0;
+        for (int cluster = 0; cluster < clusterData.length; cluster += 2) {
+            clusterData[cluster] = offset;
+            offset += clusterData[cluster + 1];
+            // The count is rebuilt while filling.
+            clusterData[cluster + 1] = 0;
+        }
+        indexCount = offset;
+        if (lightIndices.length < indexCount)
+            lightIndices = new int[Math.max(indexCount, lightIndices.length * 2)];
+        for (int light = 0; light < lightCount; light++)
+            binLight(light, true);
+    }
+
+    private void ensureLightCapacity(int lights) {
+        if (lightData.length < lights * LIGHT_SIZE_FLOATS)
+            lightData = new float[Math.max(lights, lightData.length / LIGHT_SIZE_FLOATS * 2) * LIGHT_SIZE_FLOATS];
+    }
+
+    private void addLight(PointLight light, float cutoff, Vector3f coneDirection, Matrix4f viewMatrix) {
+        float intensity = light.getIntensity();
+        if (intensity <= 0) return;
+        PointLight.Attenuation att = light.getAttenuation();
+        float radius = getRadius(intensity, att.getConstant(), att.getLinear(), att.getExponent());
+        if (radius <= 0) return;
+        // A light that never drops off (the default attenuation) would be in every cluster, so no light reaches
+        // further than the far distance of the grid.
+        radius = Math.min(radius, far);
+
+        int base = lightCount * LIGHT_SIZE_FLOATS;
+        viewMatrix.transformPosition(scratch.set(light.getPosition().x, light.getPosition().y, light.getPosition().z));
+        lightData[base] = scratch.x;
+        lightData[base + 1] = scratch.y;
+        lightData[base + 2] = scratch.z;
+        lightData[base + 3] = intensity;
+        LightColor color = light.getColor();
+        lightData[base + 4] = color.getRed() / 255f;
+        lightData[base + 5] = color.getGreen() / 255f;
+        lightData[base + 6] = color.getBlue() / 255f;
+        lightData[base + 7] = cutoff;
+        lightData[base + 8] = att.getConstant();
+        lightData[base + 9] = att.getLinear();
+        lightData[base + 10] = att.getExponent();
+        lightData[base + 11] = radius;
+        if (coneDirection != null) {
+            viewMatrix.transformDirection(scratch.set(coneDirection));
+            lightData[base + 12] = scratch.x;
+            lightData[base + 13] = scratch.y;
+            lightData[base + 14] = scratch.z;
+        } else {
+            lightData[base + 12] = 0;
+            lightData[base + 13] = 0;
+            lightData[base + 14] = 0;
+        }
+        lightData[base + 15] = 0;
+        lightCount++;
+    }
+
+    /**
+     * Get the distance where a light drops below {@link #LIGHT_THRESHOLD} of its intensity.
+     *
+     * @param intensity The intensity of the light.
+     * @param constant  The constant attenuation.
+     * @param linear    The linear attenuation.
+     * @param exponent  The exponent attenuation.
+     * @return The radius of the light. (Infinite if the light never drops off, the grid clamps it to its far
+     * distance).
+     */
+    public static float getRadius(float intensity, float constant, float linear, float exponent) {
+        // Solve: constant + linear * d + exponent * d^2 = intensity / threshold
+        float target = intensity / LIGHT_THRESHOLD;
+        if (constant >= target) return 0;
+        if (exponent > 0) {
+            double discriminant = linear * linear - 4.0 * exponent * (constant - target);
+            return (float) ((-linear + Math.sqrt(discriminant)) / (2.0 * exponent));
+        }
+        if (linear > 0)
+            return (target - constant) / linear;
+        return Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Add a light to every cluster its sphere touches.
+     *
+     * @param light The index of the light.
+     * @param fill  If the index should be written. (Otherwise the clusters are only counted).
+     */
+    private void binLight(int light, boolean fill) {
+        int base = light * LIGHT_SIZE_FLOATS;
+        float x = lightData[base], y = lightData[base + 1];
+        float depth = -lightData[base + 2];
+        float radius = lightData[base + 11];
+
+        float maxDepth = depth + radius;
+        // Behind the camera.
+        if (maxDepth < zNear) return;
+        float minDepth = Math.max(depth - radius, zNear);
+
+        int firstSlice = getSlice(minDepth);
+        int lastSlice = getSlice(maxDepth);
+        for (int slice = firstSlice; slice <= lastSlice; slice++) {
+            // The part of the sphere's depth range within the slice.
+            float a = Math.max(minDepth, getSliceStart(slice));
+            float b = Math.min(maxDepth, getSliceEnd(slice));
+            if (a > b) continue;
+            // The projection of x / depth is at its extremes at the ends of the depth range.
+            float minX = (x - radius) / ((x - radius) < 0 ? a : b) / tanX;
+            float maxX = (x + radius) / ((x + radius) < 0 ? b : a) / tanX;
+            float minY = (y - radius) / ((y - radius) < 0 ? a : b) / tanY;
+            float maxY = (y + radius) / ((y + radius) < 0 ? b : a) / tanY;
+            if (maxX < -1 || minX > 1 || maxY < -1 || minY > 1) continue;
+            int tileMinX = toTile(minX, tilesX), tileMaxX = toTile(maxX, tilesX);
+            int tileMinY = toTile(minY, tilesY), tileMaxY = toTile(maxY, tilesY);
+            for (int ty = tileMinY; ty <= tileMaxY; ty++) {
+                for (int tx = tileMinX; tx <= tileMaxX; tx++) {
+                    addToCluster(getClusterIndex(tx, ty, slice), light, fill);
+                }
+            }
+        }
+    }
+
+    private void addToCluster(int cluster, int light, boolean fill) {
+        int i = cluster * 2;
+        if (fill)
+            lightIndices[clusterData[i] + clusterData[i + 1]] = light;
+        clusterData[i + 1]++;
+    }
+
+    private static int toTile(float ndc, int tiles) {
+        int tile = (int) Math.floor((ndc + 1) * 0.5f * tiles);
+        return Math.max(0, Math.min(tiles - 1, tile));
+    }
+
+    /**
+     * Get the slice a distance from the camera is in.
+     *
+     * @param depth The distance along the view direction.
+     * @return The slice.
+     */
+    public int getSlice(float depth) {
+        if (depth < near) return 0;
+        int slice = (int) Math.floor((Math.log(depth) - logNear) * sliceScale) + 1;
+        return Math.min(slice, slices - 1);
+    }
+
+    private float getSliceStart(int slice) {
+        if (slice == 0) return 0;
+        return (float) Math.exp(logNear + (slice - 1) / sliceScale);
+    }
+
+    private float getSliceEnd(int slice) {
+        if (slice == slices - 1) return Float.POSITIVE_INFINITY;
+        return (float) Math.exp(logNear + slice / sliceScale);
+    }
+
+    /**
+     * Get the index of a cluster.
+     *
+     * @param tileX The tile across the screen. (0 is the left).
+     * @param tileY The tile down the screen. (0 is the bottom).
+     * @param slice The depth slice.
+     * @return The index of the cluster.
+     */
+    public int getClusterIndex(int tileX, int tileY, int slice) {
+        return (slice * tilesY + tileY) * tilesX + tileX;
+    }
+
+    /**
+     * Get the light data, see {@link #LIGHT_SIZE_FLOATS} for the layout.
+     *
+     * @return The light data. (Only the first {@link #getLightCount()} lights are valid).
+     */
+    public float[] getLightData() {
+        return lightData;
+    }
+
+    /**
+     * Get the number of lights that were binned.
+     *
+     * @return The number of lights.
+     */
+    public int getLightCount() {
+        return lightCount;
+    }
+
+    /**
+     * Get the offset into the light indices and the number of lights for every cluster.
+     *
+     * @return The cluster data. (Two ints per cluster).
+     */
+    public int[] getClusterData() {
+        return clusterData;
+    }
+
+    /**
+     * Get the lights of every cluster.
+     *
+     * @return The light indices. (Only the first {@link #getIndexCount()} indices are valid).
+     */
+    public int[] getLightIndices() {
+        return lightIndices;
+    }
+
+    /**
+     * Get the number of light indices.
+     *
+     * @return The number of light indices.
+     */
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    /**
+     * Get the number of lights in a cluster.
+     *
+     * @param tileX The tile across the screen.
+     * @param tileY The tile down the screen.
+     * @param slice The depth slice.
+     * @return The number of lights.
+     */
+    public int getClusterLightCount(int tileX, int tileY, int slice) {
+        return clusterData[getClusterIndex(tileX, tileY, slice) * 2 + 1];
+    }
+
+    public int getTilesX() {
+        return tilesX;
+    }
+
+    public int getTilesY() {
+        return tilesY;
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    /**
+     * Get the scale used to find the slice of a depth in the shader.
+     * <p>slice = floor(log(depth) * scale + bias), clamped to the slices.</p>
+     *
+     * @return The slice scale.
+     */
+    public float getSliceScale() {
+        return sliceScale;
+    }
+
+    /**
+     * Get the bias used to find the slice of a depth in the shader.
+     *
+     * @return The slice bias.
+     */
+    public float getSliceBias() {
+        return 1 - logNear * sliceScale;
+    }
+}
@@ -1,10 +1,11 @@
 package org.kakara.engine.lighting;
 
+import org.kakara.engine.GameHandler;
+import org.kakara.engine.math.KMath;
 import org.kakara.engine.math.Vector3;
 import org.kakara.engine.scene.AbstractScene;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -12,7 +13,10 @@ import java.util.List;
  *
  * <p>Obtain the light handler in the current scene by doing {@link AbstractScene#getLightHandler()}.</p>
  *
- * <p>The engine limits 5 spot and point lights to be rendered at a time.</p>
+ * <p>The built in shaders use clustered lighting, so there is no limit to the number of spot and point lights. Each
+ * fragment only calculates the lights that reach it, see {@link LightClusterGrid}.</p>
+ * <p>Custom shaders using the <code>pointLights</code> and <code>spotLights</code> uniform arrays are limited to the
+ * {@link #MAX_POINT_LIGHTS} and {@link #MAX_SPOT_LIGHTS} closest lights.</p>
  */
 public class LightHandler {
 
@@ -24,8 +28,10 @@ public class LightHandler {
     private DirectionalLight directionalLight;
     private LightColor ambientLight;
     private LightColor skyBoxLight;
+    private final LightClusterGrid clusterGrid;
 
     public LightHandler() {
+        this.clusterGrid = new LightClusterGrid();
         this.pointLights = new ArrayList<>();
         this.spotLights = new ArrayList<>();
         this.directionalLight = new DirectionalLight(new LightColor(255, 255, 255), new Vector3(0, 1, 0), 0.5f);
@@ -70,33 +76,64 @@ public class LightHandler {
     }
 
     /**
-     * Gets the list of point lights that are going to be displayed.
+     * Gets the list of point lights that are going to be displayed by shaders using the uniform arrays.
      *
-     * @return The list of displayed point lights.
+     * @return The {@link #MAX_POINT_LIGHTS} closest point lights.
      */
     public List<PointLight> getDisplayPointLights() {
-        if (pointLights.size() <= MAX_POINT_LIGHTS) {
-            return pointLights;
-        }
-        List<PointLight> lights = new ArrayList<>(pointLights);
-        Collections.sort(lights);
-        lights.subList(MAX_POINT_LIGHTS, lights.size()).clear();
-        return lights;
+        return getClosestLights(pointLights, MAX_POINT_LIGHTS);
     }
 
     /**
-     * Gets the list of point lights that are going to be displayed.
+     * Gets the list of spot lights that are going to be displayed by shaders using the uniform arrays.
      *
-     * @return The list of displayed point lights.
+     * @return The {@link #MAX_SPOT_LIGHTS} closest spot lights.
      */
     public List<SpotLight> getDisplaySpotLights() {
-        if (spotLights.size() <= MAX_SPOT_LIGHTS) {
-            return spotLights;
+        return getClosestLights(spotLights, MAX_SPOT_LIGHTS);
+    }
+
+    /**
+     * Find the lights closest to the camera.
+     * <p>The distance to each light is only calculated once.</p>
+     *
+     * @param lights The lights.
+     * @param max    The maximum number of lights.
+     * @param <T>    The type of light.
+     * @return The closest lights, ordered by distance.
+     */
+    private static <T extends PointLight> List<T> getClosestLights(List<T> lights, int max) {
+        if (lights.size() <= max) {
+            return lights;
+        }
+        Vector3 cameraPos = GameHandler.getInstance().getCurrentScene().getCamera().getPosition();
+        float[] distances = new float[lights.size()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = KMath.distance(cameraPos, lights.get(i).getPosition());
         }
-        List<SpotLight> lights = new ArrayList<>(spotLights);
-        Collections.sort(lights);
-        lights.subList(MAX_SPOT_LIGHTS, lights.size()).clear();
-        return lights;
+        // Select the closest lights one at a time, only a few are ever needed.
+        List<T> output = new ArrayList<>(max);
+        for (int n = 0; n < max; n++) {
+            int closest = -1;
+            for (int i = 0; i < distances.length; i++) {
+                if (distances[i] >= 0 && (closest == -1 || distances[i] < distances[closest]))
+                    closest = i;
+            }
+            output.add(lights.get(closest));
+            distances[closest] = -1;
+        }
+        return output;
+    }
+
+    /**
+     * Get the grid the lights are binned into for clustered lighting.
+     * <p>The grid is updated by the renderer once per frame.</p>
+     *
+     * @return The light cluster grid.
+     * @since 1.0-Pre5
+     */
+    public LightClusterGrid getClusterGrid() {
+        return clusterGrid;
     }
 
     /**
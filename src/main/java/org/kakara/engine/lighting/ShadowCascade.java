@@ -0,0 +1,250 @@
+package org.kakara.engine.lighting;
+
+import org.joml.Matrix4f;
+import org.kakara.engine.exceptions.render.GenericRenderException;
+import org.kakara.engine.gameitems.Texture;
+
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * A single cascade of the {@link ShadowMap}.
+ *
+ * <p>Each cascade covers a slice of the camera frustum with its own depth texture. The depth of static shadow casters
+ * is kept in a separate cache texture that is only re-rendered when the cascade moves, the light changes, or the static
+ * geometry changes. Every update copies the cache into the depth texture and then draws the dynamic casters on top.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class ShadowCascade {
+    private final Matrix4f projectionMatrix = new Matrix4f();
+    // The state the static cache was rendered with.
+    private final Matrix4f cachedProjection = new Matrix4f();
+    private final Matrix4f cachedLightView = new Matrix4f();
+    private long cachedStaticVersion = -1;
+    private boolean staticCacheValid;
+
+    private int resolution;
+    private int updateInterval;
+    private long lastUpdateFrame = Integer.MIN_VALUE;
+    private float farPlane;
+
+    private int depthMapFBO;
+    private Texture depthMap;
+    private int staticFBO;
+    private Texture staticDepthMap;
+
+    /**
+     * Create a shadow cascade.
+     * <p>This must be called on the main thread.</p>
+     *
+     * @param resolution     The width and height of the depth texture.
+     * @param updateInterval The number of frames between updates of the dynamic shadow casters.
+     * @throws GenericRenderException If the frame buffers could not be created.
+     */
+    ShadowCascade(int resolution, int updateInterval) throws GenericRenderException {
+        this.updateInterval = Math.max(1, updateInterval);
+        createBuffers(resolution);
+    }
+
+    private void createBuffers(int resolution) throws GenericRenderException {
+        if (resolution < 1)
+            throw new IllegalArgumentException("The resolution of a shadow cascade must be positive.");
+        this.resolution = resolution;
+        depthMap = new Texture(resolution, resolution, GL_DEPTH_COMPONENT);
+        depthMapFBO = createFrameBuffer(depthMap);
+        staticDepthMap = new Texture(resolution, resolution, GL_DEPTH_COMPONENT);
+        staticFBO = createFrameBuffer(staticDepthMap);
+        staticCacheValid = false;
+    }
+
+    private static int createFrameBuffer(Texture texture) throws GenericRenderException {
+        int previous = glGetInteger(GL_FRAMEBUFFER_BINDING);
+        int fbo = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, fbo);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_TEXTURE_2D, texture.getId(), 0);
+        // Set only depth
+        glDrawBuffer(GL_NONE);
+        glReadBuffer(GL_NONE);
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE) {
+            throw new GenericRenderException("Could not create FrameBuffer");
+        }
+        glBindFramebuffer(GL_FRAMEBUFFER, previous);
+        return fbo;
+    }
+
+    /**
+     * Check if the cascade should be updated this frame.
+     * <p>Internal use only.</p>
+     *
+     * @param frame         The current frame.
+     * @param lightView     The current light view matrix.
+     * @param staticVersion The current version of the static shadow casters.
+     * @return If the cascade needs to be rendered.
+     */
+    public boolean needsUpdate(long frame, Matrix4f lightView, long staticVersion) {
+        return !isStaticCacheValid(lightView, staticVersion) || frame - lastUpdateFrame >= updateInterval;
+    }
+
+    /**
+     * Check if the static cache can be reused with the current projection of the cascade.
+     * <p>Internal use only.</p>
+     *
+     * @param lightView     The current light view matrix.
+     * @param staticVersion The current version of the static shadow casters.
+     * @return If the static cache is still valid.
+     */
+    public boolean isStaticCacheValid(Matrix4f lightView, long staticVersion) {
+        return staticCacheValid && staticVersion == cachedStaticVersion
+                && cachedProjection.equals(projectionMatrix) && cachedLightView.equals(lightView);
+    }
+
+    /**
+     * Mark the static cache as rendered with the current state.
+     * <p>Internal use only.</p>
+     *
+     * @param lightView     The light view matrix.
+     * @param staticVersion The version of the static shadow casters.
+     */
+    public void markStaticCached(Matrix4f lightView, long staticVersion) {
+        cachedProjection.set(projectionMatrix);
+        cachedLightView.set(lightView);
+        cachedStaticVersion = staticVersion;
+        staticCacheValid = true;
+    }
+
+    /**
+     * Mark the cascade as updated.
+     * <p>Internal use only.</p>
+     *
+     * @param frame The current frame.
+     */
+    public void markUpdated(long frame) {
+        lastUpdateFrame = frame;
+    }
+
+    /**
+     * Copy the cached static depth into the depth texture.
+     * <p>The depth texture must be bound as the draw frame buffer. The read frame buffer is restored afterwards.</p>
+     * <p>Internal use only.</p>
+     */
+    public void copyStaticCache() {
+        // Binding the draw frame buffer with GL_FRAMEBUFFER also binds it for reading, put that back afterwards.
+        int previous = glGetInteger(GL_READ_FRAMEBUFFER_BINDING);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, staticFBO);
+        glBlitFramebuffer(0, 0, resolution, resolution, 0, 0, resolution, resolution, GL_DEPTH_BUFFER_BIT, GL_NEAREST);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, previous);
+    }
+
+    /**
+     * Get the projection matrix of the cascade. (In light view space).
+     * <p>Until the cascade is updated this is not the projection the depth texture was rendered with, see
+     * {@link #getRenderedProjectionMatrix()}.</p>
+     *
+     * @return The projection matrix.
+     */
+    public Matrix4f getProjectionMatrix() {
+        return projectionMatrix;
+    }
+
+    /**
+     * Get the projection matrix the depth texture was last rendered with.
+     *
+     * @return The projection matrix that should be used to sample the depth texture.
+     */
+    public Matrix4f getRenderedProjectionMatrix() {
+        return cachedProjection;
+    }
+
+    /**
+     * Get the distance from the camera where this cascade ends.
+     *
+     * @return The far plane of the cascade.
+     */
+    public float getFarPlane() {
+        return farPlane;
+    }
+
+    void setFarPlane(float farPlane) {
+        this.farPlane = farPlane;
+    }
+
+    /**
+     * Get the width and height of the depth texture.
+     *
+     * @return The resolution of the cascade.
+     */
+    public int getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Change the resolution of the cascade.
+     * <p>This must be called on the main thread.</p>
+     *
+     * @param resolution The new width and height of the depth texture.
+     * @throws GenericRenderException If the frame buffers could not be created.
+     */
+    public void setResolution(int resolution) throws GenericRenderException {
+        if (resolution == this.resolution) return;
+        cleanup();
+        createBuffers(resolution);
+        lastUpdateFrame = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Get the number of frames between updates of the dynamic shadow casters.
+     *
+     * @return The update interval.
+     */
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    /**
+     * Set the number of frames between updates of the dynamic shadow casters.
+     * <p>The cascade is always updated when the static shadow casters change, no matter the interval.</p>
+     *
+     * @param updateInterval The update interval. (1 updates every frame).
+     */
+    public void setUpdateInterval(int updateInterval) {
+        this.updateInterval = Math.max(1, updateInterval);
+    }
+
+    /**
+     * Get the depth texture.
+     *
+     * @return The depth texture.
+     */
+    public Texture getDepthMapTexture() {
+        return depthMap;
+    }
+
+    /**
+     * Get the frame buffer of the depth texture.
+     *
+     * @return The fbo.
+     */
+    public int getDepthMapFBO() {
+        return depthMapFBO;
+    }
+
+    /**
+     * Get the frame buffer of the static cache.
+     * <p>Internal use only.</p>
+     *
+     * @return The fbo.
+     */
+    public int getStaticFBO() {
+        return staticFBO;
+    }
+
+    /**
+     * Cleanup the cascade.
+     */
+    void cleanup() {
+        glDeleteFramebuffers(depthMapFBO);
+        glDeleteFramebuffers(staticFBO);
+        depthMap.cleanup();
+        staticDepthMap.cleanup();
+    }
+}
@@ -1,67 +1,229 @@
 package org.kakara.engine.lighting;
 
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
 import org.kakara.engine.exceptions.render.GenericRenderException;
 import org.kakara.engine.gameitems.Texture;
 
-import static org.lwjgl.opengl.GL30.*;
-
 /**
  * Handles the shadows of the game.
+ *
+ * <p>As of 1.0-Pre5 the shadow map is split into cascades. Each {@link ShadowCascade} covers a slice of the camera
+ * frustum, so the cascades near the camera get much more detail than a single map would. Far cascades can be updated
+ * less often with {@link ShadowCascade#setUpdateInterval(int)}.</p>
  */
 public class ShadowMap {
+    /**
+     * The default resolution of a cascade.
+     */
     public static final int SHADOW_MAP_WIDTH = 1024;
 
     public static final int SHADOW_MAP_HEIGHT = 1024;
 
-    private final int depthMapFBO;
+    /**
+     * The maximum number of cascades supported by the default shaders.
+     *
+     * @since 1.0-Pre5
+     */
+    public static final int MAX_CASCADES = 4;
+
+    // How much the split scheme leans towards logarithmic splits over uniform splits.
+    private static final float SPLIT_LAMBDA = 0.75f;
+
+    private final ShadowCascade[] cascades;
+    private float shadowDistance = 80;
+    private float casterDistance = 50;
 
-    private final Texture depthMap;
+    private final Matrix4f inverseView = new Matrix4f();
+    private final Vector3f center = new Vector3f();
 
+    /**
+     * Create the shadow map with three cascades.
+     *
+     * @throws GenericRenderException If the frame buffers could not be created.
+     */
     public ShadowMap() throws GenericRenderException {
-        // Create a FBO to render the depth map
-        depthMapFBO = glGenFramebuffers();
+        this(SHADOW_MAP_WIDTH, SHADOW_MAP_WIDTH, SHADOW_MAP_WIDTH);
+    }
 
-        // Create the depth map texture
-        depthMap = new Texture(SHADOW_MAP_WIDTH, SHADOW_MAP_HEIGHT, GL_DEPTH_COMPONENT);
+    /**
+     * Create the shadow map with a cascade for every resolution provided.
+     * <p>The cascades are ordered from the closest to the camera to the furthest.</p>
+     *
+     * @param resolutions The resolution of each cascade.
+     * @throws GenericRenderException If the frame buffers could not be created.
+     * @since 1.0-Pre5
+     */
+    public ShadowMap(int... resolutions) throws GenericRenderException {
+        if (resolutions.length < 1 || resolutions.length > MAX_CASCADES)
+            throw new IllegalArgumentException("A shadow map must have between 1 and " + MAX_CASCADES + " cascades.");
+        cascades = new ShadowCascade[resolutions.length];
+        for (int i = 0; i < resolutions.length; i++) {
+            // Every cascade further out is updated half as often.
+            cascades[i] = new ShadowCascade(resolutions[i], 1 << i);
+        }
+    }
+
+    /**
+     * Fit the cascades to the camera.
+     * <p>Each cascade is fit to a bounding sphere around its slice of the frustum. The sphere does not change as the
+     * camera rotates and its center is snapped to the texels of the cascade, so the shadows do not shimmer when the
+     * camera moves. It also means the cascades only move when the camera has moved at least a texel.</p>
+     *
+     * @param viewMatrix      The view matrix of the camera.
+     * @param fov             The field of view of the camera. (In radians).
+     * @param aspectRatio     The aspect ratio of the window.
+     * @param zNear           The near plane of the camera.
+     * @param lightViewMatrix The light view matrix.
+     * @since 1.0-Pre5
+     */
+    public void update(Matrix4f viewMatrix, float fov, float aspectRatio, float zNear, Matrix4f lightViewMatrix) {
+        viewMatrix.invertAffine(inverseView);
+        float tanY = (float) Math.tan(fov / 2);
+        float tanX = tanY * aspectRatio;
+        float k = tanX * tanX + tanY * tanY;
+
+        float near = zNear;
+        for (int i = 0; i < cascades.length; i++) {
+            float far = getSplit(i + 1, zNear);
+            // The point along the view axis that is the same distance from the near and far corners of the slice.
+            float c = Math.min((far + near) * (k + 1) / 2, far);
+            float radius = (float) Math.sqrt(far * far * k + (far - c) * (far - c));
+            // Round the radius so floating point error does not change the size of the cascade.
+            radius = (float) Math.ceil(radius * 16) / 16;
 
-        // Attach the the depth map texture to the FBO
-        glBindFramebuffer(GL_FRAMEBUFFER, depthMapFBO);
-        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_TEXTURE_2D, depthMap.getId(), 0);
-        // Set only depth
-        glDrawBuffer(GL_NONE);
-        glReadBuffer(GL_NONE);
+            center.set(0, 0, -c);
+            inverseView.transformPosition(center);
+            lightViewMatrix.transformPosition(center);
 
-        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE) {
-            throw new GenericRenderException("Could not create FrameBuffer");
+            ShadowCascade cascade = cascades[i];
+            float texelSize = 2 * radius / cascade.getResolution();
+            float cx = (float) Math.floor(center.x / texelSize) * texelSize;
+            float cy = (float) Math.floor(center.y / texelSize) * texelSize;
+            float cz = (float) Math.floor(center.z / texelSize) * texelSize;
+            // The camera of the light looks down -z, extend the box towards the light to catch casters outside of the view.
+            cascade.getProjectionMatrix().setOrtho(cx - radius, cx + radius, cy - radius, cy + radius,
+                    -cz - radius - casterDistance, -cz + radius);
+            cascade.setFarPlane(far);
+            near = far;
         }
+    }
+
+    /**
+     * Get the distance of a split using the practical split scheme.
+     *
+     * @param index The index of the split. (0 is the near plane).
+     * @param zNear The near plane of the camera.
+     * @return The distance of the split from the camera.
+     */
+    private float getSplit(int index, float zNear) {
+        float ratio = (float) index / cascades.length;
+        float log = zNear * (float) Math.pow(shadowDistance / zNear, ratio);
+        float uniform = zNear + (shadowDistance - zNear) * ratio;
+        return SPLIT_LAMBDA * log + (1 - SPLIT_LAMBDA) * uniform;
+    }
+
+    /**
+     * Get the cascades of the shadow map.
+     *
+     * @return The cascades, from the closest to the camera to the furthest.
+     * @since 1.0-Pre5
+     */
+    public ShadowCascade[] getCascades() {
+        return cascades;
+    }
+
+    /**
+     * Get the number of cascades.
+     *
+     * @return The number of cascades.
+     * @since 1.0-Pre5
+     */
+    public int getCascadeCount() {
+        return cascades.length;
+    }
+
+    /**
+     * Get a cascade.
+     *
+     * @param index The index of the cascade.
+     * @return The cascade.
+     * @since 1.0-Pre5
+     */
+    public ShadowCascade getCascade(int index) {
+        return cascades[index];
+    }
 
-        // Unbind
-        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+    /**
+     * Get the distance from the camera that shadows are drawn to.
+     *
+     * @return The shadow distance.
+     * @since 1.0-Pre5
+     */
+    public float getShadowDistance() {
+        return shadowDistance;
     }
 
     /**
-     * Get the texture of the depth mpa
+     * Set the distance from the camera that shadows are drawn to.
+     * <p>Everything further away is not shadowed.</p>
+     *
+     * @param shadowDistance The shadow distance.
+     * @since 1.0-Pre5
+     */
+    public void setShadowDistance(float shadowDistance) {
+        this.shadowDistance = shadowDistance;
+    }
+
+    /**
+     * Get how far towards the light the cascades extend past the view of the camera.
+     *
+     * @return The caster distance.
+     * @since 1.0-Pre5
+     */
+    public float getCasterDistance() {
+        return casterDistance;
+    }
+
+    /**
+     * Set how far towards the light the cascades extend past the view of the camera.
+     * <p>Objects further than this from the view will not cast shadows into it.</p>
+     *
+     * @param casterDistance The caster distance.
+     * @since 1.0-Pre5
+     */
+    public void setCasterDistance(float casterDistance) {
+        this.casterDistance = casterDistance;
+    }
+
+    /**
+     * Get the texture of the depth map of the first cascade.
      *
      * @return The texture.
+     * @deprecated Use {@link #getCascade(int)} instead.
      */
+    @Deprecated
     public Texture getDepthMapTexture() {
-        return depthMap;
+        return cascades[0].getDepthMapTexture();
     }
 
     /**
-     * Get the depth map fbo.
+     * Get the depth map fbo of the first cascade.
      *
      * @return The fbo.
+     * @deprecated Use {@link #getCascade(int)} instead.
      */
+    @Deprecated
     public int getDepthMapFBO() {
-        return depthMapFBO;
+        return cascades[0].getDepthMapFBO();
     }
 
     /**
      * Cleanup the depth map.
      */
     public void cleanup() {
-        glDeleteFramebuffers(depthMapFBO);
-        depthMap.cleanup();
+        for (ShadowCascade cascade : cascades) {
+            cascade.cleanup();
+        }
     }
 }
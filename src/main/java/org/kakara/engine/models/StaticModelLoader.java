@@ -5,6 +5,7 @@ import org.kakara.engine.exceptions.ModelLoadException;
 import org.kakara.engine.gameitems.Material;
 import org.kakara.engine.gameitems.Texture;
 import org.kakara.engine.gameitems.mesh.InstancedMesh;
+import org.kakara.engine.gameitems.mesh.MeshSimplifier;
 import org.kakara.engine.gameitems.mesh.Mesh;
 import org.kakara.engine.resources.FileResource;
 import org.kakara.engine.resources.JarResource;
@@ -28,6 +29,20 @@ import static org.lwjgl.system.MemoryUtil.NULL;
  * A model loader for static Models
  */
 public class StaticModelLoader {
+    /**
+     * A good number of simplified levels of detail to generate for each mesh.
+     * <p>Levels of detail are only generated when asked for, see
+     * {@link #load(Resource, String, ResourceManager, Scene, int, int)}.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public static final int DEFAULT_LOD_LEVELS = 2;
+    // Meshes with fewer triangles than this are not simplified.
+    private static final int MIN_LOD_TRIANGLES = 64;
+    // The screen size of the first level of detail, and how much smaller the screen size of every following level is.
+    private static final float LOD_SCREEN_SIZE = 0.3f;
+    private static final float LOD_SCREEN_SIZE_FALLOFF = 0.4f;
+
     private StaticModelLoader() {
 
     }
@@ -49,6 +64,7 @@ public class StaticModelLoader {
 
     /**
      * Loads a model
+     * <p>No levels of detail are generated.</p>
      *
      * @param resource        The resource for the model file
      * @param texturesDir     The location of the Texture directory
@@ -59,6 +75,25 @@ public class StaticModelLoader {
      * @throws ModelLoadException If an error occurs while loading the model.
      */
     public static Mesh[] load(Resource resource, String texturesDir, ResourceManager resourceManager, Scene scene, int flags) throws ModelLoadException {
+        return load(resource, texturesDir, resourceManager, scene, flags, 0);
+    }
+
+    /**
+     * Loads a model and generates simplified levels of detail for its meshes.
+     * <p>Every level has about half of the triangles of the level before it. Fewer levels are generated for meshes that
+     * are already simple. See {@link Mesh#setLevelsOfDetail(Mesh[], float[])}.</p>
+     *
+     * @param resource        The resource for the model file
+     * @param texturesDir     The location of the Texture directory
+     * @param resourceManager The resource manager
+     * @param scene           The current scene
+     * @param flags           Flags to load the object by.
+     * @param lodLevels       The maximum number of simplified levels to generate. (0 to not generate any).
+     * @return The array of meshes.
+     * @throws ModelLoadException If an error occurs while loading the model.
+     * @since 1.0-Pre5
+     */
+    public static Mesh[] load(Resource resource, String texturesDir, ResourceManager resourceManager, Scene scene, int flags, int lodLevels) throws ModelLoadException {
         GameEngine.LOGGER.debug(String.format("Loading Model %s With Textures in %s", resource.toString(), texturesDir));
 
         AIScene aiScene = null;
@@ -95,7 +130,7 @@ public class StaticModelLoader {
         Mesh[] meshes = new Mesh[numMeshes];
         for (int i = 0; i < numMeshes; i++) {
             AIMesh aiMesh = AIMesh.create(aiMeshes.get(i));
-            Mesh mesh = processMesh(aiMesh, materials);
+            Mesh mesh = processMesh(aiMesh, materials, lodLevels);
             meshes[i] = mesh;
         }
 
@@ -200,7 +235,7 @@ public class StaticModelLoader {
             String textureFile = texturesDir + separator + textPath;
             textureFile = textureFile.replace("//", separator);
             GameEngine.LOGGER.debug(String.format("Getting Texture from %s", textureFile));
-            texture = textCache.getTexture(textureFile, scene);
+            texture = textCache.getTextureAsync(textureFile, scene);
         }
 
         RGBA specular = Material.DEFAULT_COLOUR;
@@ -220,9 +255,10 @@ public class StaticModelLoader {
      *
      * @param aiMesh    The AI Mesh.
      * @param materials The list of materials.
+     * @param lodLevels The maximum number of levels of detail to generate.
      * @return The mesh.
      */
-    private static Mesh processMesh(AIMesh aiMesh, List<Material> materials) {
+    private static Mesh processMesh(AIMesh aiMesh, List<Material> materials, int lodLevels) {
         List<Float> vertices = new ArrayList<>();
         List<Float> textures = new ArrayList<>();
         List<Float> normals = new ArrayList<>();
@@ -233,8 +269,11 @@ public class StaticModelLoader {
         processTextCoords(aiMesh, textures);
         processIndices(aiMesh, indices);
 
-        Mesh mesh = new Mesh(Utils.listToArray(vertices), Utils.listToArray(textures),
-                Utils.listToArray(normals), Utils.listIntToArray(indices));
+        float[] positionArr = Utils.listToArray(vertices);
+        float[] textureArr = Utils.listToArray(textures);
+        float[] normalArr = Utils.listToArray(normals);
+        int[] indexArr = Utils.listIntToArray(indices);
+        Mesh mesh = new Mesh(positionArr, textureArr, normalArr, indexArr);
         Material material;
         int materialIdx = aiMesh.mMaterialIndex();
         if (materialIdx >= 0 && materialIdx < materials.size()) {
@@ -244,9 +283,48 @@ public class StaticModelLoader {
         }
         mesh.setMaterial(material);
 
+        generateLevelsOfDetail(mesh, positionArr, textureArr, normalArr, indexArr, lodLevels);
+
         return mesh;
     }
 
+    /**
+     * Generate the simplified levels of detail of a mesh.
+     *
+     * @param mesh       The mesh.
+     * @param positions  The positions of the mesh.
+     * @param textCoords The texture coordinates of the mesh.
+     * @param normals    The normals of the mesh.
+     * @param indices    The indices of the mesh.
+     * @param lodLevels  The maximum number of levels to generate.
+     */
+    private static void generateLevelsOfDetail(Mesh mesh, float[] positions, float[] textCoords, float[] normals, int[] indices, int lodLevels) {
+        List<Mesh> levels = new ArrayList<>();
+        int triangles = indices.length / 3;
+        for (int i = 0; i < lodLevels && triangles >= MIN_LOD_TRIANGLES; i++) {
+            MeshSimplifier.Result result = MeshSimplifier.simplify(positions, textCoords, normals, indices, triangles / 2);
+            // Stop once the mesh cannot be simplified much further.
+            if (result.getTriangleCount() > triangles * 0.8f)
+                break;
+            Mesh level = new Mesh(result.getPositions(), result.getTextCoords(), result.getNormals(), result.getIndices());
+            level.setMaterial(mesh.getMaterial().orElseThrow());
+            levels.add(level);
+
+            positions = result.getPositions();
+            textCoords = result.getTextCoords();
+            normals = result.getNormals();
+            indices = result.getIndices();
+            triangles = result.getTriangleCount();
+        }
+        if (levels.isEmpty()) return;
+
+        float[] screenSizes = new float[levels.size()];
+        for (int i = 0; i < screenSizes.length; i++) {
+            screenSizes[i] = LOD_SCREEN_SIZE * (float) Math.pow(LOD_SCREEN_SIZE_FALLOFF, i);
+        }
+        mesh.setLevelsOfDetail(levels.toArray(new Mesh[0]), screenSizes);
+    }
+
     /**
      * Process a mesh into an InstancedMesh.
      *
@@ -1,5 +1,6 @@
 package org.kakara.engine.models;
 
+import org.kakara.engine.GameHandler;
 import org.kakara.engine.gameitems.Texture;
 import org.kakara.engine.resources.Resource;
 import org.kakara.engine.resources.ResourceManager;
@@ -61,6 +62,29 @@ public class TextureCache {
         return texture;
     }
 
+    /**
+     * Get a texture, loading it in the background if it does not exist.
+     * <p>New textures are a placeholder until they are loaded, see {@link org.kakara.engine.gameitems.TextureLoader}.</p>
+     *
+     * @param path         The path
+     * @param currentScene The current scene
+     * @return The texture found or created.
+     * @since 1.0-Pre5
+     */
+    public Texture getTextureAsync(String path, Scene currentScene) {
+        Texture texture = texturesMap.get(path);
+        if (texture == null) {
+            Resource resource = resourceManager.getResource(path);
+            if (resource == null) {
+                throw new MissingResourceException("Unable to locate resource: " + path, path, path);
+            }
+            texture = GameHandler.getInstance().getGameEngine().getTextureLoader().load(resource, currentScene);
+
+            texturesMap.put(path, texture);
+        }
+        return texture;
+    }
+
     /**
      * Remove unused textures from the scene
      *
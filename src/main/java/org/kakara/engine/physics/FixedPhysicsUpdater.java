@@ -2,6 +2,7 @@ package org.kakara.engine.physics;
 
 import org.kakara.engine.components.Component;
 import org.kakara.engine.gameitems.GameItem;
+import org.kakara.engine.physics.collision.CollisionManager;
 import org.kakara.engine.scene.Scene;
 
 import java.util.Objects;
@@ -14,7 +15,10 @@ import java.util.TimerTask;
  * To use this system you must use the velocity system.
  *
  * @since 1.0-Pre2
+ * @deprecated Physics is now stepped on the main thread by the {@link PhysicsStepper}, which does not race with
+ * rendering. This is no longer scheduled by the engine.
  */
+@Deprecated
 public class FixedPhysicsUpdater extends TimerTask {
     private final Scene scene;
     private long oldTime;
@@ -30,15 +34,16 @@ public class FixedPhysicsUpdater extends TimerTask {
         oldTime = currentTime;
         currentTime = System.currentTimeMillis();
         float deltaTime = ((float) (currentTime - oldTime)) * 0.001f;
+        CollisionManager collisionManager = scene.getCollisionManager();
+        if (collisionManager != null)
+            collisionManager.updateBroadphase();
         synchronized (Objects.requireNonNull(scene.getItemHandler()).getItems()) {
             for (GameItem item : Objects.requireNonNull(scene.getItemHandler()).getItems()) {
-                try {
-                    for (Component components : item.getComponents()) {
-                        components.physicsUpdate(deltaTime);
-                    }
-                } catch (NullPointerException ex) {
-                    // Continue for now. This is caused by a synchronization issue between the
-                    // threads. For now do nothing as I don't know how to fix this.
+                // The item is not set up yet, it is updated once it has its transform.
+                if (item == null || item.transform == null) continue;
+                for (Component components : item.getComponents()) {
+                    if (components.getGameItem() == null) continue;
+                    components.physicsUpdate(deltaTime);
                 }
 //                try {
 //                    GameItem meshItem = (GameItem) item;
@@ -64,5 +69,7 @@ public class FixedPhysicsUpdater extends TimerTask {
                 //...
             }
         }
+        if (collisionManager != null)
+            collisionManager.getContactPairs().endStep();
     }
 }
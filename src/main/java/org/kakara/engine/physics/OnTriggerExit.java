@@ -0,0 +1,19 @@
+package org.kakara.engine.physics;
+
+import org.kakara.engine.physics.collision.ColliderComponent;
+
+/**
+ * This handles the OnTriggerExit event for {@link ColliderComponent}.
+ *
+ * <p>Maybe consider using {@link org.kakara.engine.components.Component#onCollisionExit(ColliderComponent)} instead.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public interface OnTriggerExit {
+    /**
+     * This is triggered when something leaves a collision.
+     *
+     * @param other The collidable that was collided with.
+     */
+    void onTriggerExit(ColliderComponent other);
+}
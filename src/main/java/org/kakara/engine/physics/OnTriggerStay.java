@@ -0,0 +1,20 @@
+package org.kakara.engine.physics;
+
+import org.kakara.engine.physics.collision.ColliderComponent;
+
+/**
+ * This handles the OnTriggerStay event for {@link ColliderComponent}.
+ *
+ * <p>Maybe consider using {@link org.kakara.engine.components.Component#onCollisionStay(ColliderComponent)} instead.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public interface OnTriggerStay {
+    /**
+     * This is triggered while something stays in a collision.
+     * <p>How often this is triggered is set by {@link org.kakara.engine.physics.collision.ContactPairCache#setStayInterval(float)}.</p>
+     *
+     * @param other The collidable that is collided with.
+     */
+    void onTriggerStay(ColliderComponent other);
+}
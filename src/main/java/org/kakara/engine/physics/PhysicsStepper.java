@@ -0,0 +1,285 @@
+package org.kakara.engine.physics;
+
+import org.kakara.engine.components.Component;
+import org.kakara.engine.gameitems.GameItem;
+import org.kakara.engine.gameitems.ItemHandler;
+import org.kakara.engine.physics.collision.CollisionManager;
+import org.kakara.engine.physics.collision.IslandSolver;
+import org.kakara.engine.physics.collision.PhysicsComponent;
+import org.kakara.engine.physics.collision.PhysicsIslands;
+import org.kakara.engine.scene.AbstractGameScene;
+import org.kakara.engine.scene.Scene;
+
+/**
+ * Steps the physics of a scene with a fixed time step.
+ *
+ * <p>The stepper is advanced by the game loop on the main thread with the time of every frame. The time is collected,
+ * and a physics step is run for every full time step, so the simulation is the same no matter the frame rate. The
+ * number of steps in a single frame is limited, as is the time they can take, so a slow frame cannot make the next
+ * one slower. Time that could not be stepped is dropped.</p>
+ *
+ * <p>Before each step the position and rotation of every item with a {@link PhysicsComponent} is stored. After the
+ * steps of a frame those items are rendered between the stored and the current state, by how far the frame is into
+ * the next step. (See {@link org.kakara.engine.components.Transform#getRenderPosition()}).</p>
+ *
+ * <p>Items with a sleeping {@link PhysicsComponent} are skipped; none of their components are updated until they are
+ * woken. (See {@link PhysicsIslands}). The other items can be updated on multiple threads, see
+ * {@link IslandSolver}.</p>
+ *
+ * <p>Get the instance of this class through {@link org.kakara.engine.scene.AbstractGameScene#getPhysicsStepper()}.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class PhysicsStepper {
+    /**
+     * The default time step. (100 steps a second).
+     */
+    public static final float DEFAULT_TIME_STEP = 0.01f;
+    /**
+     * The default number of steps that can be run in a single frame.
+     */
+    public static final int DEFAULT_MAX_STEPS = 5;
+    /**
+     * The default time the steps of a single frame can take. (In seconds).
+     */
+    public static final float DEFAULT_STEP_BUDGET = 0.008f;
+
+    private final Scene scene;
+    private final PhysicsIslands islands = new PhysicsIslands();
+    private final IslandSolver solver = new IslandSolver();
+    private float timeStep = DEFAULT_TIME_STEP;
+    private int maxSteps = DEFAULT_MAX_STEPS;
+    private long stepBudget = (long) (DEFAULT_STEP_BUDGET * 1e9);
+    private boolean interpolation = true;
+    private boolean paused;
+
+    private float accumulator;
+    private float alpha;
+    private long stepCount;
+    private double droppedTime;
+
+    /**
+     * Create the physics stepper of a scene.
+     *
+     * @param scene The scene.
+     */
+    public PhysicsStepper(Scene scene) {
+        this.scene = scene;
+    }
+
+    /**
+     * Advance the simulation by the time of a frame.
+     * <p>Internal use only. This is called by the game loop on the main thread before every frame is rendered.</p>
+     *
+     * @param elapsedTime The time since the last frame. (In seconds).
+     */
+    public void advance(float elapsedTime) {
+        if (paused) return;
+        accumulator += elapsedTime;
+        long start = System.nanoTime();
+        int steps = 0;
+        while (accumulator >= timeStep) {
+            if (steps == maxSteps || (steps > 0 && System.nanoTime() - start > stepBudget)) {
+                // The simulation cannot keep up, so skip ahead instead of falling further behind.
+                float remainder = accumulator % timeStep;
+                droppedTime += accumulator - remainder;
+                accumulator = remainder;
+                break;
+            }
+            step();
+            accumulator -= timeStep;
+            steps++;
+        }
+        alpha = accumulator / timeStep;
+        interpolate();
+    }
+
+    /**
+     * Run a single physics step.
+     * <p>This calls {@link Component#physicsUpdate(float)} on every component of every item that is not asleep with the
+     * time step. It can be called directly, such as to step a paused simulation.</p>
+     */
+    public void step() {
+        ItemHandler itemHandler = scene.getItemHandler();
+        if (itemHandler == null) return;
+        CollisionManager collisionManager = scene.getCollisionManager();
+        if (collisionManager != null)
+            collisionManager.updateBroadphase();
+        islands.beginStep(itemHandler, collisionManager,
+                scene instanceof AbstractGameScene ? ((AbstractGameScene) scene).getChunkHandler() : null);
+        // The list of items is copied on write, so it can be iterated without a lock while items are added.
+        solver.solve(itemHandler.getItems(), collisionManager, timeStep);
+        if (collisionManager != null)
+            collisionManager.getContactPairs().endStep();
+        islands.endStep(timeStep);
+        stepCount++;
+    }
+
+    private void interpolate() {
+        ItemHandler itemHandler = scene.getItemHandler();
+        if (itemHandler == null) return;
+        for (GameItem item : itemHandler.getItems()) {
+            PhysicsComponent body = item.getComponent(PhysicsComponent.class);
+            if (!interpolation || body == null || body.isSleeping())
+                item.transform.clearInterpolation();
+            else
+                item.transform.interpolate(alpha);
+        }
+    }
+
+    /**
+     * Get the islands of the last step.
+     *
+     * @return The islands.
+     */
+    public PhysicsIslands getIslands() {
+        return islands;
+    }
+
+    /**
+     * Get the solver that runs the physics update of the items.
+     * <p>Use this to set the number of threads the physics is solved on.</p>
+     *
+     * @return The solver.
+     */
+    public IslandSolver getSolver() {
+        return solver;
+    }
+
+    /**
+     * Stop the worker threads of the solver.
+     * <p>Internal use only. This is called when the scene is unloaded.</p>
+     */
+    public void cleanup() {
+        solver.shutdown();
+    }
+
+    /**
+     * Get the time step.
+     *
+     * @return The time step. (In seconds).
+     */
+    public float getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Set the time step.
+     * <p>This is {@link #DEFAULT_TIME_STEP} by default.</p>
+     *
+     * @param timeStep The time step. (In seconds).
+     */
+    public void setTimeStep(float timeStep) {
+        if (timeStep <= 0)
+            throw new IllegalArgumentException("The time step must be positive.");
+        this.timeStep = timeStep;
+    }
+
+    /**
+     * Get the number of steps that can be run in a single frame.
+     *
+     * @return The max number of steps.
+     */
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * Set the number of steps that can be run in a single frame.
+     * <p>This is {@link #DEFAULT_MAX_STEPS} by default.</p>
+     *
+     * @param maxSteps The max number of steps. (Must be at least 1).
+     */
+    public void setMaxSteps(int maxSteps) {
+        if (maxSteps < 1)
+            throw new IllegalArgumentException("At least one step must be allowed.");
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Get the time the steps of a single frame can take.
+     *
+     * @return The step budget. (In seconds).
+     */
+    public float getStepBudget() {
+        return stepBudget / 1e9f;
+    }
+
+    /**
+     * Set the time the steps of a single frame can take.
+     * <p>Once a step ends past the budget no more steps are run that frame. At least one step is always run.
+     * This is {@link #DEFAULT_STEP_BUDGET} by default.</p>
+     *
+     * @param stepBudget The step budget. (In seconds).
+     */
+    public void setStepBudget(float stepBudget) {
+        this.stepBudget = (long) (stepBudget * 1e9);
+    }
+
+    /**
+     * Check if items moved by the physics are rendered between physics steps.
+     *
+     * @return If interpolation is enabled.
+     */
+    public boolean isInterpolation() {
+        return interpolation;
+    }
+
+    /**
+     * Set if items moved by the physics are rendered between physics steps.
+     * <p>It is enabled by default. When disabled the items are rendered at their current state, which makes them
+     * stutter when the frame rate is not a multiple of the step rate.</p>
+     *
+     * @param interpolation If interpolation is enabled.
+     */
+    public void setInterpolation(boolean interpolation) {
+        this.interpolation = interpolation;
+    }
+
+    /**
+     * Check if the simulation is paused.
+     *
+     * @return If the simulation is paused.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Set if the simulation is paused.
+     * <p>While paused {@link #advance(float)} does nothing. {@link #step()} can still be called.</p>
+     *
+     * @param paused If the simulation is paused.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        this.accumulator = 0;
+    }
+
+    /**
+     * Get how far the last frame was between the last step and the next one.
+     *
+     * @return The interpolation alpha. (0-1).
+     */
+    public float getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * Get the number of steps that have been run.
+     *
+     * @return The number of steps.
+     */
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Get the total time that was dropped because the simulation could not keep up.
+     *
+     * @return The dropped time. (In seconds).
+     */
+    public double getDroppedTime() {
+        return droppedTime;
+    }
+}
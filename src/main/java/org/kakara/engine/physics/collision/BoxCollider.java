@@ -8,7 +8,6 @@ import org.kakara.engine.physics.OnTriggerEnter;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Predicate;
 
 /**
  * The BoxCollider class is to be used on non-primitive objects that are created using the model loader.
@@ -20,26 +19,30 @@ public class BoxCollider extends ColliderComponent {
 
     private final GameHandler handler;
     private final List<OnTriggerEnter> triggerEvents;
+    // Reused by every collision query.
+    private final List<ColliderComponent> candidates = new ArrayList<>();
+    private final CollisionManager.Contact contact = new CollisionManager.Contact();
+    private final ContactBuffer contacts = new ContactBuffer();
     private Vector3 point1;
     private Vector3 point2;
     private Vector3 offset;
     private boolean isTrigger;
     private Vector3 lastPosition;
     private GameItem item;
-    private Predicate<ColliderComponent> predicate = gameItem -> false;
 
     public BoxCollider() {
         this.handler = GameHandler.getInstance();
         this.triggerEvents = new ArrayList<>();
+        // Set here so the bounds can be found as soon as the collider is on an item, before it is started.
+        this.lastPosition = new Vector3(0, 0, 0);
+        this.point1 = new Vector3();
+        this.point2 = new Vector3(1, 1, 1);
+        this.offset = new Vector3();
     }
 
     @Override
     public void start() {
         this.item = getGameItem();
-        lastPosition = new Vector3(0, 0, 0);
-        this.point1 = new Vector3();
-        this.point2 = new Vector3(1, 1, 1);
-        this.offset = new Vector3();
         this.isTrigger = false;
     }
 
@@ -97,6 +100,15 @@ public class BoxCollider extends ColliderComponent {
         return new Vector3(point2.x, point2.y, point2.z).addMut(offset).addMut(item.transform.getPosition());
     }
 
+    @Override
+    public void getAbsoluteBounds(float[] dest) {
+        Vector3 position = getGameItem().transform.getPosition();
+        float x = offset.x + position.x;
+        float y = offset.y + position.y;
+        float z = offset.z + position.z;
+        setBounds(dest, point1.x + x, point1.y + y, point1.z + z, point2.x + x, point2.y + y, point2.z + z);
+    }
+
     @Override
     public void updateX() {
         if (isTrigger) return;
@@ -105,16 +117,19 @@ public class BoxCollider extends ColliderComponent {
         CollisionManager cm = handler.getCurrentScene().getCollisionManager();
         assert cm != null;
 
-        for (ColliderComponent gi : cm.getCollidngItems(item.transform.getPosition())) {
+        cm.getCollisionCandidates(this, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent gi = candidates.get(i);
             if (gi == this) continue;
             if (gi.isTrigger()) continue;
-            if (getPredicate().test(gi)) continue;
-            CollisionManager.Contact contact = cm.isCollidingX(gi, item.getComponent(ColliderComponent.class));
-            while (contact.isIntersecting()) {
-                contact = cm.isCollidingX(gi, item.getComponent(ColliderComponent.class));
-                item.transform.getPosition().addMut(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+            if (!canCollideWith(gi)) continue;
+            // Pushed out once, which places the collider against the other one.
+            if (cm.isCollidingX(gi, this, contact)) {
+                item.transform.translateBy(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+                updateBounds();
             }
         }
+        cm.resolveVoxels(this, CollisionManager.AXIS_NONE, CollisionManager.AXIS_X, CollisionManager.AXIS_NONE, contact);
     }
 
     @Override
@@ -125,16 +140,19 @@ public class BoxCollider extends ColliderComponent {
         CollisionManager cm = handler.getCurrentScene().getCollisionManager();
         assert cm != null;
 
-        for (ColliderComponent gi : cm.getCollidngItems(item.transform.getPosition())) {
+        cm.getCollisionCandidates(this, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent gi = candidates.get(i);
             if (gi == this) continue;
             if (gi.isTrigger()) continue;
-            if (getPredicate().test(gi)) continue;
-            CollisionManager.Contact contact = cm.isCollidingY(gi, item.getComponent(ColliderComponent.class));
-            while (contact.isIntersecting()) {
-                contact = cm.isCollidingY(gi, item.getComponent(ColliderComponent.class));
-                item.transform.getPosition().addMut(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+            if (!canCollideWith(gi)) continue;
+            // Pushed out once, which places the collider against the other one.
+            if (cm.isCollidingY(gi, this, contact)) {
+                item.transform.translateBy(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+                updateBounds();
             }
         }
+        cm.resolveVoxels(this, CollisionManager.AXIS_NONE, CollisionManager.AXIS_Y, CollisionManager.AXIS_NONE, contact);
     }
 
     @Override
@@ -145,16 +163,19 @@ public class BoxCollider extends ColliderComponent {
         CollisionManager cm = handler.getCurrentScene().getCollisionManager();
         assert cm != null;
 
-        for (ColliderComponent gi : cm.getCollidngItems(item.transform.getPosition())) {
+        cm.getCollisionCandidates(this, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent gi = candidates.get(i);
             if (gi == this) continue;
             if (gi.isTrigger()) continue;
-            if (getPredicate().test(gi)) continue;
-            CollisionManager.Contact contact = cm.isCollidingXZ(gi, item.getComponent(ColliderComponent.class));
-            while (contact.isIntersecting()) {
-                contact = cm.isCollidingXZ(gi, item.getComponent(ColliderComponent.class));
-                item.transform.getPosition().addMut(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+            if (!canCollideWith(gi)) continue;
+            // Pushed out once, which places the collider against the other one.
+            if (cm.isCollidingXZ(gi, this, contact)) {
+                item.transform.translateBy(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+                updateBounds();
             }
         }
+        cm.resolveVoxels(this, CollisionManager.AXIS_X, CollisionManager.AXIS_NONE, CollisionManager.AXIS_Z, contact);
     }
 
     @Override
@@ -162,20 +183,6 @@ public class BoxCollider extends ColliderComponent {
         this.triggerEvents.add(enter);
     }
 
-    @Override
-    public Predicate<ColliderComponent> getPredicate() {
-        return predicate;
-    }
-
-    @Override
-    public void setPredicate(Predicate<ColliderComponent> gameItemPredicate) {
-        if (gameItemPredicate == null) {
-            predicate = gameItem -> false;
-            return;
-        }
-        this.predicate = gameItemPredicate;
-    }
-
     /**
      * Get point 1 no matter if it is relative or absolute.
      *
@@ -219,17 +226,24 @@ public class BoxCollider extends ColliderComponent {
         CollisionManager cm = handler.getCurrentScene().getCollisionManager();
         assert cm != null;
 
-        for (ColliderComponent gi : cm.getCollidngItems(item.transform.getPosition())) {
-            if (gi == this) continue;
-            if (getPredicate().test(gi)) continue;
-            if (cm.isColliding(gi, item.getComponent(ColliderComponent.class)).isIntersecting()) {
-                for (Component component : item.getComponents()) {
-                    component.onCollision(gi);
-                }
-                // Fire the trigger event.
-                for (OnTriggerEnter evt : triggerEvents) {
-                    evt.onTriggerEnter(gi);
-                }
+        cm.getCollisionCandidates(this, candidates);
+        cm.isColliding(this, candidates, contacts);
+        int count = cm.addVoxelContacts(this, contacts);
+        for (int i = 0; i < count; i++) {
+            ColliderComponent gi = contacts.get(i).getOther();
+            if (!canCollideWith(gi)) continue;
+            int state = cm.getContactPairs().update(this, gi, deltaTime);
+            if (state == ContactPairCache.STAY) {
+                fireStay(gi);
+                continue;
+            }
+            if (state != ContactPairCache.ENTER) continue;
+            for (Component component : item.getComponents()) {
+                component.onCollision(gi);
+            }
+            // Fire the trigger event.
+            for (OnTriggerEnter evt : triggerEvents) {
+                evt.onTriggerEnter(gi);
             }
         }
     }
@@ -2,9 +2,14 @@ package org.kakara.engine.physics.collision;
 
 import org.kakara.engine.GameHandler;
 import org.kakara.engine.components.Component;
+import org.kakara.engine.gameitems.GameItem;
 import org.kakara.engine.math.Vector3;
 import org.kakara.engine.physics.OnTriggerEnter;
+import org.kakara.engine.physics.OnTriggerExit;
+import org.kakara.engine.physics.OnTriggerStay;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
 
@@ -18,6 +23,20 @@ import java.util.function.Predicate;
  */
 public abstract class ColliderComponent extends Component {
 
+    // The bounds from the last call to updateBounds(), in the format of getAbsoluteBounds().
+    final float[] bounds = new float[6];
+    // Set while the collider is in a broadphase.
+    SpatialHashBroadphase.Proxy broadphaseProxy;
+    // The id of the collider in the ContactPairCache, assigned on its first contact.
+    int contactId;
+    // The bit of the layer of the collider.
+    int layerBit = 1 << CollisionLayers.DEFAULT;
+    private int layer = CollisionLayers.DEFAULT;
+    private Predicate<ColliderComponent> predicate;
+    // Created when the first event is added.
+    private List<OnTriggerStay> triggerStayEvents;
+    private List<OnTriggerExit> triggerExitEvents;
+
     @Override
     public void afterInit() {
         Objects.requireNonNull(GameHandler.getInstance().getCurrentScene().getCollisionManager())
@@ -103,6 +122,54 @@ public abstract class ColliderComponent extends Component {
      */
     public abstract Vector3 getAbsolutePoint2();
 
+    /**
+     * Write the world space bounds of the collider into an array.
+     * <p>The array is filled with: minX, minY, minZ, maxX, maxY, maxZ.</p>
+     * <p>Unlike {@link #getAbsolutePoint1()} and {@link #getAbsolutePoint2()} this is meant to be called every frame,
+     * so colliders should override it with a version that does not allocate.</p>
+     *
+     * @param dest The array to write into. (Must have a length of at least 6).
+     * @since 1.0-Pre5
+     */
+    public void getAbsoluteBounds(float[] dest) {
+        Vector3 point1 = getAbsolutePoint1();
+        Vector3 point2 = getAbsolutePoint2();
+        setBounds(dest, point1.x, point1.y, point1.z, point2.x, point2.y, point2.z);
+    }
+
+    /**
+     * Update the cached world space bounds of the collider.
+     * <p>The narrowphase of the {@link CollisionManager} tests the cached bounds instead of the absolute points, so this
+     * must be called after a collider is moved and before it is tested again. Colliders in the broadphase are updated
+     * at the start of every physics update and whenever they are updated in the broadphase.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public void updateBounds() {
+        getAbsoluteBounds(bounds);
+    }
+
+    /**
+     * Write the bounds formed by two corners into an array, in the format used by {@link #getAbsoluteBounds(float[])}.
+     *
+     * @param dest The array to write into.
+     * @param x1   The x of the first corner.
+     * @param y1   The y of the first corner.
+     * @param z1   The z of the first corner.
+     * @param x2   The x of the second corner.
+     * @param y2   The y of the second corner.
+     * @param z2   The z of the second corner.
+     * @since 1.0-Pre5
+     */
+    protected static void setBounds(float[] dest, float x1, float y1, float z1, float x2, float y2, float z2) {
+        dest[0] = Math.min(x1, x2);
+        dest[1] = Math.min(y1, y2);
+        dest[2] = Math.min(z1, z2);
+        dest[3] = Math.max(x1, x2);
+        dest[4] = Math.max(y1, y2);
+        dest[5] = Math.max(z1, z2);
+    }
+
     /**
      * @deprecated Currently unused
      */
@@ -127,7 +194,8 @@ public abstract class ColliderComponent extends Component {
 
     /**
      * Add an event to be triggered when this collidable comes in contact with a trigger.
-     * <p>Important note: This triggers every physics update that the object is colliding with a trigger.</p>
+     * <p>This is triggered once when the contact starts. See {@link #addOnTriggerStay(OnTriggerStay)} and
+     * {@link #addOnTriggerExit(OnTriggerExit)} for the rest of the contact.</p>
      *
      * <p>This functionality has been replaced by the {@link Component#onCollision(ColliderComponent)}.
      * Consider using that instead.</p>
@@ -137,20 +205,146 @@ public abstract class ColliderComponent extends Component {
      */
     public abstract void addOnTriggerEnter(OnTriggerEnter enter);
 
+    /**
+     * Add an event to be triggered while this collidable stays in contact with something.
+     *
+     * <p>This functionality is also provided by {@link Component#onCollisionStay(ColliderComponent)}.</p>
+     *
+     * @param stay The event to be triggered.
+     * @since 1.0-Pre5
+     */
+    public void addOnTriggerStay(OnTriggerStay stay) {
+        if (triggerStayEvents == null)
+            triggerStayEvents = new ArrayList<>();
+        triggerStayEvents.add(stay);
+    }
+
+    /**
+     * Add an event to be triggered when this collidable leaves contact with something.
+     *
+     * <p>This functionality is also provided by {@link Component#onCollisionExit(ColliderComponent)}.</p>
+     *
+     * @param exit The event to be triggered.
+     * @since 1.0-Pre5
+     */
+    public void addOnTriggerExit(OnTriggerExit exit) {
+        if (triggerExitEvents == null)
+            triggerExitEvents = new ArrayList<>();
+        triggerExitEvents.add(exit);
+    }
+
+    /**
+     * Fire the stay events for a contact.
+     *
+     * @param other The collider in contact.
+     */
+    void fireStay(ColliderComponent other) {
+        GameItem item = getGameItem();
+        if (item != null) {
+            for (Component component : item.getComponents()) {
+                component.onCollisionStay(other);
+            }
+        }
+        if (triggerStayEvents == null) return;
+        for (OnTriggerStay evt : triggerStayEvents) {
+            evt.onTriggerStay(other);
+        }
+    }
+
+    /**
+     * Fire the exit events for a contact.
+     *
+     * @param other The collider that was in contact.
+     */
+    void fireExit(ColliderComponent other) {
+        GameItem item = getGameItem();
+        if (item != null) {
+            for (Component component : item.getComponents()) {
+                component.onCollisionExit(other);
+            }
+        }
+        if (triggerExitEvents == null) return;
+        for (OnTriggerExit evt : triggerExitEvents) {
+            evt.onTriggerExit(other);
+        }
+    }
+
+    /**
+     * Get the collision layer of the collider.
+     *
+     * @return The layer.
+     * @since 1.0-Pre5
+     */
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * Set the collision layer of the collider.
+     * <p>Colliders are on the {@link CollisionLayers#DEFAULT} layer by default, and voxels are on the
+     * {@link CollisionLayers#VOXEL} layer. See {@link CollisionLayers} for which layers collide.</p>
+     *
+     * @param layer The layer. (0 to {@link CollisionLayers#LAYER_COUNT} - 1).
+     * @return The collider.
+     * @since 1.0-Pre5
+     */
+    public ColliderComponent setLayer(int layer) {
+        this.layerBit = CollisionLayers.getBit(layer);
+        this.layer = layer;
+        return this;
+    }
+
+    /**
+     * Get the mask of the layers this collider collides with.
+     *
+     * @return The mask of the layer of the collider.
+     * @see CollisionLayers#getMask(int)
+     * @since 1.0-Pre5
+     */
+    public int getCollisionMask() {
+        return CollisionLayers.getMask(layer);
+    }
+
+    /**
+     * Check if this collider can collide with another collider.
+     * <p>The layers of the colliders are tested first. The predicate is only tested if the layers collide and one was
+     * set.</p>
+     *
+     * @param other The other collider.
+     * @return If the colliders can collide.
+     * @since 1.0-Pre5
+     */
+    public boolean canCollideWith(ColliderComponent other) {
+        if ((CollisionLayers.getMask(layer) & other.layerBit) == 0
+                || (CollisionLayers.getMask(other.layer) & layerBit) == 0)
+            return false;
+        return predicate == null || !predicate.test(other);
+    }
+
     /**
      * Get this collider's predicate.
      *
      * @return The predicate.
      * @since 1.0-Pre2
+     * @deprecated Use collision layers instead, see {@link #setLayer(int)}.
      */
-    public abstract Predicate<ColliderComponent> getPredicate();
+    @Deprecated
+    public Predicate<ColliderComponent> getPredicate() {
+        return predicate == null ? other -> false : predicate;
+    }
 
     /**
      * Add a condition for collision.
      * <p>This can be used to prevent a collision; for example, if a gameitem has a certain tag.</p>
+     * <p>The predicate is called for every collider this collider could collide with. Collision layers are tested
+     * with a single bitwise operation, before any other test, so they should be used instead where possible.</p>
      *
-     * @param gameItemPredicate The predicate to use.
+     * @param gameItemPredicate The predicate to use. (Null to remove the predicate).
      * @since 1.0-Pre2
+     * @deprecated Use collision layers instead, see {@link #setLayer(int)}.
      */
-    public abstract void setPredicate(Predicate<ColliderComponent> gameItemPredicate);
+    @Deprecated
+    public void setPredicate(Predicate<ColliderComponent> gameItemPredicate) {
+        this.predicate = gameItemPredicate;
+    }
 }
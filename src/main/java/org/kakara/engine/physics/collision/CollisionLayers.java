@@ -0,0 +1,186 @@
+package org.kakara.engine.physics.collision;
+
+import java.util.Arrays;
+
+/**
+ * The collision layers, and which layers collide with each other.
+ *
+ * <p>Every collider is on one of {@link #LAYER_COUNT} layers, see {@link ColliderComponent#setLayer(int)}. Every layer
+ * has a mask with a bit set for each layer it collides with. Two colliders can only collide if the mask of the layer
+ * of one has the bit of the layer of the other. By default every layer collides with every layer.</p>
+ *
+ * <p>As this is a single bitwise test, it is done before any other test; the broadphase leaves out the colliders on
+ * layers that are not in the mask of a query. Voxels are on the {@link #VOXEL} layer.</p>
+ *
+ * <code>
+ * int PLAYER = 2;
+ * CollisionLayers.setName(PLAYER, "Player");
+ * CollisionLayers.setCollision(PLAYER, PLAYER, false);
+ * </code>
+ *
+ * <p>The layers are shared by every scene. They should be set up before the physics is run, as they are read by the
+ * physics without a lock.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public final class CollisionLayers {
+    /**
+     * The number of layers.
+     */
+    public static final int LAYER_COUNT = 32;
+    /**
+     * The layer colliders are on by default.
+     */
+    public static final int DEFAULT = 0;
+    /**
+     * The layer voxels are on.
+     */
+    public static final int VOXEL = 1;
+    /**
+     * A mask with every layer.
+     */
+    public static final int ALL = -1;
+
+    private static final int[] masks = new int[LAYER_COUNT];
+    private static final String[] names = new String[LAYER_COUNT];
+
+    static {
+        reset();
+    }
+
+    private CollisionLayers() {
+    }
+
+    /**
+     * Get the bit of a layer.
+     *
+     * @param layer The layer.
+     * @return The bit of the layer.
+     */
+    public static int getBit(int layer) {
+        checkLayer(layer);
+        return 1 << layer;
+    }
+
+    /**
+     * Get the mask of the layers a layer collides with.
+     *
+     * @param layer The layer.
+     * @return The mask.
+     */
+    public static int getMask(int layer) {
+        return masks[layer];
+    }
+
+    /**
+     * Set the mask of the layers a layer collides with.
+     * <p>This only changes the mask of the layer. The layers in the mask still need to collide with this layer for
+     * colliders on the two layers to collide. See {@link #setCollision(int, int, boolean)}.</p>
+     *
+     * @param layer The layer.
+     * @param mask  The mask.
+     */
+    public static void setMask(int layer, int mask) {
+        checkLayer(layer);
+        masks[layer] = mask;
+    }
+
+    /**
+     * Set if two layers collide with each other.
+     *
+     * @param layer1  The first layer.
+     * @param layer2  The second layer. (This can be the same as the first layer).
+     * @param collide If the layers collide.
+     */
+    public static void setCollision(int layer1, int layer2, boolean collide) {
+        checkLayer(layer1);
+        checkLayer(layer2);
+        if (collide) {
+            masks[layer1] |= 1 << layer2;
+            masks[layer2] |= 1 << layer1;
+        } else {
+            masks[layer1] &= ~(1 << layer2);
+            masks[layer2] &= ~(1 << layer1);
+        }
+    }
+
+    /**
+     * Check if two layers collide with each other.
+     *
+     * @param layer1 The first layer.
+     * @param layer2 The second layer.
+     * @return If the layers collide.
+     */
+    public static boolean canCollide(int layer1, int layer2) {
+        return (masks[layer1] & (1 << layer2)) != 0 && (masks[layer2] & (1 << layer1)) != 0;
+    }
+
+    /**
+     * Get the name of a layer.
+     *
+     * @param layer The layer.
+     * @return The name of the layer. (Null if it does not have one).
+     */
+    public static String getName(int layer) {
+        checkLayer(layer);
+        return names[layer];
+    }
+
+    /**
+     * Set the name of a layer.
+     *
+     * @param layer The layer.
+     * @param name  The name. (Null to remove the name).
+     */
+    public static void setName(int layer, String name) {
+        checkLayer(layer);
+        names[layer] = name;
+    }
+
+    /**
+     * Get a layer by its name.
+     *
+     * @param name The name of the layer.
+     * @return The layer. (-1 if there is no layer with the name).
+     */
+    public static int getLayer(String name) {
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            if (name.equals(names[i])) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Create a mask with the layers with the given names.
+     *
+     * @param layerNames The names of the layers.
+     * @return The mask.
+     * @throws IllegalArgumentException If there is no layer with one of the names.
+     */
+    public static int getMask(String... layerNames) {
+        int mask = 0;
+        for (String name : layerNames) {
+            int layer = getLayer(name);
+            if (layer == -1)
+                throw new IllegalArgumentException("There is no layer named " + name + ".");
+            mask |= 1 << layer;
+        }
+        return mask;
+    }
+
+    /**
+     * Make every layer collide with every layer, and remove the names of the layers other than the
+     * {@link #DEFAULT} and {@link #VOXEL} layers.
+     */
+    public static void reset() {
+        Arrays.fill(masks, ALL);
+        Arrays.fill(names, null);
+        names[DEFAULT] = "Default";
+        names[VOXEL] = "Voxel";
+    }
+
+    private static void checkLayer(int layer) {
+        if (layer < 0 || layer >= LAYER_COUNT)
+            throw new IllegalArgumentException("The layer must be between 0 and " + (LAYER_COUNT - 1) + ".");
+    }
+}
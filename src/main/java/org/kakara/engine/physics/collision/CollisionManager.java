@@ -3,8 +3,12 @@ package org.kakara.engine.physics.collision;
 import org.jetbrains.annotations.Nullable;
 import org.joml.Vector3f;
 import org.kakara.engine.GameHandler;
+import org.kakara.engine.components.Transform;
+import org.kakara.engine.gameitems.GameItem;
 import org.kakara.engine.math.Vector3;
 import org.kakara.engine.scene.AbstractGameScene;
+import org.kakara.engine.voxels.ChunkHandler;
+import org.kakara.engine.voxels.Voxel;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,11 +16,50 @@ import java.util.List;
 /**
  * This class is used to handle colliding objects.
  * (This class prevents the calculation of collision for non-colliding game items.)
+ *
+ * <p>Colliders are stored in a {@link SpatialHashBroadphase}, so a collider is only tested against the colliders near
+ * it. Use {@link #getCollisionCandidates(ColliderComponent, List)} to find them.</p>
+ *
+ * <p>The scene can be queried with rays, moving boxes, and boxes, such as with
+ * {@link #raycast(Vector3, Vector3, float, int, QueryHit)}. Queries find colliders and voxels through the
+ * broadphase and the chunks instead of checking every collider, and do not allocate anything once their results have
+ * grown to fit.</p>
  */
 public class CollisionManager {
+    // The axes a contact can be resolved along.
+    static final int AXIS_NONE = -1;
+    static final int AXIS_X = 0;
+    static final int AXIS_Y = 1;
+    static final int AXIS_Z = 2;
+    // How far a collider can already be inside of another and still be stopped by it in a sweep.
+    private static final float SWEEP_TOLERANCE = 0.001f;
+    // The number of voxels a collider can be pushed out of in a single call to resolveVoxels().
+    private static final int MAX_VOXEL_PUSHES = 3;
+    private static final int VOXEL_BIT = 1 << CollisionLayers.VOXEL;
+    /**
+     * The furthest a ray or box cast tests the voxels. (Colliders are tested along the whole query).
+     * <p>Only the voxels along the path of the query are read, so the cost of a cast grows with its distance, up to this
+     * distance.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public static final float MAX_VOXEL_QUERY_DISTANCE = 1024;
+    /**
+     * The most voxels the box of a box cast or overlap can cover, if the {@link CollisionLayers#VOXEL} layer is in the
+     * mask of the query.
+     * <p>Every voxel in the box of an overlap is read, and every voxel across the box of a cast is read for each step
+     * along its path, so larger boxes are rejected.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public static final int MAX_VOXEL_QUERY_CELLS = 32768;
 
     private final GameHandler handler;
     private final List<ColliderComponent> colliders = new ArrayList<>();
+    private final SpatialHashBroadphase broadphase = new SpatialHashBroadphase(SpatialHashBroadphase.DEFAULT_CELL_SIZE);
+    private final ContactPairCache contactPairs = new ContactPairCache();
+    // Used by wakeBodies(), which is only called on the main thread.
+    private final List<ColliderComponent> wakeCandidates = new ArrayList<>();
 
     public CollisionManager(GameHandler handler) {
         this.handler = handler;
@@ -29,6 +72,7 @@ public class CollisionManager {
      */
     public void addCollidingItem(ColliderComponent item) {
         colliders.add(item);
+        broadphase.add(item);
     }
 
     /**
@@ -38,6 +82,102 @@ public class CollisionManager {
      */
     public void removeCollidingItem(ColliderComponent item) {
         colliders.remove(item);
+        contactPairs.remove(item);
+        if (item.broadphaseProxy != null) {
+            // The objects resting on the collider have to fall.
+            float[] b = item.bounds;
+            broadphase.remove(item);
+            wakeBodies(b[0] - 1, b[1] - 1, b[2] - 1, b[3] + 1, b[4] + 1, b[5] + 1);
+        }
+    }
+
+    /**
+     * Wake every sleeping {@link PhysicsComponent} with a collider in a box.
+     * <p>This is done automatically when a collider or a voxel is removed. Call it after changing the world in another
+     * way that should affect the objects around it, such as an explosion.</p>
+     *
+     * @param minX The min x of the box.
+     * @param minY The min y of the box.
+     * @param minZ The min z of the box.
+     * @param maxX The max x of the box.
+     * @param maxY The max y of the box.
+     * @param maxZ The max z of the box.
+     * @since 1.0-Pre5
+     */
+    public void wakeBodies(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        wakeCandidates.clear();
+        broadphase.query(minX, minY, minZ, maxX, maxY, maxZ, wakeCandidates);
+        for (int i = 0; i < wakeCandidates.size(); i++) {
+            GameItem item = wakeCandidates.get(i).getGameItem();
+            if (item == null) continue;
+            PhysicsComponent body = item.getComponent(PhysicsComponent.class);
+            if (body != null && body.isSleeping())
+                body.wakeUp();
+        }
+        wakeCandidates.clear();
+    }
+
+    /**
+     * Get the contacts between colliders, used to fire collision events once per contact.
+     *
+     * @return The contact pair cache.
+     * @since 1.0-Pre5
+     */
+    public ContactPairCache getContactPairs() {
+        return contactPairs;
+    }
+
+    /**
+     * Get the broadphase the colliders are stored in.
+     *
+     * @return The broadphase.
+     * @since 1.0-Pre5
+     */
+    public SpatialHashBroadphase getBroadphase() {
+        return broadphase;
+    }
+
+    /**
+     * Move every collider to the cells of its current position in the broadphase.
+     * <p>Internal use only. This is called at the start of every physics update.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public void updateBroadphase() {
+        broadphase.updateAll();
+    }
+
+    /**
+     * Get the colliders a collider could be colliding with.
+     * <p>This includes the colliders that share a cell of the broadphase with the collider. The bounds of the collider
+     * are updated first, so this can be called right after it moves. The render chunk blocks are not included, use
+     * {@link #isCollidingVoxels(ColliderComponent, Contact)} or
+     * {@link #addVoxelContacts(ColliderComponent, ContactBuffer)} to test them.</p>
+     * <p>Items on layers the layer of the collider does not collide with are left out, see {@link CollisionLayers}.</p>
+     *
+     * @param collider The collider.
+     * @param dest     The list to put the items into. (It is cleared first, so it can be reused).
+     * @since 1.0-Pre5
+     */
+    public void getCollisionCandidates(ColliderComponent collider, List<ColliderComponent> dest) {
+        dest.clear();
+        if (collider.broadphaseProxy == null)
+            collider.updateBounds();
+        else
+            broadphase.update(collider);
+        float[] b = collider.bounds;
+        broadphase.query(b[0], b[1], b[2], b[3], b[4], b[5], collider.getCollisionMask(), dest);
+    }
+
+    /**
+     * Get the chunk handler of the current scene.
+     *
+     * @return The chunk handler. (Null if the scene does not have one).
+     */
+    @Nullable
+    private ChunkHandler getChunkHandler() {
+        if (!(handler.getSceneManager().getCurrentScene() instanceof AbstractGameScene)) return null;
+        return ((AbstractGameScene) handler.getSceneManager().getCurrentScene()).getChunkHandler();
     }
 
     /**
@@ -56,7 +196,10 @@ public class CollisionManager {
      *
      * @param position The position of the current colliding object.
      * @return The list of collision objects.
+     * @deprecated This copies every collider into a new list. Use {@link #getCollisionCandidates(ColliderComponent, List)}
+     * instead.
      */
+    @Deprecated
     public List<ColliderComponent> getCollidngItems(@Nullable Vector3 position) {
         if (position == null) return colliders;
         List<ColliderComponent> tempColliders = new ArrayList<>(colliders);
@@ -65,11 +208,664 @@ public class CollisionManager {
         return tempColliders;
     }
 
+    /**
+     * Get the colliders a collider could hit while moving.
+     * <p>This includes the colliders in the box that covers the collider at the start and end of the movement. The
+     * render chunk blocks are not included, {@link #sweep(ColliderComponent, float, float, float, SweepHit)} reads them
+     * from the chunks directly. Colliders on layers the layer of the collider does not collide with are left out. The
+     * bounds of the collider are updated first.</p>
+     *
+     * @param collider The collider.
+     * @param dx       The movement on the x axis.
+     * @param dy       The movement on the y axis.
+     * @param dz       The movement on the z axis.
+     * @param dest     The list to put the items into. (It is cleared first, so it can be reused).
+     * @since 1.0-Pre5
+     */
+    public void getSweepCandidates(ColliderComponent collider, float dx, float dy, float dz, List<ColliderComponent> dest) {
+        dest.clear();
+        if (collider.broadphaseProxy == null)
+            collider.updateBounds();
+        else
+            broadphase.update(collider);
+        float[] b = collider.bounds;
+        float minX = b[0] + Math.min(dx, 0), minY = b[1] + Math.min(dy, 0), minZ = b[2] + Math.min(dz, 0);
+        float maxX = b[3] + Math.max(dx, 0), maxY = b[4] + Math.max(dy, 0), maxZ = b[5] + Math.max(dz, 0);
+        broadphase.query(minX, minY, minZ, maxX, maxY, maxZ, collider.getCollisionMask(), dest);
+    }
+
+    /**
+     * Find the first collider a collider would hit while moving.
+     * <p>Triggers, the collider itself, and the colliders it cannot collide with (see
+     * {@link ColliderComponent#canCollideWith(ColliderComponent)}) are ignored. Colliders the collider is already inside
+     * of are ignored too, unless it is only barely inside of them; use
+     * {@link #isColliding(ColliderComponent, ColliderComponent, Contact)} to push it out of those.</p>
+     * <p>The movement is tested continuously, so a fast collider cannot pass through a thin one. Other colliders are
+     * treated as if they are not moving.</p>
+     * <p>Voxels are tested as boxes of size 1, read from the chunks for every block the movement passes through, unless
+     * the layer of the collider does not collide with the {@link CollisionLayers#VOXEL} layer. Only the voxel that is
+     * hit has its collider created, to check if it is a trigger or cannot be collided with.</p>
+     *
+     * @param collider The collider.
+     * @param dx       The movement on the x axis.
+     * @param dy       The movement on the y axis.
+     * @param dz       The movement on the z axis.
+     * @param dest     The hit to write the result to.
+     * @return If something was hit.
+     * @since 1.0-Pre5
+     */
+    public boolean sweep(ColliderComponent collider, float dx, float dy, float dz, SweepHit dest) {
+        dest.reset();
+        List<ColliderComponent> candidates = dest.candidates;
+        getSweepCandidates(collider, dx, dy, dz, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent other = candidates.get(i);
+            if (other == collider || other.isTrigger()) continue;
+            if (!collider.canCollideWith(other)) continue;
+            if (sweep(collider.bounds, dx, dy, dz, other.bounds, dest))
+                dest.set(other, null, other.bounds);
+        }
+        sweepVoxels(collider.bounds, dx, dy, dz, collider, CollisionLayers.ALL, 1, dest, null);
+        return dest.isHit();
+    }
+
+    /**
+     * Sweep a box against the voxels in the path of its movement.
+     *
+     * @param a         The bounds of the box.
+     * @param dx        The movement on the x axis.
+     * @param dy        The movement on the y axis.
+     * @param dz        The movement on the z axis.
+     * @param collider  The collider being moved, which decides which voxels it can collide with. (Or null to use the
+     *                  layer mask).
+     * @param layerMask The mask of the layers of the voxels to hit, if there is no collider.
+     * @param maxTime   How much of the movement to test, from 0 to 1.
+     * @param dest      The current hit.
+     * @param all       The buffer to add every hit to. (Or null to only keep the first hit).
+     */
+    private void sweepVoxels(float[] a, float dx, float dy, float dz, @Nullable ColliderComponent collider, int layerMask,
+                             float maxTime, SweepHit dest, @Nullable QueryHitBuffer all) {
+        ChunkHandler chunkHandler = getChunkHandler();
+        if (chunkHandler == null || (collider == null ? (layerMask & VOXEL_BIT) == 0 : !collidesWithVoxels(collider)))
+            return;
+        sweepVoxels(chunkHandler, a, dx, dy, dz, collider, layerMask, maxTime, dest, all);
+    }
+
+    /**
+     * Sweep a box against the voxels in the path of its movement, reading them from the given chunk handler.
+     * <p>Internal use only. Only the voxels the box passes through are read. The range of voxels the box covers is kept
+     * for each axis, and the movement is walked from one voxel boundary to the next: when the front of the box crosses a
+     * boundary only the new layer of voxels is read, and when the back of the box crosses one the range is shrunk. Every
+     * voxel is read at most once, so the cost grows with the distance moved times the size of the box across the
+     * movement, rather than with the volume of the box around the whole movement.</p>
+     *
+     * @param chunkHandler The chunk handler to read the voxels from.
+     * @param a            The bounds of the box.
+     * @param dx           The movement on the x axis.
+     * @param dy           The movement on the y axis.
+     * @param dz           The movement on the z axis.
+     * @param collider     The collider being moved. (Or null to use the layer mask).
+     * @param layerMask    The mask of the layers of the voxels to hit, if there is no collider.
+     * @param maxTime      How much of the movement to test, from 0 to 1.
+     * @param dest         The current hit.
+     * @param all          The buffer to add every hit to. (Or null to only keep the first hit).
+     */
+    static void sweepVoxels(ChunkHandler chunkHandler, float[] a, float dx, float dy, float dz,
+                            @Nullable ColliderComponent collider, int layerMask, float maxTime, SweepHit dest,
+                            @Nullable QueryHitBuffer all) {
+        // The boundaries would never be crossed one at a time.
+        if (!Float.isFinite(dx) || !Float.isFinite(dy) || !Float.isFinite(dz)) return;
+        int loX = (int) Math.floor(a[0]), hiX = (int) Math.ceil(a[3]) - 1;
+        int loY = (int) Math.floor(a[1]), hiY = (int) Math.ceil(a[4]) - 1;
+        int loZ = (int) Math.floor(a[2]), hiZ = (int) Math.ceil(a[5]) - 1;
+        sweepVoxelCells(chunkHandler, loX, hiX, loY, hiY, loZ, hiZ, a, dx, dy, dz, collider, layerMask, dest, all);
+        while (true) {
+            double leadX = leadTime(a, AXIS_X, dx, loX, hiX), trailX = trailTime(a, AXIS_X, dx, loX, hiX);
+            double leadY = leadTime(a, AXIS_Y, dy, loY, hiY), trailY = trailTime(a, AXIS_Y, dy, loY, hiY);
+            double leadZ = leadTime(a, AXIS_Z, dz, loZ, hiZ), trailZ = trailTime(a, AXIS_Z, dz, loZ, hiZ);
+            double lead = Math.min(leadX, Math.min(leadY, leadZ));
+            double trail = Math.min(trailX, Math.min(trailY, trailZ));
+            // A voxel the box enters at the same time it leaves another is still read, so none are missed.
+            if (lead <= trail) {
+                if (lead > maxTime) return;
+                if (lead == leadX) {
+                    int x = dx > 0 ? ++hiX : --loX;
+                    sweepVoxelCells(chunkHandler, x, x, loY, hiY, loZ, hiZ, a, dx, dy, dz, collider, layerMask, dest, all);
+                } else if (lead == leadY) {
+                    int y = dy > 0 ? ++hiY : --loY;
+                    sweepVoxelCells(chunkHandler, loX, hiX, y, y, loZ, hiZ, a, dx, dy, dz, collider, layerMask, dest, all);
+                } else {
+                    int z = dz > 0 ? ++hiZ : --loZ;
+                    sweepVoxelCells(chunkHandler, loX, hiX, loY, hiY, z, z, a, dx, dy, dz, collider, layerMask, dest, all);
+                }
+            } else {
+                if (trail > maxTime) return;
+                if (trail == trailX) {
+                    if (dx > 0) loX++;
+                    else hiX--;
+                } else if (trail == trailY) {
+                    if (dy > 0) loY++;
+                    else hiY--;
+                } else {
+                    if (dz > 0) loZ++;
+                    else hiZ--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the time the front of a moving box enters the next layer of voxels on an axis.
+     */
+    private static double leadTime(float[] a, int i, float d, int lo, int hi) {
+        if (d > 0) return (hi + 1 - (double) a[i + 3]) / d;
+        if (d < 0) return ((double) a[i] - lo) / -d;
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Find the time the back of a moving box leaves the last layer of voxels on an axis.
+     */
+    private static double trailTime(float[] a, int i, float d, int lo, int hi) {
+        if (d > 0) return (lo + 1 - (double) a[i]) / d;
+        if (d < 0) return ((double) a[i + 3] - hi) / -d;
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Sweep a box against the voxels in a range of cells. (The range is inclusive).
+     */
+    private static void sweepVoxelCells(ChunkHandler chunkHandler, int minX, int maxX, int minY, int maxY, int minZ,
+                                        int maxZ, float[] a, float dx, float dy, float dz,
+                                        @Nullable ColliderComponent collider, int layerMask, SweepHit dest,
+                                        @Nullable QueryHitBuffer all) {
+        float[] cell = dest.cell;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    Voxel voxel = chunkHandler.getVoxel(x, y, z);
+                    if (voxel == null) continue;
+                    setCell(cell, x, y, z);
+                    if (all != null)
+                        dest.reset();
+                    if (!sweep(a, dx, dy, dz, cell, dest)) continue;
+                    VoxelCollider other = voxel.getCollider();
+                    if (other.isTrigger() || (collider == null ? (other.layerBit & layerMask) == 0
+                            : !collider.canCollideWith(other)))
+                        continue;
+                    dest.set(other, voxel, cell);
+                    if (all != null) {
+                        setCastHit(all.next(), a, dx, dy, dz, dest);
+                        all.push();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find how much of the movement of a box cast to test against the voxels, so the voxels are only tested up to
+     * {@link #MAX_VOXEL_QUERY_DISTANCE}.
+     *
+     * @param distance The distance of the cast.
+     * @return How much of the movement to test, from 0 to 1.
+     */
+    static float getVoxelCastTime(float distance) {
+        return Math.min(1, MAX_VOXEL_QUERY_DISTANCE / distance);
+    }
+
+    /**
+     * Check that the box of a query does not cover more than {@link #MAX_VOXEL_QUERY_CELLS} voxels, if voxels are in
+     * the mask of the query.
+     *
+     * @throws IllegalArgumentException If the box is too large.
+     */
+    private static void checkVoxelQueryBox(float[] a, int layerMask) {
+        if ((layerMask & VOXEL_BIT) == 0) return;
+        double cells = (Math.ceil(a[3]) - Math.floor(a[0])) * (Math.ceil(a[4]) - Math.floor(a[1]))
+                * (Math.ceil(a[5]) - Math.floor(a[2]));
+        if (!(cells <= MAX_VOXEL_QUERY_CELLS))
+            throw new IllegalArgumentException("The box of a query that includes voxels cannot cover more than "
+                    + MAX_VOXEL_QUERY_CELLS + " voxels.");
+    }
+
+    /**
+     * Check if a collider collides with the voxel layer, before the voxels are looked up.
+     */
+    private static boolean collidesWithVoxels(ColliderComponent collider) {
+        return CollisionLayers.canCollide(collider.getLayer(), CollisionLayers.VOXEL);
+    }
+
+    private static void setCell(float[] dest, int x, int y, int z) {
+        dest[0] = x;
+        dest[1] = y;
+        dest[2] = z;
+        dest[3] = x + 1;
+        dest[4] = y + 1;
+        dest[5] = z + 1;
+    }
+
+    /**
+     * Find the time a moving box hits a still box, and check if it is earlier than the current hit.
+     * <p>If it is, the time and normal are stored in the hit until {@link SweepHit#set(ColliderComponent, Voxel)} is
+     * called.</p>
+     *
+     * @param a    The bounds of the moving box.
+     * @param dx   The movement on the x axis.
+     * @param dy   The movement on the y axis.
+     * @param dz   The movement on the z axis.
+     * @param b    The bounds of the still box.
+     * @param dest The current hit.
+     * @return If the hit is earlier than the current hit.
+     */
+    private static boolean sweep(float[] a, float dx, float dy, float dz, float[] b, SweepHit dest) {
+        float entry = Float.NEGATIVE_INFINITY;
+        float exit = Float.POSITIVE_INFINITY;
+        int entryAxis = AXIS_NONE;
+        float entryMovement = 0;
+        for (int i = 0; i < 3; i++) {
+            float d = i == 0 ? dx : i == 1 ? dy : dz;
+            if (d == 0) {
+                // The boxes never overlap on an axis that is not moved along, unless they already do.
+                if (a[i + 3] <= b[i] || a[i] >= b[i + 3])
+                    return false;
+                continue;
+            }
+            float near = d > 0 ? (b[i] - a[i + 3]) / d : (b[i + 3] - a[i]) / d;
+            float far = d > 0 ? (b[i + 3] - a[i]) / d : (b[i] - a[i + 3]) / d;
+            if (near > entry) {
+                entry = near;
+                entryAxis = i;
+                entryMovement = d;
+            }
+            if (far < exit)
+                exit = far;
+        }
+        if (entryAxis == AXIS_NONE || entry >= exit || exit <= 0 || entry > dest.getTime())
+            return false;
+        if (entry < 0) {
+            if (-entry * Math.abs(entryMovement) > SWEEP_TOLERANCE)
+                return false;
+            entry = 0;
+        }
+        if (dest.isHit() && entry == dest.getTime())
+            return false;
+        dest.setCandidate(entry, entryAxis, -Math.signum(entryMovement));
+        return true;
+    }
+
+    /**
+     * Find the first collider or voxel a ray hits.
+     * <p>Triggers, and colliders and voxels the ray starts inside of, are not hit. Colliders are tested with the bounds
+     * of the last physics update, and voxels up to {@link #MAX_VOXEL_QUERY_DISTANCE}.</p>
+     * <p>Only the cells of the broadphase the ray passes through are checked, and the voxels are read from the chunks
+     * directly, so this is cheap enough to be run often, such as for line of sight checks.</p>
+     *
+     * @param origin      The start of the ray.
+     * @param direction   The direction of the ray. (It does not need to be normalized).
+     * @param maxDistance The length of the ray.
+     * @param layerMask   The mask of the layers to hit. (See {@link CollisionLayers}).
+     * @param dest        The hit to write the result to.
+     * @return If something was hit.
+     * @since 1.0-Pre5
+     */
+    public boolean raycast(Vector3 origin, Vector3 direction, float maxDistance, int layerMask, QueryHit dest) {
+        dest.reset();
+        float length = length(direction);
+        if (length == 0 || !(maxDistance > 0)) return false;
+        float ox = origin.x, oy = origin.y, oz = origin.z;
+        float dx = direction.x / length, dy = direction.y / length, dz = direction.z / length;
+        List<ColliderComponent> candidates = dest.sweep.candidates;
+        candidates.clear();
+        broadphase.queryRay(ox, oy, oz, dx, dy, dz, maxDistance, layerMask, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent other = candidates.get(i);
+            if (other.isTrigger()) continue;
+            // Only a closer hit replaces the current one, so the first of two hits at the same distance is kept.
+            float limit = dest.isHit() ? Math.nextDown(dest.getDistance()) : maxDistance;
+            intersectRay(ox, oy, oz, dx, dy, dz, other.bounds, limit, other, dest);
+        }
+        candidates.clear();
+        raycastVoxels(ox, oy, oz, dx, dy, dz, dest.isHit() ? Math.nextDown(dest.getDistance()) : maxDistance,
+                layerMask, dest, null);
+        return dest.isHit();
+    }
+
+    /**
+     * Find every collider and voxel a ray hits.
+     * <p>The hits are sorted by their distance. Otherwise this is the same as
+     * {@link #raycast(Vector3, Vector3, float, int, QueryHit)}.</p>
+     *
+     * @param origin      The start of the ray.
+     * @param direction   The direction of the ray. (It does not need to be normalized).
+     * @param maxDistance The length of the ray.
+     * @param layerMask   The mask of the layers to hit. (See {@link CollisionLayers}).
+     * @param dest        The buffer to add the hits to. (It is cleared first).
+     * @return The number of hits.
+     * @since 1.0-Pre5
+     */
+    public int raycastAll(Vector3 origin, Vector3 direction, float maxDistance, int layerMask, QueryHitBuffer dest) {
+        dest.clear();
+        float length = length(direction);
+        if (length == 0 || !(maxDistance > 0)) return 0;
+        float ox = origin.x, oy = origin.y, oz = origin.z;
+        float dx = direction.x / length, dy = direction.y / length, dz = direction.z / length;
+        List<ColliderComponent> candidates = dest.sweep.candidates;
+        candidates.clear();
+        broadphase.queryRay(ox, oy, oz, dx, dy, dz, maxDistance, layerMask, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent other = candidates.get(i);
+            if (other.isTrigger()) continue;
+            QueryHit hit = dest.next();
+            hit.reset();
+            if (intersectRay(ox, oy, oz, dx, dy, dz, other.bounds, maxDistance, other, hit))
+                dest.push();
+        }
+        candidates.clear();
+        raycastVoxels(ox, oy, oz, dx, dy, dz, maxDistance, layerMask, null, dest);
+        dest.sortByDistance();
+        return dest.size();
+    }
+
+    /**
+     * Find the first collider or voxel a box hits while moving.
+     * <p>Triggers, and colliders and voxels the box starts inside of, are not hit. The box is tested continuously, the
+     * same as {@link #sweep(ColliderComponent, float, float, float, SweepHit)}. Voxels are only tested up to
+     * {@link #MAX_VOXEL_QUERY_DISTANCE}.</p>
+     *
+     * @param center      The center of the box at the start.
+     * @param halfExtents Half of the size of the box.
+     * @param direction   The direction the box moves in. (It does not need to be normalized).
+     * @param maxDistance The distance the box moves.
+     * @param layerMask   The mask of the layers to hit. (See {@link CollisionLayers}).
+     * @param dest        The hit to write the result to.
+     * @return If something was hit.
+     * @throws IllegalArgumentException If the voxels are in the mask and the box covers more than
+     *                                  {@link #MAX_VOXEL_QUERY_CELLS} voxels.
+     * @since 1.0-Pre5
+     */
+    public boolean boxCast(Vector3 center, Vector3 halfExtents, Vector3 direction, float maxDistance, int layerMask,
+                           QueryHit dest) {
+        dest.reset();
+        float length = length(direction);
+        if (length == 0 || !(maxDistance > 0)) return false;
+        float scale = maxDistance / length;
+        float dx = direction.x * scale, dy = direction.y * scale, dz = direction.z * scale;
+        float[] a = dest.box;
+        setBox(a, center, halfExtents);
+        checkVoxelQueryBox(a, layerMask);
+        SweepHit sweep = dest.sweep;
+        sweep.reset();
+        List<ColliderComponent> candidates = sweep.candidates;
+        candidates.clear();
+        queryCast(a, dx, dy, dz, layerMask, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent other = candidates.get(i);
+            if (other.isTrigger()) continue;
+            if (sweep(a, dx, dy, dz, other.bounds, sweep))
+                sweep.set(other, null, other.bounds);
+        }
+        candidates.clear();
+        sweepVoxels(a, dx, dy, dz, null, layerMask, getVoxelCastTime(maxDistance), sweep, null);
+        if (!sweep.isHit()) return false;
+        setCastHit(dest, a, dx, dy, dz, sweep);
+        return true;
+    }
+
+    /**
+     * Find every collider and voxel a box hits while moving.
+     * <p>The hits are sorted by their distance. Otherwise this is the same as
+     * {@link #boxCast(Vector3, Vector3, Vector3, float, int, QueryHit)}.</p>
+     *
+     * @param center      The center of the box at the start.
+     * @param halfExtents Half of the size of the box.
+     * @param direction   The direction the box moves in. (It does not need to be normalized).
+     * @param maxDistance The distance the box moves.
+     * @param layerMask   The mask of the layers to hit. (See {@link CollisionLayers}).
+     * @param dest        The buffer to add the hits to. (It is cleared first).
+     * @return The number of hits.
+     * @throws IllegalArgumentException If the voxels are in the mask and the box covers more than
+     *                                  {@link #MAX_VOXEL_QUERY_CELLS} voxels.
+     * @since 1.0-Pre5
+     */
+    public int boxCastAll(Vector3 center, Vector3 halfExtents, Vector3 direction, float maxDistance, int layerMask,
+                          QueryHitBuffer dest) {
+        dest.clear();
+        float length = length(direction);
+        if (length == 0 || !(maxDistance > 0)) return 0;
+        float scale = maxDistance / length;
+        float dx = direction.x * scale, dy = direction.y * scale, dz = direction.z * scale;
+        float[] a = dest.box;
+        setBox(a, center, halfExtents);
+        checkVoxelQueryBox(a, layerMask);
+        SweepHit sweep = dest.sweep;
+        List<ColliderComponent> candidates = sweep.candidates;
+        candidates.clear();
+        queryCast(a, dx, dy, dz, layerMask, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent other = candidates.get(i);
+            if (other.isTrigger()) continue;
+            sweep.reset();
+            if (!sweep(a, dx, dy, dz, other.bounds, sweep)) continue;
+            sweep.set(other, null, other.bounds);
+            setCastHit(dest.next(), a, dx, dy, dz, sweep);
+            dest.push();
+        }
+        candidates.clear();
+        sweepVoxels(a, dx, dy, dz, null, layerMask, getVoxelCastTime(maxDistance), sweep, dest);
+        dest.sortByDistance();
+        return dest.size();
+    }
+
+    /**
+     * Find every collider and voxel that overlaps a box.
+     * <p>Triggers are not included. The point of each hit is the middle of the overlap. Every voxel in the box is read,
+     * so it cannot cover more than {@link #MAX_VOXEL_QUERY_CELLS} voxels if they are in the mask.</p>
+     *
+     * @param center      The center of the box.
+     * @param halfExtents Half of the size of the box.
+     * @param layerMask   The mask of the layers to find. (See {@link CollisionLayers}).
+     * @param dest        The buffer to add the hits to. (It is cleared first).
+     * @return The number of hits.
+     * @throws IllegalArgumentException If the voxels are in the mask and the box covers more than
+     *                                  {@link #MAX_VOXEL_QUERY_CELLS} voxels.
+     * @since 1.0-Pre5
+     */
+    public int overlapBox(Vector3 center, Vector3 halfExtents, int layerMask, QueryHitBuffer dest) {
+        dest.clear();
+        float[] a = dest.box;
+        setBox(a, center, halfExtents);
+        checkVoxelQueryBox(a, layerMask);
+        List<ColliderComponent> candidates = dest.sweep.candidates;
+        candidates.clear();
+        broadphase.query(a[0], a[1], a[2], a[3], a[4], a[5], layerMask, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent other = candidates.get(i);
+            if (other.isTrigger() || !overlaps(a, other.bounds)) continue;
+            setOverlapHit(dest.next(), a, other.bounds, other, null);
+            dest.push();
+        }
+        candidates.clear();
+        ChunkHandler chunkHandler = getChunkHandler();
+        if (chunkHandler == null || (layerMask & VOXEL_BIT) == 0) return dest.size();
+        float[] cell = dest.sweep.cell;
+        int maxX = (int) Math.ceil(a[3]) - 1, maxY = (int) Math.ceil(a[4]) - 1, maxZ = (int) Math.ceil(a[5]) - 1;
+        for (int x = (int) Math.floor(a[0]); x <= maxX; x++) {
+            for (int y = (int) Math.floor(a[1]); y <= maxY; y++) {
+                for (int z = (int) Math.floor(a[2]); z <= maxZ; z++) {
+                    Voxel voxel = chunkHandler.getVoxel(x, y, z);
+                    if (voxel == null) continue;
+                    VoxelCollider other = voxel.getCollider();
+                    if (other.isTrigger() || (other.layerBit & layerMask) == 0) continue;
+                    setCell(cell, x, y, z);
+                    setOverlapHit(dest.next(), a, cell, other, voxel);
+                    dest.push();
+                }
+            }
+        }
+        return dest.size();
+    }
+
+    private static float length(Vector3 vector) {
+        return (float) Math.sqrt(vector.x * vector.x + vector.y * vector.y + vector.z * vector.z);
+    }
+
+    private static void setBox(float[] dest, Vector3 center, Vector3 halfExtents) {
+        float hx = Math.abs(halfExtents.x), hy = Math.abs(halfExtents.y), hz = Math.abs(halfExtents.z);
+        dest[0] = center.x - hx;
+        dest[1] = center.y - hy;
+        dest[2] = center.z - hz;
+        dest[3] = center.x + hx;
+        dest[4] = center.y + hy;
+        dest[5] = center.z + hz;
+    }
+
+    private static boolean overlaps(float[] a, float[] b) {
+        return a[0] < b[3] && b[0] < a[3] && a[1] < b[4] && b[1] < a[4] && a[2] < b[5] && b[2] < a[5];
+    }
+
+    /**
+     * Find the colliders in the box that covers a moving box at the start and end of the movement.
+     */
+    private void queryCast(float[] a, float dx, float dy, float dz, int layerMask, List<ColliderComponent> dest) {
+        broadphase.query(a[0] + Math.min(dx, 0), a[1] + Math.min(dy, 0), a[2] + Math.min(dz, 0),
+                a[3] + Math.max(dx, 0), a[4] + Math.max(dy, 0), a[5] + Math.max(dz, 0), layerMask, dest);
+    }
+
+    /**
+     * Test a ray against a box, and write the hit if the ray enters the box within the given distance.
+     *
+     * @return If the box was hit.
+     */
+    private static boolean intersectRay(float ox, float oy, float oz, float dx, float dy, float dz, float[] b,
+                                        float maxDistance, ColliderComponent collider, QueryHit dest) {
+        float entry = Float.NEGATIVE_INFINITY;
+        float exit = Float.POSITIVE_INFINITY;
+        int entryAxis = AXIS_NONE;
+        float entryDirection = 0;
+        for (int i = 0; i < 3; i++) {
+            float o = i == 0 ? ox : i == 1 ? oy : oz;
+            float d = i == 0 ? dx : i == 1 ? dy : dz;
+            if (d == 0) {
+                if (o < b[i] || o > b[i + 3])
+                    return false;
+                continue;
+            }
+            float near = ((d > 0 ? b[i] : b[i + 3]) - o) / d;
+            float far = ((d > 0 ? b[i + 3] : b[i]) - o) / d;
+            if (near > entry) {
+                entry = near;
+                entryAxis = i;
+                entryDirection = d;
+            }
+            if (far < exit)
+                exit = far;
+        }
+        // A ray that starts inside of the box does not hit it.
+        if (entryAxis == AXIS_NONE || entry < 0 || entry > exit || entry > maxDistance)
+            return false;
+        dest.set(entry, ox + dx * entry, oy + dy * entry, oz + dz * entry, entryAxis, -Math.signum(entryDirection),
+                collider, null);
+        return true;
+    }
+
+    /**
+     * Walk the voxels along a ray, starting with the one after the voxel the ray starts in.
+     *
+     * @param closest The hit to write the first hit to. (Or null when every hit is added to the buffer).
+     * @param all     The buffer to add every hit to. (Or null to stop at the first hit).
+     */
+    private void raycastVoxels(float ox, float oy, float oz, float dx, float dy, float dz, float maxDistance,
+                               int layerMask, @Nullable QueryHit closest, @Nullable QueryHitBuffer all) {
+        ChunkHandler chunkHandler = getChunkHandler();
+        if (chunkHandler == null || (layerMask & VOXEL_BIT) == 0) return;
+        maxDistance = Math.min(maxDistance, MAX_VOXEL_QUERY_DISTANCE);
+        int x = (int) Math.floor(ox), y = (int) Math.floor(oy), z = (int) Math.floor(oz);
+        int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+        int stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+        int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+        // The distance along the ray to cross a voxel, and to reach the next voxel, on each axis.
+        float deltaX = stepX == 0 ? Float.POSITIVE_INFINITY : 1 / Math.abs(dx);
+        float deltaY = stepY == 0 ? Float.POSITIVE_INFINITY : 1 / Math.abs(dy);
+        float deltaZ = stepZ == 0 ? Float.POSITIVE_INFINITY : 1 / Math.abs(dz);
+        float nextX = stepX == 0 ? Float.POSITIVE_INFINITY : (stepX > 0 ? x + 1 - ox : ox - x) * deltaX;
+        float nextY = stepY == 0 ? Float.POSITIVE_INFINITY : (stepY > 0 ? y + 1 - oy : oy - y) * deltaY;
+        float nextZ = stepZ == 0 ? Float.POSITIVE_INFINITY : (stepZ > 0 ? z + 1 - oz : oz - z) * deltaZ;
+        while (true) {
+            int axis;
+            float distance;
+            float sign;
+            if (nextX < nextY && nextX < nextZ) {
+                axis = AXIS_X;
+                distance = nextX;
+                sign = -stepX;
+                x += stepX;
+                nextX += deltaX;
+            } else if (nextY < nextZ) {
+                axis = AXIS_Y;
+                distance = nextY;
+                sign = -stepY;
+                y += stepY;
+                nextY += deltaY;
+            } else {
+                axis = AXIS_Z;
+                distance = nextZ;
+                sign = -stepZ;
+                z += stepZ;
+                nextZ += deltaZ;
+            }
+            if (distance > maxDistance) return;
+            Voxel voxel = chunkHandler.getVoxel(x, y, z);
+            if (voxel == null) continue;
+            VoxelCollider other = voxel.getCollider();
+            if (other.isTrigger() || (other.layerBit & layerMask) == 0) continue;
+            QueryHit hit = all == null ? closest : all.next();
+            hit.set(distance, ox + dx * distance, oy + dy * distance, oz + dz * distance, axis, sign, other, voxel);
+            if (all == null) return;
+            all.push();
+        }
+    }
+
+    /**
+     * Write the hit of a box cast from a sweep.
+     */
+    private static void setCastHit(QueryHit dest, float[] a, float dx, float dy, float dz, SweepHit sweep) {
+        float time = sweep.getTime();
+        int axis = sweep.getAxis();
+        float sign = sweep.getNormal().get(axis);
+        float[] b = sweep.otherBounds;
+        dest.set(time * (float) Math.sqrt(dx * dx + dy * dy + dz * dz),
+                castPoint(a, b, AXIS_X, dx * time, axis, sign),
+                castPoint(a, b, AXIS_Y, dy * time, axis, sign),
+                castPoint(a, b, AXIS_Z, dz * time, axis, sign),
+                axis, sign, sweep.getOther(), sweep.getVoxel());
+    }
+
+    /**
+     * Find a coordinate of the point where a moved box touches another box. On the axis of the normal this is the face
+     * of the moved box, on the others it is the middle of the overlap.
+     */
+    private static float castPoint(float[] a, float[] b, int i, float moved, int axis, float sign) {
+        float min = a[i] + moved, max = a[i + 3] + moved;
+        if (i == axis)
+            return sign > 0 ? min : max;
+        return (Math.max(min, b[i]) + Math.min(max, b[i + 3])) / 2;
+    }
+
+    private static void setOverlapHit(QueryHit dest, float[] a, float[] b, ColliderComponent collider,
+                                      @Nullable Voxel voxel) {
+        dest.set(0, (Math.max(a[0], b[0]) + Math.min(a[3], b[3])) / 2,
+                (Math.max(a[1], b[1]) + Math.min(a[4], b[4])) / 2,
+                (Math.max(a[2], b[2]) + Math.min(a[5], b[5])) / 2,
+                AXIS_NONE, 0, collider, voxel);
+    }
+
     /**
      * Get the list of items for selection.
      *
      * @param position The position of the current object (Normally the player).
      * @return The valid collidables.
+     * @see #raycast(Vector3, Vector3, float, int, QueryHit)
      */
     public List<ColliderComponent> getSelectionItems(Vector3 position) {
         if (position == null) return colliders;
@@ -92,151 +888,303 @@ public class CollisionManager {
      * @return The contact class.
      */
     public Contact isCollidingXZ(ColliderComponent c1, ColliderComponent c2) {
-        FloatContainer mtvDistance = new FloatContainer(Float.MAX_VALUE);
-        Vector3f mtvAxis = new Vector3f();
         Contact contact = new Contact();
-        if (!testAxis(new Vector3f(1, 0, 0), c1.getAbsolutePoint1().x, c1.getAbsolutePoint2().x, c2.getAbsolutePoint1().x, c2.getAbsolutePoint2().x, mtvAxis, mtvDistance))
-            return contact;
-
-        if (!testAxis(new Vector3f(0, 1, 0), c1.getAbsolutePoint1().y, c1.getAbsolutePoint2().y, c2.getAbsolutePoint1().y, c2.getAbsolutePoint2().y, new Vector3f(), new FloatContainer(Float.MAX_VALUE)))
-            return contact;
-
-        if (!testAxis(new Vector3f(0, 0, 1), c1.getAbsolutePoint1().z, c1.getAbsolutePoint2().z, c2.getAbsolutePoint1().z, c2.getAbsolutePoint2().z, mtvAxis, mtvDistance))
-            return contact;
-
-        contact.setIntersecting(true);
-        contact.setnEnter(mtvAxis.normalize());
-        contact.setPenetration((float) Math.sqrt(mtvDistance.getFloat()) * 1.001f);
-
+        c1.updateBounds();
+        c2.updateBounds();
+        isCollidingXZ(c1, c2, contact);
         return contact;
     }
 
     public Contact isColliding(ColliderComponent c1, ColliderComponent c2) {
-        FloatContainer mtvDistance = new FloatContainer(Float.MAX_VALUE);
-        Vector3f mtvAxis = new Vector3f();
         Contact contact = new Contact();
-        if (!testAxis(new Vector3f(1, 0, 0), c1.getAbsolutePoint1().x, c1.getAbsolutePoint2().x, c2.getAbsolutePoint1().x, c2.getAbsolutePoint2().x, mtvAxis, mtvDistance))
-            return contact;
-
-        if (!testAxis(new Vector3f(0, 1, 0), c1.getAbsolutePoint1().y, c1.getAbsolutePoint2().y, c2.getAbsolutePoint1().y, c2.getAbsolutePoint2().y, mtvAxis, mtvDistance))
-            return contact;
-
-        if (!testAxis(new Vector3f(0, 0, 1), c1.getAbsolutePoint1().z, c1.getAbsolutePoint2().z, c2.getAbsolutePoint1().z, c2.getAbsolutePoint2().z, mtvAxis, mtvDistance))
-            return contact;
-
-        contact.setIntersecting(true);
-        contact.setnEnter(mtvAxis.normalize());
-        contact.setPenetration((float) Math.sqrt(mtvDistance.getFloat()) * 1.001f);
-
+        c1.updateBounds();
+        c2.updateBounds();
+        isColliding(c1, c2, contact);
         return contact;
     }
 
     public Contact isCollidingY(ColliderComponent c1, ColliderComponent c2) {
-        FloatContainer mtvDistance = new FloatContainer(Float.MAX_VALUE);
-        Vector3f mtvAxis = new Vector3f();
         Contact contact = new Contact();
-
-        if (!testAxis(new Vector3f(1, 0, 0), c1.getAbsolutePoint1().x, c1.getAbsolutePoint2().x, c2.getAbsolutePoint1().x, c2.getAbsolutePoint2().x, new Vector3f(), new FloatContainer(Float.MAX_VALUE)))
-            return contact;
-
-        if (!testAxis(new Vector3f(0, 1, 0), c1.getAbsolutePoint1().y, c1.getAbsolutePoint2().y, c2.getAbsolutePoint1().y, c2.getAbsolutePoint2().y, mtvAxis, mtvDistance))
-            return contact;
-
-        if (!testAxis(new Vector3f(0, 0, 1), c1.getAbsolutePoint1().z, c1.getAbsolutePoint2().z, c2.getAbsolutePoint1().z, c2.getAbsolutePoint2().z, new Vector3f(), new FloatContainer(Float.MAX_VALUE)))
-            return contact;
-
-        contact.setIntersecting(true);
-        contact.setnEnter(mtvAxis.normalize());
-        contact.setPenetration((float) Math.sqrt(mtvDistance.getFloat()) * 1.001f);
-
+        c1.updateBounds();
+        c2.updateBounds();
+        isCollidingY(c1, c2, contact);
         return contact;
     }
 
     public Contact isCollidingX(ColliderComponent c1, ColliderComponent c2) {
-        FloatContainer mtvDistance = new FloatContainer(Float.MAX_VALUE);
-        Vector3f mtvAxis = new Vector3f();
         Contact contact = new Contact();
-
-        if (!testAxis(new Vector3f(0, 1, 0), c1.getAbsolutePoint1().x, c1.getAbsolutePoint2().x, c2.getAbsolutePoint1().x, c2.getAbsolutePoint2().x, new Vector3f(), new FloatContainer(Float.MAX_VALUE)))
-            return contact;
-
-        if (!testAxis(new Vector3f(1, 0, 0), c1.getAbsolutePoint1().y, c1.getAbsolutePoint2().y, c2.getAbsolutePoint1().y, c2.getAbsolutePoint2().y, mtvAxis, mtvDistance))
-            return contact;
-
-        if (!testAxis(new Vector3f(0, 0, 1), c1.getAbsolutePoint1().z, c1.getAbsolutePoint2().z, c2.getAbsolutePoint1().z, c2.getAbsolutePoint2().z, new Vector3f(), new FloatContainer(Float.MAX_VALUE)))
-            return contact;
-
-        contact.setIntersecting(true);
-        contact.setnEnter(mtvAxis.normalize());
-        contact.setPenetration((float) Math.sqrt(mtvDistance.getFloat()) * 1.001f);
-
+        c1.updateBounds();
+        c2.updateBounds();
+        isCollidingX(c1, c2, contact);
         return contact;
     }
 
     public Contact isCollidingZ(ColliderComponent c1, ColliderComponent c2) {
-        FloatContainer mtvDistance = new FloatContainer(Float.MAX_VALUE);
-        Vector3f mtvAxis = new Vector3f();
         Contact contact = new Contact();
+        c1.updateBounds();
+        c2.updateBounds();
+        isCollidingZ(c1, c2, contact);
+        return contact;
+    }
 
-        if (!testAxis(new Vector3f(1, 0, 0), c1.getAbsolutePoint1().x, c1.getAbsolutePoint2().x, c2.getAbsolutePoint1().x, c2.getAbsolutePoint2().x, new Vector3f(), new FloatContainer(Float.MAX_VALUE)))
-            return contact;
+    /**
+     * Check to see if two colliders are colliding, resolving along the x and z axis.
+     * <p>Unlike {@link #isCollidingXZ(ColliderComponent, ColliderComponent)} this does not allocate anything. It tests
+     * the cached bounds of the colliders, see {@link ColliderComponent#updateBounds()}.</p>
+     *
+     * @param c1   The first collider.
+     * @param c2   The second collider.
+     * @param dest The contact to write the result to.
+     * @return If the colliders are colliding.
+     * @since 1.0-Pre5
+     */
+    public boolean isCollidingXZ(ColliderComponent c1, ColliderComponent c2, Contact dest) {
+        return test(c1.bounds, c2.bounds, AXIS_X, AXIS_NONE, AXIS_Z, dest);
+    }
 
-        if (!testAxis(new Vector3f(0, 0, 1), c1.getAbsolutePoint1().y, c1.getAbsolutePoint2().y, c2.getAbsolutePoint1().y, c2.getAbsolutePoint2().y, mtvAxis, mtvDistance))
-            return contact;
+    /**
+     * Check to see if two colliders are colliding, resolving along any axis.
+     * <p>This does not allocate anything. It tests the cached bounds of the colliders, see
+     * {@link ColliderComponent#updateBounds()}.</p>
+     *
+     * @param c1   The first collider.
+     * @param c2   The second collider.
+     * @param dest The contact to write the result to.
+     * @return If the colliders are colliding.
+     * @since 1.0-Pre5
+     */
+    public boolean isColliding(ColliderComponent c1, ColliderComponent c2, Contact dest) {
+        return test(c1.bounds, c2.bounds, AXIS_X, AXIS_Y, AXIS_Z, dest);
+    }
 
-        if (!testAxis(new Vector3f(0, 1, 0), c1.getAbsolutePoint1().z, c1.getAbsolutePoint2().z, c2.getAbsolutePoint1().z, c2.getAbsolutePoint2().z, new Vector3f(), new FloatContainer(Float.MAX_VALUE)))
-            return contact;
+    /**
+     * Check to see if two colliders are colliding, resolving along the y axis.
+     * <p>This does not allocate anything. It tests the cached bounds of the colliders, see
+     * {@link ColliderComponent#updateBounds()}.</p>
+     *
+     * @param c1   The first collider.
+     * @param c2   The second collider.
+     * @param dest The contact to write the result to.
+     * @return If the colliders are colliding.
+     * @since 1.0-Pre5
+     */
+    public boolean isCollidingY(ColliderComponent c1, ColliderComponent c2, Contact dest) {
+        return test(c1.bounds, c2.bounds, AXIS_NONE, AXIS_Y, AXIS_NONE, dest);
+    }
 
-        contact.setIntersecting(true);
-        contact.setnEnter(mtvAxis.normalize());
-        contact.setPenetration((float) Math.sqrt(mtvDistance.getFloat()) * 1.001f);
+    /**
+     * The allocation free version of {@link #isCollidingX(ColliderComponent, ColliderComponent)}.
+     * <p>The overlap of the y axis is resolved along the x axis, the same as the original method.</p>
+     *
+     * @param c1   The first collider.
+     * @param c2   The second collider.
+     * @param dest The contact to write the result to.
+     * @return If the colliders are colliding.
+     * @since 1.0-Pre5
+     */
+    public boolean isCollidingX(ColliderComponent c1, ColliderComponent c2, Contact dest) {
+        return test(c1.bounds, c2.bounds, AXIS_NONE, AXIS_X, AXIS_NONE, dest);
+    }
 
-        return contact;
+    /**
+     * The allocation free version of {@link #isCollidingZ(ColliderComponent, ColliderComponent)}.
+     * <p>The overlap of the y axis is resolved along the z axis, the same as the original method.</p>
+     *
+     * @param c1   The first collider.
+     * @param c2   The second collider.
+     * @param dest The contact to write the result to.
+     * @return If the colliders are colliding.
+     * @since 1.0-Pre5
+     */
+    public boolean isCollidingZ(ColliderComponent c1, ColliderComponent c2, Contact dest) {
+        return test(c1.bounds, c2.bounds, AXIS_NONE, AXIS_Z, AXIS_NONE, dest);
     }
 
     /**
-     * Check to see if an axis is colliding.
+     * Test a collider against many colliders.
+     * <p>A contact is added to the buffer for every collider that is colliding with the collider. Each contact is the
+     * same as the one from {@link #isColliding(ColliderComponent, ColliderComponent, Contact)} with the other collider
+     * first, and {@link Contact#getOther()} is set to the other collider. The collider itself is skipped.</p>
+     * <p>This does not allocate anything once the buffer has grown to fit. It tests the cached bounds of the colliders,
+     * see {@link ColliderComponent#updateBounds()}.</p>
      *
-     * @param axis        The axis to check on.
-     * @param minA        The minimum point for collider A
-     * @param maxA        The maximum point for collider A
-     * @param minB        The minimum point for collider B
-     * @param maxB        The maximum point for collider B
-     * @param mtvAxis     The Minimum Translation Vector axis. (The axis to travel the minimum distance.
-     *                    <p>The mtvAxis is mutated by this method.</p>
-     * @param mtvDistance The Minimum Translation Vector distance. (The distance to travel)
-     *                    <p>The mtvDistance is mutated by this method.</p>
-     * @return If the axis is colliding.
+     * @param collider The collider.
+     * @param others   The colliders to test against. (Such as from
+     *                 {@link #getCollisionCandidates(ColliderComponent, List)}).
+     * @param dest     The buffer to add the contacts to. (It is cleared first).
+     * @return The number of contacts.
+     * @since 1.0-Pre5
      */
-    private boolean testAxis(Vector3f axis, float minA, float maxA, float minB, float maxB, Vector3f mtvAxis, FloatContainer mtvDistance) {
-        float axisLengthSq = new Vector3f(axis).dot(new Vector3f(axis));
-        if (axisLengthSq < 1.0e-8f) {
-            return true;
+    public int isColliding(ColliderComponent collider, List<ColliderComponent> others, ContactBuffer dest) {
+        dest.clear();
+        for (int i = 0; i < others.size(); i++) {
+            ColliderComponent other = others.get(i);
+            if (other == collider) continue;
+            Contact contact = dest.next();
+            if (test(other.bounds, collider.bounds, AXIS_X, AXIS_Y, AXIS_Z, contact)) {
+                contact.other = other;
+                dest.push();
+            }
         }
+        return dest.size();
+    }
 
-        float d0 = (maxB - minA);
-        float d1 = (maxA - minB);
-        if (d0 <= 0.0f || d1 <= 0.0f)
-            return false;
-        float overlap = (d0 < d1) ? d0 : -d1;
-        Vector3f sep = new Vector3f(axis).mul(overlap / axisLengthSq);
+    /**
+     * Find a voxel a collider is inside of.
+     * <p>The voxels its bounds cover are read from the chunks directly and tested as boxes of size 1, in order of their
+     * position. The contact is the same as the one from
+     * {@link #isColliding(ColliderComponent, ColliderComponent, Contact)} with the voxel first, and
+     * {@link Contact#getOther()} and {@link Contact#getVoxel()} are set. Voxels whose collider is a trigger or cannot be
+     * collided with are ignored.</p>
+     * <p>This tests the cached bounds of the collider, see {@link ColliderComponent#updateBounds()}.</p>
+     *
+     * @param collider The collider.
+     * @param dest     The contact to write the result to.
+     * @return If the collider is inside of a voxel.
+     * @since 1.0-Pre5
+     */
+    public boolean isCollidingVoxels(ColliderComponent collider, Contact dest) {
+        return findVoxelContact(collider, AXIS_X, AXIS_Y, AXIS_Z, dest);
+    }
+
+    /**
+     * Add a contact for every voxel a collider is inside of.
+     * <p>The voxels are read from the chunks directly, the same as
+     * {@link #isCollidingVoxels(ColliderComponent, Contact)}. Each contact is the same as one from
+     * {@link #isColliding(ColliderComponent, List, ContactBuffer)}, with {@link Contact#getVoxel()} set as well. Like
+     * that method, triggers and colliders that cannot be collided with are not left out. Nothing is added if the layer of
+     * the collider does not collide with the {@link CollisionLayers#VOXEL} layer.</p>
+     * <p>The contacts are added after the ones already in the buffer, so this can follow
+     * {@link #isColliding(ColliderComponent, List, ContactBuffer)}.</p>
+     *
+     * @param collider The collider.
+     * @param dest     The buffer to add the contacts to. (It is not cleared).
+     * @return The number of contacts in the buffer.
+     * @since 1.0-Pre5
+     */
+    public int addVoxelContacts(ColliderComponent collider, ContactBuffer dest) {
+        ChunkHandler chunkHandler = getChunkHandler();
+        if (chunkHandler == null || !collidesWithVoxels(collider)) return dest.size();
+        float[] a = collider.bounds;
+        int maxX = (int) Math.ceil(a[3]) - 1, maxY = (int) Math.ceil(a[4]) - 1, maxZ = (int) Math.ceil(a[5]) - 1;
+        for (int x = (int) Math.floor(a[0]); x <= maxX; x++) {
+            for (int y = (int) Math.floor(a[1]); y <= maxY; y++) {
+                for (int z = (int) Math.floor(a[2]); z <= maxZ; z++) {
+                    Voxel voxel = chunkHandler.getVoxel(x, y, z);
+                    if (voxel == null) continue;
+                    Contact contact = dest.next();
+                    setCell(contact.cell, x, y, z);
+                    if (!test(contact.cell, a, AXIS_X, AXIS_Y, AXIS_Z, contact)) continue;
+                    contact.other = voxel.getCollider();
+                    contact.voxel = voxel;
+                    dest.push();
+                }
+            }
+        }
+        return dest.size();
+    }
+
+    /**
+     * Push a collider out of the voxels it is inside of.
+     * <p>Internal use only. The axes are the same as the ones of the test of the colliders, for example
+     * {@link #isCollidingX(ColliderComponent, ColliderComponent, Contact)} resolves the overlap of the y axis along the
+     * x axis. The collider is pushed out of at most a few voxels, so this has a fixed cost.</p>
+     *
+     * @param collider The collider. (It must be on a GameItem).
+     * @param xAxis    The axis the overlap on the x axis is resolved along.
+     * @param yAxis    The axis the overlap on the y axis is resolved along.
+     * @param zAxis    The axis the overlap on the z axis is resolved along.
+     * @param contact  The contact to use.
+     */
+    void resolveVoxels(ColliderComponent collider, int xAxis, int yAxis, int zAxis, Contact contact) {
+        Transform transform = collider.getGameItem().transform;
+        for (int i = 0; i < MAX_VOXEL_PUSHES && findVoxelContact(collider, xAxis, yAxis, zAxis, contact); i++) {
+            transform.translateBy(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+            collider.updateBounds();
+        }
+    }
 
-        float sepLengthSquared = new Vector3f(sep).dot(sep);
+    /**
+     * Find the first voxel a collider is inside of, resolving along the given axes.
+     */
+    private boolean findVoxelContact(ColliderComponent collider, int xAxis, int yAxis, int zAxis, Contact dest) {
+        dest.reset();
+        ChunkHandler chunkHandler = getChunkHandler();
+        if (chunkHandler == null || !collidesWithVoxels(collider)) return false;
+        float[] a = collider.bounds;
+        float[] cell = dest.cell;
+        int maxX = (int) Math.ceil(a[3]) - 1, maxY = (int) Math.ceil(a[4]) - 1, maxZ = (int) Math.ceil(a[5]) - 1;
+        for (int x = (int) Math.floor(a[0]); x <= maxX; x++) {
+            for (int y = (int) Math.floor(a[1]); y <= maxY; y++) {
+                for (int z = (int) Math.floor(a[2]); z <= maxZ; z++) {
+                    Voxel voxel = chunkHandler.getVoxel(x, y, z);
+                    if (voxel == null) continue;
+                    setCell(cell, x, y, z);
+                    if (!test(cell, a, xAxis, yAxis, zAxis, dest)) continue;
+                    VoxelCollider other = voxel.getCollider();
+                    if (other.isTrigger() || !collider.canCollideWith(other)) continue;
+                    dest.other = other;
+                    dest.voxel = voxel;
+                    return true;
+                }
+            }
+        }
+        dest.reset();
+        return false;
+    }
 
-        if (sepLengthSquared < mtvDistance.getFloat()) {
-            mtvDistance.setFloat(sepLengthSquared);
-            mtvAxis.set(sep);
+    /**
+     * Test two boxes for a collision.
+     * <p>For each axis of the boxes, the axis along which its overlap is resolved is provided. The overlap that is
+     * resolved with the smallest distance is used for the contact.</p>
+     *
+     * @param a     The bounds of the first box.
+     * @param b     The bounds of the second box.
+     * @param xAxis The axis the overlap on the x axis is resolved along. (Or {@link #AXIS_NONE}).
+     * @param yAxis The axis the overlap on the y axis is resolved along. (Or {@link #AXIS_NONE}).
+     * @param zAxis The axis the overlap on the z axis is resolved along. (Or {@link #AXIS_NONE}).
+     * @param dest  The contact to write the result to.
+     * @return If the boxes are colliding.
+     */
+    private static boolean test(float[] a, float[] b, int xAxis, int yAxis, int zAxis, Contact dest) {
+        dest.reset();
+        float mtvDistance = Float.MAX_VALUE;
+        int mtvAxis = AXIS_NONE;
+        float mtvOverlap = 0;
+        for (int i = 0; i < 3; i++) {
+            float d0 = b[i + 3] - a[i];
+            float d1 = a[i + 3] - b[i];
+            if (d0 <= 0.0f || d1 <= 0.0f)
+                return false;
+            int axis = i == 0 ? xAxis : i == 1 ? yAxis : zAxis;
+            if (axis == AXIS_NONE) continue;
+            float overlap = (d0 < d1) ? d0 : -d1;
+            if (overlap * overlap < mtvDistance) {
+                mtvDistance = overlap * overlap;
+                mtvAxis = axis;
+                mtvOverlap = overlap;
+            }
         }
+
+        dest.setIntersecting(true);
+        dest.nEnter.setComponent(mtvAxis, Math.signum(mtvOverlap));
+        dest.setPenetration((float) Math.sqrt(mtvDistance) * 1.001f);
         return true;
     }
 
     /**
      * Holds the contact information of a collision.
+     * <p>Contacts can be reused with the methods that take a contact, such as
+     * {@link #isColliding(ColliderComponent, ColliderComponent, Contact)}.</p>
      */
-    protected static class Contact {
+    public static class Contact {
+        // The bounds of the voxel being tested.
+        final float[] cell = new float[6];
         private boolean isIntersecting;
         private Vector3f nEnter;
         private float penetration;
+        private ColliderComponent other;
+        private Voxel voxel;
 
         public Contact() {
             isIntersecting = false;
@@ -244,6 +1192,19 @@ public class CollisionManager {
             penetration = 0;
         }
 
+        /**
+         * Clear the contact so it can be reused.
+         *
+         * @since 1.0-Pre5
+         */
+        public void reset() {
+            isIntersecting = false;
+            nEnter.zero();
+            penetration = 0;
+            other = null;
+            voxel = null;
+        }
+
         /**
          * If there was a collision.
          *
@@ -282,25 +1243,29 @@ public class CollisionManager {
         public void setPenetration(float penetration) {
             this.penetration = penetration;
         }
-    }
-
-    /**
-     * Used to contain a float value that can be mutated.
-     */
-    private static class FloatContainer {
-        private float f;
-
-        public FloatContainer(float f) {
-            this.f = f;
-        }
 
-        public float getFloat() {
-            return f;
+        /**
+         * The collider that was collided with.
+         * <p>This is only set by the batch test,
+         * {@link #isColliding(ColliderComponent, List, ContactBuffer)}, and by
+         * {@link #isCollidingVoxels(ColliderComponent, Contact)}.</p>
+         *
+         * @return The other collider. (Null if it was not set).
+         * @since 1.0-Pre5
+         */
+        public ColliderComponent getOther() {
+            return other;
         }
 
-        public void setFloat(float f) {
-            this.f = f;
+        /**
+         * The voxel that was collided with.
+         * <p>This is only set by {@link #isCollidingVoxels(ColliderComponent, Contact)}.</p>
+         *
+         * @return The voxel. (Null if it was not set).
+         * @since 1.0-Pre5
+         */
+        public Voxel getVoxel() {
+            return voxel;
         }
     }
 }
-
@@ -0,0 +1,75 @@
+package org.kakara.engine.physics.collision;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of contacts.
+ *
+ * <p>The contacts are pooled, so filling the buffer again after {@link #clear()} does not allocate anything. The
+ * contacts are owned by the buffer; they are overwritten the next time it is filled and should not be kept.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class ContactBuffer {
+    private CollisionManager.Contact[] contacts = new CollisionManager.Contact[8];
+    private int size;
+
+    /**
+     * Get the next unused contact, growing the pool if needed.
+     * <p>The contact is only added to the buffer once {@link #push()} is called.</p>
+     *
+     * @return The contact.
+     */
+    CollisionManager.Contact next() {
+        if (size == contacts.length)
+            contacts = Arrays.copyOf(contacts, size * 2);
+        if (contacts[size] == null)
+            contacts[size] = new CollisionManager.Contact();
+        return contacts[size];
+    }
+
+    /**
+     * Add the contact from {@link #next()} to the buffer.
+     */
+    void push() {
+        size++;
+    }
+
+    /**
+     * Get a contact.
+     *
+     * @param index The index of the contact.
+     * @return The contact.
+     * @throws IndexOutOfBoundsException If the index is not less than {@link #size()}.
+     */
+    public CollisionManager.Contact get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return contacts[index];
+    }
+
+    /**
+     * Get the number of contacts in the buffer.
+     *
+     * @return The number of contacts.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the buffer has no contacts.
+     *
+     * @return If the buffer is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove every contact from the buffer. The contacts are kept to be reused.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,260 @@
+package org.kakara.engine.physics.collision;
+
+import org.kakara.engine.gameitems.GameItem;
+
+import java.util.Arrays;
+
+/**
+ * Tracks which colliders are touching across physics steps, so collision events are only fired when a contact
+ * starts, while it stays, and when it ends.
+ *
+ * <p>A contact is a pair of colliders where the first found the second in its physics update. A contact that is not
+ * found again in a step has ended. Contacts of objects that are asleep are kept until they are woken.</p>
+ *
+ * <p>The pairs are stored in a hash table keyed by the ids of the two colliders packed into a long, so finding a
+ * pair does not allocate anything.</p>
+ *
+ * <p>Get the instance of this class through {@link CollisionManager#getContactPairs()}.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class ContactPairCache {
+    // The contact was not changed, or a stay event is not due yet.
+    static final int NONE = 0;
+    // The contact started this step.
+    static final int ENTER = 1;
+    // The contact continued and a stay event is due.
+    static final int STAY = 2;
+
+    private static final long EMPTY = 0;
+
+    private long[] keys = new long[64];
+    private ColliderComponent[] selves = new ColliderComponent[64];
+    private ColliderComponent[] others = new ColliderComponent[64];
+    private int[] seen = new int[64];
+    private float[] stayTimes = new float[64];
+    private int size;
+    private int step = 1;
+    private int nextId = 1;
+    private float stayInterval;
+
+    // The contacts that ended this step, fired once the table is no longer being changed.
+    private ColliderComponent[] exitSelves = new ColliderComponent[16];
+    private ColliderComponent[] exitOthers = new ColliderComponent[16];
+
+    /**
+     * Record that a collider is touching another in this step.
+     * <p>This is called by the colliders in their physics update, which can be on a worker thread.</p>
+     *
+     * @param self      The collider that found the contact.
+     * @param other     The collider it is touching.
+     * @param deltaTime The time step. (In seconds).
+     * @return {@link #ENTER} if the contact is new, {@link #STAY} if a stay event is due, otherwise {@link #NONE}.
+     */
+    synchronized int update(ColliderComponent self, ColliderComponent other, float deltaTime) {
+        long key = key(self, other);
+        int mask = keys.length - 1;
+        int slot = slot(key);
+        for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] != key) continue;
+            seen[slot] = step;
+            if (stayInterval <= 0)
+                return STAY;
+            stayTimes[slot] += deltaTime;
+            if (stayTimes[slot] < stayInterval)
+                return NONE;
+            stayTimes[slot] -= stayInterval;
+            return STAY;
+        }
+        keys[slot] = key;
+        selves[slot] = self;
+        others[slot] = other;
+        seen[slot] = step;
+        stayTimes[slot] = 0;
+        if (++size * 2 > keys.length)
+            grow();
+        return ENTER;
+    }
+
+    /**
+     * End the contacts that were not found this step and fire their exit events.
+     * <p>Internal use only. This is called by the {@link org.kakara.engine.physics.PhysicsStepper} on the main thread
+     * after the objects are updated.</p>
+     */
+    public void endStep() {
+        int exitCount = 0;
+        synchronized (this) {
+            for (int slot = 0; slot < keys.length; ) {
+                // Sleeping objects do not look for contacts, so their contacts are kept as they were.
+                if (keys[slot] == EMPTY || seen[slot] == step || isAsleep(selves[slot])) {
+                    slot++;
+                    continue;
+                }
+                if (exitCount == exitSelves.length) {
+                    exitSelves = Arrays.copyOf(exitSelves, exitCount * 2);
+                    exitOthers = Arrays.copyOf(exitOthers, exitCount * 2);
+                }
+                exitSelves[exitCount] = selves[slot];
+                exitOthers[exitCount++] = others[slot];
+                // This moves a later pair into the slot, so the slot is checked again.
+                removeSlot(slot);
+            }
+            step++;
+        }
+        for (int i = 0; i < exitCount; i++) {
+            exitSelves[i].fireExit(exitOthers[i]);
+            exitSelves[i] = null;
+            exitOthers[i] = null;
+        }
+    }
+
+    private static boolean isAsleep(ColliderComponent self) {
+        GameItem item = self.getGameItem();
+        PhysicsComponent body = item == null ? null : item.getComponent(PhysicsComponent.class);
+        return body != null && body.isSleeping();
+    }
+
+    /**
+     * Forget the contacts found by a collider, without firing their exit events.
+     * <p>This is called when the collider is removed. Contacts other colliders found with it end in the next step.</p>
+     *
+     * @param self The collider.
+     */
+    synchronized void remove(ColliderComponent self) {
+        if (self.contactId == 0 || size == 0) return;
+        for (int slot = 0; slot < keys.length; ) {
+            if (keys[slot] != EMPTY && selves[slot] == self)
+                removeSlot(slot);
+            else
+                slot++;
+        }
+    }
+
+    /**
+     * Check if a collider found a contact with another in the last step.
+     *
+     * @param self  The collider that found the contact.
+     * @param other The collider it is touching.
+     * @return If the colliders are in contact.
+     */
+    public synchronized boolean isInContact(ColliderComponent self, ColliderComponent other) {
+        if (self.contactId == 0 || other.contactId == 0) return false;
+        long key = key(self, other);
+        int mask = keys.length - 1;
+        for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of contacts.
+     *
+     * @return The number of contacts.
+     */
+    public synchronized int getPairCount() {
+        return size;
+    }
+
+    /**
+     * Get how often stay events are fired for a contact.
+     *
+     * @return The stay interval. (In seconds).
+     */
+    public float getStayInterval() {
+        return stayInterval;
+    }
+
+    /**
+     * Set how often stay events are fired for a contact.
+     * <p>This is 0 by default, which fires stay events every physics step after the contact starts.</p>
+     *
+     * @param stayInterval The stay interval. (In seconds).
+     */
+    public synchronized void setStayInterval(float stayInterval) {
+        this.stayInterval = stayInterval;
+    }
+
+    /**
+     * Forget every contact, without firing their exit events.
+     */
+    public synchronized void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(selves, null);
+        Arrays.fill(others, null);
+        size = 0;
+    }
+
+    private long key(ColliderComponent self, ColliderComponent other) {
+        return ((long) id(self) << 32) | (id(other) & 0xFFFFFFFFL);
+    }
+
+    private int id(ColliderComponent collider) {
+        if (collider.contactId == 0) {
+            collider.contactId = nextId++;
+            // Skip 0 when the ids wrap around, so a key is never empty.
+            if (nextId == 0)
+                nextId = 1;
+        }
+        return collider.contactId;
+    }
+
+    private int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & (keys.length - 1);
+    }
+
+    /**
+     * Remove a pair, moving back the pairs after it so every pair can still be found from its home slot.
+     */
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        keys[slot] = EMPTY;
+        selves[slot] = null;
+        others[slot] = null;
+        size--;
+        int empty = slot;
+        for (int next = (slot + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - empty) & mask)) {
+                keys[empty] = keys[next];
+                selves[empty] = selves[next];
+                others[empty] = others[next];
+                seen[empty] = seen[next];
+                stayTimes[empty] = stayTimes[next];
+                keys[next] = EMPTY;
+                selves[next] = null;
+                others[next] = null;
+                empty = next;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        ColliderComponent[] oldSelves = selves;
+        ColliderComponent[] oldOthers = others;
+        int[] oldSeen = seen;
+        float[] oldStayTimes = stayTimes;
+        int capacity = oldKeys.length * 2;
+        keys = new long[capacity];
+        selves = new ColliderComponent[capacity];
+        others = new ColliderComponent[capacity];
+        seen = new int[capacity];
+        stayTimes = new float[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            while (keys[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            selves[slot] = oldSelves[i];
+            others[slot] = oldOthers[i];
+            seen[slot] = oldSeen[i];
+            stayTimes[slot] = oldStayTimes[i];
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package org.kakara.engine.physics.collision;
+
+import org.jetbrains.annotations.Nullable;
+import org.kakara.engine.components.Component;
+import org.kakara.engine.gameitems.GameItem;
+import org.kakara.engine.math.Vector3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the physics update of the items of a scene, solving independent groups of objects on multiple threads.
+ *
+ * <p>Items without a {@link PhysicsComponent} are updated first, in order, on the calling thread. The awake objects
+ * with a PhysicsComponent are then split into groups by the space they can reach in the step: their bounds, grown by
+ * the movement from their velocity and acceleration and a small margin. Objects whose spaces overlap are in the same
+ * group, and are updated in order on the same thread. Groups are spread over the worker threads.</p>
+ *
+ * <p>As groups cannot reach each other, the result is the same as updating every object in order on a single thread,
+ * no matter the number of threads or which thread solves which group. An object that is moved further than its
+ * velocity in a step, such as a component that teleports it or one pushed out of a deep overlap, can reach another
+ * group, in which case the result depends on the timing of the threads.</p>
+ *
+ * <p>With more than one thread the {@link Component#physicsUpdate(float)} of the items with a PhysicsComponent, and the
+ * collision events they fire, are called on the worker threads. They should only change their own item.</p>
+ *
+ * <p>The workers do not share a lock. Every collider is first placed in the broadphase cells of the space it can
+ * reach, then the broadphase is frozen so the workers query it without its lock (see {@link SpatialHashBroadphase}).
+ * Sleeping objects are never woken by the workers: {@link PhysicsComponent#wakeUp()} only queues them, and the
+ * {@link PhysicsIslands} wake them at the start of the next step, on the thread the step is run on. That way two
+ * groups cannot wake the same object at once.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class IslandSolver {
+    // Added to the space every object can reach in a step.
+    private static final float GROUP_MARGIN = 0.05f;
+
+    private int threadCount = 1;
+    private ExecutorService workers;
+    private final List<Future<?>> jobs = new ArrayList<>();
+    private final AtomicInteger nextGroup = new AtomicInteger();
+    private final Runnable drain = this::drain;
+
+    // The awake objects, in the order of the items.
+    private final List<GameItem> bodies = new ArrayList<>();
+    private float[] regions = new float[6 * 64];
+    private long[] sorted = new long[64];
+    private int[] active = new int[64];
+    private int[] parent = new int[64];
+    private int[] groupOf = new int[64];
+    private int[] groupBodies = new int[64];
+    private int[] groupStarts = new int[65];
+    private int groupCount;
+    private float timeStep;
+    private SpatialHashBroadphase broadphase;
+
+    /**
+     * Run a physics step on the items.
+     * <p>Internal use only. This is called by the {@link org.kakara.engine.physics.PhysicsStepper} after the
+     * broadphase is updated. Items with a sleeping PhysicsComponent are skipped.</p>
+     *
+     * @param items            The items of the scene.
+     * @param collisionManager The collision manager of the scene. (Null if the scene has none).
+     * @param timeStep         The time step. (In seconds).
+     */
+    public void solve(List<GameItem> items, @Nullable CollisionManager collisionManager, float timeStep) {
+        this.timeStep = timeStep;
+        this.broadphase = collisionManager == null ? null : collisionManager.getBroadphase();
+        bodies.clear();
+        for (GameItem item : items) {
+            PhysicsComponent body = item.getComponent(PhysicsComponent.class);
+            if (body == null)
+                update(item);
+            else if (!body.isSleeping())
+                bodies.add(item);
+        }
+
+        if (threadCount == 1 || bodies.size() < 2) {
+            // Solving the groups in order is the same as solving every object in order.
+            for (int i = 0; i < bodies.size(); i++)
+                update(bodies.get(i));
+            groupCount = bodies.isEmpty() ? 0 : 1;
+            return;
+        }
+
+        buildRegions();
+        linkOverlappingRegions();
+        buildGroups();
+        if (broadphase == null) {
+            dispatch();
+            return;
+        }
+        broadphase.freeze();
+        try {
+            dispatch();
+        } finally {
+            broadphase.thaw();
+        }
+    }
+
+    private void update(GameItem item) {
+        for (Component component : item.getComponents()) {
+            component.physicsUpdate(timeStep);
+        }
+    }
+
+    private void ensureCapacity(int count) {
+        if (count <= parent.length) return;
+        int capacity = Math.max(count, parent.length * 2);
+        regions = new float[6 * capacity];
+        sorted = new long[capacity];
+        active = new int[capacity];
+        parent = new int[capacity];
+        groupOf = new int[capacity];
+        groupBodies = new int[capacity];
+        groupStarts = new int[capacity + 1];
+    }
+
+    /**
+     * Find the space every object can reach in the step.
+     */
+    private void buildRegions() {
+        int count = bodies.size();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            GameItem item = bodies.get(i);
+            parent[i] = i;
+            int r = i * 6;
+            ColliderComponent collider = item.getComponent(ColliderComponent.class);
+            if (collider == null) {
+                // The object cannot touch anything, so it is alone in its group.
+                regions[r] = Float.NaN;
+                sorted[i] = sortKey(Float.POSITIVE_INFINITY, i);
+                continue;
+            }
+            collider.updateBounds();
+            float[] b = collider.bounds;
+            PhysicsComponent body = item.getComponent(PhysicsComponent.class);
+            Vector3 velocity = body.getVelocity();
+            Vector3 acceleration = body.getAcceleration();
+            // The same movement the PhysicsComponent makes.
+            float dx = (velocity.x + acceleration.x * timeStep) * timeStep;
+            float dy = (velocity.y + acceleration.y * timeStep) * timeStep;
+            float dz = (velocity.z + acceleration.z * timeStep) * timeStep;
+            regions[r] = b[0] + Math.min(dx, 0) - GROUP_MARGIN;
+            regions[r + 1] = b[1] + Math.min(dy, 0) - GROUP_MARGIN;
+            regions[r + 2] = b[2] + Math.min(dz, 0) - GROUP_MARGIN;
+            regions[r + 3] = b[3] + Math.max(dx, 0) + GROUP_MARGIN;
+            regions[r + 4] = b[4] + Math.max(dy, 0) + GROUP_MARGIN;
+            regions[r + 5] = b[5] + Math.max(dz, 0) + GROUP_MARGIN;
+            if (broadphase != null)
+                broadphase.reserve(collider, regions[r], regions[r + 1], regions[r + 2], regions[r + 3],
+                        regions[r + 4], regions[r + 5]);
+            sorted[i] = sortKey(regions[r], i);
+        }
+    }
+
+    /**
+     * Create a key that sorts by a float, then by an index.
+     */
+    private static long sortKey(float value, int index) {
+        int bits = Float.floatToIntBits(value);
+        // Flip the bits of negative values so the keys sort the same as the floats.
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | index;
+    }
+
+    /**
+     * Link the objects whose spaces overlap, sweeping along the x axis.
+     */
+    private void linkOverlappingRegions() {
+        int count = bodies.size();
+        Arrays.sort(sorted, 0, count);
+        int activeCount = 0;
+        for (int i = 0; i < count; i++) {
+            int a = (int) sorted[i];
+            int ra = a * 6;
+            if (Float.isNaN(regions[ra])) continue;
+            int kept = 0;
+            for (int j = 0; j < activeCount; j++) {
+                int b = active[j];
+                int rb = b * 6;
+                // Objects are sorted by their min x, so one that ends before this one starts cannot reach any later one.
+                if (regions[rb + 3] < regions[ra]) continue;
+                active[kept++] = b;
+                if (regions[ra + 1] <= regions[rb + 4] && regions[rb + 1] <= regions[ra + 4]
+                        && regions[ra + 2] <= regions[rb + 5] && regions[rb + 2] <= regions[ra + 5])
+                    union(a, b);
+            }
+            activeCount = kept;
+            active[activeCount++] = a;
+        }
+    }
+
+    private int find(int index) {
+        while (parent[index] != index) {
+            parent[index] = parent[parent[index]];
+            index = parent[index];
+        }
+        return index;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        // The lower index becomes the root, so the root of a group is always its first object.
+        if (rootA < rootB)
+            parent[rootB] = rootA;
+        else if (rootB < rootA)
+            parent[rootA] = rootB;
+    }
+
+    /**
+     * Sort the objects by group, numbering the groups by their first object and keeping the order of the items.
+     */
+    private void buildGroups() {
+        int count = bodies.size();
+        groupCount = 0;
+        for (int i = 0; i < count; i++) {
+            int root = find(i);
+            if (root == i)
+                groupStarts[groupCount++] = 0;
+            groupOf[i] = root == i ? groupCount - 1 : groupOf[root];
+            groupStarts[groupOf[i]]++;
+        }
+        // Turn the sizes into the end of every group, then fill the groups from the back.
+        int end = 0;
+        for (int group = 0; group < groupCount; group++) {
+            end += groupStarts[group];
+            groupStarts[group] = end;
+        }
+        groupStarts[groupCount] = count;
+        for (int i = count - 1; i >= 0; i--)
+            groupBodies[--groupStarts[groupOf[i]]] = i;
+    }
+
+    /**
+     * Solve the groups on the workers and the calling thread, and wait for all of them to finish.
+     */
+    private void dispatch() {
+        nextGroup.set(0);
+        int helpers = Math.min(threadCount, groupCount) - 1;
+        if (helpers > 0 && workers == null) {
+            workers = Executors.newFixedThreadPool(threadCount - 1, runnable -> {
+                Thread thread = new Thread(runnable, "Physics Solver");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        for (int i = 0; i < helpers; i++)
+            jobs.add(workers.submit(drain));
+        RuntimeException failure = null;
+        try {
+            drain();
+        } catch (RuntimeException ex) {
+            failure = ex;
+        }
+        // Every job has to finish before the step ends, even if one failed.
+        for (int i = 0; i < jobs.size(); i++) {
+            try {
+                jobs.get(i).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                if (failure == null)
+                    failure = ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause()
+                            : new RuntimeException(ex.getCause());
+            }
+        }
+        jobs.clear();
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Solve groups until there are none left.
+     */
+    private void drain() {
+        for (int group = nextGroup.getAndIncrement(); group < groupCount; group = nextGroup.getAndIncrement()) {
+            for (int i = groupStarts[group]; i < groupStarts[group + 1]; i++)
+                update(bodies.get(groupBodies[i]));
+        }
+    }
+
+    /**
+     * Get the number of threads the groups are solved on, including the thread the step is run on.
+     *
+     * @return The number of threads.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Set the number of threads the groups are solved on, including the thread the step is run on.
+     * <p>This is 1 by default, which updates every object on the thread the step is run on.</p>
+     *
+     * @param threadCount The number of threads. (Must be at least 1).
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("At least one thread must be used.");
+        if (threadCount == this.threadCount) return;
+        shutdown();
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Get the number of groups of the last step.
+     * <p>This is 1 if the objects were not split into groups, and 0 if there were no awake objects.</p>
+     *
+     * @return The number of groups.
+     */
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Stop the worker threads. They are started again by the next step that needs them.
+     */
+    public void shutdown() {
+        if (workers == null) return;
+        workers.shutdown();
+        workers = null;
+    }
+}
@@ -1,13 +1,14 @@
 package org.kakara.engine.physics.collision;
 
 import org.kakara.engine.GameHandler;
+import org.kakara.engine.components.Component;
+import org.kakara.engine.components.Transform;
 import org.kakara.engine.gameitems.GameItem;
 import org.kakara.engine.math.Vector3;
 import org.kakara.engine.physics.OnTriggerEnter;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Predicate;
 
 /**
  * Gives an objects a cube collision box that is automatically scaled around the object.
@@ -18,6 +19,9 @@ public class ObjectBoxCollider extends ColliderComponent {
 
     private final GameHandler handler;
     private final List<OnTriggerEnter> triggerEvents;
+    private final List<ColliderComponent> candidates = new ArrayList<>();
+    private final CollisionManager.Contact contact = new CollisionManager.Contact();
+    private final ContactBuffer contacts = new ContactBuffer();
     // This actually conserves memory since it acts as a cache.
     private final Vector3 relativePointOne;
     private final Vector3 relativePointTwo;
@@ -26,7 +30,6 @@ public class ObjectBoxCollider extends ColliderComponent {
     private boolean isTrigger;
     private Vector3 lastPosition;
     private GameItem item;
-    private Predicate<ColliderComponent> predicate = gameItem -> false;
 
     public ObjectBoxCollider() {
         this.handler = GameHandler.getInstance();
@@ -74,6 +77,14 @@ public class ObjectBoxCollider extends ColliderComponent {
         return absolutePointTwo;
     }
 
+    @Override
+    public void getAbsoluteBounds(float[] dest) {
+        Transform transform = getGameItem().transform;
+        Vector3 position = transform.getPosition();
+        Vector3 scale = transform.getScale();
+        setBounds(dest, position.x, position.y, position.z, position.x + scale.x, position.y + scale.y, position.z + scale.z);
+    }
+
     @Override
     public void updateX() {
         if (isTrigger) return;
@@ -82,16 +93,19 @@ public class ObjectBoxCollider extends ColliderComponent {
         CollisionManager cm = handler.getCurrentScene().getCollisionManager();
         assert cm != null;
 
-        for (ColliderComponent gi : cm.getCollidngItems(item.transform.getPosition())) {
+        cm.getCollisionCandidates(this, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent gi = candidates.get(i);
             if (gi == this) continue;
             if (gi.isTrigger()) continue;
-            if (getPredicate().test(gi)) continue;
-            CollisionManager.Contact contact = cm.isCollidingX(gi, this);
-            while (contact.isIntersecting()) {
-                contact = cm.isCollidingX(gi, this);
-                item.transform.getPosition().addMut(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+            if (!canCollideWith(gi)) continue;
+            // Pushed out once, which places the collider against the other one.
+            if (cm.isCollidingX(gi, this, contact)) {
+                item.transform.translateBy(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+                updateBounds();
             }
         }
+        cm.resolveVoxels(this, CollisionManager.AXIS_NONE, CollisionManager.AXIS_X, CollisionManager.AXIS_NONE, contact);
     }
 
     @Override
@@ -102,16 +116,19 @@ public class ObjectBoxCollider extends ColliderComponent {
         CollisionManager cm = handler.getCurrentScene().getCollisionManager();
         assert cm != null;
 
-        for (ColliderComponent gi : cm.getCollidngItems(item.transform.getPosition())) {
+        cm.getCollisionCandidates(this, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent gi = candidates.get(i);
             if (gi == this) continue;
             if (gi.isTrigger()) continue;
-            if (getPredicate().test(gi)) continue;
-            CollisionManager.Contact contact = cm.isCollidingY(gi, this);
-            while (contact.isIntersecting()) {
-                contact = cm.isCollidingY(gi, this);
-                item.transform.getPosition().addMut(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+            if (!canCollideWith(gi)) continue;
+            // Pushed out once, which places the collider against the other one.
+            if (cm.isCollidingY(gi, this, contact)) {
+                item.transform.translateBy(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+                updateBounds();
             }
         }
+        cm.resolveVoxels(this, CollisionManager.AXIS_NONE, CollisionManager.AXIS_Y, CollisionManager.AXIS_NONE, contact);
     }
 
     @Override
@@ -122,16 +139,19 @@ public class ObjectBoxCollider extends ColliderComponent {
         CollisionManager cm = handler.getCurrentScene().getCollisionManager();
         assert cm != null;
 
-        for (ColliderComponent gi : cm.getCollidngItems(item.transform.getPosition())) {
+        cm.getCollisionCandidates(this, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent gi = candidates.get(i);
             if (gi == this) continue;
             if (gi.isTrigger()) continue;
-            if (getPredicate().test(gi)) continue;
-            CollisionManager.Contact contact = cm.isCollidingZ(gi, this);
-            while (contact.isIntersecting()) {
-                contact = cm.isCollidingZ(gi, this);
-                item.transform.getPosition().addMut(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+            if (!canCollideWith(gi)) continue;
+            // Pushed out once, which places the collider against the other one.
+            if (cm.isCollidingZ(gi, this, contact)) {
+                item.transform.translateBy(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+                updateBounds();
             }
         }
+        cm.resolveVoxels(this, CollisionManager.AXIS_NONE, CollisionManager.AXIS_Z, CollisionManager.AXIS_NONE, contact);
     }
 
     @Override
@@ -139,20 +159,6 @@ public class ObjectBoxCollider extends ColliderComponent {
         this.triggerEvents.add(enter);
     }
 
-    @Override
-    public Predicate<ColliderComponent> getPredicate() {
-        return predicate;
-    }
-
-    @Override
-    public void setPredicate(Predicate<ColliderComponent> gameItemPredicate) {
-        if (gameItemPredicate == null) {
-            predicate = gameItem -> false;
-            return;
-        }
-        predicate = gameItemPredicate;
-    }
-
     public ColliderComponent setTrigger(boolean value) {
         this.isTrigger = value;
         return this;
@@ -170,16 +176,24 @@ public class ObjectBoxCollider extends ColliderComponent {
         CollisionManager cm = handler.getCurrentScene().getCollisionManager();
         assert cm != null;
 
-        for (ColliderComponent gi : cm.getCollidngItems(item.transform.getPosition())) {
-            if (gi == this) continue;
-            if (getPredicate().test(gi)) {
+        cm.getCollisionCandidates(this, candidates);
+        cm.isColliding(this, candidates, contacts);
+        int count = cm.addVoxelContacts(this, contacts);
+        for (int i = 0; i < count; i++) {
+            ColliderComponent gi = contacts.get(i).getOther();
+            if (!canCollideWith(gi)) continue;
+            int state = cm.getContactPairs().update(this, gi, deltaTime);
+            if (state == ContactPairCache.STAY) {
+                fireStay(gi);
                 continue;
             }
-            if (cm.isColliding(gi, this).isIntersecting()) {
-                // Fire the trigger event.
-                for (OnTriggerEnter evt : triggerEvents) {
-                    evt.onTriggerEnter(gi);
-                }
+            if (state != ContactPairCache.ENTER) continue;
+            for (Component component : item.getComponents()) {
+                component.onCollision(gi);
+            }
+            // Fire the trigger event.
+            for (OnTriggerEnter evt : triggerEvents) {
+                evt.onTriggerEnter(gi);
             }
         }
     }
@@ -1,23 +1,75 @@
 package org.kakara.engine.physics.collision;
 
+import org.joml.Vector3f;
 import org.kakara.engine.Camera;
+import org.kakara.engine.GameHandler;
 import org.kakara.engine.components.Component;
+import org.kakara.engine.gameitems.ItemHandler;
 import org.kakara.engine.math.Vector3;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * The PhysicsComponent handles velocity, acceleration, and collision resolution.
+ *
+ * <p>Movement is swept against the other colliders, so fast objects cannot pass through thin ones. When the movement
+ * is blocked the object slides along the surface that was hit.</p>
+ *
+ * <p>An object that barely moves for a while, along with every object touching it, is put to sleep and is not updated
+ * until it is woken. See {@link PhysicsIslands}.</p>
  */
 public class PhysicsComponent extends Component {
+    // The number of surfaces the movement can slide along in a single update.
+    private static final int MAX_SLIDES = 3;
+    // The distance kept between the object and a surface it hits.
+    private static final float SKIN = 0.001f;
+
+    private final SweepHit hit = new SweepHit();
+    private final List<ColliderComponent> candidates = new ArrayList<>();
+    private final CollisionManager.Contact contact = new CollisionManager.Contact();
     private Vector3 velocity;
     private Vector3 acceleration;
 
     private boolean resolve;
 
+    // The sleep state, managed by PhysicsIslands.
+    volatile boolean sleeping;
+    boolean sleepingAllowed = true;
+    float stillTime;
+    int islandIndex;
+    long islandStep = -1;
+    final Vector3 stepStart = new Vector3();
+    // The islands that found the object, when they found it, and the order of its item.
+    volatile PhysicsIslands islands;
+    int registration;
+    int itemOrder;
+    // Set while the object is waiting for the islands to wake it.
+    final AtomicBoolean wakeQueued = new AtomicBoolean();
+
     @Override
     public void start() {
         this.velocity = new Vector3();
         this.acceleration = new Vector3();
         this.resolve = true;
+        markItemsModified();
+    }
+
+    @Override
+    public void onRemove() {
+        markItemsModified();
+    }
+
+    /**
+     * Let the physics know the item gained or lost this component, if the item is already in the scene.
+     */
+    private void markItemsModified() {
+        GameHandler handler = GameHandler.getInstance();
+        if (handler == null || handler.getSceneManager() == null || handler.getCurrentScene() == null) return;
+        ItemHandler itemHandler = handler.getCurrentScene().getItemHandler();
+        if (itemHandler != null && itemHandler.containsItem(getGameItem()))
+            itemHandler.markModified();
     }
 
     @Override
@@ -27,15 +79,53 @@ public class PhysicsComponent extends Component {
     @Override
     public void physicsUpdate(float deltaTime) {
         velocity.addMut(acceleration.getX() * deltaTime, acceleration.getY() * deltaTime, acceleration.getZ() * deltaTime);
-        getGameItem().transform.translateBy(velocity.getX() * deltaTime, 0, 0);
-        if (resolve)
-            getGameItem().getComponent(ColliderComponent.class).updateZ();
-        getGameItem().transform.translateBy(0, 0, velocity.getZ() * deltaTime);
-        if (resolve)
-            getGameItem().getComponent(ColliderComponent.class).updateZ();
-        getGameItem().transform.translateBy(0, velocity.getY() * deltaTime, 0);
-        if (resolve)
-            getGameItem().getComponent(ColliderComponent.class).updateY();
+        float dx = velocity.getX() * deltaTime;
+        float dy = velocity.getY() * deltaTime;
+        float dz = velocity.getZ() * deltaTime;
+
+        ColliderComponent collider = resolve ? getGameItem().getComponent(ColliderComponent.class) : null;
+        CollisionManager cm = GameHandler.getInstance().getCurrentScene().getCollisionManager();
+        if (collider == null || collider.isTrigger() || cm == null) {
+            getGameItem().transform.translateBy(dx, dy, dz);
+            return;
+        }
+
+        for (int i = 0; i < MAX_SLIDES && (dx != 0 || dy != 0 || dz != 0); i++) {
+            if (!cm.sweep(collider, dx, dy, dz, hit)) {
+                getGameItem().transform.translateBy(dx, dy, dz);
+                break;
+            }
+            float time = hit.getTime();
+            Vector3f normal = hit.getNormal();
+            getGameItem().transform.translateBy(dx * time + normal.x * SKIN, dy * time + normal.y * SKIN, dz * time + normal.z * SKIN);
+            // Slide the rest of the movement along the surface.
+            dx = normal.x != 0 ? 0 : dx * (1 - time);
+            dy = normal.y != 0 ? 0 : dy * (1 - time);
+            dz = normal.z != 0 ? 0 : dz * (1 - time);
+        }
+        resolvePenetration(collider, cm);
+    }
+
+    /**
+     * Push the object out of the colliders it is inside of, such as one that moved into it.
+     * <p>Each collider is only pushed out of once, and the object is pushed out of at most a few voxels, so this has a
+     * fixed cost.</p>
+     *
+     * @param collider The collider of the object.
+     * @param cm       The collision manager.
+     */
+    private void resolvePenetration(ColliderComponent collider, CollisionManager cm) {
+        cm.resolveVoxels(collider, CollisionManager.AXIS_X, CollisionManager.AXIS_Y, CollisionManager.AXIS_Z, contact);
+        cm.getSweepCandidates(collider, 0, 0, 0, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent other = candidates.get(i);
+            if (other == collider || other.isTrigger()) continue;
+            if (!collider.canCollideWith(other)) continue;
+            if (cm.isColliding(other, collider, contact)) {
+                getGameItem().transform.translateBy(contact.getnEnter().mul(-1).mul(contact.getPenetration()));
+                collider.updateBounds();
+            }
+        }
     }
 
     /**
@@ -45,6 +135,7 @@ public class PhysicsComponent extends Component {
      */
     public void setVelocityX(float x) {
         this.velocity.x = x;
+        wakeUp();
     }
 
     /**
@@ -54,6 +145,7 @@ public class PhysicsComponent extends Component {
      */
     public void setVelocityY(float y) {
         this.velocity.y = y;
+        wakeUp();
     }
 
     /**
@@ -63,6 +155,7 @@ public class PhysicsComponent extends Component {
      */
     public void setVelocityZ(float z) {
         this.velocity.z = z;
+        wakeUp();
     }
 
     /**
@@ -82,10 +175,13 @@ public class PhysicsComponent extends Component {
             this.velocity.z = (float) Math.cos(Math.toRadians(camera.getRotation().y - 90)) * velocity.x;
         }
         this.velocity.y = velocity.y;
+        wakeUp();
     }
 
     /**
      * Get the velocity of the item.
+     * <p>This is not a copy. Call {@link #wakeUp()} after changing it directly, or use the setters which wake the
+     * object.</p>
      *
      * @return The velocity.
      */
@@ -100,6 +196,7 @@ public class PhysicsComponent extends Component {
      */
     public void setVelocity(Vector3 velocity) {
         this.velocity.set(velocity);
+        wakeUp();
     }
 
     /**
@@ -109,10 +206,13 @@ public class PhysicsComponent extends Component {
      */
     public void applyAcceleration(Vector3 acceleration) {
         this.acceleration.add(acceleration);
+        wakeUp();
     }
 
     /**
      * Get the acceleration.
+     * <p>This is not a copy. Call {@link #wakeUp()} after changing it directly, or use the setters which wake the
+     * object.</p>
      *
      * @return The acceleration.
      */
@@ -127,6 +227,7 @@ public class PhysicsComponent extends Component {
      */
     public void setAcceleration(Vector3 acceleration) {
         this.acceleration.set(acceleration);
+        wakeUp();
     }
 
     /**
@@ -147,12 +248,72 @@ public class PhysicsComponent extends Component {
         return resolve;
     }
 
+    /**
+     * Check if the object is sleeping.
+     * <p>A sleeping object is not updated by the physics. This includes the
+     * {@link Component#physicsUpdate(float)} of every other component of the object.</p>
+     *
+     * @return If the object is sleeping.
+     * @since 1.0-Pre5
+     */
+    public boolean isSleeping() {
+        return sleeping;
+    }
+
+    /**
+     * Wake the object up.
+     * <p>Objects are woken automatically when their transform is changed, when their velocity or acceleration is set,
+     * when an awake object touches them, or when the voxels or colliders around them are removed.</p>
+     * <p>Once the object is in a scene that is being stepped, it is woken at the start of the next physics step. This
+     * can be called from any thread.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public void wakeUp() {
+        PhysicsIslands owner = islands;
+        if (owner == null) {
+            sleeping = false;
+            stillTime = 0;
+            return;
+        }
+        if (wakeQueued.compareAndSet(false, true))
+            owner.queueWake(this);
+    }
+
+    /**
+     * Check if the object can be put to sleep.
+     *
+     * @return If the object can sleep.
+     * @since 1.0-Pre5
+     */
+    public boolean isSleepingAllowed() {
+        return sleepingAllowed;
+    }
+
+    /**
+     * Set if the object can be put to sleep.
+     * <p>This is true by default. An object that cannot sleep also keeps every object touching it awake.</p>
+     *
+     * @param sleepingAllowed If the object can sleep.
+     * @since 1.0-Pre5
+     */
+    public void setSleepingAllowed(boolean sleepingAllowed) {
+        this.sleepingAllowed = sleepingAllowed;
+        if (!sleepingAllowed)
+            wakeUp();
+    }
+
+    void sleep() {
+        sleeping = true;
+    }
+
     @Override
     public String toString() {
         return "PhysicsComponent{" +
                 "velocity=" + velocity.toString() +
                 ", acceleration=" + acceleration.toString() +
                 ", resolve=" + resolve +
+                ", sleeping=" + sleeping +
                 '}';
     }
 }
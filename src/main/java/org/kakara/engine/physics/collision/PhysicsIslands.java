@@ -0,0 +1,353 @@
+package org.kakara.engine.physics.collision;
+
+import org.kakara.engine.gameitems.GameItem;
+import org.kakara.engine.gameitems.ItemHandler;
+import org.kakara.engine.math.Vector3;
+import org.kakara.engine.voxels.ChunkHandler;
+import org.kakara.engine.voxels.VoxelChunk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Puts still objects to sleep, and groups the objects that touch each other into islands.
+ *
+ * <p>An island is a group of {@link PhysicsComponent}s whose colliders touch, directly or through other objects in the
+ * island. Objects without a PhysicsComponent do not join islands. An island is put to sleep once every object in it
+ * has moved slower than {@link #SLEEP_VELOCITY} for {@link #TIME_TO_SLEEP} seconds. Sleeping objects are not updated
+ * and are not part of any island, so they cost nothing until they are woken.</p>
+ *
+ * <p>Islands are only built from the awake objects, which are kept in a list between steps. The items of the scene are
+ * only searched for objects again when the {@link ItemHandler#getModificationCount()} changes. A sleeping object that
+ * touches an awake one is woken and joins its island. Sleeping objects are also woken when their transform, velocity,
+ * or acceleration is set, or when the voxels or colliders around them are removed. Those wakes are queued by
+ * {@link PhysicsComponent#wakeUp()} and applied at the start of the next step, on the thread the step is run on.</p>
+ *
+ * <p>This is used by the {@link org.kakara.engine.physics.PhysicsStepper}.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class PhysicsIslands {
+    /**
+     * The speed an object has to stay below to fall asleep. (In units per second).
+     */
+    public static final float SLEEP_VELOCITY = 0.05f;
+    /**
+     * The time an island has to be still to fall asleep. (In seconds).
+     */
+    public static final float TIME_TO_SLEEP = 0.5f;
+    // How close two objects have to be to be in the same island.
+    private static final float CONTACT_MARGIN = 0.01f;
+
+    // Every object of the scene, in the order of the items.
+    private final List<PhysicsComponent> registered = new ArrayList<>();
+    // The awake objects. They are in the order of the items at the start of a step.
+    private final List<PhysicsComponent> bodies = new ArrayList<>();
+    private final Queue<PhysicsComponent> wakeQueue = new ConcurrentLinkedQueue<>();
+    private final List<ColliderComponent> candidates = new ArrayList<>();
+    private CollisionManager collisionManager;
+    private long step;
+    private long itemModifications = -1;
+    private int registration;
+    private boolean unordered;
+    private long voxelVersion = -1;
+    private long chunkModifications = -1;
+
+    // A union find over the bodies of the step.
+    private int[] parent = new int[64];
+    private int[] islandOf = new int[64];
+    // The bodies sorted by island, and the start of every island in that order.
+    private int[] islandBodies = new int[64];
+    private int[] islandStarts = new int[65];
+    private float[] islandStillTime = new float[64];
+    private int islandCount;
+
+    /**
+     * Wake the objects that were changed and prepare the awake objects for the step.
+     * <p>Internal use only. This is called at the start of every physics step, after the broadphase is updated.</p>
+     *
+     * @param itemHandler      The item handler of the scene.
+     * @param collisionManager The collision manager of the scene.
+     * @param chunkHandler     The chunk handler of the scene. (Null if the scene has no voxels).
+     */
+    public void beginStep(ItemHandler itemHandler, CollisionManager collisionManager, ChunkHandler chunkHandler) {
+        this.collisionManager = collisionManager;
+        step++;
+        // The objects put to sleep by the last step are only dropped now, so the islands of that step stay readable.
+        if (bodies.removeIf(body -> body.sleeping))
+            unordered = true;
+        long modifications = itemHandler.getModificationCount();
+        if (modifications != itemModifications) {
+            itemModifications = modifications;
+            findBodies(itemHandler.getItems());
+        }
+
+        if (chunkHandler != null) {
+            // A removed chunk could have held up anything, so every object is woken. The voxel version below covers
+            // the voxels that changed.
+            long chunkList = chunkHandler.getChunkListVersion();
+            if (chunkModifications != -1 && chunkList != chunkModifications) {
+                for (int i = 0; i < registered.size(); i++)
+                    wake(registered.get(i));
+            }
+            chunkModifications = chunkList;
+            long version = VoxelChunk.getVoxelVersion();
+            if (voxelVersion != -1 && version != voxelVersion && collisionManager != null)
+                wakeChangedChunks(chunkHandler, collisionManager);
+            voxelVersion = version;
+        }
+
+        for (PhysicsComponent body = wakeQueue.poll(); body != null; body = wakeQueue.poll()) {
+            body.wakeQueued.set(false);
+            // Objects that were removed from the scene since they were queued are skipped.
+            if (body.islands == this && body.registration == registration)
+                wake(body);
+        }
+
+        if (unordered) {
+            bodies.sort(Comparator.comparingInt(body -> body.itemOrder));
+            unordered = false;
+        }
+        for (int i = 0; i < bodies.size(); i++)
+            prepare(bodies.get(i), i);
+    }
+
+    /**
+     * Search the items for the objects, and rebuild the list of awake objects.
+     */
+    private void findBodies(List<GameItem> items) {
+        registration++;
+        List<PhysicsComponent> previous = new ArrayList<>(registered);
+        registered.clear();
+        bodies.clear();
+        int order = 0;
+        for (GameItem item : items) {
+            PhysicsComponent body = item.getComponent(PhysicsComponent.class);
+            if (body == null) continue;
+            body.islands = this;
+            body.registration = registration;
+            body.itemOrder = order++;
+            registered.add(body);
+            if (!body.sleeping)
+                bodies.add(body);
+        }
+        // Objects that left the scene are woken directly again.
+        for (int i = 0; i < previous.size(); i++) {
+            PhysicsComponent body = previous.get(i);
+            if (body.islands == this && body.registration != registration)
+                body.islands = null;
+        }
+        unordered = false;
+    }
+
+    /**
+     * Wake an object on the thread the step is run on.
+     */
+    private void wake(PhysicsComponent body) {
+        body.stillTime = 0;
+        if (!body.sleeping) return;
+        body.sleeping = false;
+        bodies.add(body);
+        unordered = true;
+    }
+
+    /**
+     * Queue an object to be woken at the start of the next step.
+     * <p>This is called by {@link PhysicsComponent#wakeUp()}, from any thread.</p>
+     *
+     * @param body The object.
+     */
+    void queueWake(PhysicsComponent body) {
+        wakeQueue.add(body);
+    }
+
+    private void wakeChangedChunks(ChunkHandler chunkHandler, CollisionManager collisionManager) {
+        for (VoxelChunk chunk : chunkHandler.getVoxelChunkList()) {
+            if (chunk == null || chunk.getVoxelChangeVersion() <= voxelVersion) continue;
+            Vector3 position = chunk.transform.getPosition();
+            // The chunk grown by a voxel, so the objects resting on its sides are woken too.
+            collisionManager.wakeBodies(position.x - 1, position.y - 1, position.z - 1,
+                    position.x + VoxelChunk.CHUNK_SIZE + 1, position.y + VoxelChunk.CHUNK_SIZE + 1,
+                    position.z + VoxelChunk.CHUNK_SIZE + 1);
+        }
+    }
+
+    private void prepare(PhysicsComponent body, int index) {
+        if (index == parent.length) {
+            parent = Arrays.copyOf(parent, index * 2);
+            islandOf = Arrays.copyOf(islandOf, index * 2);
+            islandBodies = Arrays.copyOf(islandBodies, index * 2);
+            islandStarts = Arrays.copyOf(islandStarts, index * 2 + 1);
+            islandStillTime = Arrays.copyOf(islandStillTime, index * 2);
+        }
+        body.islandIndex = index;
+        body.islandStep = step;
+        body.stepStart.set(body.getGameItem().transform.getPosition());
+        body.getGameItem().transform.storePreviousState();
+        parent[index] = index;
+    }
+
+    /**
+     * Measure how far the awake objects moved, build the islands, and put the still islands to sleep.
+     * <p>Internal use only. This is called at the end of every physics step.</p>
+     *
+     * @param timeStep The time step. (In seconds).
+     */
+    public void endStep(float timeStep) {
+        int movedCount = bodies.size();
+        float sleepDistance = SLEEP_VELOCITY * timeStep;
+        for (int i = 0; i < movedCount; i++) {
+            PhysicsComponent body = bodies.get(i);
+            Vector3 position = body.getGameItem().transform.getPosition();
+            float dx = position.x - body.stepStart.x;
+            float dy = position.y - body.stepStart.y;
+            float dz = position.z - body.stepStart.z;
+            if (body.sleepingAllowed && dx * dx + dy * dy + dz * dz < sleepDistance * sleepDistance)
+                body.stillTime += timeStep;
+            else
+                body.stillTime = 0;
+        }
+
+        // Bodies woken by contact are added to the end of the list, so they are linked too.
+        for (int i = 0; i < bodies.size(); i++)
+            linkTouching(i);
+        buildIslands();
+
+        for (int island = 0; island < islandCount; island++) {
+            if (islandStillTime[island] < TIME_TO_SLEEP) continue;
+            for (int i = islandStarts[island]; i < islandStarts[island + 1]; i++) {
+                PhysicsComponent body = bodies.get(islandBodies[i]);
+                body.sleep();
+                body.getGameItem().transform.clearInterpolation();
+            }
+        }
+    }
+
+    private void linkTouching(int index) {
+        PhysicsComponent body = bodies.get(index);
+        ColliderComponent collider = body.getGameItem().getComponent(ColliderComponent.class);
+        if (collider == null || collisionManager == null) return;
+        collider.updateBounds();
+        float[] a = collider.bounds;
+        candidates.clear();
+        collisionManager.getBroadphase().query(a[0] - CONTACT_MARGIN, a[1] - CONTACT_MARGIN, a[2] - CONTACT_MARGIN,
+                a[3] + CONTACT_MARGIN, a[4] + CONTACT_MARGIN, a[5] + CONTACT_MARGIN, collider.getCollisionMask(), candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            ColliderComponent otherCollider = candidates.get(i);
+            if (otherCollider == collider || !CollisionLayers.canCollide(collider.getLayer(), otherCollider.getLayer()))
+                continue;
+            GameItem otherItem = otherCollider.getGameItem();
+            if (otherItem == null) continue;
+            PhysicsComponent other = otherItem.getComponent(PhysicsComponent.class);
+            if (other == null) continue;
+            float[] b = otherCollider.bounds;
+            if (a[0] - CONTACT_MARGIN > b[3] || b[0] > a[3] + CONTACT_MARGIN || a[1] - CONTACT_MARGIN > b[4]
+                    || b[1] > a[4] + CONTACT_MARGIN || a[2] - CONTACT_MARGIN > b[5] || b[2] > a[5] + CONTACT_MARGIN)
+                continue;
+            if (other.islandStep != step) {
+                // Only sleeping objects are missing from the step. This runs on the thread the step is run on, so the
+                // object is woken directly.
+                if (!other.sleeping || other.islands != this) continue;
+                wake(other);
+                prepare(other, bodies.size() - 1);
+            }
+            union(index, other.islandIndex);
+        }
+        candidates.clear();
+    }
+
+    private int find(int index) {
+        while (parent[index] != index) {
+            parent[index] = parent[parent[index]];
+            index = parent[index];
+        }
+        return index;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        // The lower index becomes the root, so the islands do not depend on the order of the links.
+        if (rootA < rootB)
+            parent[rootB] = rootA;
+        else if (rootB < rootA)
+            parent[rootA] = rootB;
+    }
+
+    /**
+     * Sort the bodies by island, keeping the order of the items within each island.
+     */
+    private void buildIslands() {
+        int count = bodies.size();
+        islandCount = 0;
+        // Number the islands in the order of their first body. The root of an island is always its first body.
+        for (int i = 0; i < count; i++) {
+            int root = find(i);
+            if (root == i) {
+                islandStarts[islandCount] = 0;
+                islandStillTime[islandCount] = Float.MAX_VALUE;
+                islandCount++;
+            }
+            islandOf[i] = root == i ? islandCount - 1 : islandOf[root];
+        }
+        for (int i = 0; i < count; i++) {
+            int island = islandOf[i];
+            islandStarts[island]++;
+            islandStillTime[island] = Math.min(islandStillTime[island], bodies.get(i).stillTime);
+        }
+        // Turn the sizes into the end of every island, then fill the islands from the back.
+        int end = 0;
+        for (int island = 0; island < islandCount; island++) {
+            end += islandStarts[island];
+            islandStarts[island] = end;
+        }
+        islandStarts[islandCount] = count;
+        for (int i = count - 1; i >= 0; i--)
+            islandBodies[--islandStarts[islandOf[i]]] = i;
+    }
+
+    /**
+     * Get the number of islands of the last step.
+     *
+     * @return The number of islands.
+     */
+    public int getIslandCount() {
+        return islandCount;
+    }
+
+    /**
+     * Get the number of objects in an island of the last step.
+     *
+     * @param island The island. (0 to {@link #getIslandCount()} - 1).
+     * @return The number of objects.
+     */
+    public int getIslandSize(int island) {
+        return islandStarts[island + 1] - islandStarts[island];
+    }
+
+    /**
+     * Get an object in an island of the last step.
+     * <p>Objects are in the same order as the items of the scene.</p>
+     *
+     * @param island The island.
+     * @param index  The index of the object in the island.
+     * @return The object.
+     */
+    public PhysicsComponent getIslandBody(int island, int index) {
+        return bodies.get(islandBodies[islandStarts[island] + index]);
+    }
+
+    /**
+     * Get the number of objects that were awake in the last step.
+     * <p>This includes the objects the last step put to sleep.</p>
+     *
+     * @return The number of awake objects.
+     */
+    public int getAwakeCount() {
+        return bodies.size();
+    }
+}
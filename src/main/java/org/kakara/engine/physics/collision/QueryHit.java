@@ -0,0 +1,105 @@
+package org.kakara.engine.physics.collision;
+
+import org.joml.Vector3f;
+import org.kakara.engine.voxels.Voxel;
+
+/**
+ * A hit of a scene query, such as {@link CollisionManager#raycast(org.kakara.engine.math.Vector3,
+ * org.kakara.engine.math.Vector3, float, int, QueryHit)}.
+ *
+ * <p>A query hit can be reused for every query. It also holds the lists the query collects its candidates in, so
+ * queries do not allocate anything once the lists have grown to fit.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class QueryHit {
+    // Used by the query to collect and test the candidates.
+    final SweepHit sweep = new SweepHit();
+    // The bounds of the box of a box query.
+    final float[] box = new float[6];
+    private final Vector3f point = new Vector3f();
+    private final Vector3f normal = new Vector3f();
+    private boolean hit;
+    private float distance;
+    private ColliderComponent collider;
+    private Voxel voxel;
+
+    void reset() {
+        hit = false;
+        distance = 0;
+        point.zero();
+        normal.zero();
+        collider = null;
+        voxel = null;
+    }
+
+    void set(float distance, float x, float y, float z, int axis, float sign, ColliderComponent collider, Voxel voxel) {
+        this.hit = true;
+        this.distance = distance;
+        this.point.set(x, y, z);
+        this.normal.zero();
+        if (axis >= 0)
+            this.normal.setComponent(axis, sign);
+        this.collider = collider;
+        this.voxel = voxel;
+    }
+
+    /**
+     * If the query hit something.
+     *
+     * @return If the query hit something.
+     */
+    public boolean isHit() {
+        return hit;
+    }
+
+    /**
+     * The distance along the query to the hit.
+     * <p>This is 0 for an overlap query.</p>
+     *
+     * @return The distance.
+     */
+    public float getDistance() {
+        return distance;
+    }
+
+    /**
+     * The point of the hit.
+     * <p>For a ray this is where the ray enters the collider. For a box cast it is the middle of the face where the box
+     * touches the collider, and for an overlap the middle of the overlap.</p>
+     *
+     * @return The point. (Zero if nothing was hit).
+     */
+    public Vector3f getPoint() {
+        return point;
+    }
+
+    /**
+     * The normal of the face that was hit.
+     * <p>This points away from the collider that was hit, along a single axis. It is zero for an overlap query.</p>
+     *
+     * @return The normal.
+     */
+    public Vector3f getNormal() {
+        return normal;
+    }
+
+    /**
+     * The collider that was hit.
+     * <p>For a voxel this is the collider of the voxel.</p>
+     *
+     * @return The collider. (Null if nothing was hit).
+     */
+    public ColliderComponent getCollider() {
+        return collider;
+    }
+
+    /**
+     * The voxel that was hit.
+     *
+     * @return The voxel. (Null if nothing was hit, or if a collider that is not a voxel was hit).
+     */
+    public Voxel getVoxel() {
+        return voxel;
+    }
+}
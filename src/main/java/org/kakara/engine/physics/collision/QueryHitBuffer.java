@@ -0,0 +1,96 @@
+package org.kakara.engine.physics.collision;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of the hits of a scene query, such as
+ * {@link CollisionManager#raycastAll(org.kakara.engine.math.Vector3, org.kakara.engine.math.Vector3, float, int,
+ * QueryHitBuffer)}.
+ *
+ * <p>The hits are pooled, so filling the buffer again does not allocate anything. The hits are owned by the buffer;
+ * they are overwritten the next time it is filled and should not be kept.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class QueryHitBuffer {
+    // Used by the query to collect and test the candidates.
+    final SweepHit sweep = new SweepHit();
+    // The bounds of the box of a box query.
+    final float[] box = new float[6];
+    private QueryHit[] hits = new QueryHit[8];
+    private int size;
+
+    /**
+     * Get the next unused hit, growing the pool if needed.
+     * <p>The hit is only added to the buffer once {@link #push()} is called.</p>
+     *
+     * @return The hit.
+     */
+    QueryHit next() {
+        if (size == hits.length)
+            hits = Arrays.copyOf(hits, size * 2);
+        if (hits[size] == null)
+            hits[size] = new QueryHit();
+        return hits[size];
+    }
+
+    /**
+     * Add the hit from {@link #next()} to the buffer.
+     */
+    void push() {
+        size++;
+    }
+
+    /**
+     * Sort the hits by their distance. Hits at the same distance keep their order.
+     */
+    void sortByDistance() {
+        for (int i = 1; i < size; i++) {
+            QueryHit hit = hits[i];
+            int j = i - 1;
+            while (j >= 0 && hits[j].getDistance() > hit.getDistance()) {
+                hits[j + 1] = hits[j];
+                j--;
+            }
+            hits[j + 1] = hit;
+        }
+    }
+
+    /**
+     * Get a hit.
+     *
+     * @param index The index of the hit.
+     * @return The hit.
+     * @throws IndexOutOfBoundsException If the index is not less than {@link #size()}.
+     */
+    public QueryHit get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return hits[index];
+    }
+
+    /**
+     * Get the number of hits in the buffer.
+     *
+     * @return The number of hits.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the buffer has no hits.
+     *
+     * @return If the buffer is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove every hit from the buffer. The hits are kept to be reused.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,719 @@
+package org.kakara.engine.physics.collision;
+
+import org.kakara.engine.gameitems.GameItem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A broadphase that stores colliders in a uniform grid of cells.
+ *
+ * <p>Every collider is stored in each cell its bounds overlap. The cells are kept in a hash table keyed by the
+ * coordinates of the cell, so the world does not have a fixed size. Colliders are updated incrementally: a collider is
+ * only moved between cells when the range of cells it overlaps changes.</p>
+ *
+ * <p>Colliders that overlap more than {@link #MAX_COLLIDER_CELLS} cells are not stored in the grid. They are returned
+ * by every query instead.</p>
+ *
+ * <p>The results of queries are added to lists provided by the caller, so they can be reused between queries.
+ * Get the instance of this class through {@link CollisionManager#getBroadphase()}.</p>
+ *
+ * <p>Changes and queries are normally done under a lock. While the {@link IslandSolver} solves groups on several
+ * threads the broadphase is frozen instead: the cells do not change, so queries read them without the lock. Colliders
+ * that are updated while frozen are only marked, and added and removed colliders are queued. All of them are applied
+ * when the broadphase is thawed. Before freezing, the solver places every awake collider in the cells of the space it
+ * can reach in the step, so the colliders that move while frozen are still found.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class SpatialHashBroadphase {
+    /**
+     * The default size of a cell.
+     */
+    public static final float DEFAULT_CELL_SIZE = 4;
+    /**
+     * The largest number of cells a collider can be stored in.
+     */
+    public static final int MAX_COLLIDER_CELLS = 64;
+
+    // Cell coordinates are packed into 21 bits each.
+    private static final int COORDINATE_BITS = 21;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+
+    private final float cellSize;
+    private final List<Proxy> proxies = new ArrayList<>();
+    private final List<Proxy> oversized = new ArrayList<>();
+    private final Deque<Cell> cellPool = new ArrayDeque<>();
+
+    // An open addressing hash table of the cells, using linear probing.
+    private long[] keys = new long[256];
+    private Cell[] cells = new Cell[256];
+    private int cellCount;
+    private int queryMark;
+    private long nextOrder;
+    // Set while the IslandSolver solves on several threads. The changes made while frozen are queued.
+    private volatile boolean frozen;
+    private final List<Proxy> pendingAdds = new ArrayList<>();
+    private final List<ColliderComponent> pendingRemoves = new ArrayList<>();
+
+    /**
+     * Create a broadphase.
+     *
+     * @param cellSize The size of a cell. (This should be a little larger than most of the colliders).
+     */
+    public SpatialHashBroadphase(float cellSize) {
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("The cell size must be positive.");
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Add a collider to the broadphase.
+     * <p>The collider is placed in the grid the next time it is updated.</p>
+     *
+     * @param collider The collider.
+     */
+    public synchronized void add(ColliderComponent collider) {
+        if (collider.broadphaseProxy != null) {
+            // Added back before a queued removal was applied.
+            if (frozen)
+                pendingRemoves.remove(collider);
+            return;
+        }
+        Proxy proxy = new Proxy(collider, nextOrder++);
+        collider.broadphaseProxy = proxy;
+        if (frozen)
+            pendingAdds.add(proxy);
+        else
+            proxies.add(proxy);
+    }
+
+    /**
+     * Remove a collider from the broadphase.
+     *
+     * @param collider The collider.
+     */
+    public synchronized void remove(ColliderComponent collider) {
+        Proxy proxy = collider.broadphaseProxy;
+        if (proxy == null) return;
+        if (frozen) {
+            pendingRemoves.add(collider);
+            return;
+        }
+        unplace(proxy);
+        proxies.remove(proxy);
+        collider.broadphaseProxy = null;
+    }
+
+    /**
+     * Update the bounds of a collider and move it to the cells of its current bounds.
+     * <p>Nothing is done if the collider was not added to the broadphase.</p>
+     *
+     * @param collider The collider.
+     */
+    public void update(ColliderComponent collider) {
+        Proxy proxy = collider.broadphaseProxy;
+        if (proxy == null) return;
+        if (frozen) {
+            // Only the thread solving the group of the collider touches it.
+            markMoved(proxy);
+            return;
+        }
+        synchronized (this) {
+            if (frozen)
+                markMoved(proxy);
+            else
+                update(proxy);
+        }
+    }
+
+    private void markMoved(Proxy proxy) {
+        GameItem item = proxy.collider.getGameItem();
+        if (item == null || item.transform == null) return;
+        // The bounds are still updated, as the caller expects.
+        proxy.collider.updateBounds();
+        proxy.moved = true;
+    }
+
+    /**
+     * Update every collider in the broadphase.
+     * <p>This catches colliders that were moved outside of the physics update, such as by a teleport.</p>
+     */
+    public synchronized void updateAll() {
+        for (int i = 0; i < proxies.size(); i++) {
+            // The colliders are placed once the broadphase is thawed.
+            if (frozen)
+                proxies.get(i).moved = true;
+            else
+                update(proxies.get(i));
+        }
+    }
+
+    /**
+     * Place a collider in the cells of the space it can reach in the next solve.
+     * <p>Internal use only. This is called by the {@link IslandSolver} before it freezes the broadphase, so the
+     * collider is found by the queries made while it moves. The collider is moved back to the cells of its bounds when
+     * the broadphase is thawed.</p>
+     *
+     * @param collider The collider.
+     * @param minX     The min x of the space.
+     * @param minY     The min y of the space.
+     * @param minZ     The min z of the space.
+     * @param maxX     The max x of the space.
+     * @param maxY     The max y of the space.
+     * @param maxZ     The max z of the space.
+     */
+    synchronized void reserve(ColliderComponent collider, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        Proxy proxy = collider.broadphaseProxy;
+        if (proxy == null || frozen) return;
+        place(proxy, cell(minX), cell(minY), cell(minZ), cell(maxX), cell(maxY), cell(maxZ));
+        proxy.moved = true;
+    }
+
+    /**
+     * Stop changing the cells, so they can be read by several threads without the lock.
+     * <p>Internal use only. This is called by the {@link IslandSolver} before it solves on several threads.</p>
+     */
+    synchronized void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Apply the changes made while the broadphase was frozen.
+     * <p>Internal use only. This is called by the {@link IslandSolver} once every group is solved.</p>
+     */
+    synchronized void thaw() {
+        frozen = false;
+        for (int i = 0; i < proxies.size(); i++) {
+            Proxy proxy = proxies.get(i);
+            if (!proxy.moved) continue;
+            proxy.moved = false;
+            update(proxy);
+        }
+        proxies.addAll(pendingAdds);
+        pendingAdds.clear();
+        for (int i = 0; i < pendingRemoves.size(); i++)
+            remove(pendingRemoves.get(i));
+        pendingRemoves.clear();
+    }
+
+    private void update(Proxy proxy) {
+        GameItem item = proxy.collider.getGameItem();
+        // The collider is not on an item yet. It will be placed on the first update after it is.
+        if (item == null || item.transform == null) return;
+        proxy.collider.updateBounds();
+        float[] bounds = proxy.collider.bounds;
+        place(proxy, cell(bounds[0]), cell(bounds[1]), cell(bounds[2]), cell(bounds[3]), cell(bounds[4]), cell(bounds[5]));
+    }
+
+    private void place(Proxy proxy, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (proxy.placed && minX == proxy.minX && minY == proxy.minY && minZ == proxy.minZ
+                && maxX == proxy.maxX && maxY == proxy.maxY && maxZ == proxy.maxZ)
+            return;
+        unplace(proxy);
+        proxy.minX = minX;
+        proxy.minY = minY;
+        proxy.minZ = minZ;
+        proxy.maxX = maxX;
+        proxy.maxY = maxY;
+        proxy.maxZ = maxZ;
+        proxy.placed = true;
+        long count = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if (count > MAX_COLLIDER_CELLS) {
+            proxy.oversized = true;
+            oversized.add(proxy);
+            return;
+        }
+        for (int x = minX; x <= maxX; x++)
+            for (int y = minY; y <= maxY; y++)
+                for (int z = minZ; z <= maxZ; z++)
+                    getOrCreateCell(key(x, y, z)).add(proxy);
+    }
+
+    private void unplace(Proxy proxy) {
+        if (!proxy.placed) return;
+        proxy.placed = false;
+        if (proxy.oversized) {
+            proxy.oversized = false;
+            oversized.remove(proxy);
+            return;
+        }
+        for (int x = proxy.minX; x <= proxy.maxX; x++)
+            for (int y = proxy.minY; y <= proxy.maxY; y++)
+                for (int z = proxy.minZ; z <= proxy.maxZ; z++) {
+                    int slot = find(key(x, y, z));
+                    if (slot < 0) continue;
+                    Cell cell = cells[slot];
+                    cell.remove(proxy);
+                    if (cell.size == 0)
+                        removeSlot(slot);
+                }
+    }
+
+    /**
+     * Find the colliders that could overlap a box.
+     * <p>Every collider that shares a cell with the box is added to the list once, in the order the colliders were
+     * added to the broadphase. The colliders are not tested against the box itself; that is left to the
+     * narrowphase.</p>
+     *
+     * @param minX The min x of the box.
+     * @param minY The min y of the box.
+     * @param minZ The min z of the box.
+     * @param maxX The max x of the box.
+     * @param maxY The max y of the box.
+     * @param maxZ The max z of the box.
+     * @param dest The list to add the colliders to. (It is not cleared).
+     */
+    public void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<ColliderComponent> dest) {
+        query(minX, minY, minZ, maxX, maxY, maxZ, CollisionLayers.ALL, dest);
+    }
+
+    /**
+     * Find the colliders on the given layers that could overlap a box.
+     * <p>This is the same as {@link #query(float, float, float, float, float, float, List)}, but colliders on layers
+     * that are not in the mask are left out before anything else is checked.</p>
+     *
+     * @param minX      The min x of the box.
+     * @param minY      The min y of the box.
+     * @param minZ      The min z of the box.
+     * @param maxX      The max x of the box.
+     * @param maxY      The max y of the box.
+     * @param maxZ      The max z of the box.
+     * @param layerMask The mask of the layers to find colliders on. (See {@link CollisionLayers}).
+     * @param dest      The list to add the colliders to. (It is not cleared).
+     * @since 1.0-Pre5
+     */
+    public void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int layerMask, List<ColliderComponent> dest) {
+        if (frozen) {
+            queryCells(minX, minY, minZ, maxX, maxY, maxZ, layerMask, dest, 0);
+            return;
+        }
+        synchronized (this) {
+            // The marks are only used under the lock.
+            queryCells(minX, minY, minZ, maxX, maxY, maxZ, layerMask, dest, ++queryMark);
+        }
+    }
+
+    /**
+     * Find the colliders on the given layers that could overlap a box.
+     *
+     * @param mark The mark of the query, or 0 to leave the marks alone and remove the duplicates after sorting.
+     */
+    private void queryCells(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int layerMask,
+                            List<ColliderComponent> dest, int mark) {
+        int cMinX = cell(minX), cMinY = cell(minY), cMinZ = cell(minZ);
+        int cMaxX = cell(maxX), cMaxY = cell(maxY), cMaxZ = cell(maxZ);
+        int start = dest.size();
+        long count = (long) (cMaxX - cMinX + 1) * (cMaxY - cMinY + 1) * (cMaxZ - cMinZ + 1);
+        if (count > cellCount) {
+            // Looking up every cell of a large box would be slower than checking every collider.
+            for (int i = 0; i < proxies.size(); i++) {
+                Proxy proxy = proxies.get(i);
+                if ((proxy.collider.layerBit & layerMask) == 0) continue;
+                if (proxy.placed && !proxy.oversized && proxy.minX <= cMaxX && proxy.maxX >= cMinX
+                        && proxy.minY <= cMaxY && proxy.maxY >= cMinY && proxy.minZ <= cMaxZ && proxy.maxZ >= cMinZ)
+                    dest.add(proxy.collider);
+            }
+        } else {
+            for (int x = cMinX; x <= cMaxX; x++)
+                for (int y = cMinY; y <= cMaxY; y++)
+                    for (int z = cMinZ; z <= cMaxZ; z++) {
+                        int slot = find(key(x, y, z));
+                        if (slot < 0) continue;
+                        Cell cell = cells[slot];
+                        for (int i = 0; i < cell.size; i++) {
+                            Proxy proxy = cell.proxies[i];
+                            if (mark != 0) {
+                                if (proxy.mark == mark) continue;
+                                proxy.mark = mark;
+                            }
+                            if ((proxy.collider.layerBit & layerMask) != 0)
+                                dest.add(proxy.collider);
+                        }
+                    }
+        }
+        for (int i = 0; i < oversized.size(); i++) {
+            ColliderComponent collider = oversized.get(i).collider;
+            if ((collider.layerBit & layerMask) != 0)
+                dest.add(collider);
+        }
+        sortByOrder(dest, start);
+        if (mark == 0)
+            removeDuplicates(dest, start);
+    }
+
+    /**
+     * Remove the colliders that were found more than once. They are next to each other once sorted.
+     */
+    private static void removeDuplicates(List<ColliderComponent> dest, int start) {
+        int kept = start;
+        for (int i = start; i < dest.size(); i++) {
+            if (kept > start && dest.get(kept - 1) == dest.get(i)) continue;
+            dest.set(kept++, dest.get(i));
+        }
+        dest.subList(kept, dest.size()).clear();
+    }
+
+    /**
+     * Sort the colliders found by a query by the order they were added, so the result does not depend on how the
+     * cells were filled. Queries find few colliders, so an insertion sort is used.
+     */
+    private static void sortByOrder(List<ColliderComponent> dest, int start) {
+        for (int i = start + 1; i < dest.size(); i++) {
+            ColliderComponent collider = dest.get(i);
+            long order = collider.broadphaseProxy.order;
+            int j = i - 1;
+            while (j >= start && dest.get(j).broadphaseProxy.order > order) {
+                dest.set(j + 1, dest.get(j));
+                j--;
+            }
+            dest.set(j + 1, collider);
+        }
+    }
+
+    /**
+     * Find the colliders that could be hit by a ray.
+     * <p>The cells the ray passes through are walked in order, and every collider in them on the given layers is added
+     * to the list once, in the order the ray reaches its first cell. If the ray passes through more cells than there
+     * are, every collider is checked instead, and they are added in the order they were added to the broadphase.</p>
+     *
+     * @param originX     The x of the start of the ray.
+     * @param originY     The y of the start of the ray.
+     * @param originZ     The z of the start of the ray.
+     * @param dirX        The x of the direction of the ray. (The direction must be normalized).
+     * @param dirY        The y of the direction of the ray.
+     * @param dirZ        The z of the direction of the ray.
+     * @param maxDistance The length of the ray.
+     * @param layerMask   The mask of the layers to find colliders on. (See {@link CollisionLayers}).
+     * @param dest        The list to add the colliders to. (It is not cleared).
+     * @since 1.0-Pre5
+     */
+    public void queryRay(float originX, float originY, float originZ, float dirX, float dirY, float dirZ,
+                         float maxDistance, int layerMask, List<ColliderComponent> dest) {
+        if (frozen) {
+            walkRay(originX, originY, originZ, dirX, dirY, dirZ, maxDistance, layerMask, dest, 0);
+            return;
+        }
+        synchronized (this) {
+            walkRay(originX, originY, originZ, dirX, dirY, dirZ, maxDistance, layerMask, dest, ++queryMark);
+        }
+    }
+
+    /**
+     * Find the colliders that could be hit by a ray.
+     *
+     * @param mark The mark of the query, or 0 to leave the marks alone and look for duplicates in the list instead.
+     */
+    private void walkRay(float originX, float originY, float originZ, float dirX, float dirY, float dirZ,
+                         float maxDistance, int layerMask, List<ColliderComponent> dest, int mark) {
+        float cellsCrossed = (Math.abs(dirX) + Math.abs(dirY) + Math.abs(dirZ)) * maxDistance / cellSize + 1;
+        if (!(cellsCrossed <= cellCount)) {
+            // Walking the cells of a long ray would be slower than checking every collider.
+            float endX = originX + dirX * maxDistance, endY = originY + dirY * maxDistance, endZ = originZ + dirZ * maxDistance;
+            if (Float.isInfinite(endX) || Float.isInfinite(endY) || Float.isInfinite(endZ)) {
+                for (int i = 0; i < proxies.size(); i++) {
+                    Proxy proxy = proxies.get(i);
+                    if (proxy.placed && (proxy.collider.layerBit & layerMask) != 0)
+                        dest.add(proxy.collider);
+                }
+                return;
+            }
+            queryCells(Math.min(originX, endX), Math.min(originY, endY), Math.min(originZ, endZ),
+                    Math.max(originX, endX), Math.max(originY, endY), Math.max(originZ, endZ), layerMask, dest, mark);
+            return;
+        }
+        int start = dest.size();
+        int x = cell(originX), y = cell(originY), z = cell(originZ);
+        int stepX = dirX > 0 ? 1 : dirX < 0 ? -1 : 0;
+        int stepY = dirY > 0 ? 1 : dirY < 0 ? -1 : 0;
+        int stepZ = dirZ > 0 ? 1 : dirZ < 0 ? -1 : 0;
+        // The distance along the ray to cross a cell, and to reach the next cell, on each axis.
+        float deltaX = stepX == 0 ? Float.POSITIVE_INFINITY : cellSize / Math.abs(dirX);
+        float deltaY = stepY == 0 ? Float.POSITIVE_INFINITY : cellSize / Math.abs(dirY);
+        float deltaZ = stepZ == 0 ? Float.POSITIVE_INFINITY : cellSize / Math.abs(dirZ);
+        float nextX = stepX == 0 ? Float.POSITIVE_INFINITY : (stepX > 0 ? (x + 1) * cellSize - originX : originX - x * cellSize) / Math.abs(dirX);
+        float nextY = stepY == 0 ? Float.POSITIVE_INFINITY : (stepY > 0 ? (y + 1) * cellSize - originY : originY - y * cellSize) / Math.abs(dirY);
+        float nextZ = stepZ == 0 ? Float.POSITIVE_INFINITY : (stepZ > 0 ? (z + 1) * cellSize - originZ : originZ - z * cellSize) / Math.abs(dirZ);
+        while (true) {
+            int slot = find(key(x, y, z));
+            if (slot >= 0) {
+                Cell cell = cells[slot];
+                for (int i = 0; i < cell.size; i++) {
+                    Proxy proxy = cell.proxies[i];
+                    if (mark != 0) {
+                        if (proxy.mark == mark) continue;
+                        proxy.mark = mark;
+                    } else if (dest.subList(start, dest.size()).contains(proxy.collider)) {
+                        continue;
+                    }
+                    if ((proxy.collider.layerBit & layerMask) != 0)
+                        dest.add(proxy.collider);
+                }
+            }
+            float distance;
+            if (nextX < nextY && nextX < nextZ) {
+                distance = nextX;
+                x += stepX;
+                nextX += deltaX;
+            } else if (nextY < nextZ) {
+                distance = nextY;
+                y += stepY;
+                nextY += deltaY;
+            } else {
+                distance = nextZ;
+                z += stepZ;
+                nextZ += deltaZ;
+            }
+            if (distance > maxDistance) break;
+        }
+        for (int i = 0; i < oversized.size(); i++) {
+            ColliderComponent collider = oversized.get(i).collider;
+            if ((collider.layerBit & layerMask) != 0)
+                dest.add(collider);
+        }
+    }
+
+    /**
+     * Find the colliders that could overlap a collider.
+     * <p>This uses the cached bounds of the collider. (See {@link ColliderComponent#updateBounds()}). The collider
+     * itself is included in the list if it is in the broadphase.</p>
+     *
+     * @param collider The collider.
+     * @param dest     The list to add the colliders to. (It is not cleared).
+     * @see #query(float, float, float, float, float, float, List)
+     */
+    public void query(ColliderComponent collider, List<ColliderComponent> dest) {
+        float[] bounds = collider.bounds;
+        query(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5], dest);
+    }
+
+    /**
+     * Find every pair of colliders that share a cell.
+     * <p>Pairs of colliders on layers that do not collide are left out. The pairs are added to the list one after the other, so the colliders at index <code>2n</code> and
+     * <code>2n + 1</code> form a pair. Each pair is only added once.</p>
+     *
+     * @param dest The list to add the pairs to. (It is not cleared).
+     * @return The number of pairs that were added.
+     */
+    public synchronized int findPairs(List<ColliderComponent> dest) {
+        int pairs = 0;
+        for (int slot = 0; slot < cells.length; slot++) {
+            Cell cell = cells[slot];
+            if (cell == null) continue;
+            long key = keys[slot];
+            int x = unpack(key >>> (COORDINATE_BITS * 2));
+            int y = unpack(key >>> COORDINATE_BITS);
+            int z = unpack(key);
+            for (int i = 0; i < cell.size; i++) {
+                Proxy a = cell.proxies[i];
+                for (int j = i + 1; j < cell.size; j++) {
+                    Proxy b = cell.proxies[j];
+                    // A pair is only reported by the first cell the two colliders share.
+                    if (x != Math.max(a.minX, b.minX) || y != Math.max(a.minY, b.minY) || z != Math.max(a.minZ, b.minZ))
+                        continue;
+                    if (!CollisionLayers.canCollide(a.collider.getLayer(), b.collider.getLayer())) continue;
+                    dest.add(a.collider);
+                    dest.add(b.collider);
+                    pairs++;
+                }
+            }
+        }
+        for (int i = 0; i < oversized.size(); i++) {
+            Proxy a = oversized.get(i);
+            for (int j = 0; j < proxies.size(); j++) {
+                Proxy b = proxies.get(j);
+                if (b == a || !b.placed || (b.oversized && oversized.indexOf(b) < i)) continue;
+                if (!CollisionLayers.canCollide(a.collider.getLayer(), b.collider.getLayer())) continue;
+                dest.add(a.collider);
+                dest.add(b.collider);
+                pairs++;
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Get the size of a cell.
+     *
+     * @return The size of a cell.
+     */
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Get the number of colliders in the broadphase.
+     *
+     * @return The number of colliders.
+     */
+    public synchronized int getColliderCount() {
+        return proxies.size();
+    }
+
+    /**
+     * Get the number of cells that contain a collider.
+     *
+     * @return The number of cells.
+     */
+    public synchronized int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Remove every collider from the broadphase.
+     */
+    public synchronized void clear() {
+        if (frozen) {
+            for (Proxy proxy : proxies)
+                pendingRemoves.add(proxy.collider);
+            for (Proxy proxy : pendingAdds)
+                pendingRemoves.add(proxy.collider);
+            return;
+        }
+        for (Proxy proxy : proxies)
+            proxy.collider.broadphaseProxy = null;
+        proxies.clear();
+        oversized.clear();
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] != null)
+                recycle(cells[i]);
+        }
+        Arrays.fill(cells, null);
+        cellCount = 0;
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int x, int y, int z) {
+        return ((x & COORDINATE_MASK) << (COORDINATE_BITS * 2)) | ((y & COORDINATE_MASK) << COORDINATE_BITS) | (z & COORDINATE_MASK);
+    }
+
+    private static int unpack(long bits) {
+        // Sign extend the 21 bit coordinate.
+        return (int) ((bits & COORDINATE_MASK) << (64 - COORDINATE_BITS) >> (64 - COORDINATE_BITS));
+    }
+
+    private int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & (cells.length - 1);
+    }
+
+    private int find(long key) {
+        int mask = cells.length - 1;
+        for (int slot = slot(key); cells[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return slot;
+        }
+        return -1;
+    }
+
+    private Cell getOrCreateCell(long key) {
+        int mask = cells.length - 1;
+        int slot = slot(key);
+        for (; cells[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return cells[slot];
+        }
+        Cell cell = cellPool.isEmpty() ? new Cell() : cellPool.pop();
+        keys[slot] = key;
+        cells[slot] = cell;
+        if (++cellCount * 2 > cells.length)
+            grow();
+        return cell;
+    }
+
+    /**
+     * Remove a slot from the table, moving back the cells after it so every cell can still be found.
+     *
+     * @param slot The slot.
+     */
+    private void removeSlot(int slot) {
+        recycle(cells[slot]);
+        cells[slot] = null;
+        cellCount--;
+        int mask = cells.length - 1;
+        int empty = slot;
+        for (int next = (slot + 1) & mask; cells[next] != null; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            // Move the cell back if the empty slot is between its home slot and its current slot.
+            if (((next - home) & mask) >= ((next - empty) & mask)) {
+                keys[empty] = keys[next];
+                cells[empty] = cells[next];
+                cells[next] = null;
+                empty = next;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Cell[] oldCells = cells;
+        keys = new long[oldKeys.length * 2];
+        cells = new Cell[oldCells.length * 2];
+        int mask = cells.length - 1;
+        for (int i = 0; i < oldCells.length; i++) {
+            if (oldCells[i] == null) continue;
+            int slot = slot(oldKeys[i]);
+            while (cells[slot] != null)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            cells[slot] = oldCells[i];
+        }
+    }
+
+    private void recycle(Cell cell) {
+        Arrays.fill(cell.proxies, 0, cell.size, null);
+        cell.size = 0;
+        cellPool.push(cell);
+    }
+
+    /**
+     * The broadphase data of a collider.
+     */
+    static final class Proxy {
+        final ColliderComponent collider;
+        // The range of cells the collider is in.
+        int minX, minY, minZ, maxX, maxY, maxZ;
+        boolean placed;
+        boolean oversized;
+        // Set when the collider has to be moved to the cells of its bounds once the broadphase is thawed.
+        boolean moved;
+        // The last query that returned this collider.
+        int mark;
+        // Used to sort the results of a query.
+        final long order;
+
+        Proxy(ColliderComponent collider, long order) {
+            this.collider = collider;
+            this.order = order;
+        }
+    }
+
+    /**
+     * The colliders in a cell.
+     */
+    private static final class Cell {
+        Proxy[] proxies = new Proxy[4];
+        int size;
+
+        void add(Proxy proxy) {
+            if (size == proxies.length)
+                proxies = Arrays.copyOf(proxies, size * 2);
+            proxies[size++] = proxy;
+        }
+
+        void remove(Proxy proxy) {
+            for (int i = 0; i < size; i++) {
+                if (proxies[i] != proxy) continue;
+                proxies[i] = proxies[--size];
+                proxies[size] = null;
+                return;
+            }
+        }
+    }
+}
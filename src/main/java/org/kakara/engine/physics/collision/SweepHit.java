@@ -0,0 +1,108 @@
+package org.kakara.engine.physics.collision;
+
+import org.joml.Vector3f;
+import org.kakara.engine.voxels.Voxel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a sweep, see {@link CollisionManager#sweep(ColliderComponent, float, float, float, SweepHit)}.
+ *
+ * <p>A sweep hit can be reused for every sweep. It also holds the list the candidates of the sweep are collected in,
+ * so sweeping does not allocate anything once the list has grown to fit.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class SweepHit {
+    final List<ColliderComponent> candidates = new ArrayList<>();
+    // The bounds of the voxel being tested.
+    final float[] cell = new float[6];
+    // The bounds of what was hit, at the time it was hit.
+    final float[] otherBounds = new float[6];
+    private final Vector3f normal = new Vector3f();
+    private boolean hit;
+    private float time = 1;
+    private int axis;
+    private ColliderComponent other;
+    private Voxel voxel;
+    // The hit found by the last test, kept until it is accepted.
+    private float candidateTime;
+    private int candidateAxis;
+    private float candidateSign;
+
+    void reset() {
+        hit = false;
+        time = 1;
+        normal.zero();
+        other = null;
+        voxel = null;
+    }
+
+    void setCandidate(float time, int axis, float sign) {
+        this.candidateTime = time;
+        this.candidateAxis = axis;
+        this.candidateSign = sign;
+    }
+
+    void set(ColliderComponent other, Voxel voxel, float[] bounds) {
+        this.hit = true;
+        this.time = candidateTime;
+        this.axis = candidateAxis;
+        this.normal.zero().setComponent(candidateAxis, candidateSign);
+        this.other = other;
+        this.voxel = voxel;
+        System.arraycopy(bounds, 0, otherBounds, 0, 6);
+    }
+
+    int getAxis() {
+        return axis;
+    }
+
+    /**
+     * If the sweep hit something.
+     *
+     * @return If the sweep hit something.
+     */
+    public boolean isHit() {
+        return hit;
+    }
+
+    /**
+     * The fraction of the movement that can be made before the hit.
+     *
+     * @return The time of impact. (0-1, or 1 if nothing was hit).
+     */
+    public float getTime() {
+        return time;
+    }
+
+    /**
+     * The normal of the face that was hit.
+     * <p>This points away from the collider that was hit, along a single axis.</p>
+     *
+     * @return The normal. (Zero if nothing was hit).
+     */
+    public Vector3f getNormal() {
+        return normal;
+    }
+
+    /**
+     * The collider that was hit first.
+     *
+     * @return The collider. (Null if nothing was hit).
+     */
+    public ColliderComponent getOther() {
+        return other;
+    }
+
+    /**
+     * The voxel that was hit first.
+     *
+     * @return The voxel. (Null if nothing was hit, or if a collider that is not a voxel was hit).
+     * @since 1.0-Pre5
+     */
+    public Voxel getVoxel() {
+        return voxel;
+    }
+}
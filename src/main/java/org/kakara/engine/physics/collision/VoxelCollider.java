@@ -7,7 +7,6 @@ import org.kakara.engine.voxels.Voxel;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Predicate;
 
 /**
  * This is used to handle the Voxel collisions.
@@ -20,12 +19,13 @@ public class VoxelCollider extends ColliderComponent {
     private final Voxel voxel;
     private final GameHandler handler;
     private final List<OnTriggerEnter> triggerEvents;
+    private final List<ColliderComponent> candidates = new ArrayList<>();
+    private final ContactBuffer contacts = new ContactBuffer();
     private final Vector3 scale = new Vector3(1, 1, 1);
     private Vector3 point1;
     private Vector3 point2;
     private Vector3 offset;
     private boolean isTrigger;
-    private Predicate<ColliderComponent> predicate = gameItem -> false;
 
     /**
      * Construct the render block collider.
@@ -36,6 +36,7 @@ public class VoxelCollider extends ColliderComponent {
         this.handler = GameHandler.getInstance();
         this.triggerEvents = new ArrayList<>();
         this.voxel = renderBlock;
+        setLayer(CollisionLayers.VOXEL);
     }
 
     @Override
@@ -108,6 +109,16 @@ public class VoxelCollider extends ColliderComponent {
         return new Vector3(point2.x, point2.y, point2.z).addMut(offset).addMut(voxel.getWorldPosition());
     }
 
+    @Override
+    public void getAbsoluteBounds(float[] dest) {
+        Vector3 position = voxel.getPosition();
+        Vector3 chunkPosition = voxel.getParentChunk().transform.getPosition();
+        float x = offset.x + position.x + chunkPosition.x;
+        float y = offset.y + position.y + chunkPosition.y;
+        float z = offset.z + position.z + chunkPosition.z;
+        setBounds(dest, point1.x + x, point1.y + y, point1.z + z, point2.x + x, point2.y + y, point2.z + z);
+    }
+
     @Override
     public void updateX() {
 
@@ -128,20 +139,6 @@ public class VoxelCollider extends ColliderComponent {
         this.triggerEvents.add(enter);
     }
 
-    @Override
-    public Predicate<ColliderComponent> getPredicate() {
-        return predicate;
-    }
-
-    @Override
-    public void setPredicate(Predicate<ColliderComponent> gameItemPredicate) {
-        if (gameItemPredicate == null) {
-            predicate = gameItem -> false;
-            return;
-        }
-        this.predicate = gameItemPredicate;
-    }
-
     @Override
     public Vector3 getPosition() {
         return voxel.getWorldPosition();
@@ -199,14 +196,20 @@ public class VoxelCollider extends ColliderComponent {
         CollisionManager cm = handler.getCurrentScene().getCollisionManager();
         assert cm != null;
 
-        for (ColliderComponent gi : cm.getCollidngItems(voxel.getWorldPosition())) {
-            if (gi == this) continue;
-            if (getPredicate().test(gi)) continue;
-            if (cm.isColliding(gi, this).isIntersecting()) {
-                // Fire the trigger event.
-                for (OnTriggerEnter evt : triggerEvents) {
-                    evt.onTriggerEnter(gi);
-                }
+        cm.getCollisionCandidates(this, candidates);
+        int count = cm.isColliding(this, candidates, contacts);
+        for (int i = 0; i < count; i++) {
+            ColliderComponent gi = contacts.get(i).getOther();
+            if (!canCollideWith(gi)) continue;
+            int state = cm.getContactPairs().update(this, gi, deltaTime);
+            if (state == ContactPairCache.STAY) {
+                fireStay(gi);
+                continue;
+            }
+            if (state != ContactPairCache.ENTER) continue;
+            // Fire the trigger event.
+            for (OnTriggerEnter evt : triggerEvents) {
+                evt.onTriggerEnter(gi);
             }
         }
     }
@@ -0,0 +1,219 @@
+package org.kakara.engine.render;
+
+import org.kakara.engine.utils.Time;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.GL_TIME_ELAPSED;
+import static org.lwjgl.opengl.GL33.glGetQueryObjecti64;
+
+/**
+ * Scales the resolution of the 3D scene to hold a target frame time.
+ *
+ * <p>When enabled the scene is rendered into a {@link SceneRenderTarget} at a fraction of the window size and upscaled
+ * to the window. The UI is still rendered at the full resolution. The time the GPU takes to render the scene is
+ * measured with timer queries (or the frame time is used if they are not supported), and the scale is lowered quickly
+ * when the scene is too slow and raised slowly once there is time to spare.</p>
+ *
+ * <p>Get the instance of this class through {@link Renderer#getDynamicResolution()}.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class DynamicResolution {
+    // The number of frames a query result is expected to take to become available.
+    private static final int QUERY_COUNT = 4;
+    // How far the frame time can be from the target before the scale changes.
+    private static final float TOLERANCE = 0.05f;
+    // The largest change of the scale in a single frame.
+    private static final float MAX_DECREASE = 0.05f;
+    private static final float MAX_INCREASE = 0.02f;
+    // How much of the new frame time is used in the smoothed frame time.
+    private static final float SMOOTHING = 0.1f;
+
+    private boolean enabled;
+    private float minScale = 0.5f;
+    private float maxScale = 1f;
+    private float targetFrameTime;
+    private float scale = 1f;
+    private float smoothedFrameTime;
+
+    private int[] queries;
+    private int queryIndex;
+    private int pendingQueries;
+    private boolean queryActive;
+    private Boolean timerQueries;
+
+    /**
+     * Create the dynamic resolution controller.
+     *
+     * @param targetFrameTime The frame time to hold. (In seconds).
+     */
+    public DynamicResolution(float targetFrameTime) {
+        this.targetFrameTime = targetFrameTime;
+    }
+
+    /**
+     * Start measuring the scene.
+     * <p>Internal use only. This must be called on the main thread.</p>
+     */
+    public void beginScene() {
+        if (!enabled || !supportsTimerQueries()) return;
+        if (queries == null) {
+            queries = new int[QUERY_COUNT];
+            glGenQueries(queries);
+        }
+        // Read every result that is ready, and skip the frame if the ring is full.
+        while (pendingQueries > 0) {
+            int oldest = queries[(queryIndex - pendingQueries + QUERY_COUNT) % QUERY_COUNT];
+            if (glGetQueryObjecti(oldest, GL_QUERY_RESULT_AVAILABLE) == GL_FALSE) break;
+            update(glGetQueryObjecti64(oldest, GL_QUERY_RESULT) / 1.0e9f);
+            pendingQueries--;
+        }
+        if (pendingQueries == QUERY_COUNT) return;
+        glBeginQuery(GL_TIME_ELAPSED, queries[queryIndex]);
+        queryActive = true;
+    }
+
+    /**
+     * Stop measuring the scene.
+     * <p>Internal use only. This must be called on the main thread.</p>
+     */
+    public void endScene() {
+        if (!enabled) return;
+        if (!supportsTimerQueries()) {
+            update(Time.getDeltaTime());
+            return;
+        }
+        if (!queryActive) return;
+        glEndQuery(GL_TIME_ELAPSED);
+        queryActive = false;
+        queryIndex = (queryIndex + 1) % QUERY_COUNT;
+        pendingQueries++;
+    }
+
+    /**
+     * Update the scale with the time of a frame.
+     *
+     * @param frameTime The time the scene took. (In seconds).
+     */
+    public void update(float frameTime) {
+        if (frameTime <= 0) return;
+        smoothedFrameTime = smoothedFrameTime == 0 ? frameTime : smoothedFrameTime + (frameTime - smoothedFrameTime) * SMOOTHING;
+        float ratio = targetFrameTime / smoothedFrameTime;
+        if (ratio > 1 - TOLERANCE && ratio < 1 + TOLERANCE) return;
+        // The cost of the scene grows with the number of pixels, which is the square of the scale.
+        float desired = scale * (float) Math.sqrt(ratio);
+        float change = Math.max(-MAX_DECREASE, Math.min(MAX_INCREASE, desired - scale));
+        scale = Math.max(minScale, Math.min(maxScale, scale + change));
+    }
+
+    private boolean supportsTimerQueries() {
+        if (timerQueries == null) {
+            GLCapabilities capabilities = GL.getCapabilities();
+            timerQueries = capabilities.OpenGL33 || capabilities.GL_ARB_timer_query;
+        }
+        return timerQueries;
+    }
+
+    /**
+     * Get the size the scene is rendered at.
+     *
+     * @param windowSize The width or height of the window.
+     * @return The scaled width or height.
+     */
+    public int getScaledSize(int windowSize) {
+        if (!enabled) return windowSize;
+        return Math.max(1, Math.round(windowSize * scale));
+    }
+
+    /**
+     * Check if dynamic resolution is enabled.
+     *
+     * @return If dynamic resolution is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set if dynamic resolution is enabled.
+     * <p>It is disabled by default.</p>
+     *
+     * @param enabled If dynamic resolution is enabled.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        this.scale = maxScale;
+        this.smoothedFrameTime = 0;
+    }
+
+    /**
+     * Get the current scale of the scene.
+     *
+     * @return The scale. (1 is the resolution of the window).
+     */
+    public float getScale() {
+        return enabled ? scale : 1;
+    }
+
+    /**
+     * Set the bounds of the scale.
+     *
+     * @param minScale The lowest scale. (Must be greater than 0).
+     * @param maxScale The highest scale. (Can be above 1 to render at a higher resolution than the window).
+     */
+    public void setScaleBounds(float minScale, float maxScale) {
+        if (minScale <= 0 || maxScale < minScale)
+            throw new IllegalArgumentException("The scale bounds must be positive, and the max must not be less than the min.");
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        this.scale = Math.max(minScale, Math.min(maxScale, scale));
+    }
+
+    /**
+     * Get the lowest scale.
+     *
+     * @return The lowest scale.
+     */
+    public float getMinScale() {
+        return minScale;
+    }
+
+    /**
+     * Get the highest scale.
+     *
+     * @return The highest scale.
+     */
+    public float getMaxScale() {
+        return maxScale;
+    }
+
+    /**
+     * Get the frame time the scale is adjusted to hold.
+     *
+     * @return The target frame time. (In seconds).
+     */
+    public float getTargetFrameTime() {
+        return targetFrameTime;
+    }
+
+    /**
+     * Set the frame time the scale is adjusted to hold.
+     *
+     * @param targetFrameTime The target frame time. (In seconds).
+     */
+    public void setTargetFrameTime(float targetFrameTime) {
+        this.targetFrameTime = targetFrameTime;
+    }
+
+    /**
+     * Delete the timer queries.
+     */
+    public void cleanup() {
+        if (queries != null)
+            glDeleteQueries(queries);
+        queries = null;
+        pendingQueries = 0;
+    }
+}
@@ -0,0 +1,161 @@
+package org.kakara.engine.render;
+
+import org.kakara.engine.window.Window;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryStack;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.GL_READ_FRAMEBUFFER;
+import static org.lwjgl.opengl.GL30.glBindFramebuffer;
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.stb.STBImageWrite.stbi_write_png;
+
+/**
+ * A frame read back from the window.
+ *
+ * <p>This is used to compare rendered frames against golden images, such as in automated render tests with a headless
+ * {@link Window}. The pixels are stored as RGBA with the top row first, the same as an image file.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class FrameCapture {
+    private final int width;
+    private final int height;
+    private final ByteBuffer pixels;
+
+    /**
+     * Create a frame capture from pixels.
+     *
+     * @param width  The width of the frame.
+     * @param height The height of the frame.
+     * @param pixels The RGBA pixels, with the top row first.
+     */
+    public FrameCapture(int width, int height, ByteBuffer pixels) {
+        if (pixels.remaining() < width * height * 4)
+            throw new IllegalArgumentException("The pixel buffer is smaller than the frame.");
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Read the current contents of the window.
+     * <p>This must be called on the main thread, after the frame is rendered. This waits for the GPU to finish the
+     * frame.</p>
+     *
+     * @param window The window.
+     * @return The captured frame.
+     */
+    public static FrameCapture capture(Window window) {
+        int width = window.getWidth();
+        int height = window.getHeight();
+        int rowBytes = width * 4;
+        ByteBuffer read = BufferUtils.createByteBuffer(rowBytes * height);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, window.getFramebuffer());
+        glPixelStorei(GL_PACK_ALIGNMENT, 1);
+        glReadPixels(0, 0, width, height, GL_RGBA, GL_UNSIGNED_BYTE, read);
+
+        // OpenGL reads the bottom row first.
+        ByteBuffer pixels = BufferUtils.createByteBuffer(rowBytes * height);
+        for (int y = 0; y < height; y++) {
+            read.limit((height - y) * rowBytes).position((height - y - 1) * rowBytes);
+            pixels.put(read);
+        }
+        pixels.flip();
+        return new FrameCapture(width, height, pixels);
+    }
+
+    /**
+     * Load a frame from an image file.
+     *
+     * @param path The path of the image.
+     * @return The loaded frame.
+     * @throws IOException If the image could not be loaded.
+     */
+    public static FrameCapture load(Path path) throws IOException {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+            ByteBuffer image = stbi_load(path.toAbsolutePath().toString(), w, h, channels, 4);
+            if (image == null)
+                throw new IOException("Cannot load the image " + path + ". " + stbi_failure_reason());
+            ByteBuffer pixels = BufferUtils.createByteBuffer(image.remaining());
+            pixels.put(image).flip();
+            stbi_image_free(image);
+            return new FrameCapture(w.get(0), h.get(0), pixels);
+        }
+    }
+
+    /**
+     * Save the frame as a png.
+     *
+     * @param path The path of the image.
+     * @throws IOException If the image could not be written.
+     */
+    public void save(Path path) throws IOException {
+        if (!stbi_write_png(path.toAbsolutePath().toString(), width, height, 4, pixels, width * 4))
+            throw new IOException("Cannot write the image " + path);
+    }
+
+    /**
+     * Compare this frame to another frame.
+     *
+     * @param other     The frame to compare to. (Such as a golden image).
+     * @param tolerance How much a color channel can differ before the pixel is counted as different. (0-255).
+     * @return The fraction of the pixels that are different. (0-1).
+     * @throws IllegalArgumentException If the frames are not the same size.
+     */
+    public double compare(FrameCapture other, int tolerance) {
+        if (width != other.width || height != other.height)
+            throw new IllegalArgumentException("Cannot compare a " + width + "x" + height + " frame to a "
+                    + other.width + "x" + other.height + " frame.");
+        int start = pixels.position();
+        int otherStart = other.pixels.position();
+        long different = 0;
+        int pixelCount = width * height;
+        for (int i = 0; i < pixelCount; i++) {
+            for (int c = 0; c < 4; c++) {
+                int a = pixels.get(start + i * 4 + c) & 0xFF;
+                int b = other.pixels.get(otherStart + i * 4 + c) & 0xFF;
+                if (Math.abs(a - b) > tolerance) {
+                    different++;
+                    break;
+                }
+            }
+        }
+        return pixelCount == 0 ? 0 : (double) different / pixelCount;
+    }
+
+    /**
+     * Get the width of the frame.
+     *
+     * @return The width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the frame.
+     *
+     * @return The height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the pixels of the frame.
+     *
+     * @return The RGBA pixels, with the top row first.
+     */
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+}
@@ -4,14 +4,17 @@ import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 import org.kakara.engine.Camera;
+import org.kakara.engine.GameHandler;
 import org.kakara.engine.lighting.*;
 import org.kakara.engine.math.Vector3;
+import org.kakara.engine.render.stats.RenderStats;
 import org.kakara.engine.scene.Scene;
 
 import java.util.List;
 
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
 import static org.lwjgl.opengl.GL11.glBindTexture;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
 import static org.lwjgl.opengl.GL13.GL_TEXTURE2;
 import static org.lwjgl.opengl.GL13.glActiveTexture;
 
@@ -25,6 +28,21 @@ import static org.lwjgl.opengl.GL13.glActiveTexture;
  * @since 1.0-Pre4
  */
 public final class Graphics {
+    // The texture units of the shadow cascades. (The other units are used by the meshes).
+    private static final int[] CASCADE_UNITS = {2, 8, 9, 10};
+    // The uniform names are built once so binding the shadow map does not allocate.
+    private static final String[] CASCADE_SAMPLERS = new String[ShadowMap.MAX_CASCADES];
+    private static final String[] CASCADE_PROJECTIONS = new String[ShadowMap.MAX_CASCADES];
+    private static final String[] CASCADE_FAR_PLANES = new String[ShadowMap.MAX_CASCADES];
+
+    static {
+        for (int i = 0; i < ShadowMap.MAX_CASCADES; i++) {
+            CASCADE_SAMPLERS[i] = "shadowMaps[" + i + "]";
+            CASCADE_PROJECTIONS[i] = "cascadeProjections[" + i + "]";
+            CASCADE_FAR_PLANES[i] = "cascadeFarPlanes[" + i + "]";
+        }
+    }
+
     /**
      * Render lights in a scene.
      * <p>The sole purpose of this method is the handle the light rendering, all other uniforms must be set.</p>
@@ -44,6 +62,35 @@ public final class Graphics {
         program.setUniform("ambientLight", ambientLight);
         program.setUniform("specularPower", specularPower);
 
+        // The built in shaders read the lights from the light clusters instead.
+        if (program.hasUniform("clusterLights")) {
+            GameHandler.getInstance().getGameEngine().getRenderer().getLightClusterBuffer().bind(program);
+        } else {
+            setLightArrays(viewMatrix, pointLightList, spotLightList, program);
+        }
+
+        // Get a copy of the directional light object and transform its position to view coordinates
+        DirectionalLight currDirLight = new DirectionalLight(directionalLight);
+        Vector4f dir = new Vector4f(currDirLight.getDirection().toJoml(), 0);
+        dir.mul(viewMatrix);
+        currDirLight.setDirection(new Vector3(dir.x, dir.y, dir.z));
+        program.setUniform("directionalLight", currDirLight);
+
+        program.setUniform("fog", scene.getFog());
+        // Shaders using the shadow cascades set their samplers in bindShadowMap.
+        if (program.hasUniform("shadowMap"))
+            program.setUniform("shadowMap", 2);
+    }
+
+    /**
+     * Set the point and spot light uniform arrays.
+     *
+     * @param viewMatrix     The view matrix for the camera.
+     * @param pointLightList The point lights.
+     * @param spotLightList  The spot lights.
+     * @param program        The shader program to use.
+     */
+    private static void setLightArrays(Matrix4f viewMatrix, List<PointLight> pointLightList, List<SpotLight> spotLightList, Shader program) {
         // Process Point Lights
         int numLights = pointLightList != null ? pointLightList.size() : 0;
         for (int i = 0; i < numLights; i++) {
@@ -79,16 +126,6 @@ public final class Graphics {
 
             program.setUniform("spotLights", currSpotLight, i);
         }
-
-        // Get a copy of the directional light object and transform its position to view coordinates
-        DirectionalLight currDirLight = new DirectionalLight(directionalLight);
-        Vector4f dir = new Vector4f(currDirLight.getDirection().toJoml(), 0);
-        dir.mul(viewMatrix);
-        currDirLight.setDirection(new Vector3(dir.x, dir.y, dir.z));
-        program.setUniform("directionalLight", currDirLight);
-
-        program.setUniform("fog", scene.getFog());
-        program.setUniform("shadowMap", 2);
     }
 
     /**
@@ -101,17 +138,45 @@ public final class Graphics {
      * @param shader       The shader.
      */
     public static void renderLights(Scene scene, Camera camera, LightHandler lightHandler, Shader shader) {
-        renderLights(scene, camera.getViewMatrix(), lightHandler.getAmbientLight().toVector(), lightHandler.getPointLights(),
-                lightHandler.getSpotLights(), lightHandler.getDirectionalLight(), 10f, shader);
+        // Shaders using the light clusters do not need the closest lights.
+        boolean clustered = shader.hasUniform("clusterLights");
+        renderLights(scene, camera.getViewMatrix(), lightHandler.getAmbientLight().toVector(),
+                clustered ? null : lightHandler.getDisplayPointLights(), clustered ? null : lightHandler.getDisplaySpotLights(),
+                lightHandler.getDirectionalLight(), 10f, shader);
     }
 
     /**
      * Bind the shadow map texture.
+     * <p>This only binds the first cascade of the shadow map to texture unit 2.</p>
      *
      * @param shadowMap The shadow map.
+     * @deprecated Use {@link #bindShadowMap(ShadowMap, Shader)} instead.
      */
+    @Deprecated
     public static void bindShadowMap(ShadowMap shadowMap) {
         glActiveTexture(GL_TEXTURE2);
-        glBindTexture(GL_TEXTURE_2D, shadowMap.getDepthMapTexture().getId());
+        glBindTexture(GL_TEXTURE_2D, shadowMap.getCascade(0).getDepthMapTexture().getId());
+        RenderStats.countTextureBind();
+    }
+
+    /**
+     * Bind the cascades of the shadow map and set their uniforms.
+     * <p>The shader must have the uniforms created by {@link Shader#createShadowCascadeUniforms(int)}.</p>
+     *
+     * @param shadowMap The shadow map.
+     * @param shader    The shader.
+     * @since 1.0-Pre5
+     */
+    public static void bindShadowMap(ShadowMap shadowMap, Shader shader) {
+        shader.setUniform("cascadeCount", shadowMap.getCascadeCount());
+        for (int i = 0; i < shadowMap.getCascadeCount(); i++) {
+            ShadowCascade cascade = shadowMap.getCascade(i);
+            shader.setUniform(CASCADE_SAMPLERS[i], CASCADE_UNITS[i]);
+            shader.setUniform(CASCADE_PROJECTIONS[i], cascade.getRenderedProjectionMatrix());
+            shader.setUniform(CASCADE_FAR_PLANES[i], cascade.getFarPlane());
+            glActiveTexture(GL_TEXTURE0 + CASCADE_UNITS[i]);
+            glBindTexture(GL_TEXTURE_2D, cascade.getDepthMapTexture().getId());
+            RenderStats.countTextureBind();
+        }
     }
 }
@@ -3,6 +3,7 @@ package org.kakara.engine.render;
 import org.joml.Matrix4f;
 import org.kakara.engine.lighting.ShadowMap;
 import org.kakara.engine.render.culling.FrustumCullingFilter;
+import org.kakara.engine.render.culling.OcclusionCuller;
 import org.kakara.engine.scene.Scene;
 
 /**
@@ -11,6 +12,25 @@ import org.kakara.engine.scene.Scene;
  * @since 1.0-Pre4
  */
 public interface RenderPipeline {
+    /**
+     * The render order of opaque pipelines.
+     *
+     * @since 1.0-Pre5
+     */
+    int ORDER_OPAQUE = 1000;
+    /**
+     * The render order of the skybox. Pipelines with an equal or higher order are rendered after the skybox.
+     *
+     * @since 1.0-Pre5
+     */
+    int ORDER_SKYBOX = 2000;
+    /**
+     * The render order of transparent pipelines.
+     *
+     * @since 1.0-Pre5
+     */
+    int ORDER_TRANSPARENT = 3000;
+
     /**
      * When the renderer is first initialized.
      *
@@ -37,4 +57,81 @@ public interface RenderPipeline {
      * @param lightViewMatrix The light view matrix.
      */
     void renderDepthMap(Scene scene, Shader depthShader, Matrix4f lightViewMatrix);
+
+    /**
+     * Add the occluders of the pipeline for the current frame.
+     * <p>This is called once per frame before the depth map is rendered. The occluders are rasterized while the depth
+     * map renders, and can then be tested against in {@link #render(Scene)}.</p>
+     *
+     * @param scene           The scene.
+     * @param occlusionCuller The occlusion culler.
+     * @since 1.0-Pre5
+     */
+    default void addOccluders(Scene scene, OcclusionCuller occlusionCuller) {
+    }
+
+    /**
+     * Check if the pipeline only draws static shadow casters.
+     * <p>The depth of static shadow casters is cached by each shadow cascade, and only rendered again when the cascade
+     * moves or {@link #getShadowVersion(Scene)} changes.</p>
+     *
+     * @return If the pipeline only draws static shadow casters.
+     * @since 1.0-Pre5
+     */
+    default boolean isStaticShadowCaster() {
+        return false;
+    }
+
+    /**
+     * Get the version of the shadow casters of the pipeline.
+     * <p>This must change whenever something the pipeline draws into the depth map changes. It is only used when
+     * {@link #isStaticShadowCaster()} is true.</p>
+     *
+     * @param scene The scene.
+     * @return The version of the shadow casters.
+     * @since 1.0-Pre5
+     */
+    default long getShadowVersion(Scene scene) {
+        return 0;
+    }
+
+    /**
+     * Get the order the pipeline is rendered in.
+     * <p>Pipelines are rendered from the lowest to the highest order, and in the order they were added when the order
+     * is the same. Pipelines that blend with what is behind them should use {@link #ORDER_TRANSPARENT}.</p>
+     *
+     * @return The render order.
+     * @since 1.0-Pre5
+     */
+    default int getRenderOrder() {
+        return ORDER_OPAQUE;
+    }
+
+    /**
+     * Check if the pipeline can draw into the depth prepass.
+     * <p>When the depth prepass is enabled (see {@link Renderer#setDepthPrepass(boolean)}) the pipelines that support
+     * it are rendered with the depth function <code>GL_EQUAL</code> and without depth writes, so only the visible
+     * fragments are shaded. This is only used for pipelines below {@link #ORDER_SKYBOX}.</p>
+     *
+     * @return If the pipeline supports the depth prepass.
+     * @since 1.0-Pre5
+     */
+    default boolean supportsDepthPrepass() {
+        return false;
+    }
+
+    /**
+     * Render the depth of the camera view.
+     * <p>This must draw exactly what {@link #render(Scene)} draws this frame, with the same model view matrices, or the
+     * fragments that do not match the depth are not shaded. The depth shader is the same one used for
+     * {@link #renderDepthMap(Scene, Shader, Matrix4f)}, with the camera view matrix in place of the light view
+     * matrix.</p>
+     *
+     * @param scene       The scene.
+     * @param depthShader The depth shader.
+     * @param viewMatrix  The view matrix of the camera.
+     * @since 1.0-Pre5
+     */
+    default void renderDepthPrepass(Scene scene, Shader depthShader, Matrix4f viewMatrix) {
+    }
 }
@@ -5,10 +5,18 @@ import org.joml.Vector3f;
 import org.kakara.engine.Camera;
 import org.kakara.engine.GameEngine;
 import org.kakara.engine.components.MeshRenderer;
+import org.kakara.engine.exceptions.render.GenericRenderException;
 import org.kakara.engine.gameitems.mesh.IMesh;
 import org.kakara.engine.lighting.DirectionalLight;
+import org.kakara.engine.lighting.LightClusterBuffer;
+import org.kakara.engine.lighting.LightHandler;
+import org.kakara.engine.lighting.ShadowCascade;
 import org.kakara.engine.lighting.ShadowMap;
+import org.kakara.engine.render.command.GLRenderBackend;
+import org.kakara.engine.render.command.RenderBackend;
 import org.kakara.engine.render.culling.FrustumCullingFilter;
+import org.kakara.engine.render.culling.OcclusionCuller;
+import org.kakara.engine.render.stats.RenderStats;
 import org.kakara.engine.scene.Scene;
 import org.kakara.engine.ui.objectcanvas.UIObject;
 import org.kakara.engine.utils.Utils;
@@ -17,6 +25,7 @@ import org.kakara.engine.voxels.mesh.VoxelMesh;
 import org.kakara.engine.window.Window;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 
@@ -28,6 +37,9 @@ import static org.lwjgl.opengl.GL30.glBindFramebuffer;
  * Handles the rendering pipeline of the game.
  * <p>As of 1.0-pre4, additional pipelines can be added: {@link PipelineManager} and {@link RenderPipeline}</p>
  * <p>Please note that the Skybox, Shadow System, and UI, are not apart of the pipeline system.</p>
+ * <p>The pipelines are rendered by their {@link RenderPipeline#getRenderOrder()}. The skybox is drawn at the far plane
+ * after the opaque pipelines, so only the pixels they do not cover are shaded, and before the transparent pipelines.
+ * An optional depth prepass ({@link #setDepthPrepass(boolean)}) lets the opaque pipelines shade each pixel once.</p>
  */
 public final class Renderer {
     // FOV information.
@@ -36,15 +48,39 @@ public final class Renderer {
     private static final float Z_FAR = 1000.0f;
     private final Transformation transformation;
     private final FrustumCullingFilter frustumFilter;
+    private final OcclusionCuller occlusionCuller;
     private final GameEngine engine;
     private Shader skyBoxShaderProgram;
     private Shader depthShaderProgram;
     private Shader hudShaderProgram;
+    private long frameCount;
     private ShadowMap shadowMap;
+    private LightClusterBuffer lightClusterBuffer;
+    private RenderBackend renderBackend = new GLRenderBackend();
+    private final DynamicResolution dynamicResolution;
+    private final SceneRenderTarget sceneTarget = new SceneRenderTarget();
+    private final RenderStats renderStats = new RenderStats();
+    // The size the current frame is rendered at, and if it is rendered into the scene target.
+    private int renderWidth;
+    private int renderHeight;
+    private boolean renderingOffscreen;
+    // The pipelines of the current frame in the order they are rendered.
+    private final List<RenderPipeline> scheduledPipelines = new ArrayList<>();
+    private final Comparator<RenderPipeline> pipelineOrder = Comparator.comparingInt(RenderPipeline::getRenderOrder)
+            .thenComparing(pipeline -> !pipeline.supportsDepthPrepass());
+    private final Matrix4f skyBoxViewMatrix = new Matrix4f();
+    private boolean depthPrepass;
+
     public Renderer(GameEngine engine) {
         transformation = new Transformation();
         frustumFilter = new FrustumCullingFilter();
+        occlusionCuller = new OcclusionCuller();
         this.engine = engine;
+        dynamicResolution = new DynamicResolution(1f / engine.TARGET_FPS);
+        // Carry on from the renderer this replaces, so the frame caches keyed by the frame count are not hit by mistake.
+        Renderer previous = engine.getRenderer();
+        if (previous != null)
+            frameCount = previous.frameCount;
     }
 
     /**
@@ -54,6 +90,7 @@ public final class Renderer {
      */
     public void init() throws Exception {
         shadowMap = new ShadowMap();
+        lightClusterBuffer = new LightClusterBuffer();
 
         engine.getShaderManager().initShaders();
 
@@ -75,22 +112,144 @@ public final class Renderer {
      * @param scene  The scene
      */
     public void render(Window window, Camera camera, Scene scene) {
+        frameCount++;
+        renderWidth = dynamicResolution.getScaledSize(window.getWidth());
+        renderHeight = dynamicResolution.getScaledSize(window.getHeight());
+        renderingOffscreen = dynamicResolution.isEnabled();
+        if (renderingOffscreen) {
+            try {
+                sceneTarget.resize(Math.max(window.getWidth(), renderWidth), Math.max(window.getHeight(), renderHeight));
+            } catch (GenericRenderException e) {
+                GameEngine.LOGGER.error("Unable to create the scene render target, disabling dynamic resolution.", e);
+                dynamicResolution.setEnabled(false);
+                renderWidth = window.getWidth();
+                renderHeight = window.getHeight();
+                renderingOffscreen = false;
+            }
+        }
+        bindSceneTarget();
         clear();
 
+        // Update the frustum first so the depth map and the pipelines cull against the same view.
+        transformation.updateProjectionMatrix(FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
+        scene.getCamera().updateViewMatrix();
+
+        frustumFilter.updateFrustum(transformation.getProjectionMatrix(), camera.getViewMatrix());
+
+        // Bin the lights once, every pipeline shares the result.
+        LightHandler lightHandler = scene.getLightHandler();
+        if (lightHandler != null) {
+            lightHandler.getClusterGrid().update(camera.getViewMatrix(), FOV, (float) window.getWidth() / window.getHeight(),
+                    Z_NEAR, lightHandler.getPointLights(), lightHandler.getSpotLights());
+            lightClusterBuffer.upload(lightHandler.getClusterGrid(), renderWidth, renderHeight);
+        }
+
+        // Rasterize the occluders on the worker thread while the depth map is rendered.
+        occlusionCuller.begin(transformation.getProjectionMatrix(), camera.getViewMatrix());
+        for (RenderPipeline pipeline : engine.getPipelineManager().getPipelines()) {
+            pipeline.addOccluders(scene, occlusionCuller);
+        }
+        occlusionCuller.submit();
+
         // Render the depth map (which is separate from the pipeline system.)
+        renderStats.beginPass("Depth Map");
         renderDepthMap(window, camera, scene);
+        renderStats.endPass();
 
-        glViewport(0, 0, window.getWidth(), window.getHeight());
+        glViewport(0, 0, renderWidth, renderHeight);
+        dynamicResolution.beginScene();
 
-        transformation.updateProjectionMatrix(FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
-        scene.getCamera().updateViewMatrix();
+        // The pipelines that support the prepass are sorted first within their order.
+        scheduledPipelines.clear();
+        scheduledPipelines.addAll(engine.getPipelineManager().getPipelines());
+        scheduledPipelines.sort(pipelineOrder);
 
-        frustumFilter.updateFrustum(transformation.getProjectionMatrix(), camera.getViewMatrix());
+        boolean equalDepth = depthPrepass && renderDepthPrepass(camera, scene);
+        if (equalDepth) {
+            // The depth is complete, so only the fragments that match it are shaded.
+            glDepthFunc(GL_EQUAL);
+            glDepthMask(false);
+        }
 
         // Render the pipelines.
-        for (RenderPipeline pipeline : engine.getPipelineManager().getPipelines()) {
+        boolean skyBoxRendered = false;
+        for (RenderPipeline pipeline : scheduledPipelines) {
+            if (equalDepth && !usesDepthPrepass(pipeline)) {
+                glDepthFunc(GL_LESS);
+                glDepthMask(true);
+                equalDepth = false;
+            }
+            if (!skyBoxRendered && pipeline.getRenderOrder() >= RenderPipeline.ORDER_SKYBOX) {
+                if (scene.getSkyBox() != null)
+                    renderSkyBox(window, camera, scene);
+                skyBoxRendered = true;
+            }
+            renderStats.beginPass(pipeline.getClass().getSimpleName());
             pipeline.render(scene);
+            renderStats.endPass();
         }
+        if (equalDepth) {
+            glDepthFunc(GL_LESS);
+            glDepthMask(true);
+        }
+        if (!skyBoxRendered && scene.getSkyBox() != null)
+            renderSkyBox(window, camera, scene);
+    }
+
+    /**
+     * Render the depth of the opaque pipelines that support the depth prepass.
+     *
+     * @param camera The camera.
+     * @param scene  The scene.
+     * @return If any pipeline was rendered.
+     */
+    private boolean renderDepthPrepass(Camera camera, Scene scene) {
+        boolean rendered = false;
+        for (RenderPipeline pipeline : scheduledPipelines) {
+            if (!usesDepthPrepass(pipeline)) continue;
+            if (!rendered) {
+                renderStats.beginPass("Depth Prepass");
+                depthShaderProgram.bind();
+                depthShaderProgram.setUniform("orthoProjectionMatrix", transformation.getProjectionMatrix());
+                depthShaderProgram.setUniform("lightViewMatrix", camera.getViewMatrix());
+                glColorMask(false, false, false, false);
+                rendered = true;
+            }
+            pipeline.renderDepthPrepass(scene, depthShaderProgram, camera.getViewMatrix());
+        }
+        if (rendered) {
+            glColorMask(true, true, true, true);
+            depthShaderProgram.unbind();
+            renderStats.endPass();
+        }
+        return rendered;
+    }
+
+    private static boolean usesDepthPrepass(RenderPipeline pipeline) {
+        return pipeline.supportsDepthPrepass() && pipeline.getRenderOrder() < RenderPipeline.ORDER_SKYBOX;
+    }
+
+    /**
+     * Check if the depth prepass is enabled.
+     *
+     * @return If the depth prepass is enabled.
+     * @since 1.0-Pre5
+     */
+    public boolean isDepthPrepass() {
+        return depthPrepass;
+    }
+
+    /**
+     * Set if the depth prepass is enabled.
+     * <p>The prepass draws the depth of the opaque pipelines first, so their fragment shaders only run for the visible
+     * pixels. This is worth it when the fragment shaders are expensive and a lot of the scene is overdrawn, such as in
+     * dense voxel scenes. It is disabled by default.</p>
+     *
+     * @param depthPrepass If the depth prepass is enabled.
+     * @since 1.0-Pre5
+     */
+    public void setDepthPrepass(boolean depthPrepass) {
+        this.depthPrepass = depthPrepass;
     }
 
     /**
@@ -163,12 +322,6 @@ public final class Renderer {
      * @param scene  The scene.
      */
     private void renderDepthMap(Window window, Camera camera, Scene scene) {
-        glBindFramebuffer(GL_FRAMEBUFFER, shadowMap.getDepthMapFBO());
-        glViewport(0, 0, ShadowMap.SHADOW_MAP_WIDTH, ShadowMap.SHADOW_MAP_HEIGHT);
-        glClear(GL_DEPTH_BUFFER_BIT);
-
-        depthShaderProgram.bind();
-
         DirectionalLight light = Objects.requireNonNull(scene.getLightHandler()).getDirectionalLight();
         Vector3f lightDirection = light.getDirection().toJoml();
 
@@ -176,35 +329,143 @@ public final class Renderer {
         float lightAngleY = (float) Math.toDegrees(Math.asin(lightDirection.x));
         float lightAngleZ = 0;
         Matrix4f lightViewMatrix = transformation.updateLightViewMatrix(new Vector3f(lightDirection).mul(light.getShadowPosMult()), new Vector3f(lightAngleX, lightAngleY, lightAngleZ));
-        DirectionalLight.OrthoCoords orthCoords = light.getOrthoCoords();
-        Matrix4f orthoProjMatrix = transformation.updateOrthoProjectionMatrix(orthCoords.left, orthCoords.right, orthCoords.bottom, orthCoords.top, orthCoords.near, orthCoords.far);
-        depthShaderProgram.setUniform("orthoProjectionMatrix", orthoProjMatrix);
+        shadowMap.update(camera.getViewMatrix(), FOV, (float) window.getWidth() / window.getHeight(), Z_NEAR, lightViewMatrix);
 
+        // The cached static depth of a cascade is only valid while the static shadow casters stay the same.
+        long staticVersion = 0;
         for (RenderPipeline pipeline : engine.getPipelineManager().getPipelines()) {
-            pipeline.renderDepthMap(scene, depthShaderProgram, lightViewMatrix);
+            if (pipeline.isStaticShadowCaster())
+                staticVersion += pipeline.getShadowVersion(scene);
+        }
+
+        depthShaderProgram.bind();
+        depthShaderProgram.setUniform("lightViewMatrix", lightViewMatrix);
+
+        for (ShadowCascade cascade : shadowMap.getCascades()) {
+            if (!cascade.needsUpdate(frameCount, lightViewMatrix, staticVersion))
+                continue;
+            // The pipelines read the projection of the cascade from the transformation.
+            Matrix4f orthoProjMatrix = transformation.getOrthoProjectionMatrix().set(cascade.getProjectionMatrix());
+            depthShaderProgram.setUniform("orthoProjectionMatrix", orthoProjMatrix);
+            glViewport(0, 0, cascade.getResolution(), cascade.getResolution());
+
+            if (!cascade.isStaticCacheValid(lightViewMatrix, staticVersion)) {
+                glBindFramebuffer(GL_FRAMEBUFFER, cascade.getStaticFBO());
+                glClear(GL_DEPTH_BUFFER_BIT);
+                for (RenderPipeline pipeline : engine.getPipelineManager().getPipelines()) {
+                    if (pipeline.isStaticShadowCaster())
+                        pipeline.renderDepthMap(scene, depthShaderProgram, lightViewMatrix);
+                }
+                cascade.markStaticCached(lightViewMatrix, staticVersion);
+            }
+
+            // Start from the static depth and draw the dynamic shadow casters on top.
+            glBindFramebuffer(GL_FRAMEBUFFER, cascade.getDepthMapFBO());
+            cascade.copyStaticCache();
+            for (RenderPipeline pipeline : engine.getPipelineManager().getPipelines()) {
+                if (!pipeline.isStaticShadowCaster())
+                    pipeline.renderDepthMap(scene, depthShaderProgram, lightViewMatrix);
+            }
+            cascade.markUpdated(frameCount);
         }
 
         // Unbind
         depthShaderProgram.unbind();
-        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        bindSceneTarget();
+    }
+
+
+    /**
+     * Bind the frame buffer the scene is rendered into for the current frame.
+     */
+    private void bindSceneTarget() {
+        if (renderingOffscreen)
+            sceneTarget.bind();
+        else
+            glBindFramebuffer(GL_FRAMEBUFFER, engine.getWindow().getFramebuffer());
+    }
+
+    /**
+     * Finish rendering the 3D scene.
+     * <p>If the scene was rendered at a different resolution it is upscaled to the window. Everything rendered after
+     * this, such as the UI, is rendered at the resolution of the window.</p>
+     *
+     * @param window The window.
+     * @since 1.0-Pre5
+     */
+    public void finishScene(Window window) {
+        dynamicResolution.endScene();
+        if (!renderingOffscreen) return;
+        renderStats.beginPass("Upscale");
+        sceneTarget.blitToScreen(renderWidth, renderHeight, window.getWidth(), window.getHeight(), window.getFramebuffer());
+        glViewport(0, 0, window.getWidth(), window.getHeight());
+        // The depth of the scene is not copied, so the UI is drawn over it.
+        glClear(GL_DEPTH_BUFFER_BIT | GL_STENCIL_BUFFER_BIT);
+        renderStats.endPass();
+        renderingOffscreen = false;
+    }
+
+    /**
+     * Get the dynamic resolution settings of the scene.
+     *
+     * @return The dynamic resolution.
+     * @since 1.0-Pre5
+     */
+    public DynamicResolution getDynamicResolution() {
+        return dynamicResolution;
+    }
+
+    /**
+     * Get the statistics of the render passes.
+     *
+     * @return The render statistics.
+     * @since 1.0-Pre5
+     */
+    public RenderStats getRenderStats() {
+        return renderStats;
     }
 
+    /**
+     * Get the width the 3D scene is rendered at for the current frame.
+     *
+     * @return The render width.
+     * @since 1.0-Pre5
+     */
+    public int getRenderWidth() {
+        return renderWidth;
+    }
+
+    /**
+     * Get the height the 3D scene is rendered at for the current frame.
+     *
+     * @return The render height.
+     * @since 1.0-Pre5
+     */
+    public int getRenderHeight() {
+        return renderHeight;
+    }
 
     /**
      * Render the skybox
+     * <p>The skybox is drawn at the far plane without writing depth. This is called by
+     * {@link #render(Window, Camera, Scene)} between the opaque and transparent pipelines.</p>
      *
      * @param window The window
      * @param camera The game
      * @param scene  The current scene
      */
     public void renderSkyBox(Window window, Camera camera, Scene scene) {
+        renderStats.beginPass("Sky Box");
         glDisable(GL_CULL_FACE);
+        glDepthFunc(GL_LEQUAL);
+        glDepthMask(false);
         skyBoxShaderProgram.bind();
         skyBoxShaderProgram.setUniform("texture_sampler", 0);
         Matrix4f projectionMatrix = transformation.getProjectionMatrix();
         skyBoxShaderProgram.setUniform("projectionMatrix", projectionMatrix);
 
-        Matrix4f viewMatrix = scene.getCamera().getViewMatrix();
+        // Only the rotation of the camera is used, the view matrix of the camera is left unchanged.
+        Matrix4f viewMatrix = skyBoxViewMatrix.set(scene.getCamera().getViewMatrix());
         viewMatrix.m30(0);
         viewMatrix.m31(0);
         viewMatrix.m32(0);
@@ -215,7 +476,10 @@ public final class Renderer {
                 Objects.requireNonNull(scene.getLightHandler()).getSkyBoxLight().toVector());
         scene.getSkyBox().getComponent(MeshRenderer.class).getMesh().render();
         skyBoxShaderProgram.unbind();
+        glDepthMask(true);
+        glDepthFunc(GL_LESS);
         glEnable(GL_CULL_FACE);
+        renderStats.endPass();
     }
 
     /**
@@ -266,6 +530,7 @@ public final class Renderer {
         depthShaderProgram.createUniform("isInstanced");
         depthShaderProgram.createUniform("modelLightViewNonInstancedMatrix");
         depthShaderProgram.createUniform("orthoProjectionMatrix");
+        depthShaderProgram.createUniform("lightViewMatrix");
     }
 
 
@@ -289,6 +554,11 @@ public final class Renderer {
 
         engine.getShaderManager().cleanup();
         shadowMap.cleanup();
+        lightClusterBuffer.cleanup();
+        occlusionCuller.cleanup();
+        sceneTarget.cleanup();
+        dynamicResolution.cleanup();
+        renderStats.cleanup();
     }
 
     /**
@@ -300,6 +570,60 @@ public final class Renderer {
         return transformation;
     }
 
+    /**
+     * Get the number of frames rendered by this renderer.
+     * <p>This can be used to cache per frame work between the depth pass and the regular pass.</p>
+     *
+     * @return The number of frames rendered.
+     * @since 1.0-Pre5
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Get the backend that executes the recorded draws of the pipelines.
+     *
+     * @return The render backend.
+     * @since 1.0-Pre5
+     */
+    public RenderBackend getRenderBackend() {
+        return renderBackend;
+    }
+
+    /**
+     * Set the backend that executes the recorded draws of the pipelines.
+     * <p>Use {@link org.kakara.engine.render.command.NullRenderBackend} to run the pipelines without drawing.</p>
+     *
+     * @param renderBackend The render backend.
+     * @since 1.0-Pre5
+     */
+    public void setRenderBackend(RenderBackend renderBackend) {
+        this.renderBackend = Objects.requireNonNull(renderBackend);
+    }
+
+    /**
+     * Get the shadow map of the Renderer.
+     * <p>This can be used to configure the shadow cascades.</p>
+     *
+     * @return The shadow map.
+     * @since 1.0-Pre5
+     */
+    public ShadowMap getShadowMap() {
+        return shadowMap;
+    }
+
+    /**
+     * Get the buffers the lights of the current frame are uploaded to.
+     * <p>See {@link Graphics#renderLights(Scene, Camera, LightHandler, Shader)}.</p>
+     *
+     * @return The light cluster buffer.
+     * @since 1.0-Pre5
+     */
+    public LightClusterBuffer getLightClusterBuffer() {
+        return lightClusterBuffer;
+    }
+
     /**
      * Get the FrustumCullingFilter for the Renderer.
      *
@@ -308,4 +632,15 @@ public final class Renderer {
     public FrustumCullingFilter getFrustumFilter() {
         return frustumFilter;
     }
+
+    /**
+     * Get the OcclusionCuller for the Renderer.
+     * <p>Occlusion culling can be turned off with {@link OcclusionCuller#setEnabled(boolean)}.</p>
+     *
+     * @return The occlusion culler.
+     * @since 1.0-Pre5
+     */
+    public OcclusionCuller getOcclusionCuller() {
+        return occlusionCuller;
+    }
 }
@@ -0,0 +1,117 @@
+package org.kakara.engine.render;
+
+import org.kakara.engine.exceptions.render.GenericRenderException;
+
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * An offscreen frame buffer the 3D scene is rendered into when {@link DynamicResolution} is enabled. It is also used
+ * as the frame buffer of a headless {@link org.kakara.engine.window.Window}.
+ *
+ * <p>The buffer is allocated at the size of the window and the scene is rendered into the bottom left corner of it, so
+ * changing the render scale does not reallocate anything. {@link #blitToScreen(int, int, int, int)} then upscales the
+ * rendered part to the window with bilinear filtering.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class SceneRenderTarget {
+    private int fbo;
+    private int colorTexture;
+    private int depthBuffer;
+    private int width;
+    private int height;
+
+    /**
+     * Make sure the buffer is at least a certain size.
+     * <p>This must be called on the main thread.</p>
+     *
+     * @param width  The width of the window.
+     * @param height The height of the window.
+     * @throws GenericRenderException If the frame buffer could not be created.
+     */
+    public void resize(int width, int height) throws GenericRenderException {
+        if (fbo != 0 && width == this.width && height == this.height) return;
+        int previous = glGetInteger(GL_FRAMEBUFFER_BINDING);
+        cleanup();
+        this.width = width;
+        this.height = height;
+
+        colorTexture = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, colorTexture);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        depthBuffer = glGenRenderbuffers();
+        glBindRenderbuffer(GL_RENDERBUFFER, depthBuffer);
+        glRenderbufferStorage(GL_RENDERBUFFER, GL_DEPTH24_STENCIL8, width, height);
+        glBindRenderbuffer(GL_RENDERBUFFER, 0);
+
+        fbo = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, fbo);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, colorTexture, 0);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_STENCIL_ATTACHMENT, GL_RENDERBUFFER, depthBuffer);
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE) {
+            glBindFramebuffer(GL_FRAMEBUFFER, previous);
+            throw new GenericRenderException("Could not create the scene FrameBuffer");
+        }
+        glBindFramebuffer(GL_FRAMEBUFFER, previous);
+    }
+
+    /**
+     * Bind the frame buffer.
+     */
+    public void bind() {
+        glBindFramebuffer(GL_FRAMEBUFFER, fbo);
+    }
+
+    /**
+     * Upscale the rendered part of the buffer to the frame buffer of the window.
+     * <p>The frame buffer of the window is left bound.</p>
+     *
+     * @param renderWidth  The width the scene was rendered at.
+     * @param renderHeight The height the scene was rendered at.
+     * @param windowWidth  The width of the window.
+     * @param windowHeight The height of the window.
+     * @param windowFbo    The frame buffer of the window. (See {@link org.kakara.engine.window.Window#getFramebuffer()}).
+     */
+    public void blitToScreen(int renderWidth, int renderHeight, int windowWidth, int windowHeight, int windowFbo) {
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, fbo);
+        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, windowFbo);
+        glBlitFramebuffer(0, 0, renderWidth, renderHeight, 0, 0, windowWidth, windowHeight, GL_COLOR_BUFFER_BIT,
+                renderWidth == windowWidth && renderHeight == windowHeight ? GL_NEAREST : GL_LINEAR);
+        glBindFramebuffer(GL_FRAMEBUFFER, windowFbo);
+    }
+
+    /**
+     * Get the id of the frame buffer.
+     *
+     * @return The frame buffer.
+     */
+    public int getFramebuffer() {
+        return fbo;
+    }
+
+    /**
+     * Get the id of the color texture.
+     *
+     * @return The color texture.
+     */
+    public int getColorTexture() {
+        return colorTexture;
+    }
+
+    /**
+     * Delete the frame buffer.
+     */
+    public void cleanup() {
+        if (fbo == 0) return;
+        glDeleteFramebuffers(fbo);
+        glDeleteTextures(colorTexture);
+        glDeleteRenderbuffers(depthBuffer);
+        fbo = 0;
+    }
+}
@@ -4,6 +4,7 @@ import org.joml.Matrix4f;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
+import org.kakara.engine.GameHandler;
 import org.kakara.engine.exceptions.render.ShaderCreationException;
 import org.kakara.engine.exceptions.render.ShaderLinkException;
 import org.kakara.engine.exceptions.render.ShaderUniformException;
@@ -22,18 +23,26 @@ import java.util.List;
 import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT;
+import static org.lwjgl.opengl.GL41.glProgramParameteri;
 
 /**
  * The engine's representation of a GLSL shader program.
  *
  * <p>See {@link ShaderProgram} and {@link ShaderManager} for creating custom shaders and implementing them into
  * render pipelines.</p>
+ * <p>As of 1.0-Pre5 linked programs are cached on the disk with the {@link ShaderManager#getProgramCache()}. When the
+ * cache is available the shaders are only compiled by {@link #link()} if the program is not in the cache, so
+ * compile errors are thrown from there instead.</p>
  */
 public final class Shader {
     private final int programId;
     private final Map<String, Integer> uniforms;
     private int vertexShaderId;
     private int fragmentShaderId;
+    // The sources of the shaders that are compiled when the program is not in the cache.
+    private String vertexSource;
+    private String fragmentSource;
 
     /**
      * Create a new shader.
@@ -55,6 +64,10 @@ public final class Shader {
      * @throws ShaderCreationException If a shader could not be created
      */
     public void createVertexShader(String shaderCode) throws ShaderCreationException {
+        if (getProgramCache() != null) {
+            vertexSource = shaderCode;
+            return;
+        }
         vertexShaderId = createShader(shaderCode, GL_VERTEX_SHADER);
     }
 
@@ -65,9 +78,25 @@ public final class Shader {
      * @throws ShaderCreationException If a shader could not be created
      */
     public void createFragmentShader(String shaderCode) throws Exception {
+        if (getProgramCache() != null) {
+            fragmentSource = shaderCode;
+            return;
+        }
         fragmentShaderId = createShader(shaderCode, GL_FRAGMENT_SHADER);
     }
 
+    /**
+     * Get the program cache, if it can be used.
+     *
+     * @return The program cache, or null if it is not available.
+     */
+    private static ShaderCache getProgramCache() {
+        GameHandler handler = GameHandler.getInstance();
+        if (handler == null || handler.getGameEngine() == null) return null;
+        ShaderCache cache = handler.getGameEngine().getShaderManager().getProgramCache();
+        return cache.isAvailable() ? cache : null;
+    }
+
     /**
      * Create a shader
      * <p>Same as doing {@link #createVertexShader(String)} and {@link #createFragmentShader(String)}.</p>
@@ -101,6 +130,31 @@ public final class Shader {
      * @throws ShaderLinkException If the shader could not be linked.
      */
     public void link() throws ShaderLinkException {
+        ShaderCache cache = null;
+        String key = null;
+        if (vertexSource != null || fragmentSource != null) {
+            cache = getProgramCache();
+            key = cache == null ? null : cache.createKey(String.valueOf(vertexSource), String.valueOf(fragmentSource));
+            if (cache != null && cache.load(programId, key)) {
+                vertexSource = null;
+                fragmentSource = null;
+                return;
+            }
+            // The program is not cached, compile it from source.
+            try {
+                if (vertexSource != null)
+                    vertexShaderId = createShader(vertexSource, GL_VERTEX_SHADER);
+                if (fragmentSource != null)
+                    fragmentShaderId = createShader(fragmentSource, GL_FRAGMENT_SHADER);
+            } catch (ShaderCreationException e) {
+                throw new ShaderLinkException(e.getMessage(), e);
+            }
+            vertexSource = null;
+            fragmentSource = null;
+            if (cache != null)
+                glProgramParameteri(programId, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+        }
+
         glLinkProgram(programId);
         if (glGetProgrami(programId, GL_LINK_STATUS) == 0) {
             throw new ShaderLinkException("Error linking Shader code: " + glGetProgramInfoLog(programId, 1024));
@@ -118,6 +172,9 @@ public final class Shader {
             System.err.println("Warning validating Shader code: " + glGetProgramInfoLog(programId, 1024));
         }
 
+        if (cache != null)
+            cache.save(programId, key);
+
     }
 
     /**
@@ -134,6 +191,17 @@ public final class Shader {
         uniforms.put(uniformName, uniformLocation);
     }
 
+    /**
+     * Check if a uniform has been created.
+     *
+     * @param uniformName The uniform name.
+     * @return If the uniform exists.
+     * @since 1.0-Pre5
+     */
+    public boolean hasUniform(String uniformName) {
+        return uniforms.containsKey(uniformName);
+    }
+
     /**
      * set a Matrix4f uniform
      *
@@ -148,6 +216,31 @@ public final class Shader {
         }
     }
 
+    /**
+     * Set an ivec3 uniform
+     *
+     * @param uniformName The uniform name
+     * @param x           The x value.
+     * @param y           The y value.
+     * @param z           The z value.
+     * @since 1.0-Pre5
+     */
+    public void setUniform(String uniformName, int x, int y, int z) {
+        glUniform3i(uniforms.get(uniformName), x, y, z);
+    }
+
+    /**
+     * Set a vec2 uniform
+     *
+     * @param uniformName The uniform name
+     * @param x           The x value.
+     * @param y           The y value.
+     * @since 1.0-Pre5
+     */
+    public void setUniform(String uniformName, float x, float y) {
+        glUniform2f(uniforms.get(uniformName), x, y);
+    }
+
     /**
      * Set an int uniform
      *
@@ -277,6 +370,24 @@ public final class Shader {
         createUniform(uniformName + ".cutoff");
     }
 
+    /**
+     * Create the uniforms used to sample the cascades of the shadow map.
+     * <p>This creates <code>shadowMaps</code>, <code>cascadeProjections</code>, <code>cascadeFarPlanes</code>, and
+     * <code>cascadeCount</code>. See {@link Graphics#bindShadowMap(org.kakara.engine.lighting.ShadowMap, Shader)}.</p>
+     *
+     * @param size The amount of cascades allowed.
+     * @throws ShaderUniformException If the uniforms could not be created.
+     * @since 1.0-Pre5
+     */
+    public void createShadowCascadeUniforms(int size) throws ShaderUniformException {
+        for (int i = 0; i < size; i++) {
+            createUniform("shadowMaps[" + i + "]");
+            createUniform("cascadeProjections[" + i + "]");
+            createUniform("cascadeFarPlanes[" + i + "]");
+        }
+        createUniform("cascadeCount");
+    }
+
     /**
      * Create a directional light uniform
      *
@@ -0,0 +1,231 @@
+package org.kakara.engine.render;
+
+import org.kakara.engine.GameEngine;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL20.GL_LINK_STATUS;
+import static org.lwjgl.opengl.GL20.glGetProgrami;
+import static org.lwjgl.opengl.GL41.*;
+
+/**
+ * Caches linked shader programs on the disk so they do not have to be compiled every launch.
+ *
+ * <p>Programs are stored with <code>glGetProgramBinary</code> under a key made from a hash of their source and the
+ * driver that compiled them. A binary is only used if its header, checksum, and driver all match, and the driver
+ * accepts it. Otherwise the file is deleted and the program is compiled from source again.</p>
+ * <p>The cache does nothing if the driver does not support program binaries.</p>
+ *
+ * <p>Get the cache of the engine through {@link ShaderManager#getProgramCache()}.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class ShaderCache {
+    // "KSHC"
+    private static final int MAGIC = 0x4B534843;
+    private static final int VERSION = 1;
+
+    private final Path directory;
+    private boolean enabled = true;
+    // Checked the first time the cache is used, since it needs the OpenGL context.
+    private Boolean supported;
+    private String driver;
+
+    /**
+     * Create a shader cache.
+     *
+     * @param directory The directory to store the programs in.
+     */
+    public ShaderCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get the default directory of the cache.
+     *
+     * @return The default directory. (<code>.kakaraengine/shadercache</code> in the home directory of the user).
+     */
+    public static Path getDefaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".kakaraengine", "shadercache");
+    }
+
+    /**
+     * Get the directory the programs are stored in.
+     *
+     * @return The directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Check if the cache can be used.
+     * <p>This must be called on the main thread.</p>
+     *
+     * @return If the cache is enabled and the driver supports program binaries.
+     */
+    public boolean isAvailable() {
+        if (!enabled) return false;
+        if (supported == null) {
+            GLCapabilities capabilities = GL.getCapabilities();
+            supported = (capabilities.OpenGL41 || capabilities.GL_ARB_get_program_binary)
+                    && glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+            driver = glGetString(GL_VENDOR) + "|" + glGetString(GL_RENDERER) + "|" + glGetString(GL_VERSION);
+        }
+        return supported;
+    }
+
+    /**
+     * Set if the cache is used.
+     *
+     * @param enabled If the cache is enabled.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Create the key of a program.
+     *
+     * @param sources The source code of every shader in the program.
+     * @return The key. (A hex SHA-256 of the sources and the driver).
+     */
+    public String createKey(String... sources) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String source : sources) {
+                digest.update(source.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            digest.update(String.valueOf(driver).getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest()) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Load a cached program.
+     * <p>If this returns true the program is linked and ready to use.</p>
+     *
+     * @param programId The id of the program to load the binary into.
+     * @param key       The key of the program.
+     * @return If the program was loaded from the cache.
+     */
+    public boolean load(int programId, String key) {
+        if (!isAvailable()) return false;
+        Path file = directory.resolve(key + ".bin");
+        if (!Files.isRegularFile(file)) return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !driver.equals(in.readUTF()) || !key.equals(in.readUTF())) {
+                return invalidate(file);
+            }
+            int format = in.readInt();
+            int length = in.readInt();
+            long checksum = in.readLong();
+            if (length <= 0)
+                return invalidate(file);
+            byte[] data = new byte[length];
+            in.readFully(data);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            if (crc.getValue() != checksum)
+                return invalidate(file);
+
+            ByteBuffer binary = BufferUtils.createByteBuffer(length);
+            binary.put(data).flip();
+            glProgramBinary(programId, format, binary);
+            if (glGetProgrami(programId, GL_LINK_STATUS) == 0)
+                return invalidate(file);
+            return true;
+        } catch (IOException e) {
+            GameEngine.LOGGER.warn("Unable to read the cached shader program " + file, e);
+            return invalidate(file);
+        }
+    }
+
+    /**
+     * Store a linked program in the cache.
+     * <p>The program should have been linked with <code>GL_PROGRAM_BINARY_RETRIEVABLE_HINT</code> set.</p>
+     *
+     * @param programId The id of the linked program.
+     * @param key       The key of the program.
+     */
+    public void save(int programId, String key) {
+        if (!isAvailable()) return;
+        int length = glGetProgrami(programId, GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0) return;
+
+        ByteBuffer binary = BufferUtils.createByteBuffer(length);
+        IntBuffer written = BufferUtils.createIntBuffer(1);
+        IntBuffer format = BufferUtils.createIntBuffer(1);
+        glGetProgramBinary(programId, written, format, binary);
+        byte[] data = new byte[written.get(0)];
+        binary.get(data);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        Path file = directory.resolve(key + ".bin");
+        try {
+            Files.createDirectories(directory);
+            // Write to a temporary file first so a crash never leaves half of a program in the cache.
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(driver);
+                out.writeUTF(key);
+                out.writeInt(format.get(0));
+                out.writeInt(data.length);
+                out.writeLong(crc.getValue());
+                out.write(data);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            GameEngine.LOGGER.warn("Unable to cache the shader program " + file, e);
+        }
+    }
+
+    /**
+     * Delete every cached program.
+     */
+    public void clear() {
+        if (!Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{bin,tmp}")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            GameEngine.LOGGER.warn("Unable to clear the shader cache.", e);
+        }
+    }
+
+    private boolean invalidate(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            GameEngine.LOGGER.warn("Unable to delete the invalid shader program " + file, e);
+        }
+        return false;
+    }
+}
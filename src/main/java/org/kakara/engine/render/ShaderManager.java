@@ -7,6 +7,7 @@ import org.kakara.engine.render.preset.shader.VoxelShader;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Handles shaders within the render system.
@@ -23,6 +24,7 @@ import java.util.Map;
 public final class ShaderManager {
     private final Map<String, ShaderProgram> programs;
     private boolean initialized;
+    private ShaderCache programCache = new ShaderCache(ShaderCache.getDefaultDirectory());
 
     /**
      * Internal use only.
@@ -62,6 +64,28 @@ public final class ShaderManager {
             program.initializeShader();
     }
 
+    /**
+     * Get the cache of linked shader programs.
+     * <p>Every {@link Shader} uses this cache when it is linked.</p>
+     *
+     * @return The program cache.
+     * @since 1.0-Pre5
+     */
+    public ShaderCache getProgramCache() {
+        return programCache;
+    }
+
+    /**
+     * Set the cache of linked shader programs.
+     * <p>This must be set before the shaders are initialized to have an effect.</p>
+     *
+     * @param programCache The program cache.
+     * @since 1.0-Pre5
+     */
+    public void setProgramCache(ShaderCache programCache) {
+        this.programCache = Objects.requireNonNull(programCache);
+    }
+
     /**
      * Find a shader with a specified name.
      *
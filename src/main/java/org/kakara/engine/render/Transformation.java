@@ -4,6 +4,7 @@ import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 import org.kakara.engine.gameitems.GameItem;
+import org.kakara.engine.math.Vector3;
 import org.kakara.engine.ui.objectcanvas.UIObject;
 
 /**
@@ -74,9 +75,10 @@ public class Transformation {
      * @return The model matrix.
      */
     public Matrix4f buildModelMatrix(GameItem gameItem) {
-        Quaternionf rotation = gameItem.transform.getRotation();
+        Quaternionf rotation = gameItem.transform.getRenderRotation();
+        Vector3 position = gameItem.transform.getRenderPosition();
         return modelMatrix.translationRotateScale(
-                gameItem.transform.getPosition().x, gameItem.transform.getPosition().y, gameItem.transform.getPosition().z,
+                position.x, position.y, position.z,
                 rotation.x, rotation.y, rotation.z, rotation.w,
                 gameItem.transform.getScale().x, gameItem.transform.getScale().y, gameItem.transform.getScale().z);
     }
@@ -136,8 +138,9 @@ public class Transformation {
      * @return The model view matrix.
      */
     public Matrix4f buildModelViewMatrix(GameItem gameItem, Matrix4f matrix) {
-        Quaternionf rotation = gameItem.transform.getRotation();
-        modelMatrix.translationRotateScale(gameItem.transform.getPosition().x, gameItem.transform.getPosition().y, gameItem.transform.getPosition().z, rotation.x, rotation.y, rotation.z, rotation.w, gameItem.transform.getScale().x,
+        Quaternionf rotation = gameItem.transform.getRenderRotation();
+        Vector3 position = gameItem.transform.getRenderPosition();
+        modelMatrix.translationRotateScale(position.x, position.y, position.z, rotation.x, rotation.y, rotation.z, rotation.w, gameItem.transform.getScale().x,
                 gameItem.transform.getScale().y, gameItem.transform.getScale().z);
         modelViewMatrix.set(matrix);
         return modelViewMatrix.mul(modelMatrix);
@@ -0,0 +1,37 @@
+package org.kakara.engine.render.command;
+
+import org.joml.Matrix4f;
+import org.kakara.engine.gameitems.Material;
+import org.kakara.engine.gameitems.mesh.IMesh;
+import org.kakara.engine.render.Shader;
+
+/**
+ * Draws recorded commands with OpenGL.
+ * <p>The material is only set when it changes between draws.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class GLRenderBackend implements RenderBackend {
+    private final Matrix4f modelMatrix = new Matrix4f();
+    private final Matrix4f modelViewMatrix = new Matrix4f();
+    private final Matrix4f modelLightViewMatrix = new Matrix4f();
+
+    @Override
+    public void execute(RenderCommandBuffer commands, Shader shader, boolean depthMap, Matrix4f viewMatrix, Matrix4f lightViewMatrix) {
+        Material currentMaterial = null;
+        for (int i = 0; i < commands.getDrawCount(); i++) {
+            IMesh mesh = commands.getMesh(i);
+            commands.getModelMatrix(i, modelMatrix);
+            if (!depthMap) {
+                Material material = mesh.getMaterial().orElse(null);
+                if (material != null && material != currentMaterial) {
+                    shader.setUniform("material", material);
+                    currentMaterial = material;
+                }
+                shader.setUniform("modelViewNonInstancedMatrix", viewMatrix.mulAffine(modelMatrix, modelViewMatrix));
+            }
+            shader.setUniform("modelLightViewNonInstancedMatrix", lightViewMatrix.mulAffine(modelMatrix, modelLightViewMatrix));
+            mesh.render();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.kakara.engine.render.command;
+
+import org.joml.Matrix4f;
+import org.kakara.engine.gameitems.mesh.IMesh;
+import org.kakara.engine.render.Shader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A backend that does not draw anything.
+ * <p>It only counts the draws it is given and keeps the order of their meshes, so the render pipelines can be tested
+ * without a GPU.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class NullRenderBackend implements RenderBackend {
+    private final Matrix4f modelMatrix = new Matrix4f();
+    private long drawCount;
+    private long depthDrawCount;
+    private final List<IMesh> executedMeshes = new ArrayList<>();
+
+    @Override
+    public void execute(RenderCommandBuffer commands, Shader shader, boolean depthMap, Matrix4f viewMatrix, Matrix4f lightViewMatrix) {
+        for (int i = 0; i < commands.getDrawCount(); i++) {
+            // Still wait for the matrices so the recording is exercised the same way.
+            commands.getModelMatrix(i, modelMatrix);
+            executedMeshes.add(commands.getMesh(i));
+        }
+        if (depthMap)
+            depthDrawCount += commands.getDrawCount();
+        else
+            drawCount += commands.getDrawCount();
+    }
+
+    /**
+     * Get the number of draws executed for the regular passes.
+     *
+     * @return The number of draws.
+     */
+    public long getDrawCount() {
+        return drawCount;
+    }
+
+    /**
+     * Get the number of draws executed for the depth map.
+     *
+     * @return The number of depth map draws.
+     */
+    public long getDepthDrawCount() {
+        return depthDrawCount;
+    }
+
+    /**
+     * Get the meshes of every draw executed, in the order they were executed.
+     *
+     * @return The executed meshes.
+     */
+    public List<IMesh> getExecutedMeshes() {
+        return executedMeshes;
+    }
+
+    /**
+     * Reset the draw counts and the executed meshes.
+     */
+    public void reset() {
+        drawCount = 0;
+        depthDrawCount = 0;
+        executedMeshes.clear();
+    }
+}
@@ -0,0 +1,26 @@
+package org.kakara.engine.render.command;
+
+import org.joml.Matrix4f;
+import org.kakara.engine.render.Shader;
+
+/**
+ * Executes the draws recorded in a {@link RenderCommandBuffer}.
+ *
+ * <p>The renderer uses {@link GLRenderBackend} by default. {@link NullRenderBackend} can be used to run the render
+ * pipelines without drawing anything, for example in tests.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public interface RenderBackend {
+    /**
+     * Execute the draws of a command buffer.
+     * <p>The shader is already bound.</p>
+     *
+     * @param commands        The commands to execute.
+     * @param shader          The shader to draw with.
+     * @param depthMap        If the depth map is being rendered.
+     * @param viewMatrix      The view matrix. (Null for the depth map).
+     * @param lightViewMatrix The light view matrix.
+     */
+    void execute(RenderCommandBuffer commands, Shader shader, boolean depthMap, Matrix4f viewMatrix, Matrix4f lightViewMatrix);
+}
@@ -0,0 +1,180 @@
+package org.kakara.engine.render.command;
+
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.kakara.engine.GameEngine;
+import org.kakara.engine.components.Transform;
+import org.kakara.engine.gameitems.mesh.IMesh;
+import org.kakara.engine.math.Vector3;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A recorded list of draws for a single frame.
+ *
+ * <p>The main thread records each draw with {@link #add(IMesh, Transform)}, which copies the transform of the item
+ * into the buffer. {@link #submit()} then builds the model matrices on a worker thread. After recording the buffer does
+ * not reference any GameItems, so the game can keep changing while the matrices are built and the draws are executed
+ * by a {@link RenderBackend}.</p>
+ *
+ * <p>This class is <b>not</b> thread safe. Everything other than building the matrices must happen on the same
+ * thread.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class RenderCommandBuffer {
+    // The floats of each recorded transform: position, rotation, and scale.
+    private static final int TRANSFORM_FLOATS = 10;
+    private static final int MATRIX_FLOATS = 16;
+    // Buffers with fewer draws than this build their matrices on the calling thread.
+    private static final int WORKER_THRESHOLD = 64;
+
+    private static ExecutorService executor;
+
+    private IMesh[] meshes = new IMesh[64];
+    private float[] transforms = new float[64 * TRANSFORM_FLOATS];
+    private float[] matrices = new float[64 * MATRIX_FLOATS];
+    private int count;
+    private long frame = -1;
+    private Future<?> job;
+
+    /**
+     * Clear the buffer to record a new frame.
+     *
+     * @param frame The frame that is being recorded.
+     */
+    public void reset(long frame) {
+        await();
+        Arrays.fill(meshes, 0, count, null);
+        this.count = 0;
+        this.frame = frame;
+    }
+
+    /**
+     * Record a draw.
+     *
+     * @param mesh      The mesh to draw.
+     * @param transform The transform of the item. (This is copied).
+     */
+    public void add(IMesh mesh, Transform transform) {
+        if (count == meshes.length) {
+            meshes = Arrays.copyOf(meshes, count * 2);
+            transforms = Arrays.copyOf(transforms, count * 2 * TRANSFORM_FLOATS);
+            matrices = Arrays.copyOf(matrices, count * 2 * MATRIX_FLOATS);
+        }
+        Vector3 position = transform.getRenderPosition();
+        Quaternionf rotation = transform.getRenderRotation();
+        Vector3 scale = transform.getScale();
+        int offset = count * TRANSFORM_FLOATS;
+        transforms[offset] = position.x;
+        transforms[offset + 1] = position.y;
+        transforms[offset + 2] = position.z;
+        transforms[offset + 3] = rotation.x;
+        transforms[offset + 4] = rotation.y;
+        transforms[offset + 5] = rotation.z;
+        transforms[offset + 6] = rotation.w;
+        transforms[offset + 7] = scale.x;
+        transforms[offset + 8] = scale.y;
+        transforms[offset + 9] = scale.z;
+        meshes[count++] = mesh;
+    }
+
+    /**
+     * Finish recording and build the model matrices.
+     * <p>Large buffers build their matrices on a worker thread. Reading the buffer waits for the worker.</p>
+     */
+    public void submit() {
+        if (job != null) return;
+        if (count < WORKER_THRESHOLD) {
+            buildMatrices(count);
+            return;
+        }
+        synchronized (RenderCommandBuffer.class) {
+            if (executor == null) {
+                executor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "Render Commands");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+        int drawCount = count;
+        job = executor.submit(() -> buildMatrices(drawCount));
+    }
+
+    /**
+     * Build the model matrix of every draw.
+     *
+     * @param drawCount The number of draws.
+     */
+    private void buildMatrices(int drawCount) {
+        Matrix4f matrix = new Matrix4f();
+        for (int i = 0; i < drawCount; i++) {
+            int t = i * TRANSFORM_FLOATS;
+            matrix.translationRotateScale(transforms[t], transforms[t + 1], transforms[t + 2],
+                    transforms[t + 3], transforms[t + 4], transforms[t + 5], transforms[t + 6],
+                    transforms[t + 7], transforms[t + 8], transforms[t + 9]);
+            matrix.get(matrices, i * MATRIX_FLOATS);
+        }
+    }
+
+    /**
+     * Wait for the worker to finish building the matrices.
+     */
+    private void await() {
+        if (job == null) return;
+        try {
+            job.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            GameEngine.LOGGER.error("Unable to build the render commands.", e.getCause());
+        }
+        job = null;
+    }
+
+    /**
+     * Get the frame the buffer was recorded for.
+     *
+     * @return The frame.
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * Get the number of recorded draws.
+     *
+     * @return The number of draws.
+     */
+    public int getDrawCount() {
+        return count;
+    }
+
+    /**
+     * Get the mesh of a draw.
+     *
+     * @param index The index of the draw.
+     * @return The mesh.
+     */
+    public IMesh getMesh(int index) {
+        return meshes[index];
+    }
+
+    /**
+     * Get the model matrix of a draw.
+     * <p>This waits for the matrices to be built.</p>
+     *
+     * @param index The index of the draw.
+     * @param dest  The matrix to store the model matrix in.
+     * @return The dest matrix.
+     */
+    public Matrix4f getModelMatrix(int index, Matrix4f dest) {
+        await();
+        return dest.set(matrices, index * MATRIX_FLOATS);
+    }
+}
@@ -0,0 +1,21 @@
+package org.kakara.engine.render.culling;
+
+/**
+ * Provides the world space bounds of objects stored in a {@link VisibilityTree}.
+ *
+ * @param <T> The type of object.
+ * @since 1.0-Pre5
+ */
+@FunctionalInterface
+public interface BoundsProvider<T> {
+    /**
+     * Write the bounds of an object into an array.
+     * <p>The array is filled with: minX, minY, minZ, maxX, maxY, maxZ. This is called every frame for dynamic trees,
+     * so it should not allocate.</p>
+     *
+     * @param object The object.
+     * @param dest   The array to write into.
+     * @return If the object has bounds. Objects without bounds are never culled.
+     */
+    boolean getBounds(T object, float[] dest);
+}
@@ -3,17 +3,33 @@ package org.kakara.engine.render.culling;
 import org.jetbrains.annotations.Nullable;
 import org.joml.FrustumIntersection;
 import org.joml.Matrix4f;
+import org.joml.Vector4f;
 import org.kakara.engine.math.Vector3;
 import org.kakara.engine.physics.collision.ColliderComponent;
 
 /**
  * This class handles the Frustum Culling Code.
  *
+ * <p>None of the test methods allocate, so they are safe to call for every object every frame.</p>
+ *
  * @since 1.0-Pre3
  */
 public class FrustumCullingFilter {
+    /**
+     * The plane mask with every plane of the frustum enabled.
+     *
+     * @since 1.0-Pre5
+     */
+    public static final int ALL_PLANES = 0b111111;
+
+    private static final int PLANE_COUNT = 6;
+
     private final Matrix4f projViewMatrix;
     private final FrustumIntersection frustumInt;
+    // The planes of the frustum stored as (a, b, c, d), with the normals pointing inwards.
+    private final float[] planes = new float[PLANE_COUNT * 4];
+    private final Vector4f planeScratch = new Vector4f();
+    private final float[] boundsScratch = new float[6];
 
     public FrustumCullingFilter() {
         projViewMatrix = new Matrix4f();
@@ -30,6 +46,13 @@ public class FrustumCullingFilter {
         projViewMatrix.set(projMatrix);
         projViewMatrix.mul(viewMatrix);
         frustumInt.set(projViewMatrix);
+        for (int i = 0; i < PLANE_COUNT; i++) {
+            projViewMatrix.frustumPlane(i, planeScratch);
+            planes[i * 4] = planeScratch.x;
+            planes[i * 4 + 1] = planeScratch.y;
+            planes[i * 4 + 2] = planeScratch.z;
+            planes[i * 4 + 3] = planeScratch.w;
+        }
     }
 
     /**
@@ -42,7 +65,7 @@ public class FrustumCullingFilter {
      * @return If the object is visible.
      */
     public boolean testRenderObject(Vector3 position, float xs, float ys, float zs) {
-        return frustumInt.testAab(position.toJoml(), position.add(xs, ys, zs).toJoml());
+        return frustumInt.testAab(position.x, position.y, position.z, position.x + xs, position.y + ys, position.z + zs);
     }
 
     /**
@@ -52,7 +75,59 @@ public class FrustumCullingFilter {
      * @return If the collider is visible.
      */
     public boolean testCollider(@Nullable ColliderComponent collider) {
-        return collider == null ||
-                frustumInt.testAab(collider.getAbsolutePoint1().toJoml(), collider.getAbsolutePoint2().toJoml());
+        if (collider == null) return true;
+        collider.getAbsoluteBounds(boundsScratch);
+        return testAab(boundsScratch[0], boundsScratch[1], boundsScratch[2], boundsScratch[3], boundsScratch[4], boundsScratch[5]);
+    }
+
+    /**
+     * Test an axis aligned box against the frustum.
+     *
+     * @param minX The minimum x.
+     * @param minY The minimum y.
+     * @param minZ The minimum z.
+     * @param maxX The maximum x.
+     * @param maxY The maximum y.
+     * @param maxZ The maximum z.
+     * @return If the box is (at least partly) visible.
+     * @since 1.0-Pre5
+     */
+    public boolean testAab(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return frustumInt.testAab(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Test an axis aligned box against a subset of the planes of the frustum.
+     * <p>This is used to walk a hierarchy of boxes. Planes that a parent box is completely inside of do not need to be
+     * tested for any of its children, so the returned mask is passed down to them.</p>
+     *
+     * @param minX       The minimum x.
+     * @param minY       The minimum y.
+     * @param minZ       The minimum z.
+     * @param maxX       The maximum x.
+     * @param maxY       The maximum y.
+     * @param maxZ       The maximum z.
+     * @param mask       The planes to test. (See {@link #ALL_PLANES}).
+     * @param firstPlane The plane to test first. Passing the plane that culled the box last time makes rejecting it
+     *                   again cheaper.
+     * @return The planes the box still intersects (0 if the box is completely inside), or <code>-(plane + 1)</code> if the
+     * box is outside of the frustum.
+     * @since 1.0-Pre5
+     */
+    public int intersectAab(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int mask, int firstPlane) {
+        for (int n = 0; n < PLANE_COUNT; n++) {
+            int plane = (firstPlane + n) % PLANE_COUNT;
+            int bit = 1 << plane;
+            if ((mask & bit) == 0) continue;
+            int i = plane * 4;
+            float a = planes[i], b = planes[i + 1], c = planes[i + 2], d = planes[i + 3];
+            // The corner furthest along the normal.
+            if (a * (a > 0 ? maxX : minX) + b * (b > 0 ? maxY : minY) + c * (c > 0 ? maxZ : minZ) + d < 0)
+                return -(plane + 1);
+            // The corner furthest against the normal.
+            if (a * (a > 0 ? minX : maxX) + b * (b > 0 ? minY : maxY) + c * (c > 0 ? minZ : maxZ) + d >= 0)
+                mask &= ~bit;
+        }
+        return mask;
     }
 }
@@ -0,0 +1,416 @@
+package org.kakara.engine.render.culling;
+
+import org.joml.Matrix4f;
+import org.kakara.engine.GameEngine;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Culls objects that are hidden behind large occluders, using a low resolution depth buffer rasterized on the CPU.
+ *
+ * <p>Each frame the occluders (boxes that are completely solid) are added with {@link #addOccluder(float, float, float, float, float, float)}
+ * and then {@link #submit()} rasterizes them on a worker thread and builds a hierarchical depth (Hi-Z) pyramid from
+ * the result. {@link #testAab(float, float, float, float, float, float)} waits for the worker and checks a box against
+ * the pyramid. Each texel of a level stores the furthest depth of the four texels below it, so a box is hidden
+ * only if it is behind every texel it covers.</p>
+ * <p>Nothing is read back from the GPU, and this class does not use OpenGL at all.</p>
+ *
+ * <p>This class is <b>not</b> thread safe. Everything other than the rasterization must happen on the same thread.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class OcclusionCuller {
+    /**
+     * The default width of the depth buffer.
+     */
+    public static final int DEFAULT_WIDTH = 256;
+    /**
+     * The default height of the depth buffer.
+     */
+    public static final int DEFAULT_HEIGHT = 128;
+
+    // Points closer to the camera than this cannot be projected safely.
+    private static final float MIN_W = 1.0e-4f;
+    // The corners of each face of a box, counter clockwise when seen from outside. (Bit 0 is x, bit 1 is y, and bit 2 is z).
+    private static final int[] FACES = {
+            0, 4, 6, 2,
+            1, 3, 7, 5,
+            0, 1, 5, 4,
+            2, 6, 7, 3,
+            0, 2, 3, 1,
+            4, 5, 7, 6
+    };
+
+    private final int width;
+    private final int height;
+    // The depth pyramid, level 0 is the full resolution depth buffer. Depth is stored in normalized device coordinates.
+    private final float[][] levels;
+    private final int[] levelWidths;
+    private final int[] levelHeights;
+
+    private final Matrix4f projViewMatrix = new Matrix4f();
+    private float[] occluders = new float[6 * 64];
+    private int occluderCount;
+
+    // Scratch space for the projected corners, one for the caller and one for the worker.
+    private final float[] testCorners = new float[8 * 3];
+    private final float[] rasterCorners = new float[8 * 3];
+
+    private ExecutorService executor;
+    private Future<?> job;
+    private boolean ready;
+    private boolean enabled = true;
+
+    /**
+     * Create an occlusion culler with the default resolution.
+     */
+    public OcclusionCuller() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    /**
+     * Create an occlusion culler.
+     *
+     * @param width  The width of the depth buffer.
+     * @param height The height of the depth buffer.
+     */
+    public OcclusionCuller(int width, int height) {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("The size of the depth buffer must be positive.");
+        this.width = width;
+        this.height = height;
+
+        int levelCount = 1;
+        for (int w = width, h = height; w > 1 || h > 1; w = (w + 1) / 2, h = (h + 1) / 2)
+            levelCount++;
+        levels = new float[levelCount][];
+        levelWidths = new int[levelCount];
+        levelHeights = new int[levelCount];
+        for (int i = 0, w = width, h = height; i < levelCount; i++, w = (w + 1) / 2, h = (h + 1) / 2) {
+            levels[i] = new float[w * h];
+            levelWidths[i] = w;
+            levelHeights[i] = h;
+        }
+    }
+
+    /**
+     * Start a new frame.
+     * <p>This waits for the previous frame to finish and removes all of the occluders.</p>
+     *
+     * @param projMatrix The projection matrix.
+     * @param viewMatrix The view matrix.
+     */
+    public void begin(Matrix4f projMatrix, Matrix4f viewMatrix) {
+        await();
+        ready = false;
+        job = null;
+        occluderCount = 0;
+        projViewMatrix.set(projMatrix).mul(viewMatrix);
+    }
+
+    /**
+     * Add an occluder for the current frame.
+     * <p>The box must be completely solid, anything behind it is treated as hidden.</p>
+     *
+     * @param minX The minimum x.
+     * @param minY The minimum y.
+     * @param minZ The minimum z.
+     * @param maxX The maximum x.
+     * @param maxY The maximum y.
+     * @param maxZ The maximum z.
+     */
+    public void addOccluder(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if (!enabled) return;
+        if (job != null)
+            throw new IllegalStateException("Occluders cannot be added after the frame has been submitted.");
+        int index = occluderCount * 6;
+        if (index + 6 > occluders.length)
+            occluders = Arrays.copyOf(occluders, occluders.length * 2);
+        occluders[index] = minX;
+        occluders[index + 1] = minY;
+        occluders[index + 2] = minZ;
+        occluders[index + 3] = maxX;
+        occluders[index + 4] = maxY;
+        occluders[index + 5] = maxZ;
+        occluderCount++;
+    }
+
+    /**
+     * Rasterize the occluders and build the depth pyramid on the worker thread.
+     */
+    public void submit() {
+        if (!enabled || occluderCount == 0 || job != null) return;
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Occlusion Culler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        job = executor.submit(this::rasterize);
+    }
+
+    /**
+     * Test a box against the depth pyramid.
+     * <p>If the occluders are still being rasterized this waits for them to finish.</p>
+     *
+     * @param minX The minimum x.
+     * @param minY The minimum y.
+     * @param minZ The minimum z.
+     * @param maxX The maximum x.
+     * @param maxY The maximum y.
+     * @param maxZ The maximum z.
+     * @return False if the box is completely hidden, otherwise true.
+     */
+    public boolean testAab(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if (job == null) return true;
+        await();
+        if (!ready) return true;
+
+        if (!project(minX, minY, minZ, maxX, maxY, maxZ, testCorners))
+            return true;
+
+        float left = Float.MAX_VALUE, bottom = Float.MAX_VALUE, near = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE, top = -Float.MAX_VALUE;
+        for (int i = 0; i < 8; i++) {
+            left = Math.min(left, testCorners[i * 3]);
+            right = Math.max(right, testCorners[i * 3]);
+            bottom = Math.min(bottom, testCorners[i * 3 + 1]);
+            top = Math.max(top, testCorners[i * 3 + 1]);
+            near = Math.min(near, testCorners[i * 3 + 2]);
+        }
+        // Boxes touching the near plane or off the screen are left to the frustum.
+        if (near <= -1 || right < 0 || top < 0 || left >= width || bottom >= height)
+            return true;
+
+        int x0 = Math.max(0, (int) left);
+        int y0 = Math.max(0, (int) bottom);
+        int x1 = Math.min(width - 1, (int) right);
+        int y1 = Math.min(height - 1, (int) top);
+
+        // Go up the pyramid until the box only covers a few texels.
+        int level = 0;
+        while ((x1 - x0 > 2 || y1 - y0 > 2) && level < levels.length - 1) {
+            x0 >>= 1;
+            y0 >>= 1;
+            x1 >>= 1;
+            y1 >>= 1;
+            level++;
+        }
+
+        float[] depth = levels[level];
+        int levelWidth = levelWidths[level];
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                if (depth[y * levelWidth + x] >= near)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wait for the worker to finish the current frame.
+     */
+    private void await() {
+        if (job == null || job.isDone() && ready) return;
+        try {
+            job.get();
+            ready = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job = null;
+        } catch (ExecutionException e) {
+            GameEngine.LOGGER.error("Unable to rasterize the occluders.", e.getCause());
+            job = null;
+        }
+    }
+
+    /**
+     * Rasterize every occluder and build the pyramid.
+     * <p>This runs on the worker thread.</p>
+     */
+    private void rasterize() {
+        float[] depth = levels[0];
+        Arrays.fill(depth, 1);
+        for (int i = 0; i < occluderCount; i++) {
+            int o = i * 6;
+            // Occluders that cross the near plane are skipped rather than clipped.
+            if (!project(occluders[o], occluders[o + 1], occluders[o + 2], occluders[o + 3], occluders[o + 4], occluders[o + 5], rasterCorners))
+                continue;
+            for (int face = 0; face < FACES.length; face += 4) {
+                int a = FACES[face] * 3, b = FACES[face + 1] * 3, c = FACES[face + 2] * 3, d = FACES[face + 3] * 3;
+                rasterizeTriangle(depth, a, b, c);
+                rasterizeTriangle(depth, a, c, d);
+            }
+        }
+
+        for (int level = 1; level < levels.length; level++) {
+            float[] source = levels[level - 1];
+            float[] dest = levels[level];
+            int sourceWidth = levelWidths[level - 1];
+            int sourceHeight = levelHeights[level - 1];
+            int destWidth = levelWidths[level];
+            for (int y = 0; y < levelHeights[level]; y++) {
+                int sy0 = y * 2, sy1 = Math.min(sy0 + 1, sourceHeight - 1);
+                for (int x = 0; x < destWidth; x++) {
+                    int sx0 = x * 2, sx1 = Math.min(sx0 + 1, sourceWidth - 1);
+                    dest[y * destWidth + x] = Math.max(
+                            Math.max(source[sy0 * sourceWidth + sx0], source[sy0 * sourceWidth + sx1]),
+                            Math.max(source[sy1 * sourceWidth + sx0], source[sy1 * sourceWidth + sx1]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Rasterize a triangle into the depth buffer.
+     * <p>The whole triangle is written with the depth of its furthest corner, so it never hides more than it should.
+     * Back facing triangles are skipped since the front of the box is always closer.</p>
+     */
+    private void rasterizeTriangle(float[] depth, int a, int b, int c) {
+        float[] corners = rasterCorners;
+        float ax = corners[a], ay = corners[a + 1];
+        float bx = corners[b], by = corners[b + 1];
+        float cx = corners[c], cy = corners[c + 1];
+        float z = Math.max(corners[a + 2], Math.max(corners[b + 2], corners[c + 2]));
+        if (z >= 1) return;
+
+        float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+        if (area < 1.0e-6f) return;
+
+        int minX = Math.max(0, (int) Math.floor(Math.min(ax, Math.min(bx, cx))));
+        int maxX = Math.min(width - 1, (int) Math.ceil(Math.max(ax, Math.max(bx, cx))));
+        int minY = Math.max(0, (int) Math.floor(Math.min(ay, Math.min(by, cy))));
+        int maxY = Math.min(height - 1, (int) Math.ceil(Math.max(ay, Math.max(by, cy))));
+
+        // The edge functions at the centre of the first pixel, stepped along each row.
+        float px = minX + 0.5f;
+        for (int y = minY; y <= maxY; y++) {
+            float py = y + 0.5f;
+            float w0 = (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+            float w1 = (cx - bx) * (py - by) - (cy - by) * (px - bx);
+            float w2 = (ax - cx) * (py - cy) - (ay - cy) * (px - cx);
+            int index = y * width + minX;
+            for (int x = minX; x <= maxX; x++, index++) {
+                if (w0 >= 0 && w1 >= 0 && w2 >= 0 && z < depth[index])
+                    depth[index] = z;
+                w0 -= by - ay;
+                w1 -= cy - by;
+                w2 -= ay - cy;
+            }
+        }
+    }
+
+    /**
+     * Project the corners of a box into the depth buffer.
+     *
+     * @param dest The array to write the (x, y, depth) of each corner into.
+     * @return False if a corner is behind the camera.
+     */
+    private boolean project(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, float[] dest) {
+        Matrix4f m = projViewMatrix;
+        for (int i = 0; i < 8; i++) {
+            float x = (i & 1) == 0 ? minX : maxX;
+            float y = (i & 2) == 0 ? minY : maxY;
+            float z = (i & 4) == 0 ? minZ : maxZ;
+            float w = m.m03() * x + m.m13() * y + m.m23() * z + m.m33();
+            if (w < MIN_W) return false;
+            float invW = 1 / w;
+            dest[i * 3] = ((m.m00() * x + m.m10() * y + m.m20() * z + m.m30()) * invW * 0.5f + 0.5f) * width;
+            dest[i * 3 + 1] = ((m.m01() * x + m.m11() * y + m.m21() * z + m.m31()) * invW * 0.5f + 0.5f) * height;
+            dest[i * 3 + 2] = (m.m02() * x + m.m12() * y + m.m22() * z + m.m32()) * invW;
+        }
+        return true;
+    }
+
+    /**
+     * Set if occlusion culling is enabled.
+     *
+     * @param enabled If occlusion culling is enabled.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Check if occlusion culling is enabled.
+     *
+     * @return If occlusion culling is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the number of occluders added this frame.
+     *
+     * @return The number of occluders.
+     */
+    public int getOccluderCount() {
+        return occluderCount;
+    }
+
+    /**
+     * Get the width of the depth buffer.
+     *
+     * @return The width of the depth buffer.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the depth buffer.
+     *
+     * @return The height of the depth buffer.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the number of levels of the depth pyramid.
+     */
+    int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * Get the width of a level of the depth pyramid.
+     */
+    int getLevelWidth(int level) {
+        return levelWidths[level];
+    }
+
+    /**
+     * Get the height of a level of the depth pyramid.
+     */
+    int getLevelHeight(int level) {
+        return levelHeights[level];
+    }
+
+    /**
+     * Get a texel of the depth pyramid, waiting for the worker if the frame was submitted.
+     */
+    float getDepth(int level, int x, int y) {
+        await();
+        return levels[level][y * levelWidths[level] + x];
+    }
+
+    /**
+     * Stop the worker thread.
+     */
+    public void cleanup() {
+        await();
+        job = null;
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
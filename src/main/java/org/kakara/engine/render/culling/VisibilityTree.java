@@ -0,0 +1,533 @@
+package org.kakara.engine.render.culling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A bounding volume hierarchy used to find the objects that are within the view frustum.
+ *
+ * <p>The tree is a dynamic AABB tree. Each object is stored in a leaf with a slightly enlarged ("fat") box, so objects
+ * that move a little do not need to be reinserted. Objects in a dynamic tree are marked with {@link #markMoved(Object)}
+ * when they move; {@link #update()} only checks the bounds of the marked objects, and only touches the hierarchy for
+ * the ones that left their fat box.</p>
+ * <p>Queries walk the hierarchy and only test the planes that a parent box is not already completely inside of. Once
+ * a box is completely inside of the frustum its whole subtree is accepted without any more tests. Nothing is
+ * allocated during a query.</p>
+ *
+ * <p>Objects can be added, removed and marked as moved from any thread, the changes are applied by the next
+ * {@link #update()}. Everything else must be called on the main thread.</p>
+ *
+ * @param <T> The type of object stored in the tree.
+ * @since 1.0-Pre5
+ */
+public class VisibilityTree<T> {
+    private static final int NULL = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final BoundsProvider<T> boundsProvider;
+    private final float margin;
+    private final boolean dynamic;
+
+    private final Queue<PendingChange<T>> pendingChanges = new ConcurrentLinkedQueue<>();
+    // The objects that moved since the last update. (A set, so an object that moves many times is only refit once).
+    private final Set<T> moved = ConcurrentHashMap.newKeySet();
+    // The leaf of each object, or NULL if the object does not have bounds.
+    private final Map<T, Integer> leaves = new IdentityHashMap<>();
+    private final List<T> unbounded = new ArrayList<>();
+    private final float[] scratch = new float[6];
+
+    // The nodes of the tree. Free nodes have a height of -1 and are linked together through the parent array.
+    private float[] bounds;
+    private int[] parent;
+    private int[] left;
+    private int[] right;
+    private int[] height;
+    private byte[] lastPlane;
+    private Object[] objects;
+    private int capacity;
+    private int root = NULL;
+    private int freeList = NULL;
+
+    // The traversal stacks used by queries.
+    private int[] nodeStack;
+    private int[] maskStack;
+
+    /**
+     * Create a new visibility tree.
+     *
+     * @param boundsProvider Provides the bounds of the objects.
+     * @param margin         How much the box of each object is enlarged by. (Should be 0 for objects that do not move).
+     * @param dynamic        If the objects can move. The bounds of the objects marked with {@link #markMoved(Object)}
+     *                       are checked during {@link #update()}. If false the objects are assumed to never move.
+     */
+    public VisibilityTree(BoundsProvider<T> boundsProvider, float margin, boolean dynamic) {
+        this.boundsProvider = boundsProvider;
+        this.margin = margin;
+        this.dynamic = dynamic;
+        grow(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Add an object to the tree.
+     * <p>This can be called on any thread, the object is added during the next {@link #update()}.</p>
+     *
+     * @param object The object to add.
+     */
+    public void add(T object) {
+        pendingChanges.add(new PendingChange<>(object, true));
+    }
+
+    /**
+     * Remove an object from the tree.
+     * <p>This can be called on any thread, the object is removed during the next {@link #update()}.</p>
+     *
+     * @param object The object to remove.
+     */
+    public void remove(T object) {
+        pendingChanges.add(new PendingChange<>(object, false));
+    }
+
+    /**
+     * Mark an object as moved, so its bounds are checked during the next {@link #update()}.
+     * <p>This can be called on any thread. It does nothing if the tree is not dynamic.</p>
+     *
+     * @param object The object that moved.
+     * @since 1.0-Pre5
+     */
+    public void markMoved(T object) {
+        if (dynamic)
+            moved.add(object);
+    }
+
+    /**
+     * Apply the pending changes and refit the objects that have moved.
+     * <p>This must be called on the main thread.</p>
+     */
+    public void update() {
+        PendingChange<T> change;
+        while ((change = pendingChanges.poll()) != null) {
+            if (change.add)
+                insertObject(change.object);
+            else
+                removeObject(change.object);
+        }
+
+        if (!dynamic) return;
+
+        for (Iterator<T> iterator = moved.iterator(); iterator.hasNext(); ) {
+            T object = iterator.next();
+            iterator.remove();
+            Integer leaf = leaves.get(object);
+            // Objects that are not in the tree, or have no bounds, are handled below.
+            if (leaf == null || leaf == NULL) continue;
+            int node = leaf;
+            if (!boundsProvider.getBounds(object, scratch)) {
+                removeLeaf(node);
+                freeNode(node);
+                leaves.put(object, NULL);
+                unbounded.add(object);
+                continue;
+            }
+            if (!contains(node, scratch)) {
+                removeLeaf(node);
+                setFatBounds(node, scratch);
+                insertLeaf(node);
+            }
+        }
+
+        for (int i = unbounded.size() - 1; i >= 0; i--) {
+            T object = unbounded.get(i);
+            if (!boundsProvider.getBounds(object, scratch)) continue;
+            unbounded.remove(i);
+            leaves.put(object, createLeaf(object, scratch));
+        }
+    }
+
+    /**
+     * Find the objects that are within the frustum.
+     * <p>Objects without bounds are always included. This must be called on the main thread after {@link #update()}.</p>
+     *
+     * @param filter The frustum to test against.
+     * @param dest   The list to add the visible objects to. (The list is not cleared).
+     */
+    @SuppressWarnings("unchecked")
+    public void query(FrustumCullingFilter filter, List<? super T> dest) {
+        for (int i = 0; i < unbounded.size(); i++) {
+            dest.add(unbounded.get(i));
+        }
+        if (root == NULL) return;
+
+        int top = 0;
+        nodeStack[top] = root;
+        maskStack[top++] = FrustumCullingFilter.ALL_PLANES;
+        while (top > 0) {
+            top--;
+            int node = nodeStack[top];
+            int mask = maskStack[top];
+            if (mask != 0) {
+                int b = node * 6;
+                int result = filter.intersectAab(bounds[b], bounds[b + 1], bounds[b + 2],
+                        bounds[b + 3], bounds[b + 4], bounds[b + 5], mask, lastPlane[node]);
+                if (result < 0) {
+                    // Remember the plane that culled the node, it is likely to cull it again next frame.
+                    lastPlane[node] = (byte) (-result - 1);
+                    continue;
+                }
+                mask = result;
+            }
+            if (left[node] == NULL) {
+                dest.add((T) objects[node]);
+                continue;
+            }
+            nodeStack[top] = left[node];
+            maskStack[top++] = mask;
+            nodeStack[top] = right[node];
+            maskStack[top++] = mask;
+        }
+    }
+
+    /**
+     * Get the current bounds of an object using the bounds provider of the tree.
+     *
+     * @param object The object.
+     * @param dest   The array to write the bounds into.
+     * @return If the object has bounds.
+     */
+    public boolean getBounds(T object, float[] dest) {
+        return boundsProvider.getBounds(object, dest);
+    }
+
+    /**
+     * Get the number of objects in the tree.
+     *
+     * @return The number of objects.
+     */
+    public int size() {
+        return leaves.size();
+    }
+
+    /**
+     * Get the height of the hierarchy.
+     *
+     * @return The height of the hierarchy. (0 if the tree is empty or only has one object).
+     */
+    public int getHeight() {
+        return root == NULL ? 0 : height[root];
+    }
+
+    private void insertObject(T object) {
+        if (leaves.containsKey(object)) return;
+        if (boundsProvider.getBounds(object, scratch)) {
+            leaves.put(object, createLeaf(object, scratch));
+        } else {
+            leaves.put(object, NULL);
+            unbounded.add(object);
+        }
+    }
+
+    private void removeObject(T object) {
+        Integer leaf = leaves.remove(object);
+        if (leaf == null) return;
+        if (leaf == NULL) {
+            unbounded.remove(object);
+            return;
+        }
+        removeLeaf(leaf);
+        freeNode(leaf);
+    }
+
+    private int createLeaf(T object, float[] box) {
+        int leaf = allocateNode();
+        objects[leaf] = object;
+        setFatBounds(leaf, box);
+        insertLeaf(leaf);
+        return leaf;
+    }
+
+    private void setFatBounds(int node, float[] box) {
+        int b = node * 6;
+        bounds[b] = box[0] - margin;
+        bounds[b + 1] = box[1] - margin;
+        bounds[b + 2] = box[2] - margin;
+        bounds[b + 3] = box[3] + margin;
+        bounds[b + 4] = box[4] + margin;
+        bounds[b + 5] = box[5] + margin;
+    }
+
+    private boolean contains(int node, float[] box) {
+        int b = node * 6;
+        return bounds[b] <= box[0] && bounds[b + 1] <= box[1] && bounds[b + 2] <= box[2]
+                && bounds[b + 3] >= box[3] && bounds[b + 4] >= box[4] && bounds[b + 5] >= box[5];
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+
+        // Find the best sibling using the surface area heuristic.
+        int index = root;
+        while (left[index] != NULL) {
+            int child1 = left[index];
+            int child2 = right[index];
+
+            float area = area(index);
+            float combinedArea = unionArea(index, leaf);
+            float cost = 2 * combinedArea;
+            float inheritanceCost = 2 * (combinedArea - area);
+
+            float cost1 = unionArea(child1, leaf) + inheritanceCost;
+            if (left[child1] != NULL) cost1 -= area(child1);
+            float cost2 = unionArea(child2, leaf) + inheritanceCost;
+            if (left[child2] != NULL) cost2 -= area(child2);
+
+            if (cost < cost1 && cost < cost2) break;
+            index = cost1 < cost2 ? child1 : child2;
+        }
+
+        int sibling = index;
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        setUnion(newParent, leaf, sibling);
+        height[newParent] = height[sibling] + 1;
+
+        if (oldParent != NULL) {
+            if (left[oldParent] == sibling)
+                left[oldParent] = newParent;
+            else
+                right[oldParent] = newParent;
+        } else {
+            root = newParent;
+        }
+        left[newParent] = sibling;
+        right[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refitAncestors(parent[leaf]);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int oldParent = parent[leaf];
+        int grandParent = parent[oldParent];
+        int sibling = left[oldParent] == leaf ? right[oldParent] : left[oldParent];
+
+        if (grandParent != NULL) {
+            if (left[grandParent] == oldParent)
+                left[grandParent] = sibling;
+            else
+                right[grandParent] = sibling;
+            parent[sibling] = grandParent;
+            freeNode(oldParent);
+            refitAncestors(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(oldParent);
+        }
+        parent[leaf] = NULL;
+    }
+
+    private void refitAncestors(int index) {
+        while (index != NULL) {
+            index = balance(index);
+            int child1 = left[index];
+            int child2 = right[index];
+            height[index] = 1 + Math.max(height[child1], height[child2]);
+            setUnion(index, child1, child2);
+            index = parent[index];
+        }
+    }
+
+    /**
+     * Perform a left or right rotation if node a is imbalanced.
+     *
+     * @param a The node to balance.
+     * @return The new root of the subtree.
+     */
+    private int balance(int a) {
+        if (left[a] == NULL || height[a] < 2)
+            return a;
+
+        int b = left[a];
+        int c = right[a];
+        int difference = height[c] - height[b];
+
+        // Rotate c up.
+        if (difference > 1) {
+            int f = left[c];
+            int g = right[c];
+
+            left[c] = a;
+            parent[c] = parent[a];
+            parent[a] = c;
+            replaceChild(parent[c], a, c);
+
+            if (height[f] > height[g]) {
+                right[c] = f;
+                right[a] = g;
+                parent[g] = a;
+                setUnion(a, b, g);
+                setUnion(c, a, f);
+                height[a] = 1 + Math.max(height[b], height[g]);
+                height[c] = 1 + Math.max(height[a], height[f]);
+            } else {
+                right[c] = g;
+                right[a] = f;
+                parent[f] = a;
+                setUnion(a, b, f);
+                setUnion(c, a, g);
+                height[a] = 1 + Math.max(height[b], height[f]);
+                height[c] = 1 + Math.max(height[a], height[g]);
+            }
+            return c;
+        }
+
+        // Rotate b up.
+        if (difference < -1) {
+            int d = left[b];
+            int e = right[b];
+
+            left[b] = a;
+            parent[b] = parent[a];
+            parent[a] = b;
+            replaceChild(parent[b], a, b);
+
+            if (height[d] > height[e]) {
+                right[b] = d;
+                left[a] = e;
+                parent[e] = a;
+                setUnion(a, c, e);
+                setUnion(b, a, d);
+                height[a] = 1 + Math.max(height[c], height[e]);
+                height[b] = 1 + Math.max(height[a], height[d]);
+            } else {
+                right[b] = e;
+                left[a] = d;
+                parent[d] = a;
+                setUnion(a, c, d);
+                setUnion(b, a, e);
+                height[a] = 1 + Math.max(height[c], height[d]);
+                height[b] = 1 + Math.max(height[a], height[e]);
+            }
+            return b;
+        }
+
+        return a;
+    }
+
+    private void replaceChild(int node, int oldChild, int newChild) {
+        if (node == NULL) {
+            root = newChild;
+        } else if (left[node] == oldChild) {
+            left[node] = newChild;
+        } else {
+            right[node] = newChild;
+        }
+    }
+
+    private void setUnion(int dest, int a, int b) {
+        int d = dest * 6, i = a * 6, j = b * 6;
+        bounds[d] = Math.min(bounds[i], bounds[j]);
+        bounds[d + 1] = Math.min(bounds[i + 1], bounds[j + 1]);
+        bounds[d + 2] = Math.min(bounds[i + 2], bounds[j + 2]);
+        bounds[d + 3] = Math.max(bounds[i + 3], bounds[j + 3]);
+        bounds[d + 4] = Math.max(bounds[i + 4], bounds[j + 4]);
+        bounds[d + 5] = Math.max(bounds[i + 5], bounds[j + 5]);
+    }
+
+    private float area(int node) {
+        int i = node * 6;
+        return surfaceArea(bounds[i + 3] - bounds[i], bounds[i + 4] - bounds[i + 1], bounds[i + 5] - bounds[i + 2]);
+    }
+
+    private float unionArea(int a, int b) {
+        int i = a * 6, j = b * 6;
+        float x = Math.max(bounds[i + 3], bounds[j + 3]) - Math.min(bounds[i], bounds[j]);
+        float y = Math.max(bounds[i + 4], bounds[j + 4]) - Math.min(bounds[i + 1], bounds[j + 1]);
+        float z = Math.max(bounds[i + 5], bounds[j + 5]) - Math.min(bounds[i + 2], bounds[j + 2]);
+        return surfaceArea(x, y, z);
+    }
+
+    private static float surfaceArea(float x, float y, float z) {
+        return x * y + y * z + z * x;
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL)
+            grow(capacity * 2);
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        left[node] = NULL;
+        right[node] = NULL;
+        height[node] = 0;
+        lastPlane[node] = 0;
+        objects[node] = null;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parent[node] = freeList;
+        height[node] = -1;
+        objects[node] = null;
+        freeList = node;
+    }
+
+    private void grow(int newCapacity) {
+        int oldCapacity = capacity;
+        if (bounds == null) {
+            bounds = new float[newCapacity * 6];
+            parent = new int[newCapacity];
+            left = new int[newCapacity];
+            right = new int[newCapacity];
+            height = new int[newCapacity];
+            lastPlane = new byte[newCapacity];
+            objects = new Object[newCapacity];
+        } else {
+            bounds = Arrays.copyOf(bounds, newCapacity * 6);
+            parent = Arrays.copyOf(parent, newCapacity);
+            left = Arrays.copyOf(left, newCapacity);
+            right = Arrays.copyOf(right, newCapacity);
+            height = Arrays.copyOf(height, newCapacity);
+            lastPlane = Arrays.copyOf(lastPlane, newCapacity);
+            objects = Arrays.copyOf(objects, newCapacity);
+        }
+        // The depth of the traversal can never exceed the number of nodes.
+        nodeStack = new int[newCapacity + 1];
+        maskStack = new int[newCapacity + 1];
+
+        for (int i = newCapacity - 1; i >= oldCapacity; i--) {
+            height[i] = -1;
+            parent[i] = freeList;
+            freeList = i;
+        }
+        capacity = newCapacity;
+    }
+
+    private static final class PendingChange<T> {
+        private final T object;
+        private final boolean add;
+
+        private PendingChange(T object, boolean add) {
+            this.object = object;
+            this.add = add;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.kakara.engine.render.preset.pipeline;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Sorts a list by distance, closest first.
+ * <p>The distance of every element is measured once and packed with its index into a long, so the sort compares
+ * primitives instead of measuring both distances on every comparison. Elements at the same distance keep their order.</p>
+ * <p>The arrays are reused between sorts and only grow.</p>
+ *
+ * @param <T> The type of the elements.
+ */
+final class DistanceSorter<T> {
+    private long[] keys = new long[64];
+    private Object[] elements = new Object[64];
+
+    /**
+     * Sort a list by distance.
+     *
+     * @param list     The list to sort.
+     * @param distance The distance of an element. (Must not be negative).
+     */
+    @SuppressWarnings("unchecked")
+    void sort(List<T> list, ToDoubleFunction<? super T> distance) {
+        int size = list.size();
+        if (size < 2) return;
+        if (keys.length < size) {
+            keys = new long[Math.max(size, keys.length * 2)];
+            elements = new Object[keys.length];
+        }
+        for (int i = 0; i < size; i++) {
+            T element = list.get(i);
+            elements[i] = element;
+            // The bits of positive floats are in the same order as the floats.
+            keys[i] = ((long) Float.floatToIntBits((float) distance.applyAsDouble(element)) << 32) | i;
+        }
+        Arrays.sort(keys, 0, size);
+        for (int i = 0; i < size; i++)
+            list.set(i, (T) elements[(int) keys[i]]);
+        Arrays.fill(elements, 0, size, null);
+    }
+}
@@ -101,4 +101,9 @@ public class ParticlesPipeline implements RenderPipeline {
     @Override
     public void renderDepthMap(Scene scene, Shader depthShader, Matrix4f lightViewMatrix) {
     }
+
+    @Override
+    public int getRenderOrder() {
+        return ORDER_TRANSPARENT;
+    }
 }
@@ -1,22 +1,43 @@
 package org.kakara.engine.render.preset.pipeline;
 
 import org.joml.Matrix4f;
+import org.kakara.engine.GameHandler;
+import org.kakara.engine.components.MeshRenderer;
+import org.kakara.engine.components.Occluder;
 import org.kakara.engine.exceptions.render.ShaderNotFoundException;
 import org.kakara.engine.gameitems.GameItem;
+import org.kakara.engine.gameitems.ItemHandler;
 import org.kakara.engine.gameitems.mesh.IMesh;
 import org.kakara.engine.gameitems.mesh.InstancedMesh;
+import org.kakara.engine.gameitems.mesh.Mesh;
 import org.kakara.engine.lighting.LightHandler;
 import org.kakara.engine.lighting.ShadowMap;
+import org.kakara.engine.math.Vector3;
+import org.kakara.engine.physics.collision.ColliderComponent;
 import org.kakara.engine.render.*;
+import org.kakara.engine.render.command.RenderCommandBuffer;
 import org.kakara.engine.render.culling.FrustumCullingFilter;
+import org.kakara.engine.render.culling.OcclusionCuller;
+import org.kakara.engine.render.culling.VisibilityTree;
 import org.kakara.engine.scene.Scene;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 /**
  * The default render pipeline for the GameItem system.
+ * <p>The visible items are found once per frame using the {@link ItemHandler#getVisibilityTree()}. Items with the
+ * {@link Occluder} component are used as occluders, and items hidden behind them are skipped in the regular pass. The
+ * depth map still draws them since they can cast visible shadows.</p>
+ * <p>The draws of non instanced meshes are recorded into a {@link RenderCommandBuffer} once per frame and executed by
+ * the {@link Renderer#getRenderBackend()}. The model matrices are built on a worker thread while the rest of the frame
+ * is prepared.</p>
+ * <p>Meshes with levels of detail are rendered with the level selected from the size of the item on the screen, see
+ * {@link MeshRenderer#updateLevelOfDetail(float)}.</p>
+ * <p>The visible items are sorted front to back, and the pipeline supports the depth prepass.</p>
  *
  * @since 1.0-Pre4
  */
@@ -28,6 +49,20 @@ public class StandardPipeline implements RenderPipeline {
     private FrustumCullingFilter frustumFilter;
     private ShadowMap shadowMap;
 
+    // The items within the frustum for the current frame.
+    private final List<GameItem> visibleItems = new ArrayList<>();
+    // The items within the frustum, and the items that are also not occluded, grouped by mesh.
+    private final MeshGroups frustumGroups = new MeshGroups();
+    private final MeshGroups unoccludedGroups = new MeshGroups();
+    private final float[] bounds = new float[6];
+    // The recorded draws of the non instanced meshes for the depth map and the regular pass.
+    private final RenderCommandBuffer frustumCommands = new RenderCommandBuffer();
+    private final RenderCommandBuffer unoccludedCommands = new RenderCommandBuffer();
+    private long preparedFrame = -1;
+    private long occlusionFrame = -1;
+    private Vector3 sortOrigin;
+    private final DistanceSorter<GameItem> frontToBack = new DistanceSorter<>();
+
     @Override
     public void init(ShaderManager manager, Transformation transformation, FrustumCullingFilter frustumFilter, ShadowMap shadowMap) {
         shaderProgram = manager.findShader("Standard").getShader();
@@ -49,26 +84,150 @@ public class StandardPipeline implements RenderPipeline {
         this.shaderProgram = program.getShader();
     }
 
+    /**
+     * Find the items within the frustum for the current frame, select their level of detail, and group them by mesh.
+     * <p>This is only done once per frame.</p>
+     *
+     * @param scene The scene.
+     */
+    private void prepareItems(Scene scene) {
+        ItemHandler itemHandler = Objects.requireNonNull(scene.getItemHandler());
+        long frame = GameHandler.getInstance().getGameEngine().getRenderer().getFrameCount();
+        if (frame == preparedFrame)
+            return;
+        preparedFrame = frame;
+
+        visibleItems.clear();
+        itemHandler.getVisibilityTree().update();
+        itemHandler.getVisibilityTree().query(frustumFilter, visibleItems);
+
+        VisibilityTree<GameItem> tree = itemHandler.getVisibilityTree();
+        Vector3 camera = scene.getCamera().getPosition();
+        // The groups keep the order of the items, so the draws of each mesh are front to back.
+        sortOrigin = camera;
+        frontToBack.sort(visibleItems, this::getSortDistance);
+        float projectionScale = transformation.getProjectionMatrix().m11();
+        frustumGroups.clear();
+        for (int i = 0; i < visibleItems.size(); i++) {
+            GameItem item = visibleItems.get(i);
+            MeshRenderer meshRenderer = item.getComponent(MeshRenderer.class);
+            if (meshRenderer != null && meshRenderer.getMesh() instanceof Mesh
+                    && ((Mesh) meshRenderer.getMesh()).getLevelOfDetailCount() > 1 && tree.getBounds(item, bounds)) {
+                meshRenderer.updateLevelOfDetail(getScreenSize(camera, projectionScale));
+            }
+            frustumGroups.add(item);
+        }
+        recordCommands(frustumGroups, frustumCommands, frame);
+    }
+
+    private double getSortDistance(GameItem item) {
+        Vector3 position = item.getTransform().getPosition();
+        float dx = position.x - sortOrigin.x, dy = position.y - sortOrigin.y, dz = position.z - sortOrigin.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Get the size on the screen of the bounds in {@link #bounds}.
+     *
+     * @param camera          The position of the camera.
+     * @param projectionScale The y scale of the projection matrix.
+     * @return The radius of the bounds divided by half of the height of the view.
+     */
+    private float getScreenSize(Vector3 camera, float projectionScale) {
+        float ex = (bounds[3] - bounds[0]) / 2, ey = (bounds[4] - bounds[1]) / 2, ez = (bounds[5] - bounds[2]) / 2;
+        float dx = bounds[0] + ex - camera.x, dy = bounds[1] + ey - camera.y, dz = bounds[2] + ez - camera.z;
+        float radius = (float) Math.sqrt(ex * ex + ey * ey + ez * ez);
+        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance <= radius)
+            return Float.POSITIVE_INFINITY;
+        return radius * projectionScale / distance;
+    }
+
+    /**
+     * Group the items that are not occluded by mesh.
+     * <p>This is only done once per frame.</p>
+     *
+     * @param scene The scene.
+     */
+    private void cullOccludedItems(Scene scene) {
+        prepareItems(scene);
+        ItemHandler itemHandler = Objects.requireNonNull(scene.getItemHandler());
+        if (preparedFrame == occlusionFrame)
+            return;
+        occlusionFrame = preparedFrame;
+
+        OcclusionCuller occlusionCuller = GameHandler.getInstance().getGameEngine().getRenderer().getOcclusionCuller();
+        VisibilityTree<GameItem> tree = itemHandler.getVisibilityTree();
+        unoccludedGroups.clear();
+        for (int i = 0; i < visibleItems.size(); i++) {
+            GameItem item = visibleItems.get(i);
+            if (tree.getBounds(item, bounds)
+                    && !occlusionCuller.testAab(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]))
+                continue;
+            unoccludedGroups.add(item);
+        }
+        recordCommands(unoccludedGroups, unoccludedCommands, preparedFrame);
+    }
+
+    /**
+     * Record the draws of the non instanced meshes.
+     * <p>Every mesh of an item is recorded at the level of detail of the item.</p>
+     *
+     * @param groups   The items grouped by mesh.
+     * @param commands The buffer to record into.
+     * @param frame    The current frame.
+     */
+    private void recordCommands(MeshGroups groups, RenderCommandBuffer commands, long frame) {
+        commands.reset(frame);
+        for (List<GameItem> items : groups.meshes.values()) {
+            for (int i = 0; i < items.size(); i++) {
+                GameItem item = items.get(i);
+                MeshRenderer meshRenderer = item.getComponent(MeshRenderer.class);
+                if (!meshRenderer.isVisible() || !frustumFilter.testCollider(item.getComponent(ColliderComponent.class)))
+                    continue;
+                for (int m = 0; m < meshRenderer.getMeshes().length; m++) {
+                    commands.add(meshRenderer.getRenderMesh(m), item.getTransform());
+                }
+            }
+        }
+        commands.submit();
+    }
+
+    @Override
+    public void addOccluders(Scene scene, OcclusionCuller occlusionCuller) {
+        if (scene.getItemHandler() == null) return;
+        prepareItems(scene);
+        for (int i = 0; i < visibleItems.size(); i++) {
+            Occluder occluder = visibleItems.get(i).getComponent(Occluder.class);
+            if (occluder == null) continue;
+            float[] box = occluder.getBounds();
+            if (box != null)
+                occlusionCuller.addOccluder(box[0], box[1], box[2], box[3], box[4], box[5]);
+        }
+    }
+
     @Override
     public void render(Scene scene) {
+        cullOccludedItems(scene);
         shaderProgram.bind();
         Matrix4f projectionMatrix = transformation.getProjectionMatrix();
         shaderProgram.setUniform("projectionMatrix", projectionMatrix);
-        Matrix4f orthoProjMatrix = transformation.getOrthoProjectionMatrix();
-        shaderProgram.setUniform("orthoProjectionMatrix", orthoProjMatrix);
         Matrix4f lightViewMatrix = transformation.getLightViewMatrix();
 
         Matrix4f viewMatrix = scene.getCamera().getViewMatrix();
+        shaderProgram.setUniform("viewMatrix", viewMatrix);
+        shaderProgram.setUniform("lightViewMatrix", lightViewMatrix);
 
         // Render Lighting
         LightHandler lh = scene.getLightHandler();
         assert lh != null;
 
         Graphics.renderLights(scene, scene.getCamera(), lh, shaderProgram);
+        Graphics.bindShadowMap(shadowMap, shaderProgram);
 
-        renderNonInstancedMeshes(scene, false, shaderProgram, viewMatrix, lightViewMatrix);
+        renderNonInstancedMeshes(unoccludedCommands, false, shaderProgram, viewMatrix, lightViewMatrix);
 
-        renderInstancedMeshes(scene, false, shaderProgram, viewMatrix, lightViewMatrix);
+        renderInstancedMeshes(unoccludedGroups, false, shaderProgram, viewMatrix, lightViewMatrix);
 
         shaderProgram.unbind();
     }
@@ -76,72 +235,93 @@ public class StandardPipeline implements RenderPipeline {
     /**
      * Render all of the non instanced meshes
      *
-     * @param scene           The scene
+     * @param commands        The recorded draws.
      * @param depthMap        If the depthmap is being rendered
      * @param shader          The shader
      * @param viewMatrix      The view matrix
      * @param lightViewMatrix The light view matrix.
      */
-    private void renderNonInstancedMeshes(Scene scene, boolean depthMap, Shader shader, Matrix4f viewMatrix, Matrix4f lightViewMatrix) {
+    private void renderNonInstancedMeshes(RenderCommandBuffer commands, boolean depthMap, Shader shader, Matrix4f viewMatrix, Matrix4f lightViewMatrix) {
         shader.setUniform("isInstanced", 0);
-
-        // Render each mesh with the associated game Items
-        Map<IMesh, List<GameItem>> mapMeshes = Objects.requireNonNull(scene.getItemHandler()).getNonInstancedMeshMap();
-        for (IMesh mesh : mapMeshes.keySet()) {
-            if (!depthMap) {
-                if (mesh.getMaterial().isPresent())
-                    shader.setUniform("material", mesh.getMaterial().get());
-                Graphics.bindShadowMap(shadowMap);
-            }
-
-            mesh.renderList(mapMeshes.get(mesh), frustumFilter, (GameItem gameItem) -> {
-                Matrix4f modelMatrix = transformation.buildModelMatrix(gameItem);
-                if (!depthMap) {
-                    Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(modelMatrix, viewMatrix);
-                    shader.setUniform("modelViewNonInstancedMatrix", modelViewMatrix);
-                }
-                Matrix4f modelLightViewMatrix = transformation.buildModelLightViewMatrix(modelMatrix, lightViewMatrix);
-                shader.setUniform("modelLightViewNonInstancedMatrix", modelLightViewMatrix);
-                // Render every mesh (some game items can have more than one)
-                for (IMesh m : gameItem.getMeshRenderer().orElseThrow().getMeshes()) {
-                    // Skip the current mesh as it is already rendered by the renderList method.
-                    if(m == mesh) continue;
-                    m.render();
-                }
-            });
-        }
+        GameHandler.getInstance().getGameEngine().getRenderer().getRenderBackend()
+                .execute(commands, shader, depthMap, viewMatrix, lightViewMatrix);
     }
 
     /**
      * Render instanced meshes.
+     * <p>The view and light view matrices are applied by the shader for instanced meshes.</p>
      *
-     * @param scene           The scene
+     * @param groups          The items to render, grouped by mesh.
      * @param depthMap        If the depth map is being rendered
      * @param shader          The shader
      * @param viewMatrix      The view matrix
      * @param lightViewMatrix The light view matrix.
      */
-    private void renderInstancedMeshes(Scene scene, boolean depthMap, Shader shader, Matrix4f viewMatrix, Matrix4f lightViewMatrix) {
+    private void renderInstancedMeshes(MeshGroups groups, boolean depthMap, Shader shader, Matrix4f viewMatrix, Matrix4f lightViewMatrix) {
         shader.setUniform("isInstanced", 1);
 
         // Render each mesh with the associated game Items
-        Map<InstancedMesh, List<GameItem>> mapMeshes = Objects.requireNonNull(scene.getItemHandler()).getInstancedMeshMap();
-        for (InstancedMesh mesh : mapMeshes.keySet()) {
-            if (!depthMap) {
+        for (Map.Entry<InstancedMesh, List<GameItem>> entry : groups.instancedMeshes.entrySet()) {
+            InstancedMesh mesh = entry.getKey();
+            if (entry.getValue().isEmpty()) continue;
+            if (!depthMap)
                 shader.setUniform("material", mesh.getMaterial().get());
-                Graphics.bindShadowMap(shadowMap);
-            }
 
-            mesh.renderListInstanced(mapMeshes.get(mesh), depthMap, transformation, viewMatrix, lightViewMatrix);
+            mesh.renderListInstanced(entry.getValue(), transformation);
         }
     }
 
     @Override
     public void renderDepthMap(Scene scene, Shader depthMap, Matrix4f lightViewMatrix) {
+        prepareItems(scene);
+
+        renderNonInstancedMeshes(frustumCommands, true, depthMap, null, lightViewMatrix);
 
-        renderNonInstancedMeshes(scene, true, depthMap, null, lightViewMatrix);
+        renderInstancedMeshes(frustumGroups, true, depthMap, null, lightViewMatrix);
 
-        renderInstancedMeshes(scene, true, depthMap, null, lightViewMatrix);
+    }
+
+    @Override
+    public boolean supportsDepthPrepass() {
+        return true;
+    }
 
+    @Override
+    public void renderDepthPrepass(Scene scene, Shader depthShader, Matrix4f viewMatrix) {
+        if (scene.getItemHandler() == null) return;
+        cullOccludedItems(scene);
+
+        renderNonInstancedMeshes(unoccludedCommands, true, depthShader, null, viewMatrix);
+
+        renderInstancedMeshes(unoccludedGroups, true, depthShader, null, viewMatrix);
+    }
+
+    /**
+     * Items grouped by their mesh.
+     * <p>The lists are reused between frames.</p>
+     */
+    private static final class MeshGroups {
+        private final Map<IMesh, List<GameItem>> meshes = new HashMap<>();
+        private final Map<InstancedMesh, List<GameItem>> instancedMeshes = new HashMap<>();
+
+        private void clear() {
+            // Forget meshes that had nothing visible last frame, then reuse the lists of the rest.
+            meshes.values().removeIf(List::isEmpty);
+            instancedMeshes.values().removeIf(List::isEmpty);
+            for (List<GameItem> list : meshes.values())
+                list.clear();
+            for (List<GameItem> list : instancedMeshes.values())
+                list.clear();
+        }
+
+        private void add(GameItem item) {
+            MeshRenderer meshRenderer = item.getComponent(MeshRenderer.class);
+            if (meshRenderer == null) return;
+            IMesh mesh = meshRenderer.getRenderMesh();
+            if (mesh instanceof InstancedMesh)
+                instancedMeshes.computeIfAbsent((InstancedMesh) mesh, k -> new ArrayList<>()).add(item);
+            else
+                meshes.computeIfAbsent(mesh, k -> new ArrayList<>()).add(item);
+        }
     }
 }
@@ -1,16 +1,26 @@
 package org.kakara.engine.render.preset.pipeline;
 
 import org.joml.Matrix4f;
+import org.kakara.engine.GameHandler;
 import org.kakara.engine.exceptions.render.ShaderNotFoundException;
 import org.kakara.engine.lighting.LightHandler;
+import org.kakara.engine.lighting.ShadowCascade;
 import org.kakara.engine.lighting.ShadowMap;
+import org.kakara.engine.math.Vector3;
 import org.kakara.engine.render.*;
 import org.kakara.engine.render.culling.FrustumCullingFilter;
+import org.kakara.engine.render.culling.OcclusionCuller;
+import org.kakara.engine.render.culling.VisibilityTree;
+import org.kakara.engine.render.stats.RenderStats;
 import org.kakara.engine.scene.AbstractGameScene;
 import org.kakara.engine.scene.Scene;
 import org.kakara.engine.voxels.VoxelChunk;
+import org.kakara.engine.voxels.mesh.ArenaMesh;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
 import static org.lwjgl.opengl.GL11.glBindTexture;
@@ -19,6 +29,12 @@ import static org.lwjgl.opengl.GL13.glActiveTexture;
 
 /**
  * The default render pipeline for the Voxel system.
+ * <p>Chunks using the {@link org.kakara.engine.voxels.mesh.MeshType#ARENA} mesh type are drawn together with a single
+ * multi draw call per pass. All other chunks are drawn one at a time.</p>
+ * <p>The completely solid layers of the visible chunks are used as occluders. Chunks hidden behind them are skipped
+ * in the regular pass, but still drawn into the depth map since they can cast visible shadows.</p>
+ * <p>Chunks are static shadow casters, so each shadow cascade caches their depth until the chunks change.</p>
+ * <p>The visible chunks are drawn front to back, and the pipeline supports the depth prepass.</p>
  *
  * @since 1.0-Pre4
  */
@@ -31,6 +47,25 @@ public class VoxelPipeline implements RenderPipeline {
     private FrustumCullingFilter frustumFilter;
     private ShadowMap shadowMap;
 
+    // The chunks within the frustum for the current frame.
+    private final List<VoxelChunk> visibleChunks = new ArrayList<>();
+    // The chunks that are also not occluded.
+    private final List<VoxelChunk> unoccludedChunks = new ArrayList<>();
+    // The chunks within the shadow cascade being rendered.
+    private final List<VoxelChunk> shadowChunks = new ArrayList<>();
+    // The chunks within any shadow cascade, the voxel arena is prepared with them once per frame.
+    private final Set<VoxelChunk> shadowArenaChunks = new LinkedHashSet<>();
+    private final List<VoxelChunk> shadowArenaList = new ArrayList<>();
+    private long shadowArenaFrame = -1;
+    private final FrustumCullingFilter shadowFilter = new FrustumCullingFilter();
+    private final float[] bounds = new float[6];
+    private long collectedFrame = -1;
+    private long occlusionFrame = -1;
+    // The frame the voxel arena was last prepared with the unoccluded chunks.
+    private long arenaFrame = -1;
+    private Vector3 sortOrigin;
+    private final DistanceSorter<VoxelChunk> frontToBack = new DistanceSorter<>();
+
     @Override
     public void init(ShaderManager manager, Transformation transformation, FrustumCullingFilter frustumFilter, ShadowMap shadowMap) {
         this.manager = manager;
@@ -58,48 +93,209 @@ public class VoxelPipeline implements RenderPipeline {
     }
 
 
+    @Override
+    public void addOccluders(Scene scene, OcclusionCuller occlusionCuller) {
+        if (!(scene instanceof AbstractGameScene))
+            return;
+        collectChunks((AbstractGameScene) scene);
+        for (VoxelChunk renderChunk : visibleChunks) {
+            if (renderChunk.getOccluderBounds(bounds))
+                occlusionCuller.addOccluder(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+        }
+    }
+
     @Override
     public void renderDepthMap(Scene scene, Shader depthShader, Matrix4f lightViewMatrix) {
         if (!(scene instanceof AbstractGameScene))
             return;
         AbstractGameScene ags = (AbstractGameScene) scene;
-        if (ags.getChunkHandler().getVoxelChunkList().isEmpty())
+        // The depth is cached by the shadow cascade, so draw every chunk within the cascade instead of the view.
+        shadowFilter.updateFrustum(transformation.getOrthoProjectionMatrix(), lightViewMatrix);
+        VisibilityTree<VoxelChunk> tree = ags.getChunkHandler().getVisibilityTree();
+        tree.update();
+        shadowChunks.clear();
+        tree.query(shadowFilter, shadowChunks);
+        if (shadowChunks.isEmpty())
             return;
-        List<VoxelChunk> renderChunks = ags.getChunkHandler().getVoxelChunkList();
-        if (renderChunks == null) return;
+        prepareShadowArena(ags, lightViewMatrix);
 
-        for (VoxelChunk renderChunk : renderChunks) {
-            if (renderChunk == null) continue;
-            if (renderChunk.getVoxelCount() < 1) continue;
-
-            if (!frustumFilter.testRenderObject(renderChunk.transform.getPosition(), 16, 16, 16))
-                continue;
+        depthShader.setUniform("isInstanced", 0);
+        for (VoxelChunk renderChunk : shadowChunks) {
+            if (renderChunk.getVoxelCount() == 0 || renderChunk.getVoxelMesh() instanceof ArenaMesh) continue;
 
             Matrix4f modelMatrix = transformation.buildModelMatrix(renderChunk);
             Matrix4f modelLightViewMatrix = transformation.buildModelLightViewMatrix(modelMatrix, lightViewMatrix);
             depthShader.setUniform("modelLightViewNonInstancedMatrix", modelLightViewMatrix);
-            depthShader.setUniform("orthoProjectionMatrix", transformation.getOrthoProjectionMatrix());
-
 
             renderChunk.render();
         }
 
+        // Draw every chunk stored in the arena at once.
+        if (ags.getChunkHandler().hasVoxelArena()) {
+            depthShader.setUniform("isInstanced", 1);
+            ags.getChunkHandler().getVoxelArena().draw();
+        }
+
 
         glBindTexture(GL_TEXTURE_2D, 0);
     }
 
+    @Override
+    public boolean isStaticShadowCaster() {
+        return true;
+    }
+
+    @Override
+    public long getShadowVersion(Scene scene) {
+        if (!(scene instanceof AbstractGameScene))
+            return 0;
+        return ((AbstractGameScene) scene).getChunkHandler().getModificationCount();
+    }
+
+    /**
+     * Find the chunks within the frustum for the current frame.
+     * <p>This is only done once per frame, the depth map and the regular pass share the result.</p>
+     *
+     * @param ags The game scene.
+     */
+    private void collectChunks(AbstractGameScene ags) {
+        long frame = GameHandler.getInstance().getGameEngine().getRenderer().getFrameCount();
+        if (frame == collectedFrame)
+            return;
+        collectedFrame = frame;
+        visibleChunks.clear();
+
+        VisibilityTree<VoxelChunk> tree = ags.getChunkHandler().getVisibilityTree();
+        tree.update();
+        tree.query(frustumFilter, visibleChunks);
+        // Drop the empty chunks in place.
+        int count = 0;
+        for (int i = 0; i < visibleChunks.size(); i++) {
+            VoxelChunk renderChunk = visibleChunks.get(i);
+            if (renderChunk.getVoxelCount() > 0)
+                visibleChunks.set(count++, renderChunk);
+        }
+        while (visibleChunks.size() > count)
+            visibleChunks.remove(visibleChunks.size() - 1);
+        sortOrigin = ags.getCamera().getPosition();
+        frontToBack.sort(visibleChunks, this::getSortDistance);
+    }
+
+    private double getSortDistance(VoxelChunk chunk) {
+        Vector3 position = chunk.transform.getPosition();
+        // Measure from the center of the chunk.
+        float half = VoxelChunk.CHUNK_SIZE / 2f;
+        float dx = position.x + half - sortOrigin.x, dy = position.y + half - sortOrigin.y, dz = position.z + half - sortOrigin.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Prepare the voxel arena with the chunks within any of the shadow cascades.
+     * <p>This is only done once per frame, every cascade draws the same arena and the chunks outside of a cascade
+     * are clipped.</p>
+     *
+     * @param ags             The game scene.
+     * @param lightViewMatrix The light view matrix.
+     */
+    private void prepareShadowArena(AbstractGameScene ags, Matrix4f lightViewMatrix) {
+        if (!ags.getChunkHandler().hasVoxelArena())
+            return;
+        long frame = GameHandler.getInstance().getGameEngine().getRenderer().getFrameCount();
+        if (frame == shadowArenaFrame)
+            return;
+        shadowArenaFrame = frame;
+        // The arena no longer holds the unoccluded chunks.
+        arenaFrame = -1;
+
+        VisibilityTree<VoxelChunk> tree = ags.getChunkHandler().getVisibilityTree();
+        shadowArenaChunks.clear();
+        for (ShadowCascade cascade : shadowMap.getCascades()) {
+            shadowFilter.updateFrustum(cascade.getProjectionMatrix(), lightViewMatrix);
+            shadowArenaList.clear();
+            tree.query(shadowFilter, shadowArenaList);
+            shadowArenaChunks.addAll(shadowArenaList);
+        }
+        shadowArenaList.clear();
+        shadowArenaList.addAll(shadowArenaChunks);
+        ags.getChunkHandler().getVoxelArena().prepare(shadowArenaList, transformation);
+    }
+
+    /**
+     * Prepare the voxel arena with the unoccluded chunks.
+     * <p>This is only done once per frame, the depth prepass and the regular pass share the result.</p>
+     *
+     * @param ags The game scene.
+     */
+    private void prepareArena(AbstractGameScene ags) {
+        if (!ags.getChunkHandler().hasVoxelArena() || arenaFrame == occlusionFrame)
+            return;
+        arenaFrame = occlusionFrame;
+        ags.getChunkHandler().getVoxelArena().prepare(unoccludedChunks, transformation);
+    }
+
+    @Override
+    public boolean supportsDepthPrepass() {
+        return true;
+    }
+
+    @Override
+    public void renderDepthPrepass(Scene scene, Shader depthShader, Matrix4f viewMatrix) {
+        if (!(scene instanceof AbstractGameScene)) return;
+        AbstractGameScene ags = (AbstractGameScene) scene;
+        cullOccludedChunks(ags);
+        if (unoccludedChunks.isEmpty())
+            return;
+        prepareArena(ags);
+
+        depthShader.setUniform("isInstanced", 0);
+        for (VoxelChunk renderChunk : unoccludedChunks) {
+            if (renderChunk.getVoxelMesh() instanceof ArenaMesh) continue;
+
+            Matrix4f modelMatrix = transformation.buildModelMatrix(renderChunk);
+            depthShader.setUniform("modelLightViewNonInstancedMatrix", transformation.buildModelViewMatrix(modelMatrix, viewMatrix));
+
+            renderChunk.render();
+        }
+
+        if (ags.getChunkHandler().hasVoxelArena()) {
+            depthShader.setUniform("isInstanced", 1);
+            ags.getChunkHandler().getVoxelArena().draw();
+        }
+    }
+
+    /**
+     * Remove the occluded chunks from the visible chunks.
+     * <p>This is only done once per frame.</p>
+     *
+     * @param ags The game scene.
+     */
+    private void cullOccludedChunks(AbstractGameScene ags) {
+        collectChunks(ags);
+        long frame = collectedFrame;
+        if (frame == occlusionFrame)
+            return;
+        occlusionFrame = frame;
+        unoccludedChunks.clear();
+
+        OcclusionCuller occlusionCuller = GameHandler.getInstance().getGameEngine().getRenderer().getOcclusionCuller();
+        for (VoxelChunk renderChunk : visibleChunks) {
+            Vector3 position = renderChunk.transform.getPosition();
+            if (occlusionCuller.testAab(position.x, position.y, position.z,
+                    position.x + VoxelChunk.CHUNK_SIZE, position.y + VoxelChunk.CHUNK_SIZE, position.z + VoxelChunk.CHUNK_SIZE))
+                unoccludedChunks.add(renderChunk);
+        }
+    }
+
     private void renderChunk(Scene scene) {
         if (!(scene instanceof AbstractGameScene)) return;
         AbstractGameScene ags = (AbstractGameScene) scene;
-        if (ags.getChunkHandler().getVoxelChunkList().isEmpty())
+        cullOccludedChunks(ags);
+        if (unoccludedChunks.isEmpty())
             return;
-        List<VoxelChunk> renderChunks = ags.getChunkHandler().getVoxelChunkList();
-        if (renderChunks == null) return;
+        prepareArena(ags);
         chunkShaderProgram.bind();
         Matrix4f projectionMatrix = transformation.getProjectionMatrix();
         chunkShaderProgram.setUniform("projectionMatrix", projectionMatrix);
-        Matrix4f orthoProjMatrix = transformation.getOrthoProjectionMatrix();
-        chunkShaderProgram.setUniform("orthoProjectionMatrix", orthoProjMatrix);
         Matrix4f lightViewMatrix = transformation.getLightViewMatrix();
 
         Matrix4f viewMatrix = scene.getCamera().getViewMatrix();
@@ -113,28 +309,20 @@ public class VoxelPipeline implements RenderPipeline {
 
         glActiveTexture(GL_TEXTURE0);
         glBindTexture(GL_TEXTURE_2D, ags.getTextureAtlas().getTexture().getId());
+        RenderStats.countTextureBind();
+
+        Graphics.bindShadowMap(shadowMap, chunkShaderProgram);
 
         // TODO one day reimplement occlusion culling.
         //doOcclusionTest(renderChunks, chunkShaderProgram, viewMatrix, lightViewMatrix);
 
-        for (VoxelChunk renderChunk : renderChunks) {
-            if (renderChunk == null) continue;
-            if (renderChunk.getVoxelCount() < 1) continue;
-
-            if (!frustumFilter.testRenderObject(renderChunk.transform.getPosition(), 16, 16, 16))
-                continue;
-//            RenderMesh mesh = renderChunk.getRenderMesh();
-//            if (mesh == null || mesh.getQuery() == null)
-//                continue;
-//            int i = mesh.getQuery().pollPreviousResult();
-//
-//            if (i == GL_FALSE)
-//                continue;
+        chunkShaderProgram.setUniform("isInstanced", 0);
+        for (VoxelChunk renderChunk : unoccludedChunks) {
+            // Arena chunks are drawn together below.
+            if (renderChunk.getVoxelMesh() instanceof ArenaMesh) continue;
 
             Matrix4f modelMatrix = transformation.buildModelMatrix(renderChunk);
 
-            Graphics.bindShadowMap(shadowMap);
-
             Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(modelMatrix, viewMatrix);
 
             chunkShaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
@@ -146,6 +334,13 @@ public class VoxelPipeline implements RenderPipeline {
             renderChunk.render();
         }
 
+        if (ags.getChunkHandler().hasVoxelArena()) {
+            chunkShaderProgram.setUniform("isInstanced", 1);
+            chunkShaderProgram.setUniform("viewMatrix", viewMatrix);
+            chunkShaderProgram.setUniform("lightViewMatrix", lightViewMatrix);
+            ags.getChunkHandler().getVoxelArena().draw();
+        }
+
 
         glBindTexture(GL_TEXTURE_2D, 0);
 
@@ -1,7 +1,8 @@
 package org.kakara.engine.render.preset.shader;
 
 import org.kakara.engine.GameEngine;
-import org.kakara.engine.lighting.LightHandler;
+import org.kakara.engine.lighting.LightClusterBuffer;
+import org.kakara.engine.lighting.ShadowMap;
 import org.kakara.engine.render.Shader;
 import org.kakara.engine.render.ShaderProgram;
 import org.kakara.engine.utils.Utils;
@@ -26,21 +27,21 @@ public class StandardShader implements ShaderProgram {
             shader.createUniform("projectionMatrix");
             shader.createUniform("modelViewNonInstancedMatrix");
             shader.createUniform("modelLightViewNonInstancedMatrix");
+            shader.createUniform("viewMatrix");
+            shader.createUniform("lightViewMatrix");
             shader.createMaterialUniform("material");
             /*
              * Setup uniforms for lighting
              */
 
             shader.createFogUniform("fog");
-            shader.createUniform("shadowMap");
-            shader.createUniform("orthoProjectionMatrix");
+            shader.createShadowCascadeUniforms(ShadowMap.MAX_CASCADES);
             shader.createUniform("isInstanced");
 
             // light shader.
             shader.createUniform("specularPower");
             shader.createUniform("ambientLight");
-            shader.createPointLightListUniform("pointLights", LightHandler.MAX_POINT_LIGHTS);
-            shader.createSpotLightListUniform("spotLights", LightHandler.MAX_SPOT_LIGHTS);
+            LightClusterBuffer.createUniforms(shader);
             shader.createDirectionalLightUniform("directionalLight");
         } catch (Exception ex) {
             GameEngine.LOGGER.error("An exception has occurred enabling the standard shader.", ex);
@@ -1,7 +1,8 @@
 package org.kakara.engine.render.preset.shader;
 
 import org.kakara.engine.GameEngine;
-import org.kakara.engine.lighting.LightHandler;
+import org.kakara.engine.lighting.LightClusterBuffer;
+import org.kakara.engine.lighting.ShadowMap;
 import org.kakara.engine.render.Shader;
 import org.kakara.engine.render.ShaderProgram;
 import org.kakara.engine.utils.Utils;
@@ -26,16 +27,17 @@ public class VoxelShader implements ShaderProgram {
             shader.createUniform("projectionMatrix");
             shader.createUniform("modelViewMatrix");
             shader.createUniform("modelLightViewMatrix");
+            shader.createUniform("isInstanced");
+            shader.createUniform("viewMatrix");
+            shader.createUniform("lightViewMatrix");
             /*
              * Setup uniforms for lighting
              */
             shader.createFogUniform("fog");
-            shader.createUniform("shadowMap");
-            shader.createUniform("orthoProjectionMatrix");
+            shader.createShadowCascadeUniforms(ShadowMap.MAX_CASCADES);
             shader.createUniform("specularPower");
             shader.createUniform("ambientLight");
-            shader.createPointLightListUniform("pointLights", LightHandler.MAX_POINT_LIGHTS);
-            shader.createSpotLightListUniform("spotLights", LightHandler.MAX_SPOT_LIGHTS);
+            LightClusterBuffer.createUniforms(shader);
             shader.createDirectionalLightUniform("directionalLight");
             shader.createUniform("reflectance");
             // Texture Atlas
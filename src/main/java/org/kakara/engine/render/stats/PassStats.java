@@ -0,0 +1,208 @@
+package org.kakara.engine.render.stats;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * The statistics of a single render pass.
+ *
+ * <p>The counters are those of the last complete frame. The GPU time is read from timestamp queries a few frames
+ * after the pass is rendered, so it lags behind by {@link RenderStats#QUERY_LATENCY} frames.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public final class PassStats {
+    private final String name;
+
+    // The counters of the frame being rendered.
+    int drawCalls;
+    long triangles;
+    int bufferUploads;
+    long uploadedBytes;
+    int textureBinds;
+    private long cpuStart;
+    private long cpuTime;
+
+    // The counters of the last complete frame.
+    private int lastDrawCalls;
+    private long lastTriangles;
+    private int lastBufferUploads;
+    private long lastUploadedBytes;
+    private int lastTextureBinds;
+    private double lastCpuTime;
+    private double gpuTime;
+
+    // Pairs of timestamp queries (start and end) for every frame in flight. A pass can be rendered more than once a
+    // frame, so each time it is rendered gets its own pair.
+    private final int[][] queries = new int[RenderStats.QUERY_LATENCY][];
+    private final int[] queryCounts = new int[RenderStats.QUERY_LATENCY];
+    private long queryFrame = -1;
+    private boolean queryOpen;
+
+    PassStats(String name) {
+        this.name = name;
+    }
+
+    void begin(long frame, boolean timestamps) {
+        cpuStart = System.nanoTime();
+        if (!timestamps) return;
+        int slot = (int) (frame % RenderStats.QUERY_LATENCY);
+        if (frame != queryFrame) {
+            // The first time the pass is rendered this frame, the slot still holds the queries of an older frame.
+            readQuery(slot);
+            queryFrame = frame;
+        }
+        int pair = queryCounts[slot];
+        int[] slotQueries = queries[slot];
+        if (slotQueries == null || pair * 2 == slotQueries.length) {
+            int[] added = new int[slotQueries == null ? 2 : slotQueries.length];
+            glGenQueries(added);
+            if (slotQueries == null) {
+                slotQueries = added;
+            } else {
+                slotQueries = Arrays.copyOf(slotQueries, slotQueries.length * 2);
+                System.arraycopy(added, 0, slotQueries, added.length, added.length);
+            }
+            queries[slot] = slotQueries;
+        }
+        glQueryCounter(slotQueries[pair * 2], GL_TIMESTAMP);
+        queryOpen = true;
+    }
+
+    void end(long frame, boolean timestamps) {
+        cpuTime += System.nanoTime() - cpuStart;
+        if (!timestamps || !queryOpen || frame != queryFrame) return;
+        int slot = (int) (frame % RenderStats.QUERY_LATENCY);
+        glQueryCounter(queries[slot][queryCounts[slot] * 2 + 1], GL_TIMESTAMP);
+        queryCounts[slot]++;
+        queryOpen = false;
+    }
+
+    /**
+     * Read the results of a slot if they are available, and add up the time of every pair. They are never waited for.
+     *
+     * @param slot The slot.
+     */
+    private void readQuery(int slot) {
+        int count = queryCounts[slot];
+        if (count == 0) return;
+        queryCounts[slot] = 0;
+        int[] slotQueries = queries[slot];
+        // The queries finish in order, so the others are available when the last one is.
+        if (glGetQueryObjecti(slotQueries[count * 2 - 1], GL_QUERY_RESULT_AVAILABLE) == GL_FALSE)
+            return;
+        long total = 0;
+        for (int pair = 0; pair < count; pair++) {
+            long start = glGetQueryObjecti64(slotQueries[pair * 2], GL_QUERY_RESULT);
+            long end = glGetQueryObjecti64(slotQueries[pair * 2 + 1], GL_QUERY_RESULT);
+            total += end - start;
+        }
+        gpuTime = total / 1.0e6;
+    }
+
+    void finishFrame() {
+        lastDrawCalls = drawCalls;
+        lastTriangles = triangles;
+        lastBufferUploads = bufferUploads;
+        lastUploadedBytes = uploadedBytes;
+        lastTextureBinds = textureBinds;
+        lastCpuTime = cpuTime / 1.0e6;
+        drawCalls = 0;
+        triangles = 0;
+        bufferUploads = 0;
+        uploadedBytes = 0;
+        textureBinds = 0;
+        cpuTime = 0;
+    }
+
+    void cleanup() {
+        for (int slot = 0; slot < queries.length; slot++) {
+            if (queries[slot] != null)
+                glDeleteQueries(queries[slot]);
+            queries[slot] = null;
+            queryCounts[slot] = 0;
+        }
+        queryOpen = false;
+    }
+
+    /**
+     * Get the name of the pass.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the time the GPU took to render the pass.
+     * <p>If the pass was rendered more than once in the frame, this is the total of every time.</p>
+     *
+     * @return The GPU time. (In milliseconds, 0 if timer queries are not supported).
+     */
+    public double getGpuTime() {
+        return gpuTime;
+    }
+
+    /**
+     * Get the time the CPU took to submit the pass.
+     *
+     * @return The CPU time. (In milliseconds).
+     */
+    public double getCpuTime() {
+        return lastCpuTime;
+    }
+
+    /**
+     * Get the number of draw calls.
+     *
+     * @return The number of draw calls.
+     */
+    public int getDrawCalls() {
+        return lastDrawCalls;
+    }
+
+    /**
+     * Get the number of triangles drawn.
+     *
+     * @return The number of triangles.
+     */
+    public long getTriangles() {
+        return lastTriangles;
+    }
+
+    /**
+     * Get the number of buffer uploads.
+     *
+     * @return The number of buffer uploads.
+     */
+    public int getBufferUploads() {
+        return lastBufferUploads;
+    }
+
+    /**
+     * Get the number of bytes uploaded to buffers and textures.
+     *
+     * @return The number of bytes.
+     */
+    public long getUploadedBytes() {
+        return lastUploadedBytes;
+    }
+
+    /**
+     * Get the number of texture binds.
+     *
+     * @return The number of texture binds.
+     */
+    public int getTextureBinds() {
+        return lastTextureBinds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{gpu=%.3fms, cpu=%.3fms, draws=%d, triangles=%d, uploads=%d (%d bytes), binds=%d}",
+                name, gpuTime, lastCpuTime, lastDrawCalls, lastTriangles, lastBufferUploads, lastUploadedBytes, lastTextureBinds);
+    }
+}
@@ -0,0 +1,230 @@
+package org.kakara.engine.render.stats;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects statistics about the render passes of every frame.
+ *
+ * <p>Each pass is wrapped in {@link #beginPass(String)} and {@link #endPass()}. The time the GPU takes for a pass is
+ * measured with a pair of timestamp queries, which are read {@link #QUERY_LATENCY} frames later so the CPU never waits
+ * for the GPU. Draw calls, triangles, buffer uploads, and texture binds are counted with the static methods of this
+ * class where they are made, and are added to the pass that is active. Anything counted outside of a pass is added to
+ * the {@link #OTHER_PASS} pass.</p>
+ *
+ * <p>Get the instance of this class through {@link org.kakara.engine.render.Renderer#getRenderStats()}.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class RenderStats {
+    /**
+     * The number of frames a timer query is expected to take to become available.
+     */
+    public static final int QUERY_LATENCY = 4;
+    /**
+     * The name of the pass that counts everything outside of the other passes.
+     */
+    public static final String OTHER_PASS = "Other";
+
+    // The pass everything is counted to. This is only accessed on the main thread.
+    private static PassStats current;
+
+    private final Map<String, PassStats> passes = new LinkedHashMap<>();
+    private final Collection<PassStats> passView = Collections.unmodifiableCollection(passes.values());
+    private final PassStats other;
+    private boolean enabled = true;
+    private Boolean timestamps;
+    private long frame;
+    private PassStats active;
+
+    /**
+     * Internal use only.
+     */
+    public RenderStats() {
+        other = new PassStats(OTHER_PASS);
+        passes.put(OTHER_PASS, other);
+        current = other;
+    }
+
+    /**
+     * Count a draw call.
+     *
+     * @param triangles The number of triangles drawn.
+     */
+    public static void countDraw(long triangles) {
+        PassStats pass = current;
+        if (pass == null) return;
+        pass.drawCalls++;
+        pass.triangles += triangles;
+    }
+
+    /**
+     * Count a number of draw calls made with a single call. (Such as a multi draw).
+     *
+     * @param draws     The number of draws.
+     * @param triangles The number of triangles drawn.
+     */
+    public static void countDraws(int draws, long triangles) {
+        PassStats pass = current;
+        if (pass == null) return;
+        pass.drawCalls += draws;
+        pass.triangles += triangles;
+    }
+
+    /**
+     * Count a texture bind.
+     */
+    public static void countTextureBind() {
+        PassStats pass = current;
+        if (pass == null) return;
+        pass.textureBinds++;
+    }
+
+    /**
+     * Count an upload to a buffer or texture.
+     *
+     * @param bytes The number of bytes uploaded.
+     */
+    public static void countUpload(long bytes) {
+        PassStats pass = current;
+        if (pass == null) return;
+        pass.bufferUploads++;
+        pass.uploadedBytes += bytes;
+    }
+
+    /**
+     * Start a new frame. The counters of the last frame become the ones returned by {@link PassStats}.
+     * <p>Internal use only. This is called once per frame on the main thread.</p>
+     */
+    public void beginFrame() {
+        if (active != null) endPass();
+        frame++;
+        for (PassStats pass : passes.values())
+            pass.finishFrame();
+        current = enabled ? other : null;
+    }
+
+    /**
+     * Start a pass.
+     * <p>Passes cannot be nested. Starting a pass ends the one that is active.</p>
+     *
+     * @param name The name of the pass.
+     */
+    public void beginPass(String name) {
+        if (!enabled) return;
+        if (active != null) endPass();
+        active = passes.computeIfAbsent(name, PassStats::new);
+        active.begin(frame, supportsTimestamps());
+        current = active;
+    }
+
+    /**
+     * End the active pass.
+     */
+    public void endPass() {
+        if (active == null) return;
+        active.end(frame, supportsTimestamps());
+        active = null;
+        current = enabled ? other : null;
+    }
+
+    private boolean supportsTimestamps() {
+        if (timestamps == null) {
+            GLCapabilities capabilities = GL.getCapabilities();
+            timestamps = capabilities.OpenGL33 || capabilities.GL_ARB_timer_query;
+        }
+        return timestamps;
+    }
+
+    /**
+     * Get the statistics of a pass.
+     *
+     * @param name The name of the pass.
+     * @return The statistics of the pass. (Null if the pass was never rendered).
+     */
+    public PassStats getPass(String name) {
+        return passes.get(name);
+    }
+
+    /**
+     * Get the statistics of every pass, in the order they were first rendered.
+     *
+     * @return The statistics of the passes.
+     */
+    public Collection<PassStats> getPasses() {
+        return passView;
+    }
+
+    /**
+     * Get the total GPU time of the passes.
+     *
+     * @return The GPU time. (In milliseconds).
+     */
+    public double getTotalGpuTime() {
+        double total = 0;
+        for (PassStats pass : passes.values())
+            total += pass.getGpuTime();
+        return total;
+    }
+
+    /**
+     * Get the total number of draw calls of the last frame.
+     *
+     * @return The number of draw calls.
+     */
+    public int getTotalDrawCalls() {
+        int total = 0;
+        for (PassStats pass : passes.values())
+            total += pass.getDrawCalls();
+        return total;
+    }
+
+    /**
+     * Get the total number of triangles of the last frame.
+     *
+     * @return The number of triangles.
+     */
+    public long getTotalTriangles() {
+        long total = 0;
+        for (PassStats pass : passes.values())
+            total += pass.getTriangles();
+        return total;
+    }
+
+    /**
+     * Check if statistics are collected.
+     *
+     * @return If statistics are collected.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set if statistics are collected.
+     * <p>They are collected by default.</p>
+     *
+     * @param enabled If statistics are collected.
+     */
+    public void setEnabled(boolean enabled) {
+        if (!enabled) endPass();
+        this.enabled = enabled;
+        current = enabled ? other : null;
+    }
+
+    /**
+     * Delete the timer queries.
+     * <p>Internal use only.</p>
+     */
+    public void cleanup() {
+        active = null;
+        current = null;
+        for (PassStats pass : passes.values())
+            pass.cleanup();
+    }
+}
@@ -5,7 +5,7 @@ import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.kakara.engine.GameHandler;
 import org.kakara.engine.math.Vector3;
-import org.kakara.engine.physics.FixedPhysicsUpdater;
+import org.kakara.engine.physics.PhysicsStepper;
 import org.kakara.engine.physics.collision.ColliderComponent;
 import org.kakara.engine.physics.collision.CollisionManager;
 import org.kakara.engine.physics.collision.VoxelCollider;
@@ -22,22 +22,22 @@ import java.util.*;
 public abstract class AbstractGameScene extends AbstractScene {
 
     private final ChunkHandler chunkHandler;
-    private final Timer physicsUpdater;
+    private final PhysicsStepper physicsStepper;
     private TextureAtlas textureAtlas;
 
     public AbstractGameScene(GameHandler gameHandler) {
         super(gameHandler);
         this.chunkHandler = new ChunkHandler();
-        this.physicsUpdater = new Timer("Fixed Physics Update Timer");
-        this.physicsUpdater.schedule(new FixedPhysicsUpdater(this), 10, 10);
+        this.physicsStepper = new PhysicsStepper(this);
     }
 
     @Override
     public final void render() {
         gameHandler.getGameEngine().getRenderer().render(gameHandler.getWindow(), getCamera(), this);
-        if (getSkyBox() != null)
-            gameHandler.getGameEngine().getRenderer().renderSkyBox(gameHandler.getWindow(), getCamera(), this);
+        gameHandler.getGameEngine().getRenderer().finishScene(gameHandler.getWindow());
+        gameHandler.getGameEngine().getRenderer().getRenderStats().beginPass("UI");
         userInterface.render(gameHandler.getWindow());
+        gameHandler.getGameEngine().getRenderer().getRenderStats().endPass();
     }
 
     /**
@@ -50,6 +50,17 @@ public abstract class AbstractGameScene extends AbstractScene {
         return chunkHandler;
     }
 
+    /**
+     * Get the physics stepper.
+     * <p>This runs the physics of the scene with a fixed time step.</p>
+     *
+     * @return The physics stepper.
+     * @since 1.0-Pre5
+     */
+    public PhysicsStepper getPhysicsStepper() {
+        return physicsStepper;
+    }
+
     /**
      * Get the current texture atlas.
      *
@@ -265,6 +276,7 @@ public abstract class AbstractGameScene extends AbstractScene {
     @Override
     public void unload() {
         getItemHandler().cleanup();
-        this.physicsUpdater.cancel();
+        chunkHandler.cleanup();
+        physicsStepper.cleanup();
     }
 }
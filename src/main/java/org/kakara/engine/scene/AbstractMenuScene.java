@@ -54,7 +54,9 @@ public abstract class AbstractMenuScene implements Scene {
             glViewport(0, 0, gameHandler.getWindow().getWidth(), gameHandler.getWindow().getHeight());
             gameHandler.getWindow().setResized(false);
         }
+        gameHandler.getGameEngine().getRenderer().getRenderStats().beginPass("UI");
         userInterface.render(gameHandler.getWindow());
+        gameHandler.getGameEngine().getRenderer().getRenderStats().endPass();
     }
 
     @Override
@@ -0,0 +1,122 @@
+package org.kakara.engine.utils;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of frame times.
+ *
+ * <p>Frame times are counted in buckets of one millisecond, up to {@link #MAX_MILLISECONDS}. Longer frames are counted
+ * in the last bucket. This can be used to measure hitches, which an average frame time hides.</p>
+ *
+ * <p>Get the histogram of the engine through {@link org.kakara.engine.GameEngine#getFrameTimeHistogram()}.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class FrameTimeHistogram {
+    /**
+     * The longest frame time with its own bucket.
+     */
+    public static final int MAX_MILLISECONDS = 250;
+
+    private final long[] buckets = new long[MAX_MILLISECONDS + 1];
+    private long count;
+    private double total;
+    private double longest;
+
+    /**
+     * Record the time of a frame.
+     *
+     * @param seconds The time of the frame. (In seconds).
+     */
+    public void record(float seconds) {
+        double milliseconds = seconds * 1000.0;
+        buckets[(int) Math.min(MAX_MILLISECONDS, Math.max(0, milliseconds))]++;
+        count++;
+        total += milliseconds;
+        longest = Math.max(longest, milliseconds);
+    }
+
+    /**
+     * Get the number of recorded frames.
+     *
+     * @return The number of frames.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the number of frames within a bucket.
+     *
+     * @param milliseconds The bucket. (Frames that took between this and one more millisecond).
+     * @return The number of frames in the bucket.
+     */
+    public long getBucket(int milliseconds) {
+        return buckets[Math.min(MAX_MILLISECONDS, Math.max(0, milliseconds))];
+    }
+
+    /**
+     * Get the average frame time.
+     *
+     * @return The average frame time. (In milliseconds).
+     */
+    public double getAverage() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    /**
+     * Get the longest frame time.
+     *
+     * @return The longest frame time. (In milliseconds).
+     */
+    public double getLongest() {
+        return longest;
+    }
+
+    /**
+     * Get a percentile of the frame times.
+     *
+     * @param percentile The percentile. (Between 0 and 100).
+     * @return The upper end of the bucket containing the percentile. (In milliseconds).
+     */
+    public int getPercentile(double percentile) {
+        long target = (long) Math.ceil(count * Math.max(0, Math.min(100, percentile)) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= target && seen > 0)
+                return i + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Get the number of frames that took at least a certain time.
+     *
+     * @param milliseconds The minimum frame time. (In milliseconds).
+     * @return The number of hitches.
+     */
+    public long getHitchCount(int milliseconds) {
+        long hitches = 0;
+        for (int i = Math.max(0, Math.min(MAX_MILLISECONDS, milliseconds)); i < buckets.length; i++) {
+            hitches += buckets[i];
+        }
+        return hitches;
+    }
+
+    /**
+     * Clear the histogram.
+     */
+    public void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        total = 0;
+        longest = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FrameTimeHistogram{frames=%d, average=%.2fms, p50=%dms, p99=%dms, longest=%.2fms}",
+                count, getAverage(), getPercentile(50), getPercentile(99), longest);
+    }
+}
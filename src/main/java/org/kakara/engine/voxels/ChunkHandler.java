@@ -4,13 +4,16 @@ import org.kakara.engine.math.KMath;
 import org.kakara.engine.math.Vector3;
 import org.kakara.engine.physics.collision.ColliderComponent;
 import org.kakara.engine.physics.collision.VoxelCollider;
+import org.kakara.engine.render.culling.VisibilityTree;
 import org.kakara.engine.scene.AbstractGameScene;
+import org.kakara.engine.voxels.mesh.VoxelArena;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Handles the voxel chunks for the system. In order to use the Voxel System you must
@@ -21,9 +24,30 @@ import java.util.concurrent.Executors;
 public class ChunkHandler {
     public static final ExecutorService EXECUTORS = Executors.newFixedThreadPool(2);
     private final List<VoxelChunk> voxelChunkList;
+    // Chunks do not move, so the tree never needs to be refit.
+    private final VisibilityTree<VoxelChunk> visibilityTree;
+    // Incremented whenever a chunk is added or removed.
+    private final AtomicLong modificationCount = new AtomicLong();
+    // Incremented whenever the mesh of one of the chunks is replaced.
+    private final AtomicLong meshVersion = new AtomicLong();
+    // Replaced whenever a chunk is added or removed, so it can be read by the physics without a lock.
+    private volatile ChunkGrid grid = ChunkGrid.EMPTY;
+    private VoxelArena voxelArena;
 
     public ChunkHandler() {
         voxelChunkList = new ArrayList<>();
+        visibilityTree = new VisibilityTree<>(ChunkHandler::getChunkBounds, 0, false);
+    }
+
+    private static boolean getChunkBounds(VoxelChunk chunk, float[] dest) {
+        Vector3 position = chunk.transform.getPosition();
+        dest[0] = position.x;
+        dest[1] = position.y;
+        dest[2] = position.z;
+        dest[3] = position.x + 16;
+        dest[4] = position.y + 16;
+        dest[5] = position.z + 16;
+        return true;
     }
 
     /**
@@ -33,6 +57,10 @@ public class ChunkHandler {
      */
     public void addChunk(VoxelChunk chunk) {
         voxelChunkList.add(chunk);
+        chunk.setChunkHandler(this);
+        visibilityTree.add(chunk);
+        modificationCount.incrementAndGet();
+        rebuildGrid();
     }
 
     /**
@@ -49,7 +77,11 @@ public class ChunkHandler {
             }
         }
         if (ind != -1) {
-            voxelChunkList.remove(ind);
+            VoxelChunk chunk = voxelChunkList.remove(ind);
+            chunk.setChunkHandler(null);
+            visibilityTree.remove(chunk);
+            modificationCount.incrementAndGet();
+            rebuildGrid();
         }
     }
 
@@ -59,11 +91,39 @@ public class ChunkHandler {
      *
      * @param position The position where the collider is to check around.
      * @return The list of colliders.
+     * @deprecated The physics no longer uses the colliders of the voxels. Use {@link #getVoxel(int, int, int)}, or
+     * {@link org.kakara.engine.physics.collision.CollisionManager#isCollidingVoxels(ColliderComponent,
+     * org.kakara.engine.physics.collision.CollisionManager.Contact)} to test a collider against the voxels.
      */
+    @Deprecated
     public List<ColliderComponent> getChunkCollisions(Vector3 position) {
-        Vector3 pos = new Vector3((int) Math.floor(position.x), (int) Math.floor(position.y), (int) Math.floor(position.z));
         List<ColliderComponent> collisionList = new ArrayList<>();
-        for (VoxelChunk chunk : new ArrayList<>(voxelChunkList)) {
+        getChunkCollisions(position, collisionList);
+        return collisionList;
+    }
+
+    /**
+     * Add the chunk collisions around a position to a list.
+     * <p>For performance reasons only the blocks around the position provided are added.</p>
+     *
+     * @param position      The position where the collider is to check around.
+     * @param collisionList The list to add the colliders to. (It is not cleared).
+     * @since 1.0-Pre5
+     * @deprecated The physics no longer uses the colliders of the voxels. Use {@link #getVoxel(int, int, int)}, or
+     * {@link org.kakara.engine.physics.collision.CollisionManager#isCollidingVoxels(ColliderComponent,
+     * org.kakara.engine.physics.collision.CollisionManager.Contact)} to test a collider against the voxels.
+     */
+    @Deprecated
+    public void getChunkCollisions(Vector3 position, List<ColliderComponent> collisionList) {
+        Vector3 pos = new Vector3((int) Math.floor(position.x), (int) Math.floor(position.y), (int) Math.floor(position.z));
+        for (int i = 0; i < voxelChunkList.size(); i++) {
+            VoxelChunk chunk;
+            try {
+                chunk = voxelChunkList.get(i);
+            } catch (IndexOutOfBoundsException ex) {
+                // A chunk was removed by another thread.
+                break;
+            }
             if (chunk == null) continue;
             if (KMath.distance(0, chunk.transform.getPosition().y, 0, 0, pos.y, 0) > 16) continue;
             if (KMath.distance(chunk.transform.getPosition().x, 0, 0, pos.x, 0, 0) < 17
@@ -86,7 +146,104 @@ public class ChunkHandler {
                 }
             }
         }
-        return collisionList;
+    }
+
+    /**
+     * Add the colliders of the voxels in a box to a list.
+     * <p>Unlike {@link #getChunkCollisions(Vector3, List)} this covers the whole box, no matter how large it is, so it
+     * can be used for the path of a fast moving object.</p>
+     *
+     * @param minX          The min x of the box.
+     * @param minY          The min y of the box.
+     * @param minZ          The min z of the box.
+     * @param maxX          The max x of the box.
+     * @param maxY          The max y of the box.
+     * @param maxZ          The max z of the box.
+     * @param collisionList The list to add the colliders to. (It is not cleared).
+     * @since 1.0-Pre5
+     * @deprecated The physics no longer uses the colliders of the voxels. Use {@link #getVoxel(int, int, int)}, or
+     * {@link org.kakara.engine.physics.collision.CollisionManager#addVoxelContacts(ColliderComponent,
+     * org.kakara.engine.physics.collision.ContactBuffer)} to get the voxels a collider is inside of.
+     */
+    @Deprecated
+    public void getChunkCollisions(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<ColliderComponent> collisionList) {
+        int voxelMinX = (int) Math.floor(minX), voxelMinY = (int) Math.floor(minY), voxelMinZ = (int) Math.floor(minZ);
+        int voxelMaxX = (int) Math.floor(maxX), voxelMaxY = (int) Math.floor(maxY), voxelMaxZ = (int) Math.floor(maxZ);
+        for (int x = voxelMinX; x <= voxelMaxX; x++) {
+            for (int y = voxelMinY; y <= voxelMaxY; y++) {
+                for (int z = voxelMinZ; z <= voxelMaxZ; z++) {
+                    Voxel voxel = getVoxel(x, y, z);
+                    if (voxel != null)
+                        collisionList.add(voxel.getCollider());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the voxel at a position in the world.
+     * <p>This reads the voxel arrays of the chunks directly, so it is cheap enough to be called for every voxel a
+     * moving object passes through. It is safe to call from any thread.</p>
+     * <p>Only chunks placed at whole numbers are found. Chunks placed at multiples of 16 are found with a single hash
+     * lookup; the others are checked one by one.</p>
+     *
+     * @param x The x position of the voxel.
+     * @param y The y position of the voxel.
+     * @param z The z position of the voxel.
+     * @return The voxel. (Null if there is no voxel at the position).
+     * @since 1.0-Pre5
+     */
+    public Voxel getVoxel(int x, int y, int z) {
+        ChunkGrid grid = this.grid;
+        VoxelChunk chunk = grid.get(x >> 4, y >> 4, z >> 4);
+        if (chunk != null) {
+            Voxel voxel = chunk.getVoxelArray()[x & 15][y & 15][z & 15];
+            if (voxel != null) return voxel;
+        }
+        for (VoxelChunk other : grid.unaligned) {
+            Vector3 position = other.transform.getPosition();
+            int localX = x - (int) position.x, localY = y - (int) position.y, localZ = z - (int) position.z;
+            if (localX < 0 || localY < 0 || localZ < 0 || localX > 15 || localY > 15 || localZ > 15) continue;
+            Voxel voxel = other.getVoxelArray()[localX][localY][localZ];
+            if (voxel != null) return voxel;
+        }
+        return null;
+    }
+
+    /**
+     * Check if there is a voxel at a position in the world.
+     *
+     * @param x The x position.
+     * @param y The y position.
+     * @param z The z position.
+     * @return If there is a voxel at the position.
+     * @see #getVoxel(int, int, int)
+     * @since 1.0-Pre5
+     */
+    public boolean isSolid(int x, int y, int z) {
+        return getVoxel(x, y, z) != null;
+    }
+
+    /**
+     * Rebuild the lookup of the chunks by position.
+     * <p>Chunks are not expected to move once they are added.</p>
+     */
+    private synchronized void rebuildGrid() {
+        List<VoxelChunk> chunks = new ArrayList<>(voxelChunkList);
+        int capacity = 16;
+        while (capacity < chunks.size() * 2)
+            capacity <<= 1;
+        long[] keys = new long[capacity];
+        VoxelChunk[] table = new VoxelChunk[capacity];
+        List<VoxelChunk> unaligned = new ArrayList<>();
+        for (VoxelChunk chunk : chunks) {
+            if (chunk == null) continue;
+            Vector3 position = chunk.transform.getPosition();
+            if (position.x % 16 != 0 || position.y % 16 != 0 || position.z % 16 != 0
+                    || !ChunkGrid.put(keys, table, (int) position.x >> 4, (int) position.y >> 4, (int) position.z >> 4, chunk))
+                unaligned.add(chunk);
+        }
+        grid = new ChunkGrid(keys, table, unaligned.toArray(new VoxelChunk[0]));
     }
 
     /**
@@ -132,14 +289,97 @@ public class ChunkHandler {
         return new ArrayList<>(voxelChunkList);
     }
 
+    /**
+     * Get the bounding volume hierarchy of the chunks, used to find the chunks within the view frustum.
+     * <p>The tree is updated by the render pipeline once per frame.</p>
+     *
+     * @return The visibility tree.
+     * @since 1.0-Pre5
+     */
+    public VisibilityTree<VoxelChunk> getVisibilityTree() {
+        return visibilityTree;
+    }
+
     /**
      * Remove all chunks from the render list.
      */
     public void removeAll() {
         for (VoxelChunk rc : voxelChunkList) {
             rc.cleanup();
+            rc.setChunkHandler(null);
+            visibilityTree.remove(rc);
         }
         voxelChunkList.clear();
+        modificationCount.incrementAndGet();
+        rebuildGrid();
+    }
+
+    /**
+     * Get the number of times the chunks have changed.
+     * <p>This changes whenever a chunk is added, removed, or has its mesh replaced. It is used to know when cached
+     * shadows of the chunks need to be rendered again.</p>
+     *
+     * @return The modification count.
+     * @since 1.0-Pre5
+     */
+    public long getModificationCount() {
+        return modificationCount.get() + meshVersion.get();
+    }
+
+    /**
+     * Get the number of times a chunk has been added or removed.
+     * <p>Unlike {@link #getModificationCount()} this does not change when the mesh of a chunk is replaced.</p>
+     *
+     * @return The number of times the chunk list changed.
+     * @since 1.0-Pre5
+     */
+    public long getChunkListVersion() {
+        return modificationCount.get();
+    }
+
+    /**
+     * Count a replaced mesh of one of the chunks.
+     * <p>Internal use only.</p>
+     */
+    void markMeshReplaced() {
+        meshVersion.incrementAndGet();
+    }
+
+    /**
+     * Get the shared vertex arena used by chunks with the {@link org.kakara.engine.voxels.mesh.MeshType#ARENA} mesh type.
+     * <p>The arena is created the first time this is called. This must be called on the main thread.</p>
+     *
+     * @return The voxel arena.
+     * @since 1.0-Pre5
+     */
+    public VoxelArena getVoxelArena() {
+        if (voxelArena == null)
+            voxelArena = new VoxelArena();
+        return voxelArena;
+    }
+
+    /**
+     * Check if the voxel arena has been created.
+     *
+     * @return If the voxel arena exists.
+     * @since 1.0-Pre5
+     */
+    public boolean hasVoxelArena() {
+        return voxelArena != null;
+    }
+
+    /**
+     * Cleanup the voxel arena.
+     * <p>This frees the storage of every chunk using the arena mesh type at once.</p>
+     * <p>Internal use only.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    public void cleanup() {
+        if (voxelArena != null) {
+            voxelArena.cleanup();
+            voxelArena = null;
+        }
     }
 
     /**
@@ -154,5 +394,60 @@ public class ChunkHandler {
         return input.subtractMut(chunkpos);
     }
 
+    /**
+     * An immutable hash table of the chunks placed at multiples of 16, keyed by their position divided by 16.
+     */
+    private static final class ChunkGrid {
+        static final ChunkGrid EMPTY = new ChunkGrid(new long[16], new VoxelChunk[16], new VoxelChunk[0]);
+        // Chunk coordinates are packed into 21 bits each.
+        private static final int COORDINATE_BITS = 21;
+        private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+
+        final long[] keys;
+        final VoxelChunk[] chunks;
+        final VoxelChunk[] unaligned;
+
+        ChunkGrid(long[] keys, VoxelChunk[] chunks, VoxelChunk[] unaligned) {
+            this.keys = keys;
+            this.chunks = chunks;
+            this.unaligned = unaligned;
+        }
+
+        VoxelChunk get(int x, int y, int z) {
+            long key = key(x, y, z);
+            int mask = chunks.length - 1;
+            for (int slot = slot(key, mask); chunks[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return chunks[slot];
+            }
+            return null;
+        }
 
+        /**
+         * Add a chunk to a table that is being built.
+         *
+         * @return False if there already is a chunk at the position.
+         */
+        static boolean put(long[] keys, VoxelChunk[] chunks, int x, int y, int z, VoxelChunk chunk) {
+            long key = key(x, y, z);
+            int mask = chunks.length - 1;
+            int slot = slot(key, mask);
+            for (; chunks[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return false;
+            }
+            keys[slot] = key;
+            chunks[slot] = chunk;
+            return true;
+        }
+
+        private static long key(int x, int y, int z) {
+            return ((x & COORDINATE_MASK) << (COORDINATE_BITS * 2)) | ((y & COORDINATE_MASK) << COORDINATE_BITS) | (z & COORDINATE_MASK);
+        }
+
+        private static int slot(long key, int mask) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return (int) key & mask;
+        }
+    }
 }
@@ -30,7 +30,8 @@ public class Voxel implements Tagable {
     private final Layout layout;
     private final VoxelTexture texture;
     private final List<Face> visibleFaces;
-    private final VoxelCollider collider;
+    // Created when it is first needed, as the physics reads the voxels of a chunk directly.
+    private volatile VoxelCollider collider;
     private VoxelTexture overlay;
     private boolean isOpaque;
     private Vector3 position;
@@ -56,8 +57,6 @@ public class Voxel implements Tagable {
         this.data = new ArrayList<>();
         this.tag = "";
         this.isOpaque = true;
-        this.collider = new VoxelCollider(this);
-        this.collider.start();
     }
 
     /**
@@ -201,12 +200,23 @@ public class Voxel implements Tagable {
 
     /**
      * Get the collider for this voxel.
+     * <p>The collider is created the first time this is called. Objects with a
+     * {@link org.kakara.engine.physics.collision.PhysicsComponent} collide with the voxels without it.</p>
      *
      * @return The collider.
      * @since 1.0-Pre5.
      */
     public VoxelCollider getCollider() {
-        return this.collider;
+        VoxelCollider collider = this.collider;
+        if (collider != null) return collider;
+        synchronized (this) {
+            if (this.collider == null) {
+                collider = new VoxelCollider(this);
+                collider.start();
+                this.collider = collider;
+            }
+            return this.collider;
+        }
     }
 
     /**
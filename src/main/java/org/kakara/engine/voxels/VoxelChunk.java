@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A VoxelChunk is a 16 x 16 x 16 section of Voxels. Voxel Chunks are a single mesh so that
@@ -18,10 +19,26 @@ import java.util.concurrent.CompletableFuture;
  * <p>This class <b>is</b> thread safe.</p>
  */
 public class VoxelChunk extends GameItem {
+    /**
+     * The number of voxels along each side of a chunk.
+     *
+     * @since 1.0-Pre5
+     */
+    public static final int CHUNK_SIZE = 16;
+    // Incremented whenever a voxel is added to or removed from any chunk.
+    private static final AtomicLong VOXEL_VERSION = new AtomicLong();
     private final Voxel[][][] voxelArray;
     private final UUID chunkId;
     private VoxelMesh mesh;
     private int voxelCount = 0;
+    // The solid layers used as an occluder. (Recalculated when the voxels change).
+    private volatile boolean occluderDirty = true;
+    private int occluderMinY;
+    private int occluderMaxY;
+    // The voxel version of the last time a voxel of this chunk was added or removed.
+    private volatile long voxelChangeVersion;
+    // The chunk handler the chunk was added to. (Null if it is not in one).
+    private volatile ChunkHandler chunkHandler;
 
     /**
      * Creates a new voxel chunk.
@@ -63,14 +80,15 @@ public class VoxelChunk extends GameItem {
      *
      * @param voxel The voxel to add.
      */
-    public void addVoxel(Voxel voxel) {
+    public synchronized void addVoxel(Voxel voxel) {
         if (voxel.getParentChunk() != null)
             throw new RuntimeException("Error: This block already has a parent!");
         voxel.setParentChunk(this);
         if (voxelArray[(int) voxel.getPosition().x][(int) voxel.getPosition().y][(int) voxel.getPosition().z] == null)
             voxelCount++;
         voxelArray[(int) voxel.getPosition().x][(int) voxel.getPosition().y][(int) voxel.getPosition().z] = voxel;
-
+        occluderDirty = true;
+        voxelChangeVersion = VOXEL_VERSION.incrementAndGet();
     }
 
     /**
@@ -78,10 +96,12 @@ public class VoxelChunk extends GameItem {
      *
      * @param voxel The voxel to remove.
      */
-    public void removeVoxel(Voxel voxel) {
+    public synchronized void removeVoxel(Voxel voxel) {
         voxelArray[(int) voxel.getPosition().x][(int) voxel.getPosition().y][(int) voxel.getPosition().z] = null;
         voxel.setParentChunk(null);
         voxelCount--;
+        occluderDirty = true;
+        voxelChangeVersion = VOXEL_VERSION.incrementAndGet();
     }
 
     /**
@@ -106,12 +126,66 @@ public class VoxelChunk extends GameItem {
         return mesh;
     }
 
+    /**
+     * Get the number of times a voxel has been added to or removed from any chunk.
+     * <p>Compare this to {@link #getVoxelChangeVersion()} to find the chunks that changed since a version.</p>
+     *
+     * @return The voxel version.
+     * @since 1.0-Pre5
+     */
+    public static long getVoxelVersion() {
+        return VOXEL_VERSION.get();
+    }
+
+    /**
+     * Get the voxel version of the last time a voxel was added to or removed from this chunk.
+     *
+     * @return The voxel version of the last change. (0 if the voxels never changed).
+     * @see #getVoxelVersion()
+     * @since 1.0-Pre5
+     */
+    public long getVoxelChangeVersion() {
+        return voxelChangeVersion;
+    }
+
+    /**
+     * Replace the mesh of the chunk.
+     *
+     * @param newMesh The new mesh.
+     */
+    private void replaceMesh(VoxelMesh newMesh) {
+        if (mesh != null)
+            mesh.cleanUp();
+        mesh = newMesh;
+        meshReplaced();
+    }
+
+    /**
+     * Let the chunk handler know the mesh has changed, so the cached shadows are drawn again.
+     */
+    private void meshReplaced() {
+        ChunkHandler handler = chunkHandler;
+        if (handler != null)
+            handler.markMeshReplaced();
+    }
+
+    /**
+     * Set the chunk handler the chunk belongs to.
+     * <p>Internal use only.</p>
+     *
+     * @param chunkHandler The chunk handler. (Null when the chunk is removed).
+     */
+    void setChunkHandler(ChunkHandler chunkHandler) {
+        this.chunkHandler = chunkHandler;
+    }
+
     /**
      * Get all of the visible voxels.
+     * <p>This holds the lock of the chunk, so the voxels cannot be added or removed while the mesh is being built.</p>
      *
      * @return The list of visible voxels.
      */
-    public List<Voxel> calculateVisibleVoxels() {
+    public synchronized List<Voxel> calculateVisibleVoxels() {
         List<Voxel> output = new ArrayList<>();
         for (int x = 0; x < 16; x++) {
             for (int y = 0; y < 16; y++) {
@@ -163,7 +237,7 @@ public class VoxelChunk extends GameItem {
 
     /**
      * Regenerate a Voxel Chunk.
-     * <p>Be sure to check the documentation for {@link SyncMesh}, {@link AsyncMesh}, {@link MultiThreadMesh}, and {@link ModifiedAsyncMesh}
+     * <p>Be sure to check the documentation for {@link SyncMesh}, {@link AsyncMesh}, {@link MultiThreadMesh}, {@link ModifiedAsyncMesh}, and {@link ArenaMesh}
      * to see what thread this method should be called on.</p>
      *
      * @param atlas The texture atlas to use.
@@ -173,26 +247,20 @@ public class VoxelChunk extends GameItem {
     public CompletableFuture<? extends VoxelMesh> regenerateChunk(TextureAtlas atlas, MeshType type) {
         switch (type) {
             case SYNC:
-                if (mesh != null)
-                    mesh.cleanUp();
-                this.mesh = new SyncMesh(this, atlas);
+                replaceMesh(new SyncMesh(this, atlas));
                 break;
             case ASYNC:
                 CompletableFuture<AsyncMesh> asyncFuture = new CompletableFuture<>();
                 AsyncMesh m = new AsyncMesh(this, atlas, asyncFuture);
                 asyncFuture.thenAccept(newmesh -> {
-                    if (mesh != null)
-                        mesh.cleanUp();
-                    mesh = newmesh;
+                    replaceMesh(newmesh);
                 });
                 return asyncFuture;
             case MULTITHREAD:
                 CompletableFuture<MultiThreadMesh> multiFuture = new CompletableFuture<>();
                 MultiThreadMesh ma = new MultiThreadMesh(this, atlas, multiFuture);
                 multiFuture.thenAccept(newmesh -> {
-                    if (mesh != null)
-                        mesh.cleanUp();
-                    mesh = newmesh;
+                    replaceMesh(newmesh);
                 });
                 return multiFuture;
             case MODIFEDASYNC:
@@ -200,7 +268,16 @@ public class VoxelChunk extends GameItem {
                 if (mesh != null)
                     mesh.cleanUp();
                 this.mesh = new ModifiedAsyncMesh(this, atlas, modifedFuture);
+                // The mesh is only drawn once its data has been uploaded.
+                modifedFuture.thenRun(this::meshReplaced);
                 return modifedFuture;
+            case ARENA:
+                CompletableFuture<ArenaMesh> arenaFuture = new CompletableFuture<>();
+                arenaFuture.thenAccept(newmesh -> {
+                    replaceMesh(newmesh);
+                });
+                new ArenaMesh(this, atlas, arenaFuture);
+                return arenaFuture;
         }
         return null;
     }
@@ -215,6 +292,61 @@ public class VoxelChunk extends GameItem {
         mesh.updateOverlay(calculateVisibleVoxels(), atlas);
     }
 
+    /**
+     * Get the bounds of the part of the chunk that can be used as an occluder.
+     * <p>This is the largest run of layers (along the y axis) that are completely filled with opaque voxels. Anything
+     * behind it is guaranteed to be hidden.</p>
+     * <p>The array is filled with: minX, minY, minZ, maxX, maxY, maxZ.</p>
+     *
+     * @param dest The array to write the bounds into.
+     * @return If the chunk has any completely filled layers.
+     * @since 1.0-Pre5
+     */
+    public boolean getOccluderBounds(float[] dest) {
+        if (occluderDirty) {
+            // The same lock as the mesh, so the voxels are not changed by another thread while they are read.
+            synchronized (this) {
+                occluderDirty = false;
+                calculateOccluderLayers();
+            }
+        }
+        if (occluderMaxY <= occluderMinY) return false;
+        Vector3 position = transform.getPosition();
+        dest[0] = position.x;
+        dest[1] = position.y + occluderMinY;
+        dest[2] = position.z;
+        dest[3] = position.x + 16;
+        dest[4] = position.y + occluderMaxY;
+        dest[5] = position.z + 16;
+        return true;
+    }
+
+    private void calculateOccluderLayers() {
+        occluderMinY = 0;
+        occluderMaxY = 0;
+        // A chunk needs at least a full layer of voxels.
+        if (voxelCount < 16 * 16) return;
+        int start = 0;
+        for (int y = 0; y <= 16; y++) {
+            if (y < 16 && isLayerSolid(y)) continue;
+            if (y - start > occluderMaxY - occluderMinY) {
+                occluderMinY = start;
+                occluderMaxY = y;
+            }
+            start = y + 1;
+        }
+    }
+
+    private boolean isLayerSolid(int y) {
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                Voxel voxel = voxelArray[x][y][z];
+                if (voxel == null || !voxel.isOpaque()) return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Get the number of blocks stored in the render chunk.
      *
@@ -232,6 +364,7 @@ public class VoxelChunk extends GameItem {
 
 
     public void cleanup() {
+        if (mesh == null) return;
         mesh.cleanUp();
     }
 }
@@ -0,0 +1,243 @@
+package org.kakara.engine.voxels.mesh;
+
+import org.jetbrains.annotations.Nullable;
+import org.kakara.engine.GameEngine;
+import org.kakara.engine.GameHandler;
+import org.kakara.engine.render.culling.RenderQuery;
+import org.kakara.engine.scene.AbstractGameScene;
+import org.kakara.engine.scene.Scene;
+import org.kakara.engine.voxels.TextureAtlas;
+import org.kakara.engine.voxels.Voxel;
+import org.kakara.engine.voxels.VoxelChunk;
+import org.kakara.engine.voxels.layouts.MeshLayout;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A voxel mesh that is stored within the shared {@link VoxelArena} of the current scene.
+ * <p>Arena meshes do not own any OpenGL objects. All of the arena meshes in a scene are drawn together by
+ * the {@link org.kakara.engine.render.preset.pipeline.VoxelPipeline} with a single draw call.</p>
+ * <p>The mesh data is generated on the current thread and uploaded on the main thread. This class can be constructed
+ * on any thread.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class ArenaMesh implements VoxelMesh {
+
+    private final int indexCount;
+    private VoxelArena arena;
+    private int vertexOffset = -1;
+    private int arenaVertexCount;
+    private int indexOffset = -1;
+    private boolean finished;
+
+    /**
+     * Create an arena mesh.
+     *
+     * @param renderChunk  The chunk to create the mesh for.
+     * @param textureAtlas The texture atlas to use.
+     * @param future       The completable future that is to be completed once the mesh is in the arena.
+     */
+    public ArenaMesh(VoxelChunk renderChunk, TextureAtlas textureAtlas, @Nullable CompletableFuture<ArenaMesh> future) {
+        List<Voxel> renderBlocks = renderChunk.calculateVisibleVoxels();
+        MeshLayout layout = MeshUtils.setupLayout(renderBlocks, textureAtlas);
+        this.indexCount = layout.getVertexLength();
+
+        FloatBuffer vertices = interleave(layout);
+        IntBuffer indices = layout.getIndices();
+
+        Runnable upload = () -> {
+            try {
+                Scene scene = GameHandler.getInstance().getCurrentScene();
+                if (scene instanceof AbstractGameScene) {
+                    arena = ((AbstractGameScene) scene).getChunkHandler().getVoxelArena();
+                    arena.upload(vertices, indices, this);
+                    finished = true;
+                }
+            } catch (Exception e) {
+                GameEngine.LOGGER.error("Error While Building RenderChunk", e);
+            } finally {
+                MemoryUtil.memFree(vertices);
+                MemoryUtil.memFree(indices);
+            }
+            if (future != null)
+                future.complete(this);
+        };
+
+        if (Thread.currentThread() == GameEngine.currentThread)
+            upload.run();
+        else
+            GameHandler.getInstance().getGameEngine().addQueueItem(upload);
+    }
+
+    /**
+     * Interleave the separate buffers of a layout into the vertex format of the arena.
+     * <p>The buffers of the layout (other than the indices) are freed.</p>
+     *
+     * @param layout The layout to interleave.
+     * @return The interleaved vertex data.
+     */
+    private static FloatBuffer interleave(MeshLayout layout) {
+        FloatBuffer positions = layout.getVertex();
+        FloatBuffer texCoords = layout.getTextCoords();
+        FloatBuffer normals = layout.getNormals();
+        FloatBuffer overlayCoords = layout.getOverlayCoords();
+        IntBuffer hasOverlay = layout.getHasOverlay();
+
+        int vertexCount = positions.remaining() / 3;
+        FloatBuffer output = MemoryUtil.memAllocFloat(vertexCount * VoxelArena.VERTEX_SIZE_FLOATS);
+        for (int i = 0; i < vertexCount; i++) {
+            output.put(positions.get(i * 3)).put(positions.get(i * 3 + 1)).put(positions.get(i * 3 + 2));
+            output.put(texCoords.get(i * 2)).put(texCoords.get(i * 2 + 1));
+            output.put(normals.get(i * 3)).put(normals.get(i * 3 + 1)).put(normals.get(i * 3 + 2));
+            output.put(overlayCoords.get(i * 2)).put(overlayCoords.get(i * 2 + 1));
+            output.put(hasOverlay.get(i));
+        }
+        output.flip();
+
+        MemoryUtil.memFree(positions);
+        MemoryUtil.memFree(texCoords);
+        MemoryUtil.memFree(normals);
+        MemoryUtil.memFree(overlayCoords);
+        MemoryUtil.memFree(hasOverlay);
+        return output;
+    }
+
+    /**
+     * Set where the mesh is stored within the arena.
+     * <p>Internal use only.</p>
+     *
+     * @param vertexOffset The offset of the first vertex. (-1 if not allocated).
+     * @param vertexCount  The number of vertices.
+     * @param indexOffset  The offset of the first index. (-1 if not allocated).
+     */
+    void setAllocation(int vertexOffset, int vertexCount, int indexOffset) {
+        this.vertexOffset = vertexOffset;
+        this.arenaVertexCount = vertexCount;
+        this.indexOffset = indexOffset;
+    }
+
+    /**
+     * Get the offset of the first vertex within the arena.
+     *
+     * @return The vertex offset. (-1 if the mesh is not in the arena).
+     */
+    public int getVertexOffset() {
+        return vertexOffset;
+    }
+
+    /**
+     * Get the number of vertices stored in the arena.
+     *
+     * @return The number of vertices.
+     */
+    public int getArenaVertexCount() {
+        return arenaVertexCount;
+    }
+
+    /**
+     * Get the offset of the first index within the arena.
+     *
+     * @return The index offset. (-1 if the mesh is not in the arena).
+     */
+    public int getIndexOffset() {
+        return indexOffset;
+    }
+
+    /**
+     * Get the number of indices.
+     *
+     * @return The number of indices.
+     */
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    /**
+     * The number of vertexes. (The number of indices to draw).
+     *
+     * @return The number of vertexes.
+     */
+    @Override
+    public int getVertexCount() {
+        return indexCount;
+    }
+
+    /**
+     * Render the chunk by itself.
+     * <p>The {@link org.kakara.engine.render.preset.pipeline.VoxelPipeline} draws all arena meshes at once instead.</p>
+     * <p>Internal Use Only</p>
+     */
+    @Override
+    public void render() {
+        if (!finished) return;
+        arena.draw(this);
+    }
+
+    /**
+     * Free the space used by the chunk within the arena.
+     * <p>Internal Use Only</p>
+     */
+    @Override
+    public void cleanUp() {
+        if (Thread.currentThread() != GameEngine.currentThread) {
+            GameHandler.getInstance().getGameEngine().addQueueItem(this::cleanUp);
+            return;
+        }
+        finished = false;
+        if (arena != null)
+            arena.free(this);
+    }
+
+    @Override
+    public void updateOverlay(List<Voxel> blocks, TextureAtlas textureAtlas) {
+        List<Float> overlayCoords = new ArrayList<>();
+        List<Integer> hasOverlay = new ArrayList<>();
+
+        for (Voxel rb : blocks) {
+            int initial = overlayCoords.size() / 2;
+            rb.getOverlayFromFaces(overlayCoords, textureAtlas);
+            hasOverlay.addAll(Collections.nCopies((overlayCoords.size() / 2 - initial), rb.getOverlay() == null ? 0 : 1));
+        }
+
+        FloatBuffer overlayCoordsBuffer = MemoryUtil.memAllocFloat(overlayCoords.size());
+        for (Float f : overlayCoords)
+            overlayCoordsBuffer.put(f);
+        overlayCoordsBuffer.flip();
+
+        IntBuffer hasOverlayBuffer = MemoryUtil.memAllocInt(hasOverlay.size());
+        for (Integer f : hasOverlay)
+            hasOverlayBuffer.put(f);
+        hasOverlayBuffer.flip();
+
+        Runnable update = () -> {
+            try {
+                if (finished)
+                    arena.updateOverlay(this, overlayCoordsBuffer, hasOverlayBuffer);
+            } finally {
+                MemoryUtil.memFree(overlayCoordsBuffer);
+                MemoryUtil.memFree(hasOverlayBuffer);
+            }
+        };
+        if (Thread.currentThread() == GameEngine.currentThread)
+            update.run();
+        else
+            GameHandler.getInstance().getGameEngine().addQueueItem(update);
+    }
+
+    /**
+     * Arena meshes do not support occlusion queries.
+     *
+     * @return Always null.
+     */
+    @Override
+    public RenderQuery getQuery() {
+        return null;
+    }
+}
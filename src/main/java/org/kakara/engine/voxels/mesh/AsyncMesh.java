@@ -4,6 +4,7 @@ import org.jetbrains.annotations.Nullable;
 import org.kakara.engine.GameEngine;
 import org.kakara.engine.GameHandler;
 import org.kakara.engine.render.culling.RenderQuery;
+import org.kakara.engine.render.stats.RenderStats;
 import org.kakara.engine.voxels.ChunkHandler;
 import org.kakara.engine.voxels.TextureAtlas;
 import org.kakara.engine.voxels.Voxel;
@@ -171,6 +172,7 @@ public class AsyncMesh implements VoxelMesh {
         if (!finished) return;
         initRender();
         glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+        RenderStats.countDraw(getVertexCount() / 3);
         closeRender();
     }
 
@@ -0,0 +1,137 @@
+package org.kakara.engine.voxels.mesh;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A first fit free list allocator for sub-allocating ranges out of a larger block of memory.
+ * <p>The allocator does not own any memory, it only keeps track of which ranges are in use. Freed ranges are merged
+ * with their neighbours so the free list stays small.</p>
+ * <p>This class is <b>not</b> thread safe.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public class FreeListAllocator {
+    // Free blocks, keyed by their offset with the value being the size.
+    private final TreeMap<Integer, Integer> freeBlocks;
+    private int capacity;
+    private int used;
+
+    /**
+     * Create a new free list allocator.
+     *
+     * @param capacity The number of units that can be allocated.
+     */
+    public FreeListAllocator(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("The capacity cannot be negative.");
+        this.freeBlocks = new TreeMap<>();
+        this.capacity = capacity;
+        if (capacity > 0)
+            freeBlocks.put(0, capacity);
+    }
+
+    /**
+     * Allocate a range.
+     *
+     * @param size The number of units to allocate.
+     * @return The offset of the range, or -1 if there is no free range large enough.
+     */
+    public int allocate(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("The size must be greater than zero.");
+        for (Map.Entry<Integer, Integer> block : freeBlocks.entrySet()) {
+            if (block.getValue() < size) continue;
+            int offset = block.getKey();
+            int remaining = block.getValue() - size;
+            freeBlocks.remove(offset);
+            if (remaining > 0)
+                freeBlocks.put(offset + size, remaining);
+            used += size;
+            return offset;
+        }
+        return -1;
+    }
+
+    /**
+     * Free a range that was previously allocated.
+     *
+     * @param offset The offset returned by {@link #allocate(int)}.
+     * @param size   The size that was allocated.
+     */
+    public void free(int offset, int size) {
+        if (offset < 0 || size <= 0 || offset + size > capacity)
+            throw new IllegalArgumentException("Invalid range: " + offset + " (" + size + ")");
+        int start = offset;
+        int end = offset + size;
+
+        Map.Entry<Integer, Integer> previous = freeBlocks.floorEntry(offset);
+        if (previous != null) {
+            int previousEnd = previous.getKey() + previous.getValue();
+            if (previousEnd > offset)
+                throw new IllegalStateException("The range " + offset + " (" + size + ") is already free.");
+            if (previousEnd == offset) {
+                start = previous.getKey();
+                freeBlocks.remove(previous.getKey());
+            }
+        }
+        Map.Entry<Integer, Integer> next = freeBlocks.ceilingEntry(offset);
+        if (next != null) {
+            if (next.getKey() < end)
+                throw new IllegalStateException("The range " + offset + " (" + size + ") is already free.");
+            if (next.getKey() == end) {
+                end += next.getValue();
+                freeBlocks.remove(next.getKey());
+            }
+        }
+        freeBlocks.put(start, end - start);
+        used -= size;
+    }
+
+    /**
+     * Increase the capacity of the allocator.
+     * <p>The new space is added to the end of the range.</p>
+     *
+     * @param newCapacity The new capacity. (Must be larger than the current capacity).
+     */
+    public void grow(int newCapacity) {
+        if (newCapacity <= capacity)
+            throw new IllegalArgumentException("The new capacity must be larger than the current capacity.");
+        int oldCapacity = capacity;
+        capacity = newCapacity;
+        // Temporarily count the new space as used so free() keeps the books balanced.
+        used += newCapacity - oldCapacity;
+        free(oldCapacity, newCapacity - oldCapacity);
+    }
+
+    /**
+     * Get the total capacity of the allocator.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of units currently allocated.
+     *
+     * @return The number of units allocated.
+     */
+    public int getUsed() {
+        return used;
+    }
+
+    /**
+     * Get the size of the largest free range.
+     *
+     * @return The size of the largest free range.
+     */
+    public int getLargestFreeBlock() {
+        int largest = 0;
+        for (int size : freeBlocks.values()) {
+            largest = Math.max(largest, size);
+        }
+        return largest;
+    }
+}
@@ -4,5 +4,12 @@ public enum MeshType {
     SYNC,
     ASYNC,
     MULTITHREAD,
-    MODIFEDASYNC
+    MODIFEDASYNC,
+    /**
+     * Store the chunk in the shared {@link VoxelArena} of the scene.
+     * <p>Can be used on any thread.</p>
+     *
+     * @since 1.0-Pre5
+     */
+    ARENA
 }
@@ -4,6 +4,7 @@ import org.kakara.engine.GameEngine;
 import org.kakara.engine.GameHandler;
 import org.kakara.engine.exceptions.InvalidThreadException;
 import org.kakara.engine.render.culling.RenderQuery;
+import org.kakara.engine.render.stats.RenderStats;
 import org.kakara.engine.voxels.TextureAtlas;
 import org.kakara.engine.voxels.Voxel;
 import org.kakara.engine.voxels.VoxelChunk;
@@ -140,6 +141,7 @@ public class SyncMesh implements VoxelMesh {
     public void render() {
         initRender();
         glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+        RenderStats.countDraw(getVertexCount() / 3);
         closeRender();
     }
 
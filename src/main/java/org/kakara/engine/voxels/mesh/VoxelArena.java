@@ -0,0 +1,440 @@
+package org.kakara.engine.voxels.mesh;
+
+import org.joml.Matrix4f;
+import org.kakara.engine.GameEngine;
+import org.kakara.engine.exceptions.InvalidThreadException;
+import org.kakara.engine.render.Transformation;
+import org.kakara.engine.render.stats.RenderStats;
+import org.kakara.engine.voxels.VoxelChunk;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
+import static org.lwjgl.opengl.GL32.glDrawElementsInstancedBaseVertex;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+import static org.lwjgl.opengl.GL40.GL_DRAW_INDIRECT_BUFFER;
+import static org.lwjgl.opengl.GL43.glMultiDrawElementsIndirect;
+
+/**
+ * A shared vertex and index arena for voxel chunk geometry.
+ *
+ * <p>Every {@link ArenaMesh} is sub-allocated out of one large interleaved vertex buffer and one index buffer using a
+ * {@link FreeListAllocator}. The model matrix of each visible chunk is stored as an instance attribute so all visible
+ * chunks can be drawn with a single <code>glMultiDrawElementsIndirect</code> call per pass.</p>
+ * <p>Each draw command picks the matrix of its chunk through its base instance, so multi draw indirect is only used if
+ * the driver also supports base instances (OpenGL 4.2 or <code>ARB_base_instance</code>). Otherwise the chunks are
+ * drawn one at a time out of the same buffers.</p>
+ * <p>Obtain the arena for a scene through {@link org.kakara.engine.voxels.ChunkHandler#getVoxelArena()}.</p>
+ * <p>This class is <b>not</b> thread safe and can only be used on the main thread.</p>
+ *
+ * @since 1.0-Pre5
+ */
+public final class VoxelArena {
+    /**
+     * The number of floats per vertex. (Position, Texture Coordinates, Normal, Overlay Coordinates, Has Overlay).
+     */
+    public static final int VERTEX_SIZE_FLOATS = 3 + 2 + 3 + 2 + 1;
+    /**
+     * The number of bytes per vertex.
+     */
+    public static final int VERTEX_SIZE_BYTES = VERTEX_SIZE_FLOATS * 4;
+    /**
+     * The float offset of the overlay coordinates within a vertex.
+     */
+    public static final int OVERLAY_OFFSET_FLOATS = 3 + 2 + 3;
+
+    private static final int DEFAULT_VERTEX_CAPACITY = 1 << 18;
+    private static final int DEFAULT_INDEX_CAPACITY = (1 << 18) * 3 / 2;
+
+    private static final int MATRIX_SIZE_FLOATS = 16;
+    private static final int MATRIX_SIZE_BYTES = MATRIX_SIZE_FLOATS * 4;
+    // count, instanceCount, firstIndex, baseVertex, baseInstance
+    private static final int COMMAND_SIZE_INTS = 5;
+    private static final int MODEL_MATRIX_LOCATION = 5;
+
+    private final FreeListAllocator vertexAllocator;
+    private final FreeListAllocator indexAllocator;
+    private final boolean multiDrawIndirect;
+    private final int vaoId;
+    private final int instanceVbo;
+    private final int commandVbo;
+
+    private int vertexVbo;
+    private int indexVbo;
+
+    private FloatBuffer matrices;
+    private IntBuffer commands;
+    private int instanceCapacity;
+    private int drawCount;
+    private long drawIndexCount;
+
+    /**
+     * Create a voxel arena with the default capacity.
+     * <p>The arena will grow automatically if the capacity is exceeded.</p>
+     */
+    public VoxelArena() {
+        this(DEFAULT_VERTEX_CAPACITY, DEFAULT_INDEX_CAPACITY);
+    }
+
+    /**
+     * Create a voxel arena.
+     * <p>The arena will grow automatically if the capacity is exceeded.</p>
+     *
+     * @param vertexCapacity The initial number of vertices the arena can hold.
+     * @param indexCapacity  The initial number of indices the arena can hold.
+     */
+    public VoxelArena(int vertexCapacity, int indexCapacity) {
+        if (Thread.currentThread() != GameEngine.currentThread)
+            throw new InvalidThreadException("This class can only be constructed on the main thread.");
+        GLCapabilities capabilities = GL.getCapabilities();
+        this.multiDrawIndirect = capabilities.OpenGL43
+                || (capabilities.GL_ARB_multi_draw_indirect && capabilities.GL_ARB_base_instance);
+        this.vertexAllocator = new FreeListAllocator(vertexCapacity);
+        this.indexAllocator = new FreeListAllocator(indexCapacity);
+
+        vaoId = glGenVertexArrays();
+        glBindVertexArray(vaoId);
+
+        vertexVbo = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vertexVbo);
+        glBufferData(GL_ARRAY_BUFFER, (long) vertexCapacity * VERTEX_SIZE_BYTES, GL_STATIC_DRAW);
+        setupVertexAttributes();
+
+        indexVbo = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, indexVbo);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, (long) indexCapacity * 4, GL_STATIC_DRAW);
+
+        instanceVbo = glGenBuffers();
+        for (int i = 0; i < 4; i++) {
+            glVertexAttribDivisor(MODEL_MATRIX_LOCATION + i, 1);
+        }
+        commandVbo = multiDrawIndirect ? glGenBuffers() : 0;
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+
+        ensureInstanceCapacity(256);
+    }
+
+    /**
+     * Allocate space for a chunk mesh and upload it.
+     *
+     * @param vertices The interleaved vertices. (See {@link #VERTEX_SIZE_FLOATS}).
+     * @param indices  The indices. (Relative to the first vertex of the mesh).
+     * @param mesh     The mesh to store the allocation in.
+     */
+    void upload(FloatBuffer vertices, IntBuffer indices, ArenaMesh mesh) {
+        int vertexCount = vertices.remaining() / VERTEX_SIZE_FLOATS;
+        int indexCount = indices.remaining();
+        if (vertexCount == 0 || indexCount == 0) {
+            mesh.setAllocation(-1, 0, -1);
+            return;
+        }
+
+        int vertexOffset = vertexAllocator.allocate(vertexCount);
+        if (vertexOffset == -1) {
+            growVertices(vertexCount);
+            vertexOffset = vertexAllocator.allocate(vertexCount);
+        }
+        int indexOffset = indexAllocator.allocate(indexCount);
+        if (indexOffset == -1) {
+            growIndices(indexCount);
+            indexOffset = indexAllocator.allocate(indexCount);
+        }
+
+        glBindBuffer(GL_ARRAY_BUFFER, vertexVbo);
+        glBufferSubData(GL_ARRAY_BUFFER, (long) vertexOffset * VERTEX_SIZE_BYTES, vertices);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        RenderStats.countUpload((long) vertexCount * VERTEX_SIZE_BYTES);
+
+        glBindBuffer(GL_COPY_WRITE_BUFFER, indexVbo);
+        glBufferSubData(GL_COPY_WRITE_BUFFER, (long) indexOffset * 4, indices);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        RenderStats.countUpload((long) indexCount * 4);
+
+        mesh.setAllocation(vertexOffset, vertexCount, indexOffset);
+    }
+
+    /**
+     * Free the space used by a mesh.
+     *
+     * @param mesh The mesh to free.
+     */
+    void free(ArenaMesh mesh) {
+        if (mesh.getVertexOffset() >= 0)
+            vertexAllocator.free(mesh.getVertexOffset(), mesh.getArenaVertexCount());
+        if (mesh.getIndexOffset() >= 0)
+            indexAllocator.free(mesh.getIndexOffset(), mesh.getIndexCount());
+        mesh.setAllocation(-1, 0, -1);
+    }
+
+    /**
+     * Overwrite the overlay attributes of a mesh that is already in the arena.
+     *
+     * @param mesh          The mesh to update.
+     * @param overlayCoords The overlay texture coordinates.
+     * @param hasOverlay    If each vertex has an overlay.
+     */
+    void updateOverlay(ArenaMesh mesh, FloatBuffer overlayCoords, IntBuffer hasOverlay) {
+        if (mesh.getVertexOffset() < 0) return;
+        int count = Math.min(mesh.getArenaVertexCount(), hasOverlay.remaining());
+        glBindBuffer(GL_ARRAY_BUFFER, vertexVbo);
+        // Mapped write only, so the driver does not copy the range back. The range cannot be invalidated, as the other
+        // attributes of the vertices are interleaved with the overlay and are not written.
+        ByteBuffer mapped = glMapBufferRange(GL_ARRAY_BUFFER, (long) mesh.getVertexOffset() * VERTEX_SIZE_BYTES,
+                (long) mesh.getArenaVertexCount() * VERTEX_SIZE_BYTES, GL_MAP_WRITE_BIT);
+        if (mapped != null) {
+            FloatBuffer data = mapped.order(ByteOrder.nativeOrder()).asFloatBuffer();
+            for (int i = 0; i < count; i++) {
+                int base = i * VERTEX_SIZE_FLOATS + OVERLAY_OFFSET_FLOATS;
+                data.put(base, overlayCoords.get(i * 2));
+                data.put(base + 1, overlayCoords.get(i * 2 + 1));
+                data.put(base + 2, hasOverlay.get(i));
+            }
+            glUnmapBuffer(GL_ARRAY_BUFFER);
+            RenderStats.countUpload((long) mesh.getArenaVertexCount() * VERTEX_SIZE_BYTES);
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Build the draw commands and model matrices for a list of chunks.
+     * <p>This should be called once per frame with the visible chunks. The chunks that do not use an {@link ArenaMesh}
+     * are skipped.</p>
+     *
+     * @param chunks         The visible chunks.
+     * @param transformation The transformation of the renderer.
+     */
+    public void prepare(List<VoxelChunk> chunks, Transformation transformation) {
+        ensureInstanceCapacity(chunks.size());
+        matrices.clear();
+        commands.clear();
+        int count = 0;
+        long indexCount = 0;
+        for (VoxelChunk chunk : chunks) {
+            if (!(chunk.getVoxelMesh() instanceof ArenaMesh)) continue;
+            ArenaMesh mesh = (ArenaMesh) chunk.getVoxelMesh();
+            if (mesh.getIndexOffset() < 0) continue;
+            Matrix4f modelMatrix = transformation.buildModelMatrix(chunk);
+            modelMatrix.get(count * MATRIX_SIZE_FLOATS, matrices);
+            int base = count * COMMAND_SIZE_INTS;
+            commands.put(base, mesh.getIndexCount());
+            commands.put(base + 1, 1);
+            commands.put(base + 2, mesh.getIndexOffset());
+            commands.put(base + 3, mesh.getVertexOffset());
+            commands.put(base + 4, count);
+            indexCount += mesh.getIndexCount();
+            count++;
+        }
+        drawCount = count;
+        drawIndexCount = indexCount;
+        if (count == 0) return;
+
+        matrices.limit(count * MATRIX_SIZE_FLOATS);
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        glBufferSubData(GL_ARRAY_BUFFER, 0, matrices);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        RenderStats.countUpload((long) count * MATRIX_SIZE_BYTES);
+
+        if (multiDrawIndirect) {
+            commands.limit(count * COMMAND_SIZE_INTS);
+            glBindBuffer(GL_DRAW_INDIRECT_BUFFER, commandVbo);
+            glBufferSubData(GL_DRAW_INDIRECT_BUFFER, 0, commands);
+            glBindBuffer(GL_DRAW_INDIRECT_BUFFER, 0);
+            RenderStats.countUpload((long) count * COMMAND_SIZE_INTS * 4);
+        }
+    }
+
+    /**
+     * Draw all of the chunks from the last call to {@link #prepare(List, Transformation)}.
+     * <p>The shader must use the instanced model matrix (location 5).</p>
+     */
+    public void draw() {
+        if (drawCount == 0) return;
+        glBindVertexArray(vaoId);
+        enableAttributes(true);
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        if (multiDrawIndirect) {
+            setupInstanceAttributes(0);
+            glBindBuffer(GL_DRAW_INDIRECT_BUFFER, commandVbo);
+            glMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, 0, drawCount, 0);
+            // A multi draw is a single call, however it is counted as one draw per chunk.
+            RenderStats.countDraws(drawCount, drawIndexCount / 3);
+            glBindBuffer(GL_DRAW_INDIRECT_BUFFER, 0);
+        } else {
+            for (int i = 0; i < drawCount; i++) {
+                int base = i * COMMAND_SIZE_INTS;
+                // Point the instance attribute at the matrix of this chunk.
+                setupInstanceAttributes((long) i * MATRIX_SIZE_BYTES);
+                glDrawElementsInstancedBaseVertex(GL_TRIANGLES, commands.get(base), GL_UNSIGNED_INT,
+                        (long) commands.get(base + 2) * 4, 1, commands.get(base + 3));
+                RenderStats.countDraw(commands.get(base) / 3);
+            }
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        enableAttributes(false);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Draw a single mesh from the arena.
+     * <p>The shader must use the non instanced model view matrices.</p>
+     *
+     * @param mesh The mesh to draw.
+     */
+    void draw(ArenaMesh mesh) {
+        if (mesh.getIndexOffset() < 0) return;
+        glBindVertexArray(vaoId);
+        for (int i = 0; i < MODEL_MATRIX_LOCATION; i++) {
+            glEnableVertexAttribArray(i);
+        }
+        glDrawElementsBaseVertex(GL_TRIANGLES, mesh.getIndexCount(), GL_UNSIGNED_INT, (long) mesh.getIndexOffset() * 4, mesh.getVertexOffset());
+        RenderStats.countDraw(mesh.getIndexCount() / 3);
+        for (int i = 0; i < MODEL_MATRIX_LOCATION; i++) {
+            glDisableVertexAttribArray(i);
+        }
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Get the number of chunks drawn by the last call to {@link #draw()}.
+     *
+     * @return The number of chunks.
+     */
+    public int getDrawCount() {
+        return drawCount;
+    }
+
+    /**
+     * If the arena is using multi draw indirect.
+     *
+     * @return If multi draw indirect is supported and used.
+     */
+    public boolean isMultiDrawIndirect() {
+        return multiDrawIndirect;
+    }
+
+    /**
+     * Get the number of vertices in use.
+     *
+     * @return The number of vertices in use.
+     */
+    public int getUsedVertices() {
+        return vertexAllocator.getUsed();
+    }
+
+    /**
+     * Cleanup the arena.
+     * <p>This should be called when the scene is unloaded.</p>
+     */
+    public void cleanup() {
+        glBindVertexArray(0);
+        glDeleteBuffers(vertexVbo);
+        glDeleteBuffers(indexVbo);
+        glDeleteBuffers(instanceVbo);
+        if (commandVbo != 0)
+            glDeleteBuffers(commandVbo);
+        glDeleteVertexArrays(vaoId);
+        if (matrices != null) {
+            MemoryUtil.memFree(matrices);
+            matrices = null;
+        }
+        if (commands != null) {
+            MemoryUtil.memFree(commands);
+            commands = null;
+        }
+    }
+
+    private void setupVertexAttributes() {
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, VERTEX_SIZE_BYTES, 0);
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, VERTEX_SIZE_BYTES, 3 * 4);
+        glVertexAttribPointer(2, 3, GL_FLOAT, false, VERTEX_SIZE_BYTES, 5 * 4);
+        glVertexAttribPointer(3, 2, GL_FLOAT, false, VERTEX_SIZE_BYTES, OVERLAY_OFFSET_FLOATS * 4);
+        glVertexAttribPointer(4, 1, GL_FLOAT, false, VERTEX_SIZE_BYTES, (OVERLAY_OFFSET_FLOATS + 2) * 4);
+    }
+
+    private void setupInstanceAttributes(long offset) {
+        for (int i = 0; i < 4; i++) {
+            glVertexAttribPointer(MODEL_MATRIX_LOCATION + i, 4, GL_FLOAT, false, MATRIX_SIZE_BYTES, offset + i * 16L);
+        }
+    }
+
+    private void enableAttributes(boolean enable) {
+        for (int i = 0; i < MODEL_MATRIX_LOCATION + 4; i++) {
+            if (enable)
+                glEnableVertexAttribArray(i);
+            else
+                glDisableVertexAttribArray(i);
+        }
+    }
+
+    private void ensureInstanceCapacity(int instances) {
+        if (instances <= instanceCapacity) return;
+        instanceCapacity = Math.max(instances, instanceCapacity * 2);
+        if (matrices != null)
+            MemoryUtil.memFree(matrices);
+        if (commands != null)
+            MemoryUtil.memFree(commands);
+        matrices = MemoryUtil.memAllocFloat(instanceCapacity * MATRIX_SIZE_FLOATS);
+        commands = MemoryUtil.memAllocInt(instanceCapacity * COMMAND_SIZE_INTS);
+
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        glBufferData(GL_ARRAY_BUFFER, (long) instanceCapacity * MATRIX_SIZE_BYTES, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        if (multiDrawIndirect) {
+            glBindBuffer(GL_DRAW_INDIRECT_BUFFER, commandVbo);
+            glBufferData(GL_DRAW_INDIRECT_BUFFER, (long) instanceCapacity * COMMAND_SIZE_INTS * 4, GL_STREAM_DRAW);
+            glBindBuffer(GL_DRAW_INDIRECT_BUFFER, 0);
+        }
+    }
+
+    private void growVertices(int needed) {
+        int oldCapacity = vertexAllocator.getCapacity();
+        int newCapacity = Math.max(oldCapacity * 2, oldCapacity + needed);
+        int newVbo = copyBuffer(vertexVbo, (long) oldCapacity * VERTEX_SIZE_BYTES, (long) newCapacity * VERTEX_SIZE_BYTES);
+        vertexVbo = newVbo;
+        vertexAllocator.grow(newCapacity);
+
+        // The attribute pointers reference the old buffer.
+        glBindVertexArray(vaoId);
+        glBindBuffer(GL_ARRAY_BUFFER, vertexVbo);
+        setupVertexAttributes();
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+    }
+
+    private void growIndices(int needed) {
+        int oldCapacity = indexAllocator.getCapacity();
+        int newCapacity = Math.max(oldCapacity * 2, oldCapacity + needed);
+        indexVbo = copyBuffer(indexVbo, (long) oldCapacity * 4, (long) newCapacity * 4);
+        indexAllocator.grow(newCapacity);
+
+        // The element buffer binding is a part of the vao.
+        glBindVertexArray(vaoId);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, indexVbo);
+        glBindVertexArray(0);
+    }
+
+    private int copyBuffer(int oldBuffer, long oldSize, long newSize) {
+        int newBuffer = glGenBuffers();
+        glBindBuffer(GL_COPY_WRITE_BUFFER, newBuffer);
+        glBufferData(GL_COPY_WRITE_BUFFER, newSize, GL_STATIC_DRAW);
+        glBindBuffer(GL_COPY_READ_BUFFER, oldBuffer);
+        glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, 0, 0, oldSize);
+        glBindBuffer(GL_COPY_READ_BUFFER, 0);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        glDeleteBuffers(oldBuffer);
+        return newBuffer;
+    }
+}
@@ -2,7 +2,9 @@ package org.kakara.engine.window;
 
 import org.kakara.engine.GameEngine;
 import org.kakara.engine.GameHandler;
+import org.kakara.engine.exceptions.render.GenericRenderException;
 import org.kakara.engine.math.Vector2;
+import org.kakara.engine.render.SceneRenderTarget;
 import org.kakara.engine.ui.UserInterface;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.glfw.GLFWImage;
@@ -15,12 +17,20 @@ import java.nio.IntBuffer;
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL14.glBlendFuncSeparate;
+import static org.lwjgl.opengl.GL30.GL_FRAMEBUFFER;
+import static org.lwjgl.opengl.GL30.glBindFramebuffer;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
 /**
  * This class represents the actual window created by the engine.
  *
  * <p>Use {@link GameHandler#getWindow()} or {@link GameEngine#getWindow()} to obtain the instance of this class.</p>
+ *
+ * <p>A headless window is never shown. Everything is rendered into an offscreen frame buffer of the size of the window
+ * instead, which can be read back with {@link org.kakara.engine.render.FrameCapture}. The OpenGL context can be created
+ * through EGL or OSMesa by setting the <code>kakara.contextApi</code> system property to <code>egl</code> or
+ * <code>osmesa</code>, so software rasterizers such as llvmpipe can be used. (GLFW still needs a display server on
+ * Linux, such as Xvfb).</p>
  */
 public final class Window {
 
@@ -35,6 +45,8 @@ public final class Window {
     private boolean resizable;
     private boolean cursor;
     private long window;
+    private final boolean headless;
+    private SceneRenderTarget headlessTarget;
 
     /**
      * Create a GLFW window.
@@ -49,6 +61,29 @@ public final class Window {
      * @param vSync     If vsync is enabled.
      */
     public Window(String title, int width, int height, boolean resizable, boolean vSync) {
+        this(title, width, height, resizable, vSync, false);
+    }
+
+    /**
+     * Create a GLFW window.
+     *
+     * <p>This is constructed internally by the Kakara Engine. Get the instance of this
+     * class from {@link GameHandler#getWindow()} or {@link GameEngine#getWindow()}.</p>
+     *
+     * @param title     The title of the window.
+     * @param width     The width of the window.
+     * @param height    The height of the window.
+     * @param resizable If the window is resizable.
+     * @param vSync     If vsync is enabled. (Always disabled for headless windows).
+     * @param headless  If the window is never shown and renders offscreen.
+     * @since 1.0-Pre5
+     */
+    public Window(String title, int width, int height, boolean resizable, boolean vSync, boolean headless) {
+        this.headless = headless;
+        if (headless) {
+            resizable = false;
+            vSync = false;
+        }
         this.title = title;
         this.width = width;
         this.height = height;
@@ -90,12 +125,25 @@ public final class Window {
         if (options.antialiasing) {
             glfwWindowHint(GLFW_SAMPLES, 4);
         }
+        if (headless) {
+            String contextApi = System.getProperty("kakara.contextApi", "native");
+            if (contextApi.equalsIgnoreCase("egl"))
+                glfwWindowHint(GLFW_CONTEXT_CREATION_API, GLFW_EGL_CONTEXT_API);
+            else if (contextApi.equalsIgnoreCase("osmesa"))
+                glfwWindowHint(GLFW_CONTEXT_CREATION_API, GLFW_OSMESA_CONTEXT_API);
+            glfwWindowHint(GLFW_OPENGL_DEBUG_CONTEXT, GLFW_FALSE);
+        }
 
         window = glfwCreateWindow(width, height, title, NULL, NULL);
         if (window == NULL) {
             GameEngine.LOGGER.error("Could not create GLFW window");
         }
 
+        if (headless) {
+            initHeadless();
+            return;
+        }
+
         // On window resize.
         glfwSetFramebufferSizeCallback(window, (win, width, height) -> {
             this.width = width;
@@ -131,6 +179,60 @@ public final class Window {
         glCullFace(GL_BACK);
     }
 
+    /**
+     * Create the context and the offscreen frame buffer of a headless window.
+     */
+    private void initHeadless() {
+        glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+
+        headlessTarget = new SceneRenderTarget();
+        try {
+            headlessTarget.resize(width, height);
+        } catch (GenericRenderException e) {
+            GameEngine.LOGGER.error("Could not create the headless frame buffer", e);
+        }
+        headlessTarget.bind();
+        glViewport(0, 0, width, height);
+
+        glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
+        glEnable(GL_DEPTH_TEST);
+        glEnable(GL_STENCIL_TEST);
+
+        glEnable(GL_CULL_FACE);
+        glCullFace(GL_BACK);
+    }
+
+    /**
+     * Check if the window is headless.
+     *
+     * @return If the window is never shown and renders offscreen.
+     * @since 1.0-Pre5
+     */
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Get the frame buffer that represents the window.
+     * <p>This is 0 (the default frame buffer) unless the window is headless.</p>
+     *
+     * @return The id of the frame buffer.
+     * @since 1.0-Pre5
+     */
+    public int getFramebuffer() {
+        return headlessTarget != null ? headlessTarget.getFramebuffer() : 0;
+    }
+
+    /**
+     * Bind the frame buffer that represents the window.
+     *
+     * @since 1.0-Pre5
+     */
+    public void bindFramebuffer() {
+        glBindFramebuffer(GL_FRAMEBUFFER, getFramebuffer());
+    }
+
     /**
      * Set the clear color of the window.
      *
@@ -199,7 +301,18 @@ public final class Window {
      * @param height The height of the window. (In screen coordinates).
      */
     public void setWindowSize(int width, int height) {
-        glfwSetWindowSize(window, width, height);
+        if (headless) {
+            this.width = width;
+            this.height = height;
+            try {
+                headlessTarget.resize(width, height);
+            } catch (GenericRenderException e) {
+                GameEngine.LOGGER.error("Could not resize the headless frame buffer", e);
+            }
+            bindFramebuffer();
+        } else {
+            glfwSetWindowSize(window, width, height);
+        }
         setResized(true);
     }
 
@@ -356,7 +469,8 @@ public final class Window {
      * Each update this should be called.
      */
     public void update() {
-        glfwSwapBuffers(window);
+        if (!headless)
+            glfwSwapBuffers(window);
         glfwPollEvents();
     }
 
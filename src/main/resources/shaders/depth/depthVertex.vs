@@ -3,12 +3,15 @@
 layout (location=0) in vec3 position;
 layout (location=1) in vec2 texCoord;
 layout (location=2) in vec3 vertexNormal;
-layout (location=5) in mat4 modelViewInstancedMatrix;
-layout (location=9) in mat4 modelLightViewInstancedMatrix;
+layout (location=5) in mat4 modelInstancedMatrix;
 
 uniform int isInstanced;
 uniform mat4 modelLightViewNonInstancedMatrix;
 uniform mat4 orthoProjectionMatrix;
+uniform mat4 lightViewMatrix;
+
+// The depth prepass relies on the scene and voxel shaders computing the same position.
+invariant gl_Position;
 
 void main()
 {
@@ -16,7 +19,7 @@ void main()
     mat4 modelLightViewMatrix;
     if ( isInstanced > 0 )
     {
-        modelLightViewMatrix = modelLightViewInstancedMatrix;
+        modelLightViewMatrix = lightViewMatrix * modelInstancedMatrix;
         initPos = vec4(position, 1.0);
     }
     else
@@ -24,5 +27,5 @@ void main()
         modelLightViewMatrix = modelLightViewNonInstancedMatrix;
         initPos = vec4(position, 1.0);
     }
-    gl_Position = orthoProjectionMatrix * modelLightViewMatrix * initPos;
+    gl_Position = orthoProjectionMatrix * (modelLightViewMatrix * initPos);
 }
\ No newline at end of file
@@ -3,8 +3,7 @@
 layout (location=0) in vec3 position;
 layout (location=1) in vec2 texCoord;
 layout (location=2) in vec3 vertexNormal;
-layout (location=5) in mat4 modelViewInstancedMatrix;
-layout (location=9) in mat4 modelLightViewInstancedMatrix;
+layout (location=5) in mat4 modelInstancedMatrix;
 layout (location=14) in float selectedInstanced;
 
 out vec2 outTexCoord;
@@ -14,27 +13,30 @@ out vec4 mlightviewVertexPos;
 out mat4 outModelViewMatrix;
 out float outSelected;
 
-uniform mat4 orthoProjectionMatrix;
 uniform int isInstanced;
 uniform mat4 modelViewNonInstancedMatrix;
 uniform mat4 modelLightViewNonInstancedMatrix;
 uniform mat4 projectionMatrix;
+uniform mat4 viewMatrix;
+uniform mat4 lightViewMatrix;
 uniform float selectedNonInstanced;
 
+invariant gl_Position;
+
 void main()
 {
     vec4 initPos = vec4(0, 0, 0, 0);
     vec4 initNormal = vec4(0, 0, 0, 0);
     mat4 modelViewMatrix;
-    mat4 lightViewMatrix;
+    mat4 modelLightViewMatrix;
     if ( isInstanced > 0 )
     {
-        modelViewMatrix = modelViewInstancedMatrix;
-        lightViewMatrix = modelLightViewInstancedMatrix;
+        modelViewMatrix = viewMatrix * modelInstancedMatrix;
+        modelLightViewMatrix = lightViewMatrix * modelInstancedMatrix;
         outSelected = selectedInstanced;
     }else{
         modelViewMatrix = modelViewNonInstancedMatrix;
-        lightViewMatrix = modelLightViewNonInstancedMatrix;
+        modelLightViewMatrix = modelLightViewNonInstancedMatrix;
         outSelected = selectedNonInstanced;
     }
 
@@ -47,6 +49,7 @@ void main()
     outTexCoord = texCoord;
     mvVertexNormal = normalize(modelViewMatrix * initNormal).xyz;
     mvVertexPos = mvPos.xyz;
-    mlightviewVertexPos = orthoProjectionMatrix * lightViewMatrix * initPos;
+    // The projection of the shadow cascade is applied in the fragment shader.
+    mlightviewVertexPos = modelLightViewMatrix * initPos;
     outModelViewMatrix = modelViewMatrix;
 }
\ No newline at end of file
@@ -10,6 +10,7 @@ uniform mat4 modelViewMatrix;
 uniform mat4 projectionMatrix;
 
 void main(){
-    gl_Position = projectionMatrix * modelViewMatrix * vec4(position, 1.0);
+    // Place the skybox at the far plane, so it is only drawn where nothing else is.
+    gl_Position = (projectionMatrix * modelViewMatrix * vec4(position, 1.0)).xyww;
     outTexCoord = texCoord;
 }
\ No newline at end of file
@@ -1,7 +1,6 @@
 #version 400
 
-const int MAX_POINT_LIGHTS = 5;
-const int MAX_SPOT_LIGHTS = 5;
+const int MAX_CASCADES = 4;
 
 in vec2 outOverlayCoord;
 in float[1] outHasTexture;
@@ -67,10 +66,20 @@ uniform sampler2D textureAtlas;
 uniform vec3 ambientLight;
 uniform float specularPower;
 uniform Material material;
-uniform PointLight pointLights[MAX_POINT_LIGHTS];
-uniform SpotLight spotLights[MAX_SPOT_LIGHTS];
+// The point and spot lights, binned into clusters of the view. (See LightClusterGrid).
+uniform samplerBuffer clusterLights;
+uniform usamplerBuffer clusterGrid;
+uniform usamplerBuffer clusterIndices;
+uniform ivec3 clusterDims;
+uniform float clusterScale;
+uniform float clusterBias;
+uniform vec2 viewportSize;
 uniform DirectionalLight directionalLight;
-uniform sampler2D shadowMap;
+// The cascades of the shadow map, ordered from nearest to furthest.
+uniform sampler2D shadowMaps[MAX_CASCADES];
+uniform mat4 cascadeProjections[MAX_CASCADES];
+uniform float cascadeFarPlanes[MAX_CASCADES];
+uniform int cascadeCount;
 
 uniform Fog fog;
 
@@ -145,6 +154,31 @@ vec4 calcDirectionalLight(DirectionalLight light, vec3 position, vec3 normal)
     return calcLightColor(light.color, light.intensity, position, normalize(light.direction), normal);
 }
 
+// Calculate the point and spot lights of the cluster the fragment is in.
+vec4 calcClusteredLights(vec3 position, vec3 normal)
+{
+    ivec2 tile = clamp(ivec2(gl_FragCoord.xy / viewportSize * vec2(clusterDims.xy)), ivec2(0), clusterDims.xy - 1);
+    int slice = clamp(int(floor(log(max(-position.z, 0.0001)) * clusterScale + clusterBias)), 0, clusterDims.z - 1);
+    int cluster = (slice * clusterDims.y + tile.y) * clusterDims.x + tile.x;
+    uvec2 range = texelFetch(clusterGrid, cluster).rg;
+
+    vec4 color = vec4(0, 0, 0, 0);
+    for (uint i = 0u; i < range.y; i++)
+    {
+        int light = int(texelFetch(clusterIndices, int(range.x + i)).r) * 4;
+        vec4 positionIntensity = texelFetch(clusterLights, light);
+        vec4 colorCutoff = texelFetch(clusterLights, light + 1);
+        vec4 att = texelFetch(clusterLights, light + 2);
+        PointLight pl = PointLight(colorCutoff.rgb, positionIntensity.xyz, positionIntensity.w, Attenuation(att.x, att.y, att.z));
+        // Point lights are stored with a cutoff of -2.
+        if (colorCutoff.w < -1.5)
+            color += calcPointLight(pl, position, normal);
+        else
+            color += calcSpotLight(SpotLight(pl, texelFetch(clusterLights, light + 3).xyz, colorCutoff.w), position, normal);
+    }
+    return color;
+}
+
 vec4 overlayTexture(vec4 tex1, vec4 tex2){
     return vec4(
             tex2.x < 0.5 ? ( 2.0 * tex2.x * tex1.x ) : ( 1.0 - 2.0 * ( 1.0 - tex2.x ) * ( 1.0 - tex1.x ) ),
@@ -169,7 +203,7 @@ void calculateOverlayTextures()
     diffuseC = tempDiffuse;
 }
 
-float calcShadow(vec4 position)
+float sampleShadow(sampler2D shadowMap, vec4 position)
 {
     vec3 projCoords = position.xyz;
         // Transform from screen coordinates to texture coordinates
@@ -196,6 +230,21 @@ float calcShadow(vec4 position)
         return 1 - shadowFactor;
 }
 
+// Find the cascade that covers the fragment. (Sampler arrays can only be indexed with constants).
+float calcShadow(vec4 lightViewPosition, float viewDepth)
+{
+    if (cascadeCount > 0 && viewDepth <= cascadeFarPlanes[0])
+        return sampleShadow(shadowMaps[0], cascadeProjections[0] * lightViewPosition);
+    if (cascadeCount > 1 && viewDepth <= cascadeFarPlanes[1])
+        return sampleShadow(shadowMaps[1], cascadeProjections[1] * lightViewPosition);
+    if (cascadeCount > 2 && viewDepth <= cascadeFarPlanes[2])
+        return sampleShadow(shadowMaps[2], cascadeProjections[2] * lightViewPosition);
+    if (cascadeCount > 3 && viewDepth <= cascadeFarPlanes[3])
+        return sampleShadow(shadowMaps[3], cascadeProjections[3] * lightViewPosition);
+    // Past the shadow distance.
+    return 1.0;
+}
+
 
 void main()
 {
@@ -209,23 +258,9 @@ void main()
 
     vec4 diffuseSpecularComp = calcDirectionalLight(directionalLight, outVertexPos, outVertexNormal);
 
-        for (int i=0; i<MAX_POINT_LIGHTS; i++)
-        {
-            if ( pointLights[i].intensity > 0 )
-            {
-                diffuseSpecularComp += calcPointLight(pointLights[i], outVertexPos, outVertexNormal);
-            }
-        }
-
-        for (int i=0; i<MAX_SPOT_LIGHTS; i++)
-        {
-            if ( spotLights[i].pl.intensity > 0 )
-            {
-                diffuseSpecularComp += calcSpotLight(spotLights[i], outVertexPos, outVertexNormal);
-            }
-        }
+        diffuseSpecularComp += calcClusteredLights(outVertexPos, outVertexNormal);
 
-        float shadow = calcShadow(mlightviewVertexPos);
+        float shadow = calcShadow(mlightviewVertexPos, -outVertexPos.z);
 
         fragColor = clamp(ambientC * vec4(ambientLight, 1) + diffuseSpecularComp * shadow, 0, 1);
 
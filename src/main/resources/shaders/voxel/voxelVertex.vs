@@ -6,6 +6,7 @@ layout (location=1) in vec2 texCoord;
 layout (location=2) in vec3 vertexNormal;
 layout (location=3) in vec2 overlayCoord;
 layout (location=4) in float[1] hasTexture;
+layout (location=5) in mat4 modelInstancedMatrix;
 
 out float[1] outHasTexture;
 out vec2 outOverlayCoord;
@@ -18,17 +19,36 @@ out mat4 outModelViewMatrix;
 uniform mat4 modelViewMatrix;
 uniform mat4 projectionMatrix;
 uniform mat4 modelLightViewMatrix;
-uniform mat4 orthoProjectionMatrix;
+uniform int isInstanced;
+uniform mat4 viewMatrix;
+uniform mat4 lightViewMatrix;
+
+invariant gl_Position;
 
 void main()
 {
-    vec4 pos = modelViewMatrix * vec4(position, 1.0);
+    mat4 chunkModelViewMatrix;
+    mat4 chunkModelLightViewMatrix;
+    // Chunks stored in the voxel arena provide their model matrix per draw.
+    if ( isInstanced > 0 )
+    {
+        chunkModelViewMatrix = viewMatrix * modelInstancedMatrix;
+        chunkModelLightViewMatrix = lightViewMatrix * modelInstancedMatrix;
+    }
+    else
+    {
+        chunkModelViewMatrix = modelViewMatrix;
+        chunkModelLightViewMatrix = modelLightViewMatrix;
+    }
+
+    vec4 pos = chunkModelViewMatrix * vec4(position, 1.0);
     gl_Position = projectionMatrix * pos;
     outTexCoord = texCoord;
-    outVertexNormal = normalize(modelViewMatrix * vec4(vertexNormal, 0.0)).xyz;
+    outVertexNormal = normalize(chunkModelViewMatrix * vec4(vertexNormal, 0.0)).xyz;
     outVertexPos = pos.xyz;
-    mlightviewVertexPos = orthoProjectionMatrix * modelLightViewMatrix * vec4(position, 1.0);
-    outModelViewMatrix = modelViewMatrix;
+    // The projection of the shadow cascade is applied in the fragment shader.
+    mlightviewVertexPos = chunkModelLightViewMatrix * vec4(position, 1.0);
+    outModelViewMatrix = chunkModelViewMatrix;
 
     // For the overlay system.
     outHasTexture = hasTexture;
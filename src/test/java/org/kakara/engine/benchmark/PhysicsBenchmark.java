@@ -0,0 +1,51 @@
+package org.kakara.engine.benchmark;
+
+import org.kakara.engine.Game;
+import org.kakara.engine.GameEngine;
+import org.kakara.engine.GameHandler;
+import org.kakara.engine.scene.Scene;
+
+/**
+ * Measures how the physics step scales with the number of solver threads.
+ *
+ * <p>The results are printed to the console and the game exits once the benchmark is done. The number of clusters of
+ * objects and the number of steps to time can be passed as arguments.</p>
+ */
+public class PhysicsBenchmark implements Game {
+
+    private final int clusters;
+    private final int steps;
+    private GameHandler gameHandler;
+
+    public PhysicsBenchmark(int clusters, int steps) {
+        this.clusters = clusters;
+        this.steps = steps;
+    }
+
+    public static void main(String[] args) {
+        int clusters = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        GameEngine gameEngine = new GameEngine("Physics Benchmark", 640, 480, true, new PhysicsBenchmark(clusters, steps));
+        gameEngine.run();
+    }
+
+    @Override
+    public void start(GameHandler gameHandler) throws Exception {
+        this.gameHandler = gameHandler;
+    }
+
+    @Override
+    public Scene firstScene(GameHandler gameHandler) throws Exception {
+        return new PhysicsBenchmarkScene(gameHandler, clusters, steps);
+    }
+
+    @Override
+    public void update() {
+
+    }
+
+    @Override
+    public void exit() {
+        gameHandler.exit();
+    }
+}
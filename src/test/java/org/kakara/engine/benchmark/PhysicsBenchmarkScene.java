@@ -0,0 +1,130 @@
+package org.kakara.engine.benchmark;
+
+import org.kakara.engine.GameHandler;
+import org.kakara.engine.gameitems.GameItem;
+import org.kakara.engine.math.Vector3;
+import org.kakara.engine.physics.PhysicsStepper;
+import org.kakara.engine.physics.collision.BoxCollider;
+import org.kakara.engine.physics.collision.PhysicsComponent;
+import org.kakara.engine.scene.AbstractGameScene;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Spawns clusters of boxes sliding around on floors, then times the physics step with every thread count.
+ *
+ * <p>Every thread count starts from the same state, and the final positions are compared with the single thread
+ * run to check that the result does not depend on the number of threads.</p>
+ */
+public class PhysicsBenchmarkScene extends AbstractGameScene {
+    // The number of boxes on each floor.
+    private static final int CLUSTER_SIZE = 8;
+    // The space between the floors.
+    private static final int CLUSTER_SPACING = 24;
+    private static final int WARMUP_STEPS = 50;
+
+    private final int clusters;
+    private final int steps;
+    private final List<PhysicsComponent> bodies = new ArrayList<>();
+    private final List<Vector3> startPositions = new ArrayList<>();
+    private final List<Vector3> startVelocities = new ArrayList<>();
+    private boolean done;
+
+    public PhysicsBenchmarkScene(GameHandler gameHandler, int clusters, int steps) {
+        super(gameHandler);
+        this.clusters = clusters;
+        this.steps = steps;
+    }
+
+    @Override
+    public void work() {
+
+    }
+
+    @Override
+    public void loadGraphics(GameHandler gameHandler) {
+        Random random = new Random(42);
+        int row = (int) Math.ceil(Math.sqrt(clusters));
+        for (int c = 0; c < clusters; c++) {
+            float x = (c % row) * CLUSTER_SPACING;
+            float z = (c / row) * CLUSTER_SPACING;
+
+            GameItem floor = new GameItem();
+            add(floor);
+            floor.transform.setPosition(x, 0, z);
+            BoxCollider floorCollider = floor.addComponent(BoxCollider.class);
+            floorCollider.setPoint2(new Vector3(16, 1, 16));
+
+            for (int i = 0; i < CLUSTER_SIZE; i++) {
+                GameItem box = new GameItem();
+                add(box);
+                box.transform.setPosition(x + 1 + random.nextInt(14), 2 + random.nextInt(4), z + 1 + random.nextInt(14));
+                box.addComponent(BoxCollider.class);
+                PhysicsComponent body = box.addComponent(PhysicsComponent.class);
+                // Keep the boxes awake so every step does the same work.
+                body.setSleepingAllowed(false);
+                body.setVelocity(new Vector3(random.nextFloat() * 4 - 2, -9.18f, random.nextFloat() * 4 - 2));
+                bodies.add(body);
+                startPositions.add(box.transform.getPosition().clone());
+                startVelocities.add(body.getVelocity().clone());
+            }
+        }
+        getCamera().setPosition(row * CLUSTER_SPACING / 2f, 40, row * CLUSTER_SPACING);
+    }
+
+    @Override
+    public void update(float interval) {
+        if (done) return;
+        done = true;
+
+        PhysicsStepper stepper = getPhysicsStepper();
+        stepper.setPaused(true);
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d boxes in %d clusters, %d steps%n", bodies.size(), clusters, steps);
+        System.out.printf("%8s %12s %16s %8s %14s%n", "threads", "ms/step", "box steps/s", "speedup", "deterministic");
+
+        double baseline = 0;
+        long expected = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            reset();
+            stepper.getSolver().setThreadCount(threads);
+            for (int i = 0; i < WARMUP_STEPS; i++)
+                stepper.step();
+            long start = System.nanoTime();
+            for (int i = 0; i < steps; i++)
+                stepper.step();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long checksum = checksum();
+            if (threads == 1) {
+                baseline = seconds;
+                expected = checksum;
+            }
+            System.out.printf("%8d %12.3f %16.0f %7.2fx %14s%n", threads, seconds * 1000 / steps,
+                    bodies.size() * steps / seconds, baseline / seconds, checksum == expected);
+        }
+        stepper.getSolver().setThreadCount(1);
+        gameHandler.exit();
+    }
+
+    private void reset() {
+        for (int i = 0; i < bodies.size(); i++) {
+            PhysicsComponent body = bodies.get(i);
+            body.getGameItem().transform.setPosition(startPositions.get(i));
+            body.setVelocity(startVelocities.get(i));
+            body.setAcceleration(new Vector3());
+        }
+    }
+
+    private long checksum() {
+        long checksum = 17;
+        for (PhysicsComponent body : bodies) {
+            Vector3 position = body.getGameItem().transform.getPosition();
+            checksum = checksum * 31 + Float.floatToIntBits(position.x);
+            checksum = checksum * 31 + Float.floatToIntBits(position.y);
+            checksum = checksum * 31 + Float.floatToIntBits(position.z);
+        }
+        return checksum;
+    }
+}
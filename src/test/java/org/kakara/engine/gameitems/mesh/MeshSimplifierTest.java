@@ -0,0 +1,154 @@
+package org.kakara.engine.gameitems.mesh;
+
+/**
+ * Checks that the {@link MeshSimplifier} collapses flat meshes and keeps their outline.
+ *
+ * <p>Throws an {@link AssertionError} if a check fails.</p>
+ */
+public class MeshSimplifierTest {
+
+    public static void main(String[] args) {
+        collapseGrid();
+        keepOutline();
+        keepAttributes();
+        stopAtTarget();
+        System.out.println("All mesh simplifier checks passed.");
+    }
+
+    /**
+     * A flat grid collapses down to the two triangles of a quad, on the corners of the grid.
+     */
+    private static void collapseGrid() {
+        Grid grid = new Grid(5, 5);
+        MeshSimplifier.Result result = MeshSimplifier.simplify(grid.positions, grid.textCoords, grid.normals, grid.indices, 2);
+        check(result.getTriangleCount() == 2, "A flat grid should collapse to a quad.");
+        check(result.getPositions().length == 4 * 3, "The quad should only keep its four vertices.");
+        for (int x = 0; x <= 4; x += 4) {
+            for (int y = 0; y <= 4; y += 4)
+                check(hasVertex(result, x, y), "The corner " + x + ", " + y + " should be kept.");
+        }
+        check(Math.abs(area(result) - 16) < 1e-4, "The quad should cover the whole grid.");
+    }
+
+    /**
+     * The open edges of a mesh that is not convex are kept in place.
+     */
+    private static void keepOutline() {
+        // An L shape: a 4 x 4 grid with the top right 2 x 2 cells removed.
+        Grid grid = new Grid(5, 5);
+        int[] indices = new int[grid.indices.length];
+        int count = 0;
+        for (int t = 0; t < grid.indices.length / 3; t++) {
+            int cell = t / 2;
+            if (cell % 4 >= 2 && cell / 4 >= 2) continue;
+            System.arraycopy(grid.indices, t * 3, indices, count, 3);
+            count += 3;
+        }
+        int[] shape = new int[count];
+        System.arraycopy(indices, 0, shape, 0, count);
+
+        // The six corners of the outline need at least four triangles.
+        MeshSimplifier.Result result = MeshSimplifier.simplify(grid.positions, grid.textCoords, grid.normals, shape, 4);
+        check(result.getTriangleCount() == 4, "The L shape should be simplified to four triangles.");
+        check(Math.abs(area(result) - 12) < 1e-4, "The L shape should keep its area.");
+        check(hasVertex(result, 2, 2), "The inner corner of the L shape should be kept.");
+    }
+
+    /**
+     * The texture coordinates and normals stay with their vertices.
+     */
+    private static void keepAttributes() {
+        Grid grid = new Grid(4, 3);
+        MeshSimplifier.Result result = MeshSimplifier.simplify(grid.positions, grid.textCoords, grid.normals, grid.indices, 2);
+        float[] positions = result.getPositions();
+        float[] textCoords = result.getTextCoords();
+        float[] normals = result.getNormals();
+        check(textCoords.length == positions.length / 3 * 2, "Every vertex should have texture coordinates.");
+        check(normals.length == positions.length, "Every vertex should have a normal.");
+        for (int v = 0; v < positions.length / 3; v++) {
+            check(textCoords[v * 2] == positions[v * 3] / 3 && textCoords[v * 2 + 1] == positions[v * 3 + 1] / 2,
+                    "The texture coordinates should stay with their vertex.");
+            check(normals[v * 3 + 2] == 1, "The normal should stay with its vertex.");
+        }
+        int[] indices = result.getIndices();
+        for (int index : indices)
+            check(index >= 0 && index < positions.length / 3, "The indices should point at the kept vertices.");
+    }
+
+    /**
+     * Nothing is collapsed when the mesh is already at the target.
+     */
+    private static void stopAtTarget() {
+        Grid grid = new Grid(3, 3);
+        MeshSimplifier.Result result = MeshSimplifier.simplify(grid.positions, grid.textCoords, grid.normals, grid.indices, 8);
+        check(result.getTriangleCount() == 8, "A mesh at the target should not be simplified.");
+        check(result.getPositions().length == grid.positions.length, "Every vertex should be kept.");
+    }
+
+    private static boolean hasVertex(MeshSimplifier.Result result, float x, float y) {
+        float[] positions = result.getPositions();
+        for (int v = 0; v < positions.length / 3; v++) {
+            if (positions[v * 3] == x && positions[v * 3 + 1] == y)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the signed area of a mesh in the xy plane. (Folded triangles take away from it).
+     */
+    private static double area(MeshSimplifier.Result result) {
+        float[] p = result.getPositions();
+        int[] indices = result.getIndices();
+        double area = 0;
+        for (int t = 0; t < indices.length / 3; t++) {
+            int a = indices[t * 3] * 3, b = indices[t * 3 + 1] * 3, c = indices[t * 3 + 2] * 3;
+            area += ((p[b] - p[a]) * (p[c + 1] - p[a + 1]) - (p[c] - p[a]) * (p[b + 1] - p[a + 1])) / 2.0;
+        }
+        return area;
+    }
+
+    /**
+     * A flat grid of unit cells in the xy plane, facing +z.
+     */
+    private static final class Grid {
+        private final float[] positions;
+        private final float[] textCoords;
+        private final float[] normals;
+        private final int[] indices;
+
+        private Grid(int width, int height) {
+            positions = new float[width * height * 3];
+            textCoords = new float[width * height * 2];
+            normals = new float[width * height * 3];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int v = y * width + x;
+                    positions[v * 3] = x;
+                    positions[v * 3 + 1] = y;
+                    textCoords[v * 2] = x / (float) (width - 1);
+                    textCoords[v * 2 + 1] = y / (float) (height - 1);
+                    normals[v * 3 + 2] = 1;
+                }
+            }
+            indices = new int[(width - 1) * (height - 1) * 6];
+            int i = 0;
+            for (int y = 0; y < height - 1; y++) {
+                for (int x = 0; x < width - 1; x++) {
+                    int v = y * width + x;
+                    indices[i++] = v;
+                    indices[i++] = v + 1;
+                    indices[i++] = v + width + 1;
+                    indices[i++] = v;
+                    indices[i++] = v + width + 1;
+                    indices[i++] = v + width;
+                }
+            }
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}
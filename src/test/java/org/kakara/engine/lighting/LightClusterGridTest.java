@@ -0,0 +1,106 @@
+package org.kakara.engine.lighting;
+
+import org.joml.Matrix4f;
+import org.kakara.engine.math.Vector3;
+
+import java.util.Collections;
+
+/**
+ * Checks the radius of the lights and how they are binned into the clusters of the {@link LightClusterGrid}.
+ *
+ * <p>The camera is at the origin looking down the negative z axis. Throws an {@link AssertionError} if a check
+ * fails.</p>
+ */
+public class LightClusterGridTest {
+    private static final float FOV = (float) Math.toRadians(60);
+    private static final float ASPECT_RATIO = 16f / 9;
+    private static final float Z_NEAR = 0.1f;
+
+    public static void main(String[] args) {
+        radius();
+        noFalloffIsClamped();
+        noFalloffBehindCamera();
+        binSmallLight();
+        System.out.println("All light cluster checks passed.");
+    }
+
+    /**
+     * The radius is where the attenuation reaches the intensity divided by the threshold.
+     */
+    private static void radius() {
+        float target = 1 / LightClusterGrid.LIGHT_THRESHOLD;
+        check(near(LightClusterGrid.getRadius(1, 1, 1, 0), target - 1), "A linear light should reach (target - constant) / linear.");
+        check(near(LightClusterGrid.getRadius(1, 1, 0, 1), (float) Math.sqrt(target - 1)), "An exponent light should reach the root of the quadratic.");
+        check(near(LightClusterGrid.getRadius(2, 1, 0, 1), (float) Math.sqrt(2 * target - 1)), "A brighter light should reach further.");
+        check(LightClusterGrid.getRadius(1, target, 0, 1) == 0, "A light that starts below the threshold should have no radius.");
+        check(Float.isInfinite(LightClusterGrid.getRadius(1, 1, 0, 0)), "A light without falloff should never drop off.");
+    }
+
+    /**
+     * A light without falloff only reaches the far distance of the grid.
+     */
+    private static void noFalloffIsClamped() {
+        LightClusterGrid grid = new LightClusterGrid(16, 9, 24, 0.5f, 100);
+        update(grid, new PointLight(LightColor.RED, new Vector3(0, 0, -10), 1));
+        check(grid.getLightCount() == 1, "The light should be added.");
+        check(grid.getLightData()[11] == 100, "The radius should be clamped to the far distance.");
+        check(grid.getClusterLightCount(8, 4, grid.getSlice(10)) == 1, "The cluster around the light should have it.");
+    }
+
+    /**
+     * A light without falloff that is further than the far distance behind the camera is in no cluster.
+     */
+    private static void noFalloffBehindCamera() {
+        LightClusterGrid grid = new LightClusterGrid(16, 9, 24, 0.5f, 100);
+        update(grid, new PointLight(LightColor.RED, new Vector3(0, 0, 150), 1));
+        check(grid.getLightCount() == 1, "The light should be added.");
+        check(grid.getIndexCount() == 0, "A light behind the camera should not be in any cluster.");
+    }
+
+    /**
+     * A light with a small radius is only in the clusters around it.
+     */
+    private static void binSmallLight() {
+        LightClusterGrid grid = new LightClusterGrid();
+        PointLight light = new PointLight(LightColor.RED, new Vector3(0, 0, -20), 1, new PointLight.Attenuation(1, 0, 64));
+        update(grid, light);
+        float radius = grid.getLightData()[11];
+        check(near(radius, (float) Math.sqrt((1 / LightClusterGrid.LIGHT_THRESHOLD - 1) / 64)), "The radius should not be clamped.");
+
+        int total = grid.getTilesX() * grid.getTilesY() * grid.getSlices();
+        check(grid.getIndexCount() > 0 && grid.getIndexCount() < total, "The light should be in some of the clusters.");
+        check(grid.getClusterLightCount(8, 4, grid.getSlice(20)) == 1, "The cluster around the light should have it.");
+        check(grid.getClusterLightCount(8, 4, grid.getSlices() - 1) == 0, "A far cluster should not have the light.");
+        check(grid.getClusterLightCount(0, 0, grid.getSlice(20)) == 0, "A cluster at the edge of the screen should not have the light.");
+
+        // Every cluster touched by the light must be within the depth range of its sphere.
+        int firstSlice = grid.getSlice(20 - radius), lastSlice = grid.getSlice(20 + radius);
+        int[] clusters = grid.getClusterData();
+        int indexCount = 0;
+        for (int slice = 0; slice < grid.getSlices(); slice++) {
+            for (int tileY = 0; tileY < grid.getTilesY(); tileY++) {
+                for (int tileX = 0; tileX < grid.getTilesX(); tileX++) {
+                    int count = grid.getClusterLightCount(tileX, tileY, slice);
+                    check(count == 0 || (slice >= firstSlice && slice <= lastSlice), "A cluster outside of the light has it.");
+                    int cluster = grid.getClusterIndex(tileX, tileY, slice) * 2;
+                    check(clusters[cluster] == indexCount, "The clusters should be packed in order.");
+                    indexCount += count;
+                }
+            }
+        }
+        check(indexCount == grid.getIndexCount(), "The counts of the clusters should add up to the index count.");
+    }
+
+    private static void update(LightClusterGrid grid, PointLight light) {
+        grid.update(new Matrix4f(), FOV, ASPECT_RATIO, Z_NEAR, Collections.singletonList(light), null);
+    }
+
+    private static boolean near(float a, float b) {
+        return Math.abs(a - b) < 1e-3f * Math.max(1, Math.abs(b));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,84 @@
+package org.kakara.engine.physics.collision;
+
+import org.kakara.engine.math.Vector3;
+import org.kakara.engine.voxels.ChunkHandler;
+import org.kakara.engine.voxels.Voxel;
+
+/**
+ * Checks that the voxel part of the box queries only reads the voxels along the path of the query.
+ *
+ * <p>The voxels are read from a chunk handler that counts the reads, so no window is needed. Throws an
+ * {@link AssertionError} if a check fails.</p>
+ */
+public class VoxelQueryBoundsTest {
+
+    public static void main(String[] args) {
+        longDiagonalCast();
+        clampedCast();
+        oversizedOverlap();
+        System.out.println("All voxel query checks passed.");
+    }
+
+    /**
+     * A long diagonal cast reads a number of voxels that grows with its length, not with the volume around it.
+     */
+    private static void longDiagonalCast() {
+        CountingChunkHandler chunkHandler = new CountingChunkHandler();
+        float distance = 1000;
+        float step = distance / (float) Math.sqrt(3);
+        CollisionManager.sweepVoxels(chunkHandler, box(0.5f), step, step, step, null, CollisionLayers.ALL, 1,
+                new SweepHit(), null);
+        // The box crosses about 577 boundaries on each axis. The volume around the cast would be 577^3 voxels.
+        check(chunkHandler.reads > 0, "The cast did not read any voxels.");
+        check(chunkHandler.reads <= 16 * distance, "The cast read " + chunkHandler.reads + " voxels.");
+    }
+
+    /**
+     * A cast longer than the max voxel query distance only reads the voxels up to that distance.
+     */
+    private static void clampedCast() {
+        CountingChunkHandler chunkHandler = new CountingChunkHandler();
+        float distance = 1_000_000;
+        float step = distance / (float) Math.sqrt(3);
+        CollisionManager.sweepVoxels(chunkHandler, box(0.5f), step, -step, step, null, CollisionLayers.ALL,
+                CollisionManager.getVoxelCastTime(distance), new SweepHit(), null);
+        check(chunkHandler.reads <= 16 * CollisionManager.MAX_VOXEL_QUERY_DISTANCE,
+                "The clamped cast read " + chunkHandler.reads + " voxels.");
+    }
+
+    /**
+     * An overlap that covers too many voxels is rejected, unless voxels are left out of the mask.
+     */
+    private static void oversizedOverlap() {
+        CollisionManager collisionManager = new CollisionManager(null);
+        Vector3 halfExtents = new Vector3(100, 100, 100);
+        try {
+            collisionManager.overlapBox(new Vector3(0, 0, 0), halfExtents, CollisionLayers.ALL, new QueryHitBuffer());
+            throw new AssertionError("An overlap of 200^3 voxels was not rejected.");
+        } catch (IllegalArgumentException expected) {
+            // Expected.
+        }
+    }
+
+    private static float[] box(float halfExtent) {
+        return new float[]{-halfExtent, -halfExtent, -halfExtent, halfExtent, halfExtent, halfExtent};
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    /**
+     * A chunk handler with no voxels that counts how many are read.
+     */
+    private static class CountingChunkHandler extends ChunkHandler {
+        private int reads;
+
+        @Override
+        public Voxel getVoxel(int x, int y, int z) {
+            reads++;
+            return null;
+        }
+    }
+}
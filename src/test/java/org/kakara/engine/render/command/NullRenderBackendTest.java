@@ -0,0 +1,122 @@
+package org.kakara.engine.render.command;
+
+import org.joml.Matrix4f;
+import org.kakara.engine.components.Transform;
+import org.kakara.engine.gameitems.GameItem;
+import org.kakara.engine.gameitems.Material;
+import org.kakara.engine.gameitems.mesh.IMesh;
+import org.kakara.engine.math.Vector3;
+import org.kakara.engine.render.culling.FrustumCullingFilter;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Records draws into a {@link RenderCommandBuffer} and replays them through the {@link NullRenderBackend}.
+ *
+ * <p>Throws an {@link AssertionError} if a check fails.</p>
+ */
+public class NullRenderBackendTest {
+
+    public static void main(String[] args) {
+        replay(3);
+        // Enough draws for the matrices to be built on the worker thread.
+        replay(200);
+        depthMap();
+        System.out.println("All render command checks passed.");
+    }
+
+    /**
+     * Every recorded draw is executed once, in the order it was recorded, with the matrix of its transform.
+     */
+    private static void replay(int draws) {
+        RenderCommandBuffer commands = new RenderCommandBuffer();
+        IMesh[] meshes = new IMesh[draws];
+        commands.reset(1);
+        Transform transform = new Transform();
+        for (int i = 0; i < draws; i++) {
+            meshes[i] = new TestMesh();
+            transform.setPosition(new Vector3(i, 2 * i, -i));
+            commands.add(meshes[i], transform);
+        }
+        commands.submit();
+
+        NullRenderBackend backend = new NullRenderBackend();
+        backend.execute(commands, null, false, new Matrix4f(), new Matrix4f());
+        check(backend.getDrawCount() == draws, "Every draw should be executed.");
+        check(backend.getDepthDrawCount() == 0, "No depth map draws should be counted.");
+        List<IMesh> executed = backend.getExecutedMeshes();
+        check(executed.size() == draws, "Every mesh should be executed once.");
+        Matrix4f matrix = new Matrix4f();
+        for (int i = 0; i < draws; i++) {
+            check(executed.get(i) == meshes[i], "Draw " + i + " should be executed in the order it was recorded.");
+            commands.getModelMatrix(i, matrix);
+            check(matrix.m30() == i && matrix.m31() == 2 * i && matrix.m32() == -i,
+                    "Draw " + i + " should have the position it was recorded with.");
+        }
+
+        // A new frame starts empty.
+        commands.reset(2);
+        check(commands.getDrawCount() == 0 && commands.getFrame() == 2, "Resetting should clear the draws.");
+        backend.reset();
+        backend.execute(commands, null, false, new Matrix4f(), new Matrix4f());
+        check(backend.getDrawCount() == 0 && backend.getExecutedMeshes().isEmpty(), "An empty buffer should not draw.");
+    }
+
+    /**
+     * Depth map draws are counted apart from the regular draws.
+     */
+    private static void depthMap() {
+        RenderCommandBuffer commands = new RenderCommandBuffer();
+        commands.reset(1);
+        IMesh first = new TestMesh(), second = new TestMesh();
+        commands.add(first, new Transform());
+        commands.add(second, new Transform());
+        commands.submit();
+
+        NullRenderBackend backend = new NullRenderBackend();
+        backend.execute(commands, null, true, null, new Matrix4f());
+        backend.execute(commands, null, false, new Matrix4f(), new Matrix4f());
+        check(backend.getDepthDrawCount() == 2 && backend.getDrawCount() == 2, "Each pass should count its own draws.");
+        List<IMesh> executed = backend.getExecutedMeshes();
+        check(executed.size() == 4 && executed.get(0) == first && executed.get(1) == second
+                && executed.get(2) == first && executed.get(3) == second, "Each pass should execute the draws in order.");
+    }
+
+    /**
+     * A mesh that does nothing.
+     */
+    private static final class TestMesh implements IMesh {
+        @Override
+        public void render() {
+        }
+
+        @Override
+        public void cleanUp() {
+        }
+
+        @Override
+        public Optional<Material> getMaterial() {
+            return Optional.empty();
+        }
+
+        @Override
+        public void renderList(List<GameItem> gameItems, FrustumCullingFilter filter, Consumer<GameItem> consumer) {
+        }
+
+        @Override
+        public boolean isWireframe() {
+            return false;
+        }
+
+        @Override
+        public void setWireframe(boolean value) {
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}
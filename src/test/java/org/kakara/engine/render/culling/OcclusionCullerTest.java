@@ -0,0 +1,100 @@
+package org.kakara.engine.render.culling;
+
+import org.joml.Matrix4f;
+
+/**
+ * Checks the depth pyramid and the box test of the {@link OcclusionCuller}.
+ *
+ * <p>The camera is at the origin looking down the negative z axis. Throws an {@link AssertionError} if a check
+ * fails.</p>
+ */
+public class OcclusionCullerTest {
+    private static final Matrix4f PROJECTION = new Matrix4f().perspective((float) Math.toRadians(60), 2, 0.1f, 100);
+    private static final Matrix4f VIEW = new Matrix4f();
+
+    public static void main(String[] args) {
+        OcclusionCuller culler = new OcclusionCuller(63, 31);
+        try {
+            fullWall(culler);
+            halfWall(culler);
+            disabled(culler);
+        } finally {
+            culler.cleanup();
+        }
+        System.out.println("All occlusion culler checks passed.");
+    }
+
+    /**
+     * A wall that covers the whole screen hides everything behind it, and nothing in front of it.
+     */
+    private static void fullWall(OcclusionCuller culler) {
+        culler.begin(PROJECTION, VIEW);
+        culler.addOccluder(-50, -50, -11, 50, 50, -10);
+        culler.submit();
+        check(!culler.testAab(-1, -1, -21, 1, 1, -20), "A box behind the wall should be hidden.");
+        check(culler.testAab(-1, -1, -6, 1, 1, -5), "A box in front of the wall should be visible.");
+        check(culler.testAab(-100, -100, -90, 100, 100, -5), "A box reaching in front of the wall should be visible.");
+        checkPyramid(culler);
+        int top = culler.getLevelCount() - 1;
+        check(culler.getLevelWidth(top) == 1 && culler.getLevelHeight(top) == 1, "The pyramid should end at one texel.");
+        check(culler.getDepth(top, 0, 0) < 1, "The top of the pyramid should hold the depth of the wall.");
+    }
+
+    /**
+     * A wall that only covers the left half of the screen only hides the boxes that are completely behind it.
+     */
+    private static void halfWall(OcclusionCuller culler) {
+        culler.begin(PROJECTION, VIEW);
+        culler.addOccluder(-50, -50, -11, 0, 50, -10);
+        culler.submit();
+        check(!culler.testAab(-4, -1, -21, -3, 1, -20), "A box behind the wall should be hidden.");
+        check(culler.testAab(3, -1, -21, 4, 1, -20), "A box beside the wall should be visible.");
+        check(culler.testAab(-1, -1, -21, 1, 1, -20), "A box partly behind the wall should be visible.");
+        checkPyramid(culler);
+        int top = culler.getLevelCount() - 1;
+        check(culler.getDepth(top, 0, 0) == 1, "The top of the pyramid should hold the empty far depth.");
+    }
+
+    /**
+     * Nothing is hidden when the culler is disabled.
+     */
+    private static void disabled(OcclusionCuller culler) {
+        culler.setEnabled(false);
+        culler.begin(PROJECTION, VIEW);
+        culler.addOccluder(-50, -50, -11, 50, 50, -10);
+        culler.submit();
+        check(culler.getOccluderCount() == 0, "A disabled culler should not keep occluders.");
+        check(culler.testAab(-1, -1, -21, 1, 1, -20), "A disabled culler should not hide anything.");
+        culler.setEnabled(true);
+    }
+
+    /**
+     * Every texel of a level must be the furthest of the texels below it. (The last row and column of an odd sized
+     * level are reused).
+     */
+    private static void checkPyramid(OcclusionCuller culler) {
+        check(culler.getLevelWidth(0) == culler.getWidth() && culler.getLevelHeight(0) == culler.getHeight(),
+                "The first level should be the depth buffer.");
+        for (int level = 1; level < culler.getLevelCount(); level++) {
+            int sourceWidth = culler.getLevelWidth(level - 1);
+            int sourceHeight = culler.getLevelHeight(level - 1);
+            check(culler.getLevelWidth(level) == (sourceWidth + 1) / 2
+                    && culler.getLevelHeight(level) == (sourceHeight + 1) / 2, "Each level should be half the size.");
+            for (int y = 0; y < culler.getLevelHeight(level); y++) {
+                for (int x = 0; x < culler.getLevelWidth(level); x++) {
+                    int x1 = Math.min(x * 2 + 1, sourceWidth - 1), y1 = Math.min(y * 2 + 1, sourceHeight - 1);
+                    float expected = Math.max(
+                            Math.max(culler.getDepth(level - 1, x * 2, y * 2), culler.getDepth(level - 1, x1, y * 2)),
+                            Math.max(culler.getDepth(level - 1, x * 2, y1), culler.getDepth(level - 1, x1, y1)));
+                    check(culler.getDepth(level, x, y) == expected,
+                            "Level " + level + " at " + x + ", " + y + " should be the furthest of the level below.");
+                }
+            }
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}
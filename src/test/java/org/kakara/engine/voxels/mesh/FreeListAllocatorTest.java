@@ -0,0 +1,98 @@
+package org.kakara.engine.voxels.mesh;
+
+/**
+ * Checks the allocation, freeing and merging of the ranges of the {@link FreeListAllocator}.
+ *
+ * <p>Throws an {@link AssertionError} if a check fails.</p>
+ */
+public class FreeListAllocatorTest {
+
+    public static void main(String[] args) {
+        allocate();
+        freeAndCoalesce();
+        reuseFirstFit();
+        grow();
+        doubleFree();
+        System.out.println("All free list allocator checks passed.");
+    }
+
+    /**
+     * Ranges are handed out one after another until the capacity runs out.
+     */
+    private static void allocate() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        check(allocator.allocate(30) == 0, "The first range should start at 0.");
+        check(allocator.allocate(30) == 30, "The second range should follow the first.");
+        check(allocator.allocate(40) == 60, "The third range should fill the rest.");
+        check(allocator.getUsed() == 100, "Every unit should be used.");
+        check(allocator.allocate(1) == -1, "A full allocator should not allocate.");
+        check(allocator.getLargestFreeBlock() == 0, "A full allocator should have no free block.");
+    }
+
+    /**
+     * Freed ranges are merged with the free ranges on both sides.
+     */
+    private static void freeAndCoalesce() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        int a = allocator.allocate(20);
+        int b = allocator.allocate(20);
+        int c = allocator.allocate(20);
+        allocator.allocate(40);
+
+        allocator.free(a, 20);
+        allocator.free(c, 20);
+        check(allocator.getLargestFreeBlock() == 20, "Ranges that do not touch should not be merged.");
+        allocator.free(b, 20);
+        check(allocator.getLargestFreeBlock() == 60, "The middle range should merge both neighbours.");
+        check(allocator.getUsed() == 40, "Only the last range should be used.");
+        check(allocator.allocate(60) == 0, "The merged range should be allocated as one.");
+    }
+
+    /**
+     * The first free range that is large enough is used.
+     */
+    private static void reuseFirstFit() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        int a = allocator.allocate(10);
+        allocator.allocate(10);
+        int c = allocator.allocate(30);
+        allocator.allocate(10);
+        allocator.free(a, 10);
+        allocator.free(c, 30);
+        check(allocator.allocate(20) == c, "A range too large for the first free block should use the next one.");
+        check(allocator.allocate(10) == a, "A range that fits the first free block should use it.");
+    }
+
+    /**
+     * Growing adds the new space to the end, merged with a free range there.
+     */
+    private static void grow() {
+        FreeListAllocator allocator = new FreeListAllocator(50);
+        allocator.allocate(40);
+        allocator.grow(100);
+        check(allocator.getCapacity() == 100, "The capacity should grow.");
+        check(allocator.getUsed() == 40, "Growing should not change the used units.");
+        check(allocator.getLargestFreeBlock() == 60, "The new space should merge with the free end.");
+        check(allocator.allocate(60) == 40, "The merged end should be allocated as one.");
+    }
+
+    /**
+     * Freeing a range that is already free is rejected.
+     */
+    private static void doubleFree() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        int a = allocator.allocate(10);
+        allocator.free(a, 10);
+        try {
+            allocator.free(a, 10);
+            throw new AssertionError("Freeing a range twice should be rejected.");
+        } catch (IllegalStateException expected) {
+            // Expected.
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}